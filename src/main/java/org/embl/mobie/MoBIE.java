@@ -46,12 +46,16 @@ import org.embl.mobie.lib.files.SourcesFromPathsCreator;
 import org.embl.mobie.lib.hcs.HCSDataAdder;
 import org.embl.mobie.lib.hcs.Plate;
 import org.embl.mobie.lib.hcs.Site;
+import org.embl.mobie.lib.image.AnnotationImage;
+import org.embl.mobie.lib.image.AnnotationLabelImage;
 import org.embl.mobie.lib.image.Image;
 import org.embl.mobie.lib.image.ImageDataImage;
+import org.embl.mobie.lib.image.SourcePair;
 import org.embl.mobie.lib.image.SpimDataImage;
 import org.embl.mobie.lib.io.DataFormats;
 import org.embl.mobie.lib.io.StorageLocation;
 import org.embl.mobie.lib.serialize.*;
+import org.embl.mobie.lib.source.SourceHelper;
 import org.embl.mobie.lib.table.TableDataFormat;
 import org.embl.mobie.lib.table.saw.TableOpener;
 import org.embl.mobie.lib.transform.GridType;
@@ -246,8 +250,14 @@ public class MoBIE
 	private void openHCSDataset( double wellMargin, double siteMargin, @Nullable VoxelDimensions voxelDimensions ) throws IOException
 	{
 		initProject( "HCS" );
-		final Plate plate = new Plate( projectLocation, voxelDimensions );
-		new HCSDataAdder( plate, wellMargin, siteMargin ).addData( dataset );
+		final Plate plate = new Plate(
+				projectLocation,
+				voxelDimensions,
+				settings.values.getPlateMetadataCacheDirectory(),
+				settings.values.isPlateContrastLimitsFromFirstPlane() );
+		new HCSDataAdder( plate, wellMargin, siteMargin )
+				.setOverviewCacheDirectory( settings.values.getPlateOverviewCacheDirectory() )
+				.addData( dataset );
 		initUIandShowView( dataset.views().keySet().iterator().next() );
 	}
 
@@ -619,6 +629,43 @@ public class MoBIE
 		IJ.log( "Initialised " + dataSources.size() + " data source(s) in " + (System.currentTimeMillis() - startTime) + " ms, using up to " + ThreadHelper.getNumIoThreads() + " thread(s).");
 	}
 
+	// Prefetches the coarsest level, which BDV renders first,
+	// of the given images, i.e. of the images that are shown
+	// after the transformations of a view.
+	// Does not wait, such that the view can be shown while
+	// the coarsest levels are loaded.
+	// For label images with annotations only the label image is
+	// prefetched, as the annotations may need loading a table.
+	public void prefetchCoarsestLevels( Collection< String > imageNames )
+	{
+		for ( String imageName : imageNames )
+		{
+			if ( ! DataStore.containsImage( imageName ) ) continue;
+
+			Image< ? > image = DataStore.getImage( imageName );
+			if ( image instanceof AnnotationLabelImage )
+				image = ( ( AnnotationLabelImage< ? > ) image ).getLabelImage();
+			else if ( image instanceof AnnotationImage )
+				continue;
+
+			// the source pair is needed for showing the image anyway,
+			// getting it here avoids creating it concurrently
+			final SourcePair< ? > sourcePair = image.getSourcePair();
+			ThreadHelper.ioExecutorService.submit( () ->
+			{
+				try
+				{
+					SourceHelper.prefetchCoarsestLevel( sourcePair, 0 );
+				}
+				catch ( Exception e )
+				{
+					// prefetching is optional, the data will be loaded when rendered
+					IJ.log( "[WARN] Could not prefetch " + imageName + ": " + e.getMessage() );
+				}
+			} );
+		}
+	}
+
 	private void initDataSource( DataSource dataSource, String log )
 	{
 		if ( dataSource instanceof ImageDataSource )
@@ -631,12 +678,18 @@ public class MoBIE
 
 			if ( dataSource.preInit() )
 			{
-				// force initialization here to save time later
-				// (i.e. help smooth rendering in BDV)
-				final Source< ? > source = image.getSourcePair().getSource();
-				final int levels = source.getNumMipmapLevels();
-				for ( int level = 0; level < levels; level++ )
-					source.getSource( 0, level ).randomAccess();
+				if ( settings.values.isInitAllResolutionLevels() )
+				{
+					// force initialization here to save time later
+					// (i.e. help smooth rendering in BDV)
+					SourceHelper.initAllLevels( image.getSourcePair().getSource() );
+				}
+				else
+				{
+					// open the image here, in parallel with the other images,
+					// but initialise its resolution levels lazily, when BDV renders them
+					image.getSourcePair();
+				}
 			}
 
 			if ( dataSource.getClass() == SegmentationDataSource.class )
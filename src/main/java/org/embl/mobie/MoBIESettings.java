@@ -120,6 +120,58 @@ public class MoBIESettings
 		return this;
 	}
 
+	// By default, only the coarsest resolution level of the
+	// data sources is prefetched when a view is opened.
+	// Initialising all levels upfront may help smooth rendering,
+	// but for many remote sources it delays showing the view.
+	public MoBIESettings initAllResolutionLevels( Boolean initAllResolutionLevels )
+	{
+		this.values.initAllResolutionLevels = initAllResolutionLevels;
+		return this;
+	}
+
+
+	// For large label images, the boundaries of the segments can be
+	// computed once per resolution level and cached, rather than for
+	// every rendered pixel. The boundary width is then rounded to
+	// whole voxels of the shown resolution level.
+	public MoBIESettings cacheLabelBoundaries( Boolean cacheLabelBoundaries )
+	{
+		this.values.cacheLabelBoundaries = cacheLabelBoundaries;
+		return this;
+	}
+
+	// Optional, local directory in which downsampled overviews of
+	// HCS plates are cached. This avoids reading all sites at
+	// full resolution when zooming out on a plate.
+	// An overview is computed again if the local image files change,
+	// but changes of remote image data, e.g. on S3, are not detected;
+	// in this case the overview files must be deleted from the directory.
+	public MoBIESettings plateOverviewCacheDirectory( String plateOverviewCacheDirectory )
+	{
+		this.values.plateOverviewCacheDirectory = plateOverviewCacheDirectory;
+		return this;
+	}
+
+	// Optional, local directory in which the channel metadata of
+	// HCS plates is cached, such that reopening a plate does not
+	// read the metadata from the image files again.
+	public MoBIESettings plateMetadataCacheDirectory( String plateMetadataCacheDirectory )
+	{
+		this.values.plateMetadataCacheDirectory = plateMetadataCacheDirectory;
+		return this;
+	}
+
+	// By default, the contrast limits of the channels of HCS plates
+	// are the ones of the metadata of the opened images. Optionally,
+	// they are the value range of the first plane of each channel,
+	// which is read, together with the other metadata, without
+	// opening the images, which is faster, e.g. for plates on S3.
+	public MoBIESettings plateContrastLimitsFromFirstPlane( Boolean plateContrastLimitsFromFirstPlane )
+	{
+		this.values.plateContrastLimitsFromFirstPlane = plateContrastLimitsFromFirstPlane;
+		return this;
+	}
 
 	public static class Values
 	{
@@ -135,6 +187,11 @@ public class MoBIESettings
 		private VoxelDimensions voxelDimensions = null;
 		private Boolean openedFromCLI = false; // started from CLI
 		private String groovyScript = "";
+		private Boolean initAllResolutionLevels = false;
+		private Boolean cacheLabelBoundaries = false;
+		private String plateOverviewCacheDirectory;
+		private String plateMetadataCacheDirectory;
+		private Boolean plateContrastLimitsFromFirstPlane = false;
 
 		public VoxelDimensions getVoxelDimensions()
 		{
@@ -196,5 +253,30 @@ public class MoBIESettings
 			return openedFromCLI;
 		}
 
+		public Boolean isInitAllResolutionLevels()
+		{
+			return initAllResolutionLevels;
+		}
+
+		public Boolean isCacheLabelBoundaries()
+		{
+			return cacheLabelBoundaries;
+		}
+
+		public String getPlateOverviewCacheDirectory()
+		{
+			return plateOverviewCacheDirectory;
+		}
+
+		public String getPlateMetadataCacheDirectory()
+		{
+			return plateMetadataCacheDirectory;
+		}
+
+		public Boolean isPlateContrastLimitsFromFirstPlane()
+		{
+			return plateContrastLimitsFromFirstPlane;
+		}
+
 	}
 }
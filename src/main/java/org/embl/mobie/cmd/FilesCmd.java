@@ -69,6 +69,9 @@ public class FilesCmd implements Callable< Void > {
 	@Option(names = { RC, REMOVE_CALIBRATION }, required = false, description = "flag to remove spatial calibration from all images; this can be useful if only some images have a spatial calibration metadata and thus overlaying several images would fail")
 	public SpatialCalibration spatialCalibration = SpatialCalibration.FromImageFiles;
 
+	@Option(names = {"--cache-boundaries"}, required = false, description = "flag to compute the boundaries of the label images once per resolution level and cache them, which speeds up rendering large label images as boundaries; the boundary width is then rounded to whole voxels")
+	public Boolean cacheBoundaries = false;
+
 	@Override
 	public Void call() throws Exception {
 
@@ -76,6 +79,8 @@ public class FilesCmd implements Callable< Void > {
 
 		settings.openedFromCLI( true );
 
+		settings.cacheLabelBoundaries( cacheBoundaries );
+
 		spatialCalibration.setVoxelDimensions( settings, tables != null ? tables[ 0 ] : null );
 
 		List< String > imageList = images != null ?
@@ -54,6 +54,15 @@ public class HCSCmd implements Callable< Void > {
 	@Option(names = {"--remove-spatial-calibration"}, required = false, description = "removes spatial calibration from all images; this is useful if only some images have a spatial calibration and thus the overlay would fail.")
 	public Boolean removeSpatialCalibration = false;
 
+	@Option(names = {"--overview-cache"}, required = false, description = "local folder for caching a downsampled overview of the plate, which speeds up zooming out, in particular for image files without a resolution pyramid; changes of remote image data, e.g. on S3, are not detected, in this case delete the overview files from this folder.")
+	public String overviewCache = null;
+
+	@Option(names = {"--metadata-cache"}, required = false, description = "local folder for caching the channel metadata of the plate, which speeds up reopening the plate.")
+	public String metadataCache = null;
+
+	@Option(names = {"--contrast-limits-from-first-plane"}, required = false, description = "use the value range of the first plane of each channel as its contrast limits, rather than the contrast limits of the image metadata; this reads the metadata and the first plane of each channel without opening the images, which is faster, e.g. for plates on S3.")
+	public Boolean contrastLimitsFromFirstPlane = false;
+
 	@Override
 	public Void call() throws Exception {
 
@@ -63,6 +72,12 @@ public class HCSCmd implements Callable< Void > {
 
 		settings.setVoxelDimensions( null ); // FIXME
 
+		settings.plateOverviewCacheDirectory( overviewCache );
+
+		settings.plateMetadataCacheDirectory( metadataCache );
+
+		settings.plateContrastLimitsFromFirstPlane( contrastLimitsFromFirstPlane );
+
 		new MoBIE( hcs, settings, wellMargin, siteMargin, null );
 
 		return null;
@@ -77,6 +77,27 @@ public class OpenHCSDatasetCommand implements Command
 			persist = false, required = false )
 	public File omeXML;
 
+	@Parameter ( label = "Plate Overview Cache (optional)",
+			description = "Local folder for caching a downsampled overview of the plate.\n" +
+					"This speeds up zooming out, in particular for image files without a resolution pyramid.\n" +
+					"Changes of remote image data, e.g. on S3, are not detected; in this case delete the overview files from this folder.",
+			style = "directory", required = false )
+	public File overviewCache;
+
+	@Parameter ( label = "Plate Metadata Cache (optional)",
+			description = "Local folder for caching the channel metadata of the plate.\n" +
+					"This speeds up reopening the plate.",
+			style = "directory", required = false )
+	public File metadataCache;
+
+	@Parameter ( label = "Contrast Limits From First Plane",
+			description = "Use the value range of the first plane of each channel as its contrast limits,\n" +
+					"rather than the contrast limits of the image metadata.\n" +
+					"This reads the metadata and the first plane of each channel without opening the images,\n" +
+					"which is faster, e.g. for plates on S3.",
+			required = false )
+	public boolean contrastLimitsFromFirstPlane = false;
+
 	@Override
 	public void run()
 	{
@@ -84,7 +105,14 @@ public class OpenHCSDatasetCommand implements Command
 
 		try
 		{
-			new MoBIE( hcsDirectory, new MoBIESettings(), wellMargin, siteMargin, voxelDimensions );
+			final MoBIESettings settings = new MoBIESettings();
+			if ( overviewCache != null )
+				settings.plateOverviewCacheDirectory( overviewCache.getAbsolutePath() );
+			if ( metadataCache != null )
+				settings.plateMetadataCacheDirectory( metadataCache.getAbsolutePath() );
+			settings.plateContrastLimitsFromFirstPlane( contrastLimitsFromFirstPlane );
+
+			new MoBIE( hcsDirectory, settings, wellMargin, siteMargin, voxelDimensions );
 		}
 		catch ( IOException e )
 		{
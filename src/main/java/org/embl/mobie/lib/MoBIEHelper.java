@@ -35,6 +35,7 @@ import mpicbg.spim.data.sequence.VoxelDimensions;
 import org.embl.mobie.io.ImageDataOpener;
 import org.embl.mobie.io.github.GitHubUtils;
 import org.embl.mobie.io.imagedata.ImageData;
+import org.embl.mobie.lib.io.DirectoryWalker;
 import org.janelia.saalfeldlab.n5.universe.metadata.canonical.CanonicalDatasetMetadata;
 import sc.fiji.bdvpg.scijava.services.SourceAndConverterBdvDisplayService;
 import sc.fiji.bdvpg.services.SourceAndConverterServices;
@@ -297,6 +298,12 @@ public abstract class MoBIEHelper
 
 		try
 		{
+			// the regex only concerns the file name of a local folder,
+			// thus the folder can be scanned in parallel
+			final File file = new File( regex );
+			if ( file.getParentFile() != null && file.getParentFile().isDirectory() )
+				return DirectoryWalker.find( file.getParent(), 999, file.getName() );
+
 			List< String > paths = getPaths( regex, 999 );
 			return paths;
 		}
@@ -29,6 +29,8 @@
 package org.embl.mobie.lib;
 
 import bdv.cache.SharedQueue;
+import org.embl.mobie.lib.io.IOThreadPool;
+import org.embl.mobie.lib.io.TileLoadingQueue;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -36,58 +38,54 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.RejectedExecutionHandler;
-import java.util.concurrent.ThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
 
 public class ThreadHelper
 {
 	static { net.imagej.patcher.LegacyInjector.preinit(); }
 
-	private static int N_IO_THREADS = Runtime.getRuntime().availableProcessors() - 1;
+	private static final int N_IO_THREADS = Math.max( 1, Runtime.getRuntime().availableProcessors() - 1 );
+
+	// upper bound for high latency object stores, such as S3
+	private static final int MAX_IO_THREADS = Math.min( 64, Math.max( 16, 4 * Runtime.getRuntime().availableProcessors() ) );
 
 	private static final int N_THREADS = Runtime.getRuntime().availableProcessors() - 1;
 
-	public static ExecutorService ioExecutorService = Executors.newFixedThreadPool( N_IO_THREADS );
+	// the number of threads adapts to the latency of the tasks
+	public static final IOThreadPool ioExecutorService = new IOThreadPool( N_IO_THREADS, MAX_IO_THREADS );
 
 	public static final int NUM_PRIORITIES = 6; // https://imagesc.zulipchat.com/#narrow/stream/327326-BigDataViewer/topic/SharedQueue
 
-	public static final SharedQueue sharedQueue = new SharedQueue( N_IO_THREADS, NUM_PRIORITIES );
+	// The fetcher threads of the SharedQueue cannot be changed later.
+	// Thus, there are enough of them for high latency object stores,
+	// as idle fetcher threads just wait for the next request.
+	public static final SharedQueue sharedQueue = new SharedQueue( Math.max( 16, N_IO_THREADS ), NUM_PRIORITIES );
 
 	public static ExecutorService executorService = Executors.newFixedThreadPool( N_THREADS );
 
-	public static ExecutorService stitchedImageExecutorService;
-	static {
-		// queue that only keep the latest requests.
-		// use case: if a user zooms into a stitched image or adds a new channel
-		// we don't want to wait until all the "old" cells are loaded that
-		// have been requested already, but rather present the user with
-		// the newly requested data.
-		// idea taken from: https://stackoverflow.com/questions/53236911/executor-thread-pool-limit-queue-size-and-dequeue-oldest
-		// fixes: https://github.com/mobie/mobie-viewer-fiji/issues/901
-		RejectedExecutionHandler handler = new ThreadPoolExecutor.DiscardOldestPolicy();
-		final int poolSize = ThreadHelper.getNumIoThreads();
-		final LinkedBlockingQueue< Runnable > workQueue = new LinkedBlockingQueue<>( 2 * poolSize );
-		stitchedImageExecutorService = new ThreadPoolExecutor(poolSize, poolSize,
-				0L, TimeUnit.MILLISECONDS, workQueue, handler );
-	}
+	// Opens the tiles of stitched images, those in view first.
+	// Use case: if a user zooms into a stitched image or adds a new channel
+	// we don't want to wait until all the "old" tiles are opened that
+	// have been requested already, but rather present the user with
+	// the newly requested data.
+	// fixes: https://github.com/mobie/mobie-viewer-fiji/issues/901
+	public static final TileLoadingQueue tileLoadingQueue = new TileLoadingQueue( N_IO_THREADS, "MoBIE tiles" );
 
+	// cancels the pending IO tasks and interrupts the running ones
 	public static void resetIOThreads()
 	{
-		ioExecutorService.shutdownNow();
-		ioExecutorService = Executors.newFixedThreadPool( N_IO_THREADS );
+		ioExecutorService.cancelTasks();
 	}
 
+	// the minimal number of IO threads,
+	// more threads are added for high latency IO
 	public static void setNumIoThreads( int numIoThreads )
 	{
-		N_IO_THREADS = numIoThreads;
-		ioExecutorService = Executors.newFixedThreadPool( N_IO_THREADS );
+		ioExecutorService.setMinThreads( numIoThreads );
 	}
 
 	public static int getNumIoThreads()
 	{
-		return N_IO_THREADS;
+		return ioExecutorService.getNumThreads();
 	}
 
 	public static int getNumThreads()
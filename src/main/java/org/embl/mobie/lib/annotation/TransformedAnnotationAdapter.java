@@ -0,0 +1,111 @@
+/*-
+ * #%L
+ * Fiji viewer for MoBIE projects
+ * %%
+ * Copyright (C) 2018 - 2024 EMBL
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.embl.mobie.lib.annotation;
+
+import org.embl.mobie.lib.table.AnnData;
+
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Maps voxels of a transformed label image to the
+// transformed annotations, using the row indices of
+// the untransformed annotations.
+// In contrast to the {@code DefaultAnnotationAdapter} this
+// does not require all transformed annotations to exist, such that
+// they can be created on demand, only for the rendered segments.
+public class TransformedAnnotationAdapter< A extends Annotation, TA extends Annotation > implements AnnotationAdapter< TA >
+{
+	private final AtomicBoolean throwError = new AtomicBoolean( true );
+	private final AnnData< A > annData;
+	private final AnnData< TA > transformedAnnData;
+	private final String source;
+	private Map< String, Integer > stlToRowIndex; // source, timepoint, label
+
+	public TransformedAnnotationAdapter( AnnData< A > annData, AnnData< TA > transformedAnnData, String source )
+	{
+		this.annData = annData;
+		this.transformedAnnData = transformedAnnData;
+		this.source = source;
+	}
+
+	@Override
+	public TA createVariable()
+	{
+		return transformedAnnData.getTable().annotation( 0 );
+	}
+
+	@Override
+	public TA getAnnotation( String source, final int timePoint, final int label )
+	{
+		if ( label == 0 )
+		{
+			// 0 is the background label
+			// null is the background annotation
+			return null ;
+		}
+
+		// this is needed, because the transformed image
+		// has a different name than the wrapped original image
+		final Integer rowIndex = stlToRowIndex.get( stlKey( this.source, timePoint, label ) );
+
+		if ( rowIndex == null )
+		{
+			if ( throwError.get() )
+			{
+				System.err.println( "AnnotationAdapter: Missing annotation: " + this.source + "; time point = " + timePoint + "; label = " + label );
+				System.err.println( "AnnotationAdapter: Suppressing further errors of that kind.");
+			}
+
+			throwError.set( false );
+			return null;
+		}
+
+		return transformedAnnData.getTable().annotation( rowIndex );
+	}
+
+	@Override
+	public void init()
+	{
+		stlToRowIndex = new ConcurrentHashMap<>();
+		final ArrayList< A > annotations = annData.getTable().annotations();
+		final int numAnnotations = annotations.size();
+		for ( int rowIndex = 0; rowIndex < numAnnotations; rowIndex++ )
+		{
+			final A annotation = annotations.get( rowIndex );
+			stlToRowIndex.put( stlKey( annotation.source(), annotation.timePoint(), annotation.label() ), rowIndex );
+		}
+	}
+
+	private String stlKey( String source, int timePoint, int label )
+	{
+		return source + ";" + timePoint + ";" + label;
+	}
+}
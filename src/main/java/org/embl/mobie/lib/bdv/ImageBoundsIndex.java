@@ -0,0 +1,186 @@
+/*-
+ * #%L
+ * Fiji viewer for MoBIE projects
+ * %%
+ * Copyright (C) 2018 - 2024 EMBL
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.embl.mobie.lib.bdv;
+
+import net.imglib2.FinalRealInterval;
+import net.imglib2.RealInterval;
+import org.embl.mobie.lib.image.Image;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Spatial index of the bounds of the masks of images,
+ * for finding the images within a region, e.g. the viewer,
+ * without testing all images.
+ *
+ * The xy-plane is divided into cells of the median size of
+ * the images. Images that are much larger than that are
+ * tested for every query.
+ *
+ * The bounds are fetched once; if the images are transformed
+ * the index needs to be rebuilt.
+ */
+public class ImageBoundsIndex
+{
+	private static final int MAX_CELLS_PER_IMAGE = 16;
+
+	private final List< Image< ? > > images;
+	private final RealInterval[] bounds;
+	private final double[] origin = new double[ 2 ];
+	private final double[] cellSize = new double[ 2 ];
+	private final long[] maxCell = new long[ 2 ];
+	private final Map< Long, int[] > cellToImages = new HashMap<>();
+	private final int[] largeImages;
+	private final int[] visited;
+	private int query;
+
+	public ImageBoundsIndex( Collection< ? extends Image< ? > > images )
+	{
+		this.images = new ArrayList<>( images );
+		final int numImages = this.images.size();
+		bounds = new RealInterval[ numImages ];
+		visited = new int[ numImages ];
+
+		final double[][] extents = new double[ 2 ][ numImages ];
+		Arrays.fill( origin, Double.MAX_VALUE );
+		for ( int i = 0; i < numImages; i++ )
+		{
+			bounds[ i ] = new FinalRealInterval( this.images.get( i ).getMask() );
+			for ( int d = 0; d < 2; d++ )
+			{
+				origin[ d ] = Math.min( origin[ d ], bounds[ i ].realMin( d ) );
+				extents[ d ][ i ] = bounds[ i ].realMax( d ) - bounds[ i ].realMin( d );
+			}
+		}
+
+		for ( int d = 0; d < 2; d++ )
+		{
+			Arrays.sort( extents[ d ] );
+			cellSize[ d ] = numImages == 0 ? 1.0 : extents[ d ][ numImages / 2 ];
+			if ( ! ( cellSize[ d ] > 0 ) ) cellSize[ d ] = 1.0;
+		}
+
+		final Map< Long, List< Integer > > cellToImageList = new HashMap<>();
+		final List< Integer > largeImageList = new ArrayList<>();
+		for ( int i = 0; i < numImages; i++ )
+		{
+			final long minX = getCell( bounds[ i ].realMin( 0 ), 0 );
+			final long maxX = getCell( bounds[ i ].realMax( 0 ), 0 );
+			final long minY = getCell( bounds[ i ].realMin( 1 ), 1 );
+			final long maxY = getCell( bounds[ i ].realMax( 1 ), 1 );
+			maxCell[ 0 ] = Math.max( maxCell[ 0 ], maxX );
+			maxCell[ 1 ] = Math.max( maxCell[ 1 ], maxY );
+
+			if ( ( maxX - minX + 1 ) * ( maxY - minY + 1 ) > MAX_CELLS_PER_IMAGE )
+			{
+				largeImageList.add( i );
+				continue;
+			}
+
+			for ( long x = minX; x <= maxX; x++ )
+				for ( long y = minY; y <= maxY; y++ )
+					cellToImageList.computeIfAbsent( getKey( x, y ), k -> new ArrayList<>() ).add( i );
+		}
+
+		cellToImageList.forEach( ( key, list ) -> cellToImages.put( key, list.stream().mapToInt( Integer::intValue ).toArray() ) );
+		largeImages = largeImageList.stream().mapToInt( Integer::intValue ).toArray();
+	}
+
+	public int size()
+	{
+		return images.size();
+	}
+
+	/**
+	 * Calls the {@code consumer} with each image, and its bounds,
+	 * whose bounds intersect with the {@code interval}, in the order
+	 * in which the images have been given.
+	 */
+	public synchronized void forEach( RealInterval interval, BiConsumer< Image< ? >, RealInterval > consumer )
+	{
+		query++;
+		final List< Integer > hits = new ArrayList<>();
+
+		for ( int i : largeImages )
+			if ( intersects( interval, bounds[ i ] ) )
+				hits.add( i );
+
+		// only visit the cells that contain images
+		final long minX = Math.max( 0, getCell( interval.realMin( 0 ), 0 ) );
+		final long maxX = Math.min( maxCell[ 0 ], getCell( interval.realMax( 0 ), 0 ) );
+		final long minY = Math.max( 0, getCell( interval.realMin( 1 ), 1 ) );
+		final long maxY = Math.min( maxCell[ 1 ], getCell( interval.realMax( 1 ), 1 ) );
+		for ( long x = minX; x <= maxX; x++ )
+		{
+			for ( long y = minY; y <= maxY; y++ )
+			{
+				final int[] cellImages = cellToImages.get( getKey( x, y ) );
+				if ( cellImages == null ) continue;
+
+				for ( int i : cellImages )
+				{
+					if ( visited[ i ] == query ) continue;
+					visited[ i ] = query;
+					if ( intersects( interval, bounds[ i ] ) )
+						hits.add( i );
+				}
+			}
+		}
+
+		hits.sort( null );
+		for ( int i : hits )
+			consumer.accept( images.get( i ), bounds[ i ] );
+	}
+
+	// same as ! Intervals.isEmpty( Intervals.intersect( a, b ) ), without allocation
+	private static boolean intersects( RealInterval a, RealInterval b )
+	{
+		final int n = Math.min( a.numDimensions(), b.numDimensions() );
+		for ( int d = 0; d < n; d++ )
+			if ( Math.max( a.realMin( d ), b.realMin( d ) ) > Math.min( a.realMax( d ), b.realMax( d ) ) )
+				return false;
+		return true;
+	}
+
+	private long getCell( double position, int d )
+	{
+		return ( long ) Math.floor( ( position - origin[ d ] ) / cellSize[ d ] );
+	}
+
+	private static long getKey( long x, long y )
+	{
+		return ( x << 32 ) ^ ( y & 0xFFFFFFFFL );
+	}
+}
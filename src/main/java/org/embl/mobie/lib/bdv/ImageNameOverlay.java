@@ -37,12 +37,12 @@ import bdv.viewer.SourceAndConverter;
 import bdv.viewer.TransformListener;
 import bdv.viewer.ViewerState;
 import net.imglib2.FinalRealInterval;
+import net.imglib2.RealInterval;
 import net.imglib2.realtransform.AffineTransform3D;
-import net.imglib2.roi.RealMaskRealInterval;
-import net.imglib2.util.Intervals;
 import org.embl.mobie.DataStore;
 import org.embl.mobie.lib.bdv.view.SliceViewer;
 import org.embl.mobie.lib.image.Image;
+import org.embl.mobie.lib.image.ImageListener;
 import org.embl.mobie.lib.image.RegionAnnotationImage;
 import org.embl.mobie.lib.image.StitchedImage;
 import org.embl.mobie.lib.select.Listeners;
@@ -51,16 +51,24 @@ import sc.fiji.bdvpg.bdv.BdvHandleHelper;
 import java.awt.Color;
 import java.awt.Font;
 import java.awt.Graphics2D;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
 
-public class ImageNameOverlay extends BdvOverlay implements TransformListener< AffineTransform3D >
+public class ImageNameOverlay extends BdvOverlay implements TransformListener< AffineTransform3D >, ImageListener
 {
 	private final BdvHandle bdvHandle;
 	private final SliceViewer sliceViewer;
-	private Map< String, FinalRealInterval > imageBounds = new ConcurrentHashMap< String, FinalRealInterval >();
+	private static final int OCCUPIED_CELL_SIZE = 4;
+	private volatile Map< String, FinalRealInterval > imageBounds = new LinkedHashMap<>();
+	private volatile boolean boundsNeedUpdate = true;
+	private volatile boolean indexNeedsUpdate = true;
+	private ImageBoundsIndex imageBoundsIndex;
+	private Set< SourceAndConverter< ? > > indexedSources;
 	private BdvOverlaySource< ImageNameOverlay > overlaySource;
 	private boolean isActive;
 	private static final Font font = new Font( "Monospaced", Font.PLAIN, 20 );
@@ -74,12 +82,22 @@ public class ImageNameOverlay extends BdvOverlay implements TransformListener< A
 		this.bdvHandle = bdvHandle;
 		this.sliceViewer = sliceViewer;
 		bdvHandle.getViewerPanel().transformListeners().add( this );
+		Image.listeners.add( this );
 		setActive( isActive );
 	}
 
+	// Stops listening to the images and the viewer,
+	// because the image listeners are global.
+	public void close()
+	{
+		Image.listeners.remove( this );
+		bdvHandle.getViewerPanel().transformListeners().remove( this );
+	}
+
 	public void setActive( boolean isActive )
 	{
 		this.isActive = isActive;
+		boundsNeedUpdate = true;
 
 		if ( isActive && overlaySource == null )
 		{
@@ -116,16 +134,21 @@ public class ImageNameOverlay extends BdvOverlay implements TransformListener< A
 	@Override
 	public void transformChanged( AffineTransform3D transform3D )
 	{
-		if ( isActive )
-		{
-			updateImages();
-		}
+		// The images are only updated when the overlay is drawn,
+		// such that several transform events in between two
+		// repaints only cause one update.
+		boundsNeedUpdate = true;
 	}
 
-	private synchronized void updateImages()
+	@Override
+	public void imageChanged()
 	{
-		imageBounds.clear();
+		indexNeedsUpdate = true;
+		boundsNeedUpdate = true;
+	}
 
+	private synchronized void updateImages()
+	{
 		final ViewerState viewerState = bdvHandle.getViewerPanel().state().snapshot();
 
 		final AffineTransform3D viewerTransform = viewerState.getViewerTransform();
@@ -134,44 +157,67 @@ public class ImageNameOverlay extends BdvOverlay implements TransformListener< A
 
 		final Set< SourceAndConverter< ? > > sourceAndConverters = viewerState.getVisibleAndPresentSources();
 
+		if ( indexNeedsUpdate || imageBoundsIndex == null || ! sourceAndConverters.equals( indexedSources ) )
+		{
+			indexNeedsUpdate = false;
+			indexedSources = new HashSet<>( sourceAndConverters );
+			imageBoundsIndex = createImageBoundsIndex( sourceAndConverters );
+		}
+
+		imageBounds = getViewerImageBounds( imageBoundsIndex, viewerTransform, viewerInterval );
+	}
+
+	public static ImageBoundsIndex createImageBoundsIndex( Collection< SourceAndConverter< ? > > sourceAndConverters )
+	{
+		final List< Image< ? > > images = new ArrayList<>();
+
 		for ( final SourceAndConverter< ? > sourceAndConverter : sourceAndConverters )
 		{
 			Image< ? > image = DataStore.sourceToImage().get( sourceAndConverter );
 
-			if ( image instanceof RegionAnnotationImage )
+			if ( image == null || image instanceof RegionAnnotationImage )
 			{
 				continue;
 			}
 
 			if ( image instanceof StitchedImage )
 			{
-				final List< ? extends Image< ? > > tileImages = ( ( StitchedImage< ?, ? > ) image ).getTileImages();
-
-				for ( Image< ? > tileImage : tileImages )
-				{
-					addImage( viewerTransform, viewerInterval, tileImage );
-				}
-
+				images.addAll( ( ( StitchedImage< ?, ? > ) image ).getTileImages() );
 				continue;
 			}
 
-			addImage( viewerTransform, viewerInterval, image );
+			images.add( image );
 		}
+
+		return new ImageBoundsIndex( images );
 	}
 
-	private void addImage( AffineTransform3D viewerTransform, FinalRealInterval viewerInterval, Image< ? > image )
+	// the bounds, in viewer coordinates, of the images that are visible in the viewer
+	public static Map< String, FinalRealInterval > getViewerImageBounds( ImageBoundsIndex imageBoundsIndex, AffineTransform3D viewerTransform, RealInterval viewerInterval )
 	{
-		final RealMaskRealInterval imageMask = image.getMask();
-		final FinalRealInterval intersect = Intervals.intersect( viewerInterval, imageMask );
-		if ( ! Intervals.isEmpty( intersect ) )
-		{
-			imageBounds.put( image.getName(), viewerTransform.estimateBounds( imageMask ) );
-		}
+		final Map< String, FinalRealInterval > imageBounds = new LinkedHashMap<>();
+		imageBoundsIndex.forEach( viewerInterval, ( image, bounds ) ->
+				imageBounds.put( image.getName(), viewerTransform.estimateBounds( bounds ) ) );
+		return imageBounds;
 	}
 
 	@Override
 	protected void draw( Graphics2D g )
 	{
+		if ( boundsNeedUpdate )
+		{
+			boundsNeedUpdate = false;
+			updateImages();
+		}
+
+		// labels that would overlap with an already drawn label are skipped,
+		// using a coarse grid of the occupied parts of the viewer
+		final int width = bdvHandle.getViewerPanel().getDisplay().getWidth();
+		final int height = bdvHandle.getViewerPanel().getDisplay().getHeight();
+		final int occupiedWidth = width / OCCUPIED_CELL_SIZE + 1;
+		final int occupiedHeight = height / OCCUPIED_CELL_SIZE + 1;
+		final boolean[] occupied = new boolean[ occupiedWidth * occupiedHeight ];
+
 		for ( Map.Entry< String, FinalRealInterval > entry : imageBounds.entrySet() )
 		{
 			// determine the size of the annotated source
@@ -193,9 +239,10 @@ public class ImageNameOverlay extends BdvOverlay implements TransformListener< A
 			final int x = (int) ( sourceCenter - textWidth / 2.0 );
 			final int y = (int) ( bounds.realMax( 1 ) + 1.1F * finalFont.getSize() );
 
+			if ( ! occupy( occupied, occupiedWidth, occupiedHeight, x, y - textHeight + g.getFontMetrics().getDescent(), textWidth, textHeight ) )
+				continue;
+
 			// draw background (this helps with https://github.com/mobie/mobie-viewer-fiji/issues/1013)
-			// TODO? in addition, one could also determine all the text bounds as an Interval
-			//   and then only draw the names that don't overlap with something that has been drawn already
 			g.setColor( Color.BLACK );
 			g.fillRect( x, y - textHeight + g.getFontMetrics().getDescent(), textWidth, textHeight );
 
@@ -205,6 +252,30 @@ public class ImageNameOverlay extends BdvOverlay implements TransformListener< A
 		}
 	}
 
+	// returns false if the rectangle overlaps with an occupied part of the viewer,
+	// otherwise marks the rectangle as occupied
+	private static boolean occupy( boolean[] occupied, int occupiedWidth, int occupiedHeight, int x, int y, int width, int height )
+	{
+		final int minX = Math.max( 0, x / OCCUPIED_CELL_SIZE );
+		final int maxX = Math.min( occupiedWidth - 1, ( x + width - 1 ) / OCCUPIED_CELL_SIZE );
+		final int minY = Math.max( 0, y / OCCUPIED_CELL_SIZE );
+		final int maxY = Math.min( occupiedHeight - 1, ( y + height - 1 ) / OCCUPIED_CELL_SIZE );
+
+		if ( minX > maxX || minY > maxY )
+			return false; // outside the viewer
+
+		for ( int cy = minY; cy <= maxY; cy++ )
+			for ( int cx = minX; cx <= maxX; cx++ )
+				if ( occupied[ cy * occupiedWidth + cx ] )
+					return false;
+
+		for ( int cy = minY; cy <= maxY; cy++ )
+			for ( int cx = minX; cx <= maxX; cx++ )
+				occupied[ cy * occupiedWidth + cx ] = true;
+
+		return true;
+	}
+
 	public void addListener( ActiveListener activeListener )
 	{
 		listeners.add( activeListener );
@@ -43,12 +43,21 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class AccumulateAlphaBlendingProjectorARGB extends AccumulateProjector< ARGBType, ARGBType >
 {
 	public static BdvHandle bdvHandle;
 	public static ISourceAndConverterService sacService = SourceAndConverterServices.getSourceAndConverterService();;
 
+	// A projector is created for every repaint, but the
+	// blending metadata of the sources rarely changes.
+	// Thus, the order and the blending flags are cached per
+	// list of sources, until blendingChanged() is called.
+	private static final int MAX_CACHED_SOURCE_LISTS = 100;
+	private static final Map< List< SourceAndConverter< ? > >, Blending > sourcesToBlending = new ConcurrentHashMap<>();
+
 	private final boolean[] alphaBlending;
 	private final int[] order;
 
@@ -59,25 +68,66 @@ public class AccumulateAlphaBlendingProjectorARGB extends AccumulateProjector< A
 			final RandomAccessibleInterval< ARGBType > target )
 	{
 		super( sourceProjectors, sourceScreenImages, target );
-		alphaBlending = getAlphaBlending( sources );
-		order = getOrder( sources );
+		final Blending blending = getBlending( sources );
+		alphaBlending = blending.alphaBlending;
+		order = blending.order;
+	}
+
+	/*
+	 * Must be called whenever the blending mode or the
+	 * time added metadata of a source is changed.
+	 */
+	public static void blendingChanged()
+	{
+		sourcesToBlending.clear();
+	}
+
+	public static int[] getOrder( List< SourceAndConverter< ? > > sources )
+	{
+		return getBlending( sources ).order;
 	}
 
-	public static synchronized int[] getOrder( List< SourceAndConverter< ? > > sources )
+	public static boolean[] getAlphaBlending( List< SourceAndConverter< ? > > sources )
 	{
-		final ArrayList< SourceAndConverter< ? > > sorted = new ArrayList<>( sources );
+		return getBlending( sources ).alphaBlending;
+	}
+
+	private static Blending getBlending( List< SourceAndConverter< ? > > sources )
+	{
+		final Blending blending = sourcesToBlending.get( sources );
+		if ( blending != null )
+			return blending;
+
+		if ( sourcesToBlending.size() > MAX_CACHED_SOURCE_LISTS )
+			sourcesToBlending.clear();
 
-		Collections.sort(sorted, Comparator.comparingLong(sac -> {
-			Long timeAdded = (Long) sacService.getMetadata(sac, BlendingMode.TIME_ADDED);
-			return timeAdded != null ? timeAdded : Long.MIN_VALUE;
-		}));
-		int[] order = new int[ sorted.size() ];
+		final Blending newBlending = new Blending( computeAlphaBlending( sources ), computeOrder( sources ) );
+		// copy the key, because the list of sources is owned by the caller
+		sourcesToBlending.put( new ArrayList<>( sources ), newBlending );
+		return newBlending;
+	}
+
+	private static int[] computeOrder( List< SourceAndConverter< ? > > sources )
+	{
+		final int numSources = sources.size();
+		final long[] timesAdded = new long[ numSources ];
+		final List< Integer > sorted = new ArrayList<>( numSources );
+		for ( int sourceIndex = 0; sourceIndex < numSources; sourceIndex++ )
+		{
+			Long timeAdded = (Long) sacService.getMetadata( sources.get( sourceIndex ), BlendingMode.TIME_ADDED );
+			timesAdded[ sourceIndex ] = timeAdded != null ? timeAdded : Long.MIN_VALUE;
+			sorted.add( sourceIndex );
+		}
+
+		// stable, thus sources with equal times keep their order
+		Collections.sort( sorted, Comparator.comparingLong( sourceIndex -> timesAdded[ sourceIndex ] ) );
+		int[] order = new int[ numSources ];
 		for ( int i = 0; i < order.length; i++)
-			order[i] = sources.indexOf( sorted.get(i) );
+			order[i] = sorted.get( i );
 		return order;
 	}
 
-	public static synchronized boolean[] getAlphaBlending( List< SourceAndConverter< ? > > sources )
+	private static boolean[] computeAlphaBlending( List< SourceAndConverter< ? > > sources )
 	{
 		final int numSources = sources.size();
 		final boolean[] alphaBlending = new boolean[ numSources ];
@@ -100,48 +150,59 @@ public class AccumulateAlphaBlendingProjectorARGB extends AccumulateProjector< A
 		target.set( argbIndex );
 	}
 
+	/*
+	 * Composites the sources in the given order, using integer
+	 * arithmetic with the alpha values in [0, 255].
+	 *
+	 * Alpha blending sources are drawn over the accumulated
+	 * colour and alpha, all other sources are added.
+	 */
 	public static int getArgbIndex( Cursor< ? extends ARGBType >[] accesses, boolean[] alphaBlending, int[] order )
 	{
-		try
+		int aAccu = 0, rAccu = 0, gAccu = 0, bAccu = 0;
+
+		for ( int sourceIndex : order )
 		{
-			int aAccu = 0, rAccu = 0, gAccu = 0, bAccu = 0;
+			final int argb = accesses[ sourceIndex ].get().get();
+			final int alpha = ( argb >>> 24 );
+			if ( alpha == 0 ) continue;
 
-			for ( int sourceIndex : order )
+			if ( alphaBlending[ sourceIndex ] )
 			{
-				final int argb = accesses[ sourceIndex ].get().get();
-				final double alpha = ARGBType.alpha( argb ) / 255.0;
-				if ( alpha == 0 ) continue;
-
-				final int r = ARGBType.red( argb );
-				final int g = ARGBType.green( argb );
-				final int b = ARGBType.blue( argb );
-
-				if ( alphaBlending[ sourceIndex ] )
-				{
-					rAccu *= ( 1 - alpha );
-					gAccu *= ( 1 - alpha );
-					bAccu *= ( 1 - alpha );
-				}
-
-				rAccu += r * alpha;
-				gAccu += g * alpha;
-				bAccu += b * alpha;
+				final int transparency = 255 - alpha;
+				aAccu = aAccu * transparency / 255;
+				rAccu = rAccu * transparency / 255;
+				gAccu = gAccu * transparency / 255;
+				bAccu = bAccu * transparency / 255;
 			}
 
-			if ( aAccu > 255 )
-				aAccu = 255;
-			if ( rAccu > 255 )
-				rAccu = 255;
-			if ( gAccu > 255 )
-				gAccu = 255;
-			if ( bAccu > 255 )
-				bAccu = 255;
-
-			return ARGBType.rgba( rAccu, gAccu, bAccu, aAccu );
+			aAccu += alpha;
+			rAccu += ( ( argb >> 16 ) & 0xff ) * alpha / 255;
+			gAccu += ( ( argb >> 8 ) & 0xff ) * alpha / 255;
+			bAccu += ( argb & 0xff ) * alpha / 255;
 		}
-		catch ( Exception e )
+
+		if ( aAccu > 255 )
+			aAccu = 255;
+		if ( rAccu > 255 )
+			rAccu = 255;
+		if ( gAccu > 255 )
+			gAccu = 255;
+		if ( bAccu > 255 )
+			bAccu = 255;
+
+		return ARGBType.rgba( rAccu, gAccu, bAccu, aAccu );
+	}
+
+	static class Blending
+	{
+		final boolean[] alphaBlending;
+		final int[] order;
+
+		Blending( boolean[] alphaBlending, int[] order )
 		{
-			throw new RuntimeException();
+			this.alphaBlending = alphaBlending;
+			this.order = order;
 		}
 	}
 }
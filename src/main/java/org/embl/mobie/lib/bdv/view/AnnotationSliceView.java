@@ -50,10 +50,12 @@ import org.embl.mobie.lib.serialize.display.SegmentationDisplay;
 import org.embl.mobie.lib.select.SelectionListener;
 import org.embl.mobie.lib.serialize.display.SpotDisplay;
 import org.embl.mobie.lib.source.AnnotationType;
+import org.embl.mobie.lib.source.BoundaryCache;
 import org.embl.mobie.lib.source.BoundarySource;
 import org.embl.mobie.lib.image.Image;
 import org.embl.mobie.lib.source.SourceHelper;
 import org.embl.mobie.lib.source.VolatileBoundarySource;
+import org.embl.mobie.lib.table.AnnotationTableModel;
 import org.embl.mobie.lib.annotation.Annotation;
 import org.embl.mobie.lib.transform.viewer.ViewerTransformChanger;
 import org.embl.mobie.lib.volume.SegmentVolumeViewer;
@@ -106,7 +108,10 @@ public class AnnotationSliceView< A extends Annotation > extends AbstractSliceVi
 		// create non-volatile sac
 		final Source< AnnotationType< A > > source = image.getSourcePair().getSource();
 		final BoundarySource boundarySource = new BoundarySource( source, false, 0.0F, image.getMask() );
-		final Converter< AnnotationType< A >, ARGBType > annotationARGBConverter = new AnnotationARGBConverter<>( display.coloringModel );
+		if ( display instanceof SegmentationDisplay && moBIE.getSettings().values.isCacheLabelBoundaries() )
+			boundarySource.setBoundaryCache( new BoundaryCache<>( source ) );
+		final AnnotationTableModel< A > table = display.getAnnData().getTable();
+		final Converter< AnnotationType< A >, ARGBType > annotationARGBConverter = new AnnotationARGBConverter<>( display.coloringModel, table::fastRowIndexOf );
 		final TransformedSource transformedBoundarySource = new TransformedSource( boundarySource );
 		// FIXME: This is an issue if those sources are transformed, because the underlying image will not know about it
 
@@ -115,7 +120,8 @@ public class AnnotationSliceView< A extends Annotation > extends AbstractSliceVi
 			// create volatile sac
 			final Source< ? extends Volatile< ? extends AnnotationType< ? > > > volatileSource = image.getSourcePair().getVolatileSource();
 			final VolatileBoundarySource volatileBoundarySource = new VolatileBoundarySource( volatileSource, false, 1.0F, image.getMask() );
-			final VolatileAnnotationARGBConverter volatileAnnotationConverter = new VolatileAnnotationARGBConverter( display.coloringModel );
+			volatileBoundarySource.setBoundaryCache( boundarySource.getBoundaryCache() );
+			final VolatileAnnotationARGBConverter volatileAnnotationConverter = new VolatileAnnotationARGBConverter<>( display.coloringModel, table::fastRowIndexOf );
 			final TransformedSource volatileTransformedSource = new TransformedSource( volatileBoundarySource, transformedBoundarySource );
 			SourceAndConverter volatileSourceAndConverter = new SourceAndConverter( volatileTransformedSource, volatileAnnotationConverter );
 
@@ -31,11 +31,16 @@ package org.embl.mobie.lib.bdv.view;
 import IceInternal.Ex;
 import bdv.util.BdvHandle;
 import bdv.viewer.SourceAndConverter;
+import bdv.viewer.TransformListener;
+import bdv.viewer.ViewerPanel;
+import net.imglib2.FinalRealInterval;
+import net.imglib2.RealInterval;
 import net.imglib2.realtransform.AffineTransform3D;
 import org.embl.mobie.DataStore;
 import org.embl.mobie.command.context.*;
 import org.embl.mobie.command.view.ViewerTransformLoggerCommand;
 import org.embl.mobie.MoBIE;
+import org.embl.mobie.lib.ThreadHelper;
 import org.embl.mobie.lib.annotation.SliceViewAnnotationSelector;
 import org.embl.mobie.lib.bdv.MobieBdvSupplier;
 import org.embl.mobie.lib.bdv.MobieSerializableBdvOptions;
@@ -59,8 +64,11 @@ import sc.fiji.bdvpg.scijava.services.SourceAndConverterBdvDisplayService;
 import sc.fiji.bdvpg.scijava.services.SourceAndConverterService;
 import sc.fiji.bdvpg.services.SourceAndConverterServices;
 
+import javax.annotation.Nullable;
 import javax.swing.*;
 import java.awt.Window;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
@@ -102,12 +110,59 @@ public class SliceViewer
 
 		imageNameOverlay = new ImageNameOverlay( bdvHandle, false, this );
 
+		// open the tiles of stitched images that are in view first
+		final TransformListener< AffineTransform3D > viewportListener = transform ->
+				ThreadHelper.tileLoadingQueue.setViewport( this, getViewport( transform ) );
+		bdvHandle.getViewerPanel().transformListeners().add( viewportListener );
+
+		SwingUtilities.getWindowAncestor( bdvHandle.getViewerPanel() ).addWindowListener( new WindowAdapter()
+		{
+			@Override
+			public void windowClosed( WindowEvent e )
+			{
+				imageNameOverlay.close();
+				bdvHandle.getViewerPanel().transformListeners().remove( viewportListener );
+				ThreadHelper.tileLoadingQueue.removeViewport( SliceViewer.this );
+			}
+		} );
+
 		installContextMenuAndKeyboardShortCuts();
 
 		WindowArrangementHelper.rightAlignWindow( moBIE.getUserInterface().getWindow(), SwingUtilities.getWindowAncestor( bdvHandle.getViewerPanel() ), true, true );
 
 	}
 
+	// the global bounds of the viewer window,
+	// or null if the window is not shown yet
+	@Nullable
+	private RealInterval getViewport( AffineTransform3D viewerTransform )
+	{
+		final ViewerPanel viewerPanel = bdvHandle.getViewerPanel();
+		final int width = viewerPanel.getDisplay().getWidth();
+		final int height = viewerPanel.getDisplay().getHeight();
+		if ( width == 0 || height == 0 )
+			return null;
+
+		final AffineTransform3D screenToGlobal = viewerTransform.inverse();
+		final double[] min = new double[]{ Double.MAX_VALUE, Double.MAX_VALUE, Double.MAX_VALUE };
+		final double[] max = new double[]{ -Double.MAX_VALUE, -Double.MAX_VALUE, -Double.MAX_VALUE };
+		final double[] global = new double[ 3 ];
+		for ( int x : new int[]{ 0, width } )
+		{
+			for ( int y : new int[]{ 0, height } )
+			{
+				screenToGlobal.apply( new double[]{ x, y, 0 }, global );
+				for ( int d = 0; d < 3; d++ )
+				{
+					min[ d ] = Math.min( min[ d ], global[ d ] );
+					max[ d ] = Math.max( max[ d ], global[ d ] );
+				}
+			}
+		}
+
+		return new FinalRealInterval( min, max );
+	}
+
 	public ImageNameOverlay getImageNameOverlay()
 	{
 		return imageNameOverlay;
@@ -230,6 +285,7 @@ public class SliceViewer
 
 		// time added (for alpha blending)
 		SourceAndConverterServices.getSourceAndConverterService().setMetadata( sourceAndConverter, BlendingMode.TIME_ADDED, System.currentTimeMillis() );
+		AccumulateAlphaBlendingProjectorARGB.blendingChanged();
 
 		// opacity
 		OpacityHelper.setOpacity( sourceAndConverter, display.getOpacity() );
@@ -33,14 +33,34 @@ import net.imglib2.type.numeric.ARGBType;
 import org.embl.mobie.lib.color.lut.LUTs;
 import org.embl.mobie.lib.color.opacity.OpacityAdjuster;
 
+import java.util.Arrays;
+import java.util.function.ToIntFunction;
+
 public abstract class AbstractAnnotationARGBConverter< T, A > implements Converter< A, ARGBType >, OpacityAdjuster, MobieColoringModelWrapper
 {
 	private final MobieColoringModel< T > coloringModel;
-	private double opacity = 1.0;
+	private final ToIntFunction< T > rowIndexOf;
+	private volatile double opacity = 1.0;
+
+	// The colors of the annotations, including the selection
+	// and the opacity, such that they are computed only once
+	// per annotation rather than for every pixel.
+	// They are discarded whenever the coloring, the selection
+	// or the opacity changes.
+	private volatile AnnotationColors annotationColors;
 
-	public AbstractAnnotationARGBConverter( MobieColoringModel< T > coloringModel )
+	/**
+	 * @param coloringModel
+	 * 			the coloring of the annotations
+	 * @param rowIndexOf
+	 * 			the row index of an annotation in its table, which must
+	 * 			be computed in constant time, or -1 if this is not possible,
+	 * 			in which case the color of the annotation is not cached
+	 */
+	public AbstractAnnotationARGBConverter( MobieColoringModel< T > coloringModel, ToIntFunction< T > rowIndexOf )
 	{
 		this.coloringModel = coloringModel;
+		this.rowIndexOf = rowIndexOf;
 	}
 
 	@Override
@@ -58,6 +78,41 @@ public abstract class AbstractAnnotationARGBConverter< T, A > implements Convert
 			return;
 		}
 
+		final int rowIndex = rowIndexOf.applyAsInt( input );
+		if ( rowIndex < 0 )
+		{
+			convertAndAdjustOpacity( input, color, opacity );
+			return;
+		}
+
+		final long modificationCount = coloringModel.getModificationCount();
+		final double opacity = this.opacity;
+		AnnotationColors colors = annotationColors;
+		if ( colors == null || colors.modificationCount != modificationCount || colors.opacity != opacity )
+		{
+			colors = new AnnotationColors( modificationCount, opacity, rowIndex + 1 );
+			annotationColors = colors;
+		}
+		else if ( rowIndex >= colors.argbs.length )
+		{
+			// the table has grown
+			colors = colors.grow( rowIndex + 1 );
+			annotationColors = colors;
+		}
+
+		final int argb = colors.argbs[ rowIndex ];
+		if ( argb != AnnotationColors.NOT_CONVERTED )
+		{
+			color.set( argb );
+			return;
+		}
+
+		convertAndAdjustOpacity( input, color, opacity );
+		colors.argbs[ rowIndex ] = color.get();
+	}
+
+	private void convertAndAdjustOpacity( T input, ARGBType color, double opacity )
+	{
 		// This includes selection model opacity
 		coloringModel.convert( input, color );
 
@@ -75,4 +130,41 @@ public abstract class AbstractAnnotationARGBConverter< T, A > implements Convert
 		return opacity;
 	}
 
+	static class AnnotationColors
+	{
+		// A color that an annotation may in fact have,
+		// which just means that it is converted again.
+		static final int NOT_CONVERTED = 0x00FF00FF;
+
+		final long modificationCount;
+		final double opacity;
+
+		// Indexed by row. Concurrent writes of the same
+		// color and lost writes, after the array has been
+		// replaced by a larger one, are harmless.
+		final int[] argbs;
+
+		AnnotationColors( long modificationCount, double opacity, int numRows )
+		{
+			this.modificationCount = modificationCount;
+			this.opacity = opacity;
+			argbs = new int[ numRows ];
+			Arrays.fill( argbs, NOT_CONVERTED );
+		}
+
+		private AnnotationColors( long modificationCount, double opacity, int[] argbs )
+		{
+			this.modificationCount = modificationCount;
+			this.opacity = opacity;
+			this.argbs = argbs;
+		}
+
+		AnnotationColors grow( int minNumRows )
+		{
+			final int numRows = Math.max( minNumRows, 2 * argbs.length );
+			final int[] grown = Arrays.copyOf( argbs, numRows );
+			Arrays.fill( grown, argbs.length, numRows, NOT_CONVERTED );
+			return new AnnotationColors( modificationCount, opacity, grown );
+		}
+	}
 }
@@ -31,11 +31,13 @@ package org.embl.mobie.lib.color;
 import org.embl.mobie.lib.select.Listeners;
 
 import javax.swing.*;
+import java.util.concurrent.atomic.AtomicLong;
 
 public abstract class AbstractColoringModel< T > implements ColoringModel< T >
 {
 	protected final Listeners.SynchronizedList< ColoringListener > listeners
 			= new Listeners.SynchronizedList< ColoringListener >(  );
+	private final AtomicLong modificationCount = new AtomicLong();
 
 	@Override
 	public Listeners< ColoringListener > listeners()
@@ -43,8 +45,19 @@ public abstract class AbstractColoringModel< T > implements ColoringModel< T >
 		return listeners;
 	}
 
+	@Override
+	public long getModificationCount()
+	{
+		return modificationCount.get();
+	}
+
 	protected void notifyColoringListeners()
 	{
+		// The listeners are notified later, thus already
+		// count the modification now, such that colors that are
+		// converted in the meantime are not taken for valid.
+		modificationCount.incrementAndGet();
+
 		for ( ColoringListener listener : listeners.list )
 		{
 			SwingUtilities.invokeLater( () -> listener.coloringChanged() );
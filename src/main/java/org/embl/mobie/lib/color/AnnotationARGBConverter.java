@@ -31,11 +31,13 @@ package org.embl.mobie.lib.color;
 import org.embl.mobie.lib.source.AnnotationType;
 import net.imglib2.type.numeric.ARGBType;
 
+import java.util.function.ToIntFunction;
+
 public class AnnotationARGBConverter< T > extends AbstractAnnotationARGBConverter< T, AnnotationType< T > >
 {
-	public AnnotationARGBConverter( MobieColoringModel< T > coloringModel )
+	public AnnotationARGBConverter( MobieColoringModel< T > coloringModel, ToIntFunction< T > rowIndexOf )
 	{
-		super( coloringModel );
+		super( coloringModel, rowIndexOf );
 	}
 
 	@Override
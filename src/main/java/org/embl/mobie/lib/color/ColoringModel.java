@@ -41,4 +41,12 @@ public interface ColoringModel< T > extends Converter< T, ARGBType >
 	 * @return the list of listeners
 	 */
 	Listeners< ColoringListener > listeners();
+
+	/**
+	 * Get the number of changes of the coloring, which can be used
+	 * to find out whether previously converted colors are still valid.
+	 *
+	 * @return the number of changes
+	 */
+	long getModificationCount();
 }
@@ -28,6 +28,7 @@
  */
 package org.embl.mobie.lib.color;
 
+import org.embl.mobie.lib.select.SelectionListener;
 import org.embl.mobie.lib.select.SelectionModel;
 import net.imglib2.type.numeric.ARGBType;
 
@@ -42,6 +43,7 @@ public class MobieColoringModel< T > extends AbstractColoringModel< T >
 	private SelectionModel< T > selectionModel;
 	private ARGBType selectionColor;
 	private double opacityNotSelected;
+	private final ColoringListener coloringListener = () -> notifyColoringListeners();
 
 	// Wraps a base coloring model and combines it with a selection model,
 	// such that selected elements can have special colors and opacities.
@@ -51,6 +53,29 @@ public class MobieColoringModel< T > extends AbstractColoringModel< T >
 		this.selectionModel = selectionModel;
 		this.selectionColor = selectionColor;
 		this.opacityNotSelected = opacityNotSelected;
+
+		if ( selectionModel != null )
+		{
+			// The selection listeners are notified asynchronously,
+			// thus the listeners of this model are notified
+			// once more, after the change has been counted,
+			// such that colors that have been converted
+			// in the meantime are rendered again.
+			selectionModel.listeners().add( new SelectionListener< T >()
+			{
+				@Override
+				public void selectionChanged()
+				{
+					notifyColoringListeners();
+				}
+
+				@Override
+				public void focusEvent( T selection, Object initiator )
+				{
+					// the focus does not change the colors
+				}
+			} );
+		}
 	}
 
 	@Override
@@ -92,14 +117,18 @@ public class MobieColoringModel< T > extends AbstractColoringModel< T >
 
 	public void setColoringModel( ColoringModel< T > coloringModel )
 	{
+		if ( this.coloringModel != null )
+			this.coloringModel.listeners().remove( coloringListener );
 		this.coloringModel = coloringModel;
-		notifyListeners();
+		coloringModel.listeners().add( coloringListener );
+		notifyColoringListeners();
 	}
 
-	private void notifyListeners()
+	// Must be called when values of the annotations have
+	// been changed, because the coloring may depend on them.
+	public void valuesChanged()
 	{
 		notifyColoringListeners();
-		coloringModel.listeners().add( () -> notifyColoringListeners() );
 	}
 
 	public ColoringModel< T > getWrappedColoringModel()
@@ -116,7 +145,7 @@ public class MobieColoringModel< T > extends AbstractColoringModel< T >
 	{
 		this.opacityNotSelected = opacityNotSelected;
 
-		notifyListeners();
+		notifyColoringListeners();
 	}
 
 }
@@ -31,11 +31,13 @@ package org.embl.mobie.lib.color;
 import org.embl.mobie.lib.source.VolatileAnnotationType;
 import net.imglib2.type.numeric.ARGBType;
 
+import java.util.function.ToIntFunction;
+
 public class VolatileAnnotationARGBConverter< T > extends AbstractAnnotationARGBConverter< T, VolatileAnnotationType< T > >
 {
-	public VolatileAnnotationARGBConverter( MobieColoringModel< T > coloringModel )
+	public VolatileAnnotationARGBConverter( MobieColoringModel< T > coloringModel, ToIntFunction< T > rowIndexOf )
 	{
-		super( coloringModel );
+		super( coloringModel, rowIndexOf );
 	}
 
 	@Override
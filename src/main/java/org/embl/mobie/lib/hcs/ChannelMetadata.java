@@ -0,0 +1,223 @@
+/*-
+ * #%L
+ * Fiji viewer for MoBIE projects
+ * %%
+ * Copyright (C) 2018 - 2024 EMBL
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.embl.mobie.lib.hcs;
+
+import ij.IJ;
+import loci.formats.FormatTools;
+import loci.formats.ImageReader;
+import loci.formats.MetadataTools;
+import loci.formats.meta.IMetadata;
+import mpicbg.spim.data.sequence.FinalVoxelDimensions;
+import mpicbg.spim.data.sequence.VoxelDimensions;
+import net.imglib2.type.numeric.ARGBType;
+import ome.units.quantity.Length;
+import ome.xml.model.primitives.Color;
+import org.embl.mobie.lib.color.ColorHelper;
+import org.embl.mobie.lib.io.FileVersions;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The metadata of a plate channel, as read from one of its image files.
+ *
+ * It is serialised into the {@code ChannelMetadataCache},
+ * such that reopening a plate does not need to read any file.
+ */
+class ChannelMetadata
+{
+	private String imagePath;
+	// null if the version of the file is not known, e.g. for private S3 objects
+	@Nullable
+	private String version;
+	private boolean contrastLimitsFromFirstPlane;
+	private String color;
+	private double[] contrastLimits;
+	private int numSlices;
+	private int[] siteDimensions;
+	private String unit;
+	private double[] voxelSize;
+
+	ChannelMetadata( String imagePath, String color, double[] contrastLimits, int numSlices, int[] siteDimensions, VoxelDimensions voxelDimensions )
+	{
+		this.imagePath = imagePath;
+		this.version = FileVersions.getVersion( imagePath, true );
+		this.color = color;
+		this.contrastLimits = contrastLimits;
+		this.numSlices = numSlices;
+		this.siteDimensions = siteDimensions;
+		this.unit = voxelDimensions.unit();
+		this.voxelSize = voxelDimensions.dimensionsAsDoubleArray();
+	}
+
+	/**
+	 * Reads the metadata of all channels of the first series of a
+	 * local or remote image file with a plain Bio-Formats reader,
+	 * without initialising an image loader.
+	 *
+	 * Besides the header of the file, this reads the first plane of
+	 * each channel of types other than 8-bit, because the contrast limits
+	 * are the value range of that plane, as ImageJ would show it.
+	 * They thus differ from the ones of the metadata of the opened image.
+	 * 8-bit channels have the contrast limits 0-255.
+	 *
+	 * @return the metadata of each channel of the file, or null if the
+	 * 		file could not be read or its pixel type is not supported
+	 */
+	@Nullable
+	static List< ChannelMetadata > read( String imagePath )
+	{
+		try ( ImageReader reader = new ImageReader() )
+		{
+			final IMetadata omeMetadata = MetadataTools.createOMEXMLMetadata();
+			reader.setMetadataStore( omeMetadata );
+			reader.setId( imagePath );
+
+			final int pixelType = reader.getPixelType();
+			if ( reader.getRGBChannelCount() != 1
+					|| ! ( pixelType == FormatTools.UINT8 || pixelType == FormatTools.UINT16 || pixelType == FormatTools.FLOAT ) )
+				return null;
+
+			final int[] siteDimensions = new int[]{ reader.getSizeX(), reader.getSizeY() };
+			final VoxelDimensions voxelDimensions = getVoxelDimensions( omeMetadata );
+
+			final List< ChannelMetadata > channels = new ArrayList<>();
+			for ( int c = 0; c < reader.getSizeC(); c++ )
+			{
+				final double[] contrastLimits = pixelType == FormatTools.UINT8 ?
+						new double[]{ 0, 255 } :
+						getRange( SiteCellLoader.Plane.read( reader, reader.getIndex( 0, c, 0 ) ) );
+				final ChannelMetadata channelMetadata = new ChannelMetadata( imagePath, getColor( omeMetadata, c ), contrastLimits, reader.getSizeZ(), siteDimensions, voxelDimensions );
+				channelMetadata.contrastLimitsFromFirstPlane = true;
+				channels.add( channelMetadata );
+			}
+
+			return channels;
+		}
+		catch ( Exception e )
+		{
+			IJ.log( "Could not read the metadata of " + imagePath + ": " + e.getMessage() );
+			return null;
+		}
+	}
+
+	// Whether this has been read from the given file,
+	// and the file has not changed since.
+	boolean isReadFrom( String imagePath )
+	{
+		return version != null
+				&& this.imagePath.equals( imagePath )
+				&& version.equals( FileVersions.getVersion( imagePath, true ) );
+	}
+
+	// Whether it can be found out if the file has changed.
+	boolean hasVersion()
+	{
+		return version != null;
+	}
+
+	// Whether the contrast limits are the value range of the first plane,
+	// see read, rather than the ones of the metadata of the opened image.
+	boolean hasContrastLimitsFromFirstPlane()
+	{
+		return contrastLimitsFromFirstPlane;
+	}
+
+	String getColor()
+	{
+		return color;
+	}
+
+	double[] getContrastLimits()
+	{
+		return contrastLimits;
+	}
+
+	int getNumSlices()
+	{
+		return numSlices;
+	}
+
+	int[] getSiteDimensions()
+	{
+		return siteDimensions;
+	}
+
+	VoxelDimensions getVoxelDimensions()
+	{
+		return new FinalVoxelDimensions( unit, voxelSize );
+	}
+
+	private static VoxelDimensions getVoxelDimensions( IMetadata omeMetadata )
+	{
+		final Length sizeX = omeMetadata.getPixelsPhysicalSizeX( 0 );
+		final Length sizeY = omeMetadata.getPixelsPhysicalSizeY( 0 );
+		final Length sizeZ = omeMetadata.getPixelsPhysicalSizeZ( 0 );
+
+		if ( sizeX == null )
+			return new FinalVoxelDimensions( "pixel", 1, 1, 10 );
+
+		final double x = sizeX.value().doubleValue();
+		final double y = sizeY == null ? x : sizeY.value( sizeX.unit() ).doubleValue();
+
+		// If the z-positions are distributed over multiple files, the files
+		// typically do not have a z-calibration. We thus just put something
+		// sensible here such that browsing in BDV along the z-axis is convenient.
+		final double z = sizeZ == null ? 10 * y : sizeZ.value( sizeX.unit() ).doubleValue();
+
+		return new FinalVoxelDimensions( sizeX.unit().getSymbol(), x, y, z );
+	}
+
+	private static String getColor( IMetadata omeMetadata, int channelIndex )
+	{
+		final Color color = channelIndex < omeMetadata.getChannelCount( 0 ) ?
+				omeMetadata.getChannelColor( 0, channelIndex ) : null;
+
+		if ( color == null )
+			return "white";
+
+		return ColorHelper.getString( new ARGBType( ARGBType.rgba( color.getRed(), color.getGreen(), color.getBlue(), color.getAlpha() ) ) );
+	}
+
+	private static double[] getRange( SiteCellLoader.Plane plane )
+	{
+		double min = Double.MAX_VALUE;
+		double max = -Double.MAX_VALUE;
+		final int numPixels = plane.getWidth() * plane.getHeight();
+		for ( int i = 0; i < numPixels; i++ )
+		{
+			final double value = plane.get( i );
+			min = Math.min( min, value );
+			max = Math.max( max, value );
+		}
+
+		return new double[]{ min, max };
+	}
+}
@@ -0,0 +1,141 @@
+/*-
+ * #%L
+ * Fiji viewer for MoBIE projects
+ * %%
+ * Copyright (C) 2018 - 2024 EMBL
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.embl.mobie.lib.hcs;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import ij.IJ;
+import org.embl.mobie.lib.serialize.JsonHelper;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Sidecar file with the metadata of the channels of one plate,
+ * in a local cache directory, because the plate itself
+ * may be read-only or on S3.
+ *
+ * Only the metadata of files with a version, see {@code FileVersions},
+ * is cached, thus not the one of remote files that do not report one.
+ */
+class ChannelMetadataCache
+{
+	private static final Type TYPE = new TypeToken< Map< String, ChannelMetadata > >() {}.getType();
+
+	private final File file;
+	private final Map< String, ChannelMetadata > channelToMetadata;
+	private boolean isModified;
+
+	ChannelMetadataCache( File cacheDirectory, String hcsDirectory )
+	{
+		final String name = new File( hcsDirectory ).getName().replaceAll( "[^A-Za-z0-9._-]", "_" );
+		final String fingerprint = UUID.nameUUIDFromBytes( hcsDirectory.getBytes( StandardCharsets.UTF_8 ) ).toString();
+		file = new File( cacheDirectory, name + "-" + fingerprint + ".channels.json" );
+		channelToMetadata = read( file );
+	}
+
+	/**
+	 * @return the metadata of the channel, if it has been
+	 * 		read from the given file, and the file has not changed since
+	 */
+	@Nullable
+	ChannelMetadata get( String channelName, String imagePath )
+	{
+		final ChannelMetadata metadata = channelToMetadata.get( channelName );
+		if ( metadata == null || ! metadata.isReadFrom( imagePath ) )
+			return null;
+
+		return metadata;
+	}
+
+	void put( String channelName, ChannelMetadata metadata )
+	{
+		// otherwise, changes of the file could not be noticed
+		if ( ! metadata.hasVersion() )
+			return;
+
+		channelToMetadata.put( channelName, metadata );
+		isModified = true;
+	}
+
+	void save()
+	{
+		if ( ! isModified )
+			return;
+
+		file.getParentFile().mkdirs();
+		try ( Writer writer = Files.newBufferedWriter( file.toPath(), StandardCharsets.UTF_8 ) )
+		{
+			gson().toJson( channelToMetadata, TYPE, writer );
+			isModified = false;
+		}
+		catch ( IOException e )
+		{
+			IJ.log( "Could not write the channel metadata to " + file + ": " + e.getMessage() );
+		}
+	}
+
+	File getFile()
+	{
+		return file;
+	}
+
+	private static Map< String, ChannelMetadata > read( File file )
+	{
+		if ( ! file.exists() )
+			return new HashMap<>();
+
+		try ( Reader reader = Files.newBufferedReader( file.toPath(), StandardCharsets.UTF_8 ) )
+		{
+			final Map< String, ChannelMetadata > channelToMetadata = gson().fromJson( reader, TYPE );
+			if ( channelToMetadata != null )
+				return channelToMetadata;
+		}
+		catch ( Exception e )
+		{
+			IJ.log( "Could not read the channel metadata from " + file + ": " + e.getMessage() );
+		}
+
+		return new HashMap<>();
+	}
+
+	private static Gson gson()
+	{
+		return JsonHelper.buildGson( true );
+	}
+}
@@ -56,6 +56,7 @@ public class HCSDataAdder
 	private final Plate plate;
 	private final double wellMargin;
 	private final double siteMargin;
+	private String overviewCacheDirectory;
 
 	public HCSDataAdder( Plate plate, double wellMargin, double siteMargin  )
 	{
@@ -64,6 +65,15 @@ public class HCSDataAdder
 		this.siteMargin = siteMargin;
 	}
 
+	// If set, a downsampled overview of the plate is computed once
+	// and cached in this directory, which speeds up zooming out,
+	// in particular for sites without a resolution pyramid.
+	public HCSDataAdder setOverviewCacheDirectory( String overviewCacheDirectory )
+	{
+		this.overviewCacheDirectory = overviewCacheDirectory;
+		return this;
+	}
+
 	public void addData( Dataset dataset )
 	{
 		boolean is2D = plate.is2D();
@@ -110,6 +120,7 @@ public class HCSDataAdder
 			wellGrid.sources = new ArrayList<>();
 			wellGrid.positions = new ArrayList<>();
 			wellGrid.margin = wellMargin;
+			wellGrid.overviewCacheDirectory = overviewCacheDirectory;
 
 			for ( Well well : wells )
 			{
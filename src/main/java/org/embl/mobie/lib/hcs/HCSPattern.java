@@ -119,9 +119,65 @@ public enum HCSPattern
 
 	private final String MD_SITES = ".*_(?<"+WELL+">[A-Z]{1}[0-9]{2})_s(?<"+SITE+">[0-9]{1}).*";
 
+	// compiling the patterns is expensive compared to matching,
+	// thus they are compiled only once
+	private static final Pattern OME_ZARR_PATTERN = Pattern.compile( OME_ZARR );
+	private static final Pattern OPERETTA_PATTERN = Pattern.compile( OPERETTA );
+	private static final Pattern MOLDEV_PATTERN = Pattern.compile( MOLDEV );
+	private static final Pattern INCELL_PATTERN = Pattern.compile( INCELL );
+	private static final Pattern INCUCYTE_RAW_PATTERN = Pattern.compile( INCUCYTE_RAW );
+	private static final Pattern YOKOGAWACQ1_PATTERN = Pattern.compile( YOKOGAWACQ1 );
+	private static final Pattern INCUCYTE_PATTERN = Pattern.compile( INCUCYTE );
+
 	private Matcher matcher;
 	private List< String > channels;
 
+	/*
+	 * The groups of one path, as obtained from {@code match( path )}.
+	 */
+	public static class Match
+	{
+		private final List< String > channels;
+		private final String well;
+		private final String site;
+		private final String t;
+		private final String z;
+
+		private Match( List< String > channels, String well, String site, String t, String z )
+		{
+			this.channels = channels;
+			this.well = well;
+			this.site = site;
+			this.t = t;
+			this.z = z;
+		}
+
+		public List< String > getChannels()
+		{
+			return channels;
+		}
+
+		public String getWellGroup()
+		{
+			return well;
+		}
+
+		public String getSiteGroup()
+		{
+			return site;
+		}
+
+		public String getT()
+		{
+			return t;
+		}
+
+		public String getZ()
+		{
+			return z;
+		}
+	}
+
 	public static HCSPattern fromPath( String fileName )
 	{
 		for ( HCSPattern hcsPattern : HCSPattern.values() )
@@ -138,20 +194,20 @@ public enum HCSPattern
 		switch( this )
 		{
 			case OMEZarr:
-				return Pattern.compile( OME_ZARR ).matcher( path );
+				return OME_ZARR_PATTERN.matcher( path );
 			case Operetta:
-				return Pattern.compile( OPERETTA ).matcher( path );
+				return OPERETTA_PATTERN.matcher( path );
 			case MolecularDevices:
-				return Pattern.compile( MOLDEV ).matcher( path );
+				return MOLDEV_PATTERN.matcher( path );
 			case InCell:
-				return Pattern.compile( INCELL ).matcher( path );
+				return INCELL_PATTERN.matcher( path );
 			case IncuCyteRaw:
-				return Pattern.compile( INCUCYTE_RAW ).matcher( path );
+				return INCUCYTE_RAW_PATTERN.matcher( path );
 			case YokogawaCQ1:
-				return Pattern.compile( YOKOGAWACQ1 ).matcher( path );
+				return YOKOGAWACQ1_PATTERN.matcher( path );
 			default:
 			case IncuCyte:
-				return Pattern.compile( INCUCYTE ).matcher( path );
+				return INCUCYTE_PATTERN.matcher( path );
 		}
 	}
 
@@ -165,6 +221,27 @@ public enum HCSPattern
 		return matcher.matches();
 	}
 
+	/**
+	 * Matches the path without changing the state of this
+	 * pattern, such that paths can be matched concurrently.
+	 *
+	 * @param path
+	 *            the path of an image file
+	 * @return the groups of the path, or null if it does not match
+	 */
+	public Match match( String path )
+	{
+		if ( new File( path ).getName().startsWith( "." ) )
+			return null;
+
+		final Matcher matcher = getMatcher( path );
+
+		if ( ! matcher.matches() )
+			return null;
+
+		return new Match( getChannels( matcher ), matcher.group( HCSPattern.WELL ), matcher.group( HCSPattern.SITE ), getT( matcher ), getZ( matcher ) );
+	}
+
 	public int[] decodeWellGridPosition( String well )
 	{
 		switch ( this )
@@ -279,6 +356,11 @@ public enum HCSPattern
 	}
 
 	public List< String > getChannels()
+	{
+		return getChannels( matcher );
+	}
+
+	private List< String > getChannels( Matcher matcher )
 	{
 		if ( hasChannels() )
 			if (this == OMEZarr)
@@ -300,6 +382,11 @@ public enum HCSPattern
 	}
 
 	public String getT()
+	{
+		return getT( matcher );
+	}
+
+	private String getT( Matcher matcher )
 	{
 		if ( hasT() )
 			return matcher.group( HCSPattern.TIME );
@@ -308,6 +395,11 @@ public enum HCSPattern
 	}
 
 	public String getZ()
+	{
+		return getZ( matcher );
+	}
+
+	private String getZ( Matcher matcher )
 	{
 		if ( hasZ() )
 			return matcher.group( HCSPattern.SLICE );
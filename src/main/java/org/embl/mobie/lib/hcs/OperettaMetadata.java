@@ -32,28 +32,38 @@ import ch.epfl.biop.bdv.img.opener.ChannelProperties;
 import mpicbg.spim.data.sequence.FinalVoxelDimensions;
 import mpicbg.spim.data.sequence.VoxelDimensions;
 import org.embl.mobie.lib.color.ColorHelper;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
-import org.xml.sax.SAXException;
-
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import java.awt.*;
+import java.io.BufferedInputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.HashMap;
-import java.util.LinkedHashMap;
 
 // one could extract an interface here for the
 // getter methods if this is useful for other data
 public class OperettaMetadata
 {
-	private HashMap< String, Element > filenameToImageElement;
-	private HashMap< String, Element > channelIDToElement;
-	private HashMap< String, Integer > filenameToImageIndex;
+	private static final String URL = "URL";
+	private static final String POSITION_X = "PositionX";
+	private static final String POSITION_Y = "PositionY";
+	private static final String CHANNEL_ID = "ChannelID";
+	private static final String MAIN_EMISSION_WAVELENGTH = "MainEmissionWavelength";
+	private static final String MAX_INTENSITY = "MaxIntensity";
+	private static final String IMAGE_RESOLUTION_X = "ImageResolutionX";
+	private static final String IMAGE_RESOLUTION_Y = "ImageResolutionY";
+	private static final String IMAGE_SIZE_X = "ImageSizeX";
+	private static final String IMAGE_SIZE_Y = "ImageSizeY";
+
+	private HashMap< String, ImageRecord > filenameToImage;
+	private HashMap< String, String > channelIDToMainEmissionWavelength;
 	private double dx;
 	private double dy;
 	private String spatialUnit;
@@ -61,6 +71,43 @@ public class OperettaMetadata
 	private int imageSizeY;
 	private int maxIntensity;
 
+	// The metadata of one image, i.e. of the element that contains its URL
+	static class ImageRecord
+	{
+		final int imageIndex;
+		final String positionX;
+		final String positionY;
+		final String channelID;
+
+		ImageRecord( int imageIndex, String positionX, String positionY, String channelID )
+		{
+			this.imageIndex = imageIndex;
+			this.positionX = positionX;
+			this.positionY = positionY;
+			this.channelID = channelID;
+		}
+	}
+
+	// The values found so far within an element that is being parsed.
+	// Like for Element.getElementsByTagName, the first value
+	// within all descendants is kept.
+	private static class ElementValues
+	{
+		final String firstAttribute;
+		String url;
+		int imageIndex;
+		String positionX;
+		String positionY;
+		String channelID;
+		String mainEmissionWavelength;
+		boolean containsMaxIntensity;
+
+		ElementValues( String firstAttribute )
+		{
+			this.firstAttribute = firstAttribute;
+		}
+	}
+
 	public OperettaMetadata( File xml )
 	{
 		tryParse( xml );
@@ -78,48 +125,140 @@ public class OperettaMetadata
 		}
 	}
 
-	private void parse( File xml ) throws ParserConfigurationException, SAXException, IOException
+	/*
+	 * The Index.xml of large screens can be hundreds of MB,
+	 * thus it is streamed rather than parsed into a DOM,
+	 * and only the values that are needed are kept.
+	 */
+	private void parse( File xml ) throws IOException, XMLStreamException
 	{
-		DocumentBuilder builder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
-		Document doc = builder.parse( xml );
-		doc.getDocumentElement().normalize();
+		filenameToImage = new HashMap<>();
+		channelIDToMainEmissionWavelength = new HashMap<>();
+		final HashMap< String, String > channelIDs = new HashMap<>();
+		final Deque< ElementValues > elements = new ArrayDeque<>();
+		String resolutionX = null, resolutionY = null, sizeX = null, sizeY = null, intensity = null;
+		int numImages = 0;
 
-		dx = Double.parseDouble( doc.getElementsByTagName( "ImageResolutionX" ).item( 0 ).getTextContent() );
-		dy = Double.parseDouble( doc.getElementsByTagName( "ImageResolutionY" ).item( 0 ).getTextContent() );
-		spatialUnit = doc.getElementsByTagName( "ImageResolutionX" ).item( 0 ).getAttributes().item( 0 ).getTextContent();
+		final XMLInputFactory factory = XMLInputFactory.newInstance();
+		factory.setProperty( XMLInputFactory.IS_COALESCING, true );
+		factory.setProperty( XMLInputFactory.SUPPORT_DTD, false );
 
-		// could be channel specific
-		//
-		imageSizeX = Integer.parseInt( doc.getElementsByTagName( "ImageSizeX" ).item( 0 ).getTextContent() );
-		imageSizeY = Integer.parseInt( doc.getElementsByTagName( "ImageSizeY" ).item( 0 ).getTextContent() );
+		try ( InputStream inputStream = new BufferedInputStream( new FileInputStream( xml ), 1 << 16 ) )
+		{
+			final XMLStreamReader reader = factory.createXMLStreamReader( inputStream );
+			try
+			{
+				while ( reader.hasNext() )
+				{
+					final int event = reader.next();
 
-		// could be channel specific
-		//
-		maxIntensity = Integer.parseInt( doc.getElementsByTagName( "MaxIntensity" ).item( 0 ).getTextContent() );
+					if ( event == XMLStreamConstants.START_ELEMENT )
+					{
+						final String name = reader.getLocalName();
+						final String firstAttribute = reader.getAttributeCount() > 0 ? reader.getAttributeValue( 0 ) : null;
 
-		filenameToImageElement = new LinkedHashMap<>();
-		filenameToImageIndex = new LinkedHashMap<>();
-		channelIDToElement = new LinkedHashMap<>();
+						switch ( name )
+						{
+							case URL:
+							case POSITION_X:
+							case POSITION_Y:
+							case CHANNEL_ID:
+							case MAIN_EMISSION_WAVELENGTH:
+							case MAX_INTENSITY:
+							case IMAGE_RESOLUTION_X:
+							case IMAGE_RESOLUTION_Y:
+							case IMAGE_SIZE_X:
+							case IMAGE_SIZE_Y:
+								break;
+							default:
+								elements.push( new ElementValues( firstAttribute ) );
+								continue;
+						}
 
-		final NodeList imageFileNames = doc.getElementsByTagName( "URL" );
-		final int numImages = imageFileNames.getLength();
-		for ( int imageIndex = 0; imageIndex < numImages; imageIndex++ )
-		{
-			final Node item = imageFileNames.item( imageIndex );
-			final Element parentNode = (Element) item.getParentNode();
-			filenameToImageElement.put( item.getTextContent(), parentNode );
-			filenameToImageIndex.put( item.getTextContent(), imageIndex );
-		}
+						// this also consumes the end of the element
+						final String text = reader.getElementText().trim();
+						final ElementValues parent = elements.peek();
 
-		final NodeList channelIDs = doc.getElementsByTagName( "MaxIntensity" );
-		final int numChannels = channelIDs.getLength();
-		for ( int channelIndex = 0; channelIndex < numChannels; channelIndex++ )
-		{
-			final Node item = channelIDs.item( channelIndex );
-			final Element parentNode = (Element) item.getParentNode();
-			final String channelID = parentNode.getAttributes().item( 0 ).getTextContent();
-			channelIDToElement.put( channelID, parentNode );
+						switch ( name )
+						{
+							case URL:
+								if ( parent != null )
+								{
+									parent.url = text;
+									parent.imageIndex = numImages;
+								}
+								numImages++;
+								break;
+							case POSITION_X:
+								for ( ElementValues element : elements )
+									if ( element.positionX == null ) element.positionX = text;
+								break;
+							case POSITION_Y:
+								for ( ElementValues element : elements )
+									if ( element.positionY == null ) element.positionY = text;
+								break;
+							case CHANNEL_ID:
+								// there are only a few channels,
+								// thus share the strings
+								final String channelID = channelIDs.computeIfAbsent( text, id -> id );
+								for ( ElementValues element : elements )
+									if ( element.channelID == null ) element.channelID = channelID;
+								break;
+							case MAIN_EMISSION_WAVELENGTH:
+								for ( ElementValues element : elements )
+									if ( element.mainEmissionWavelength == null ) element.mainEmissionWavelength = text;
+								break;
+							case MAX_INTENSITY:
+								if ( intensity == null ) intensity = text;
+								if ( parent != null ) parent.containsMaxIntensity = true;
+								break;
+							case IMAGE_RESOLUTION_X:
+								if ( resolutionX == null )
+								{
+									resolutionX = text;
+									spatialUnit = firstAttribute;
+								}
+								break;
+							case IMAGE_RESOLUTION_Y:
+								if ( resolutionY == null ) resolutionY = text;
+								break;
+							case IMAGE_SIZE_X:
+								if ( sizeX == null ) sizeX = text;
+								break;
+							case IMAGE_SIZE_Y:
+								if ( sizeY == null ) sizeY = text;
+								break;
+						}
+					}
+					else if ( event == XMLStreamConstants.END_ELEMENT )
+					{
+						final ElementValues element = elements.pop();
+
+						if ( element.url != null )
+							filenameToImage.put( element.url, new ImageRecord( element.imageIndex, element.positionX, element.positionY, element.channelID ) );
+
+						if ( element.containsMaxIntensity && element.firstAttribute != null )
+							channelIDToMainEmissionWavelength.put( element.firstAttribute, element.mainEmissionWavelength );
+					}
+				}
+			}
+			finally
+			{
+				reader.close();
+			}
 		}
+
+		dx = Double.parseDouble( resolutionX );
+		dy = Double.parseDouble( resolutionY );
+
+		// could be channel specific
+		//
+		imageSizeX = Integer.parseInt( sizeX );
+		imageSizeY = Integer.parseInt( sizeY );
+
+		// could be channel specific
+		//
+		maxIntensity = Integer.parseInt( intensity );
 	}
 
 	public VoxelDimensions getVoxelDimensions( String path )
@@ -128,32 +267,14 @@ public class OperettaMetadata
 		// thus we just fetch it once globally. Hopefully it is the same for all
 		// images anyway.
 
-		// This only works in Operetta 4
-		//		final Element element = getElement( path );
-		//		final double imageResolutionX = getDouble( element, "ImageResolutionX" );
-		//		final double imageResolutionY = getDouble( element, "ImageResolutionY" );
-		//		final String unit = element.getElementsByTagName( "ImageResolutionX" ).item( 0 ).getAttributes().item( 0 ).getTextContent();
-
 		return new FinalVoxelDimensions( spatialUnit, dx, dy, 1.0 );
 	}
 
-	private double getDouble( Element element, String tag )
-	{
-		try
-		{
-			return Double.parseDouble( element.getElementsByTagName( tag ).item( 0 ).getTextContent() );
-		}
-		catch ( Exception e )
-		{
-			throw new RuntimeException( e );
-		}
-	}
-
-	private int getInteger( Element element, String tag )
+	private static double getDouble( String value )
 	{
 		try
 		{
-			return Integer.parseInt( element.getElementsByTagName( tag ).item( 0 ).getTextContent() );
+			return Double.parseDouble( value );
 		}
 		catch ( Exception e )
 		{
@@ -161,11 +282,11 @@ public class OperettaMetadata
 		}
 	}
 
-	private String getString( Element element, String tag )
+	private static int getInteger( String value )
 	{
 		try
 		{
-			return element.getElementsByTagName( tag ).item( 0 ).getTextContent();
+			return Integer.parseInt( value );
 		}
 		catch ( Exception e )
 		{
@@ -173,39 +294,37 @@ public class OperettaMetadata
 		}
 	}
 
-	private Element getImageElement( String path )
+	private ImageRecord getImage( String path )
 	{
 		final String filename = new File( path ).getName();
-		final Element element = filenameToImageElement.get( filename );
-		if ( element == null )
+		final ImageRecord image = filenameToImage.get( filename );
+		if ( image == null )
 		{
 			System.err.println("Could not find operetta metadata for " + filename );
 			throw new RuntimeException();
 		}
-		return element;
+		return image;
 	}
 
 	public boolean contains( String path )
 	{
 		final String filename = new File( path ).getName();
-		return filenameToImageElement.containsKey( filename );
+		return filenameToImage.containsKey( filename );
 	}
 
 	public double[] getRealPosition( String path )
 	{
-		final Element imageElement = getImageElement( path );
+		final ImageRecord image = getImage( path );
 		return new double[]{
-				getDouble( imageElement, "PositionX" ),
-				-getDouble( imageElement, "PositionY" )
+				getDouble( image.positionX ),
+				-getDouble( image.positionY )
 		};
 	}
 
 	public String getColor( String path )
 	{
-		final Element imageElement = getImageElement( path );
-		final String channelID = getString( imageElement, "ChannelID" );
-		final Element channelElement = channelIDToElement.get( channelID );
-		final int mainEmissionWavelength = getInteger( channelElement, "MainEmissionWavelength" );
+		final ImageRecord image = getImage( path );
+		final int mainEmissionWavelength = getInteger( channelIDToMainEmissionWavelength.get( image.channelID ) );
 
 		final Color color = ChannelProperties.getColorFromWavelength( mainEmissionWavelength );
 		final String string = ColorHelper.getString( ColorHelper.getARGBType( color ) );
@@ -214,7 +333,7 @@ public class OperettaMetadata
 
 	public int getImageIndex( String path )
 	{
-		return filenameToImageIndex.get( new File( path ).getName() );
+		return filenameToImage.get( new File( path ).getName() ).imageIndex;
 	}
 
 	public double[] getContrastLimits( String path )
@@ -36,6 +36,7 @@ import mpicbg.spim.data.generic.base.Entity;
 import mpicbg.spim.data.generic.sequence.BasicViewSetup;
 import mpicbg.spim.data.sequence.FinalVoxelDimensions;
 import mpicbg.spim.data.sequence.VoxelDimensions;
+import net.imglib2.RandomAccessibleInterval;
 import org.embl.mobie.io.ImageDataFormat;
 import org.embl.mobie.io.ImageDataOpener;
 import org.embl.mobie.io.imagedata.ImageData;
@@ -46,12 +47,11 @@ import org.embl.mobie.io.util.S3Utils;
 import org.embl.mobie.lib.ThreadHelper;
 import org.embl.mobie.lib.color.ColorHelper;
 import org.embl.mobie.lib.hcs.omezarr.OMEZarrHCSHelper;
+import org.embl.mobie.lib.io.DirectoryWalker;
 
 import javax.annotation.Nullable;
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Paths;
 import java.util.*;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
@@ -77,11 +77,87 @@ public class Plate
 	private int numSlices;
 	private boolean fetchSpatialMetadata = true;
 
+	// The image that has been opened last while building the plate,
+	// such that an OME-Zarr site, which contains all channels,
+	// is only opened once.
+	private String openedImagePath;
+	private ImageData< ? > openedImageData;
+
+	// The file whose header has been read last, such that a file
+	// with multiple channels is only read once.
+	private String probedImagePath;
+	private List< ChannelMetadata > probedChannelMetadata;
+
+	@Nullable
+	private ChannelMetadataCache channelMetadataCache;
+
+	private final ImageFileReader imageFileReader;
+
+	// Whether the channel metadata is read with a plain Bio-Formats reader,
+	// with the value range of the first plane of a channel as contrast limits,
+	// rather than from the opened images, which is slower.
+	private final boolean contrastLimitsFromFirstPlane;
+
+	// Reads the image files of the plate. Tests inject their own
+	// reader, such that they do not depend on actual image files.
+	interface ImageFileReader
+	{
+		// see {@code ChannelMetadata.read}
+		@Nullable
+		List< ChannelMetadata > readChannelMetadata( String imagePath );
+
+		ImageData< ? > open( String imagePath, ImageDataFormat imageDataFormat );
+	}
+
+	static final ImageFileReader IMAGE_FILE_READER = new ImageFileReader()
+	{
+		@Override
+		public List< ChannelMetadata > readChannelMetadata( String imagePath )
+		{
+			return ChannelMetadata.read( imagePath );
+		}
+
+		@Override
+		public ImageData< ? > open( String imagePath, ImageDataFormat imageDataFormat )
+		{
+			return ImageDataOpener.open( imagePath, imageDataFormat, ThreadHelper.sharedQueue );
+		}
+	};
 
 	public Plate( String hcsDirectory, @Nullable VoxelDimensions voxelDimensions ) throws IOException
+	{
+		this( hcsDirectory, voxelDimensions, null );
+	}
+
+	/**
+	 * @param metadataCacheDirectory
+	 * 		local folder for caching the channel metadata of the plate,
+	 * 		such that reopening the plate does not read any image file;
+	 * 		null for not caching it
+	 */
+	public Plate( String hcsDirectory, @Nullable VoxelDimensions voxelDimensions, @Nullable String metadataCacheDirectory ) throws IOException
+	{
+		this( hcsDirectory, voxelDimensions, metadataCacheDirectory, false );
+	}
+
+	/**
+	 * @param metadataCacheDirectory
+	 * 		local folder for caching the channel metadata of the plate,
+	 * 		such that reopening the plate does not read any image file;
+	 * 		null for not caching it
+	 * @param contrastLimitsFromFirstPlane
+	 * 		whether the contrast limits of a channel are the value range of
+	 * 		its first plane, which is read, together with the other metadata,
+	 * 		without opening the image; otherwise, they are the ones of the
+	 * 		metadata of the opened image
+	 */
+	public Plate( String hcsDirectory, @Nullable VoxelDimensions voxelDimensions, @Nullable String metadataCacheDirectory, boolean contrastLimitsFromFirstPlane ) throws IOException
 	{
 		this.hcsDirectory = hcsDirectory;
 		this.voxelDimensions = voxelDimensions;
+		this.imageFileReader = IMAGE_FILE_READER;
+		this.contrastLimitsFromFirstPlane = contrastLimitsFromFirstPlane;
+		initChannelMetadataCache( metadataCacheDirectory );
 
 		// TODO: fetch operetta paths from XML?!
 		// TODO: fetch OME-Zarr paths entry point JSON?!
@@ -97,7 +173,6 @@ public class Plate
 			if ( IOHelper.getType( hcsDirectory ).equals( IOHelper.ResourceType.S3 ) )
 			{
 				imageDataFormat = ImageDataFormat.OmeZarrS3;
-				ThreadHelper.setNumIoThreads( Math.max( 16, ThreadHelper.getNumIoThreads() ) );
 			}
 			else
 			{
@@ -106,7 +181,7 @@ public class Plate
 
 			imagePaths = OMEZarrHCSHelper.sitePathsFromMetadata( hcsDirectory );
 
-			ImageData< ? > imageData = ImageDataOpener.open( imagePaths.get( 0 ), imageDataFormat, ThreadHelper.sharedQueue );
+			ImageData< ? > imageData = openImageData( imagePaths.get( 0 ) );
 			int numChannels = imageData.getNumDatasets();
 			List< String > channelNames = IntStream.range( 0, numChannels )
 					.mapToObj( channelIndex -> "" + channelIndex )
@@ -119,20 +194,18 @@ public class Plate
 			{
 				imageDataFormat = ImageDataFormat.BioFormatsS3;
 				imagePaths = S3Utils.getS3FilePaths( hcsDirectory );
-				ThreadHelper.setNumIoThreads( Math.max( 16, ThreadHelper.getNumIoThreads() ) );
 			}
 			else
 			{
 				imageDataFormat = ImageDataFormat.BioFormats;
-				imagePaths = Files.walk( Paths.get( hcsDirectory ), 3 )
-						.map( p -> p.toString() )
-						.collect( Collectors.toList() );
+				// files that do not match any pattern, like .DS_Store a.s.o.,
+				// are skipped already while scanning
+				imagePaths = DirectoryWalker.find( hcsDirectory, 3, path -> HCSPattern.fromPath( path.toString() ) != null );
 			}
 
+			// for S3, files that do not match the pattern
+			// are skipped in buildPlateMap
 			hcsPattern = determineHCSPattern( hcsDirectory, imagePaths );
-			imagePaths = imagePaths.stream()
-					.filter( path -> hcsPattern.setMatcher( path ) ) // skip files like .DS_Store a.s.o.
-					.collect( Collectors.toList() );
 
 			if ( hcsPattern.equals( HCSPattern.Operetta ) )
 			{
@@ -140,7 +213,7 @@ public class Plate
 				//final File xml = new File( hcsDirectory, "Index.idx.xml" );
 				final File xml = new File( hcsDirectory, "Index.xml" );
 				operettaMetadata = new OperettaMetadata( xml );
-				imagePaths = imagePaths.stream()
+				imagePaths = imagePaths.parallelStream()
 						.filter( path -> operettaMetadata.contains( path ) ) // skip files like .DS_Store a.s.o.
 						.collect( Collectors.toList() );
 			}
@@ -149,13 +222,33 @@ public class Plate
 				imageDataFormat = ImageDataFormat.Tiff;
 			}
 		}
-		IJ.log( "Found " + imagePaths.size() + " image files in " + ( System.currentTimeMillis() - start ) + " ms." );
+		IJ.log( "Found " + imagePaths.size() + " files in " + ( System.currentTimeMillis() - start ) + " ms." );
 		IJ.log( "HCS pattern: " + getHcsPattern() );
 		IJ.log( "Image data format: " + imageDataFormat );
 
 		buildPlateMap( imagePaths );
 	}
 
+	// For building the plate from a given list of paths,
+	// without scanning the plate directory.
+	Plate( String hcsDirectory, HCSPattern hcsPattern, ImageDataFormat imageDataFormat, List< String > imagePaths, @Nullable String metadataCacheDirectory, boolean contrastLimitsFromFirstPlane, ImageFileReader imageFileReader )
+	{
+		this.hcsDirectory = hcsDirectory;
+		this.hcsPattern = hcsPattern;
+		this.imageDataFormat = imageDataFormat;
+		this.imageFileReader = imageFileReader;
+		this.contrastLimitsFromFirstPlane = contrastLimitsFromFirstPlane;
+		initChannelMetadataCache( metadataCacheDirectory );
+
+		buildPlateMap( imagePaths );
+	}
+
+	private void initChannelMetadataCache( @Nullable String metadataCacheDirectory )
+	{
+		if ( metadataCacheDirectory != null )
+			channelMetadataCache = new ChannelMetadataCache( new File( metadataCacheDirectory ), hcsDirectory );
+	}
+
 	private void buildPlateMap( List< String > imagePaths )
 	{
 		channelWellSites = new HashMap<>();
@@ -163,17 +256,37 @@ public class Plate
 		zPositions = new HashSet<>();
 
 		IJ.log("Parsing metadata...");
+		long start = System.currentTimeMillis();
 
-		for ( String imagePath : imagePaths )
+		// Matching the regular expression is the most expensive part,
+		// thus it is done in parallel. The parallel stream keeps the order
+		// of the paths, such that the plate is the same as if built sequentially.
+		final List< HCSPattern.Match > matches = imagePaths.parallelStream()
+				.map( path -> hcsPattern.match( path ) )
+				.collect( Collectors.toList() );
+
+		// Fetch the channels, wells and sites by their names,
+		// rather than searching them in channelWellSites.
+		final Map< String, Channel > nameToChannel = new HashMap<>();
+		final Map< Channel, Map< String, Well > > channelToNameToWell = new HashMap<>();
+		final Map< Well, Map< String, Site > > wellToNameToSite = new HashMap<>();
+
+		int numImageFiles = 0;
+		for ( int pathIndex = 0; pathIndex < imagePaths.size(); pathIndex++ )
 		{
-			hcsPattern.setMatcher( imagePath );
+			final HCSPattern.Match match = matches.get( pathIndex );
+			if ( match == null )
+				continue; // skip files like .DS_Store a.s.o.
+
+			numImageFiles++;
+			final String imagePath = imagePaths.get( pathIndex );
 
 			// some formats contain multiple channels in one file
-			List< String > channelNames = hcsPattern.getChannels();
+			List< String > channelNames = match.getChannels();
 
 			for ( String channelName : channelNames )
 			{
-				Channel channel = getChannel( channelWellSites, channelName );
+				Channel channel = nameToChannel.get( channelName );
 
 				if ( channel == null )
 				{
@@ -181,95 +294,22 @@ public class Plate
 					//
 					channel = new Channel( channelName, channelNames.indexOf( channelName ) );
 					channelWellSites.put( channel, new HashMap<>() );
+					nameToChannel.put( channelName, channel );
+					channelToNameToWell.put( channel, new HashMap<>() );
 
-
-					// Open for metadata only
-					ImageData< ? > imageData = ImageDataOpener.open( imagePath, imageDataFormat, ThreadHelper.sharedQueue );
-
-					// set channel metadata
-					//
-					if ( operettaMetadata != null ) // Do we still want to support the operetta stuff at all?
-					{
-						final String color = operettaMetadata.getColor( imagePath );
-						channel.setColor( color );
-
-						// TODO: There does not always seem to be enough metadata for the
-						//   contrast limits, thus opening one image may be worth it
-						//   then convert to imagePlus and run once auto contrast on it
-						final double[] contrastLimits = operettaMetadata.getContrastLimits( imagePath );
-						channel.setContrastLimits( contrastLimits );
-					}
-					else // from image file
-					{
-						int datasetIndex = channel.getIndex();
-
-						IJ.log( "Fetching metadata for setup " + channelName + " from " + imagePath );
-						numSlices = ( int ) imageData.getSourcePair( datasetIndex ).getB().getSource( 0, 0 ).dimension( 2 );
-
-						channel.setColor( ColorHelper.getString( imageData.getMetadata( datasetIndex ).getColor() ) );
-
-						channel.setContrastLimits( new double[]{
-								imageData.getMetadata( datasetIndex ).minIntensity(),
-								imageData.getMetadata( datasetIndex ).maxIntensity()
-						} );
-					}
-
-					if ( fetchSpatialMetadata )
-					{
-						fetchSpatialMetadata= false; // should be the same for all files and channels
-
-						if ( operettaMetadata != null )
-						{
-							voxelDimensions = operettaMetadata.getVoxelDimensions( imagePath );
-							siteDimensions = operettaMetadata.getSiteDimensions( imagePath );
-						}
-						else // from image file
-						{
-							Source< ? > source = imageData.getSourcePair( channel.getIndex() ).getA();
-
-							voxelDimensions = source.getVoxelDimensions();
-
-							if ( voxelDimensions == null )
-							{
-								/*
-								If the z-positions are distributed over multiple files
-								typically the z-calibration metadata in the individual files is wrong.
-								We thus just put something sensible here such that browsing in BDV along the
-								z-axis is convenient
-								 */
-								voxelDimensions = new FinalVoxelDimensions(
-										voxelDimensions.unit(),
-										voxelDimensions.dimension( 0 ),
-										voxelDimensions.dimension( 1 ),
-										10 * voxelDimensions.dimension( 1 )
-								);
-							}
-
-							long width = source.getSource( 0, 0 ).dimension( 0 );
-							long height = source.getSource( 0, 0 ).dimension( 1 );
-							siteDimensions = new int[]{ ( int ) width, ( int ) height };
-						}
-
-						// compute derived spatial metadata
-						//
-						siteRealDimensions = new double[]{
-								siteDimensions[ 0 ] * voxelDimensions.dimension( 0 ),
-								siteDimensions[ 1 ] * voxelDimensions.dimension( 1 ) };
-
-						siteRealDimensions = new double[]{
-								siteDimensions[ 0 ] * voxelDimensions.dimension( 0 ),
-								siteDimensions[ 1 ] * voxelDimensions.dimension( 1 ) };
-					}
+					fetchChannelMetadata( channel, imagePath );
 				}
 
 				// well
 				//
-				String wellGroup = hcsPattern.getWellGroup();
-				Well well = getWell( channelWellSites, channel, wellGroup );
+				String wellGroup = match.getWellGroup();
+				Well well = channelToNameToWell.get( channel ).get( wellGroup );
 				if ( well == null )
 				{
 					well = new Well( wellGroup );
 					channelWellSites.get( channel ).put( well, new HashSet<>() );
+					channelToNameToWell.get( channel ).put( wellGroup, well );
+					wellToNameToSite.put( well, new HashMap<>() );
 					final int numWells = channelWellSites.get( channel ).size();
 					if ( numWells > wellsPerPlate )
 						wellsPerPlate = numWells;
@@ -277,8 +317,8 @@ public class Plate
 
 				// site
 				//
-				final String siteGroup = hcsPattern.getSiteGroup();
-				Site site = getSite( channelWellSites, channel, well, siteGroup );
+				final String siteGroup = match.getSiteGroup();
+				Site site = wellToNameToSite.get( well ).get( siteGroup );
 				if ( site == null )
 				{
 					if ( imageDataFormat.equals( ImageDataFormat.SpimData ) )
@@ -300,6 +340,7 @@ public class Plate
 					site.setDimensions( siteDimensions );
 					site.setVoxelDimensions( voxelDimensions );
 					channelWellSites.get( channel ).get( well ).add( site );
+					wellToNameToSite.get( well ).put( siteGroup, site );
 					if ( Integer.parseInt( site.getId() ) == 0 )
 						siteIDsAreOneBased = false; // zero based
 					final int numSites = channelWellSites.get( channel ).get( well ).size();
@@ -314,8 +355,8 @@ public class Plate
 				}
 				else
 				{
-					final String t = hcsPattern.getT();
-					final String z = hcsPattern.getZ();
+					final String t = match.getT();
+					final String z = match.getZ();
 					site.addPath( t, z, imagePath );
 					tPositions.add( new TPosition( t ) );
 					numSlices = Math.max( numSlices, site.getZPositions().size() );
@@ -323,6 +364,7 @@ public class Plate
 			}
 		}
 
+		IJ.log( "Parsed " + numImageFiles + " image files in " + ( System.currentTimeMillis() - start ) + " ms." );
 		IJ.log( "Initialised HCS plate: " + getName() );
 		IJ.log( "Wells: " + wellsPerPlate );
 		IJ.log( "Sites per well: " + sitesPerWell );
@@ -332,44 +374,147 @@ public class Plate
 
 		if ( numSlices > 1 )
 			is2d = false;
+
+		openedImagePath = null;
+		openedImageData = null;
+		probedImagePath = null;
+		probedChannelMetadata = null;
+
+		if ( channelMetadataCache != null )
+			channelMetadataCache.save();
 	}
 
+	private ImageData< ? > openImageData( String imagePath )
+	{
+		if ( ! imagePath.equals( openedImagePath ) )
+		{
+			openedImageData = imageFileReader.open( imagePath, imageDataFormat );
+			openedImagePath = imagePath;
+		}
+
+		return openedImageData;
+	}
 
-	private Channel getChannel( HashMap< Channel, Map< Well, Set< Site > > > channelWellSites, String channelName )
+	// Fetches the channel metadata, and the spatial metadata of the plate,
+	// preferably from the sidecar cache, or, if the contrast limits may be
+	// the ones of the first plane, from the image file without opening
+	// the image.
+	private void fetchChannelMetadata( Channel channel, String imagePath )
 	{
-		try
+		ChannelMetadata metadata = null;
+
+		if ( operettaMetadata != null ) // Do we still want to support the operetta stuff at all?
 		{
-			return channelWellSites.keySet().stream().filter( c -> c.getName().equals( channelName ) ).findFirst().get();
+			final String color = operettaMetadata.getColor( imagePath );
+			channel.setColor( color );
+
+			// TODO: There does not always seem to be enough metadata for the
+			//   contrast limits, thus opening one image may be worth it
+			//   then convert to imagePlus and run once auto contrast on it
+			final double[] contrastLimits = operettaMetadata.getContrastLimits( imagePath );
+			channel.setContrastLimits( contrastLimits );
 		}
-		catch ( NoSuchElementException e )
+		else // from image file
 		{
-			return null;
+			IJ.log( "Fetching metadata for setup " + channel.getName() + " from " + imagePath );
+			metadata = getChannelMetadata( channel, imagePath );
+			numSlices = metadata.getNumSlices();
+			channel.setColor( metadata.getColor() );
+			channel.setContrastLimits( metadata.getContrastLimits() );
 		}
 
+		if ( fetchSpatialMetadata )
+		{
+			fetchSpatialMetadata= false; // should be the same for all files and channels
+
+			if ( operettaMetadata != null )
+			{
+				voxelDimensions = operettaMetadata.getVoxelDimensions( imagePath );
+				siteDimensions = operettaMetadata.getSiteDimensions( imagePath );
+			}
+			else // from image file
+			{
+				voxelDimensions = metadata.getVoxelDimensions();
+				siteDimensions = metadata.getSiteDimensions();
+			}
+
+			// compute derived spatial metadata
+			//
+			siteRealDimensions = new double[]{
+					siteDimensions[ 0 ] * voxelDimensions.dimension( 0 ),
+					siteDimensions[ 1 ] * voxelDimensions.dimension( 1 ) };
+		}
 	}
 
-	private Well getWell( HashMap< Channel, Map< Well, Set< Site > > > channelWellSites, Channel channel, String wellName )
+	private ChannelMetadata getChannelMetadata( Channel channel, String imagePath )
 	{
-		try
+		if ( channelMetadataCache != null )
 		{
-			return channelWellSites.get( channel ).keySet().stream().filter( w -> w.getName().equals( wellName ) ).findFirst().get();
+			final ChannelMetadata metadata = channelMetadataCache.get( channel.getName(), imagePath );
+			if ( metadata != null && metadata.hasContrastLimitsFromFirstPlane() == contrastLimitsFromFirstPlane )
+				return metadata;
 		}
-		catch ( NoSuchElementException e )
+
+		ChannelMetadata metadata = null;
+		if ( contrastLimitsFromFirstPlane
+				&& ( imageDataFormat.equals( ImageDataFormat.Tiff )
+					|| imageDataFormat.equals( ImageDataFormat.BioFormats )
+					|| imageDataFormat.equals( ImageDataFormat.BioFormatsS3 ) ) )
 		{
-			return null;
+			final List< ChannelMetadata > fileMetadata = probeChannelMetadata( imagePath );
+			if ( fileMetadata != null && channel.getIndex() < fileMetadata.size() )
+				metadata = fileMetadata.get( channel.getIndex() );
 		}
+
+		if ( metadata == null )
+			metadata = readChannelMetadata( openImageData( imagePath ), channel.getIndex(), imagePath );
+
+		if ( channelMetadataCache != null )
+			channelMetadataCache.put( channel.getName(), metadata );
+
+		return metadata;
 	}
 
-	private Site getSite( HashMap< Channel, Map< Well, Set< Site > > > channelWellSites, Channel channel, Well well, String siteName )
+	// Reads the metadata of all channels of the image file without
+	// opening the image, and keeps it for files with multiple channels.
+	@Nullable
+	private List< ChannelMetadata > probeChannelMetadata( String imagePath )
 	{
-		try
+		if ( ! imagePath.equals( probedImagePath ) )
 		{
-			return channelWellSites.get( channel ).get( well ).stream().filter( s -> s.getId().equals( siteName ) ).findFirst().get();
+			probedChannelMetadata = imageFileReader.readChannelMetadata( imagePath );
+			probedImagePath = imagePath;
 		}
-		catch ( NoSuchElementException e )
+
+		return probedChannelMetadata;
+	}
+
+	private static ChannelMetadata readChannelMetadata( ImageData< ? > imageData, int datasetIndex, String imagePath )
+	{
+		final Source< ? > source = imageData.getSourcePair( datasetIndex ).getA();
+
+		VoxelDimensions voxelDimensions = source.getVoxelDimensions();
+		if ( voxelDimensions == null )
 		{
-			return null;
+			/*
+			If the z-positions are distributed over multiple files
+			typically the z-calibration metadata in the individual files is wrong.
+			We thus just put something sensible here such that browsing in BDV along the
+			z-axis is convenient
+			 */
+			voxelDimensions = new FinalVoxelDimensions( "pixel", 1, 1, 10 );
 		}
+
+		final RandomAccessibleInterval< ? > rai = source.getSource( 0, 0 );
+		return new ChannelMetadata(
+				imagePath,
+				ColorHelper.getString( imageData.getMetadata( datasetIndex ).getColor() ),
+				new double[]{
+						imageData.getMetadata( datasetIndex ).minIntensity(),
+						imageData.getMetadata( datasetIndex ).maxIntensity() },
+				( int ) rai.dimension( 2 ),
+				new int[]{ ( int ) rai.dimension( 0 ), ( int ) rai.dimension( 1 ) },
+				voxelDimensions );
 	}
 
 	private HCSPattern determineHCSPattern( String hcsDirectory, List< String > paths )
@@ -0,0 +1,274 @@
+/*-
+ * #%L
+ * Fiji viewer for MoBIE projects
+ * %%
+ * Copyright (C) 2018 - 2024 EMBL
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.embl.mobie.lib.hcs;
+
+import bdv.cache.SharedQueue;
+import bdv.util.RandomAccessibleIntervalSource4D;
+import bdv.util.volatiles.VolatileViews;
+import loci.formats.FormatTools;
+import loci.formats.ImageReader;
+import mpicbg.spim.data.sequence.VoxelDimensions;
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.cache.img.CachedCellImg;
+import net.imglib2.cache.img.CellLoader;
+import net.imglib2.cache.img.ReadOnlyCachedCellImgFactory;
+import net.imglib2.cache.img.ReadOnlyCachedCellImgOptions;
+import net.imglib2.cache.img.SingleCellArrayImg;
+import net.imglib2.realtransform.AffineTransform3D;
+import net.imglib2.type.NativeType;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.type.numeric.integer.UnsignedByteType;
+import net.imglib2.type.numeric.integer.UnsignedShortType;
+import net.imglib2.type.numeric.real.FloatType;
+import net.imglib2.view.Views;
+import org.embl.mobie.io.ImageDataFormat;
+import org.embl.mobie.io.toml.TPosition;
+import org.embl.mobie.io.toml.ZPosition;
+import org.embl.mobie.lib.image.DefaultSourcePair;
+import org.embl.mobie.lib.image.SourcePair;
+import org.embl.mobie.lib.source.MoBIEVolatileTypeMatcher;
+import org.embl.mobie.lib.source.SourceHelper;
+
+import javax.annotation.Nullable;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Loads the planes of a {@code Site}, with one file per plane,
+ * into a cached cell image with one cell per plane.
+ *
+ * As opposed to wrapping the files into a {@code VirtualBioFormatsStack},
+ * the planes are cached, and the volatile source loads them
+ * asynchronously via the {@code SharedQueue}, such that rendering
+ * a plate does not wait for the files to be read.
+ *
+ * Like the {@code VirtualBioFormatsStack}, only the first plane of each
+ * file is read, and planes that are smaller than the site are padded
+ * with zeros.
+ */
+public class SiteCellLoader< T extends RealType< T > & NativeType< T > > implements CellLoader< T >
+{
+	// [ t ][ z ]
+	private final String[][] paths;
+
+	public SiteCellLoader( String[][] paths )
+	{
+		this.paths = paths;
+	}
+
+	@Override
+	public void load( SingleCellArrayImg< T, ? > cell ) throws Exception
+	{
+		final int z = ( int ) cell.min( 2 );
+		final int t = ( int ) cell.min( 3 );
+		final String path = paths[ t ][ z ];
+		if ( path == null )
+			return; // missing plane
+
+		final Plane plane = Plane.read( path );
+		final int width = ( int ) cell.dimension( 0 );
+		final int height = ( int ) cell.dimension( 1 );
+		final Cursor< T > cursor = Views.flatIterable( cell ).cursor();
+		for ( int y = 0; y < height; y++ )
+		{
+			for ( int x = 0; x < width; x++ )
+			{
+				final T value = cursor.next();
+				if ( x < plane.width && y < plane.height )
+					value.setReal( plane.get( y * plane.width + x ) );
+			}
+		}
+	}
+
+	/**
+	 * Whether the {@code Site} consists of local files,
+	 * such that {@link #openSourcePair} may be used.
+	 */
+	public static boolean isSupported( Site site )
+	{
+		if ( site.getSpimData() != null || site.getPaths().isEmpty() || site.getDimensions() == null )
+			return false;
+
+		final ImageDataFormat imageDataFormat = site.getImageDataFormat();
+		return imageDataFormat.equals( ImageDataFormat.Tiff )
+				|| imageDataFormat.equals( ImageDataFormat.BioFormats );
+	}
+
+	/**
+	 * Reads the metadata of the first plane of the {@code Site},
+	 * but none of the voxels.
+	 *
+	 * @return the sources of the site, or null if the pixel type
+	 * 		of its files is not supported
+	 */
+	@Nullable
+	public static < T extends RealType< T > & NativeType< T > > SourcePair< T > openSourcePair( Site site, String name, SharedQueue sharedQueue )
+	{
+		final String[][] paths = getPaths( site );
+
+		final T type;
+		try ( ImageReader reader = new ImageReader() )
+		{
+			reader.setId( paths[ 0 ][ 0 ] );
+			if ( reader.getRGBChannelCount() != 1 )
+				return null;
+			type = createType( reader.getPixelType() );
+		}
+		catch ( Exception e )
+		{
+			throw new RuntimeException( e );
+		}
+
+		if ( type == null )
+			return null;
+
+		final int[] dimensions = site.getDimensions();
+		final CachedCellImg< T, ? > img = new ReadOnlyCachedCellImgFactory().create(
+				new long[]{ dimensions[ 0 ], dimensions[ 1 ], paths[ 0 ].length, paths.length },
+				type,
+				new SiteCellLoader<>( paths ),
+				ReadOnlyCachedCellImgOptions.options()
+						.cellDimensions( dimensions[ 0 ], dimensions[ 1 ], 1, 1 )
+						.volatileAccesses( true ) );
+		final RandomAccessibleInterval< ? > volatileImg = VolatileViews.wrapAsVolatile( img, sharedQueue );
+
+		final AffineTransform3D transform = new AffineTransform3D();
+		final VoxelDimensions voxelDimensions = site.getVoxelDimensions();
+		if ( voxelDimensions != null )
+			transform.scale( voxelDimensions.dimension( 0 ), voxelDimensions.dimension( 1 ), voxelDimensions.dimension( 2 ) );
+
+		final RandomAccessibleIntervalSource4D< T > source = new RandomAccessibleIntervalSource4D<>( img, type, transform, name );
+		final RandomAccessibleIntervalSource4D volatileSource = new RandomAccessibleIntervalSource4D( volatileImg, MoBIEVolatileTypeMatcher.getVolatileTypeForType( type ), transform, name );
+		if ( voxelDimensions != null )
+		{
+			SourceHelper.setVoxelDimensions( source, voxelDimensions );
+			SourceHelper.setVoxelDimensions( volatileSource, voxelDimensions );
+		}
+
+		return new DefaultSourcePair<>( source, volatileSource );
+	}
+
+	// The time points are sorted and the z positions are
+	// in the order of the files, as in {@code DataStore}.
+	private static String[][] getPaths( Site site )
+	{
+		final Map< TPosition, Map< ZPosition, String > > tzPaths = site.getPaths();
+		final List< TPosition > tPositions = new ArrayList<>( tzPaths.keySet() );
+		Collections.sort( tPositions );
+
+		final int numZ = tzPaths.values().stream().mapToInt( Map::size ).max().getAsInt();
+		final String[][] paths = new String[ tPositions.size() ][ numZ ];
+		for ( int t = 0; t < tPositions.size(); t++ )
+		{
+			final List< String > zPaths = new ArrayList<>( tzPaths.get( tPositions.get( t ) ).values() );
+			for ( int z = 0; z < zPaths.size(); z++ )
+				paths[ t ][ z ] = zPaths.get( z );
+		}
+
+		return paths;
+	}
+
+	// The types that ImageJ also uses for these files,
+	// such that the voxel values do not change.
+	@Nullable
+	private static < T extends RealType< T > & NativeType< T > > T createType( int pixelType )
+	{
+		switch ( pixelType )
+		{
+			case FormatTools.UINT8:
+				return ( T ) new UnsignedByteType();
+			case FormatTools.UINT16:
+				return ( T ) new UnsignedShortType();
+			case FormatTools.FLOAT:
+				return ( T ) new FloatType();
+			default:
+				return null;
+		}
+	}
+
+	static class Plane
+	{
+		private final ByteBuffer buffer;
+		private final int pixelType;
+		private final int width;
+		private final int height;
+
+		private Plane( byte[] bytes, boolean littleEndian, int pixelType, int width, int height )
+		{
+			this.buffer = ByteBuffer.wrap( bytes ).order( littleEndian ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN );
+			this.pixelType = pixelType;
+			this.width = width;
+			this.height = height;
+		}
+
+		static Plane read( String path ) throws Exception
+		{
+			try ( ImageReader reader = new ImageReader() )
+			{
+				reader.setId( path );
+				return read( reader, 0 );
+			}
+		}
+
+		static Plane read( ImageReader reader, int planeIndex ) throws Exception
+		{
+			return new Plane( reader.openBytes( planeIndex ), reader.isLittleEndian(), reader.getPixelType(), reader.getSizeX(), reader.getSizeY() );
+		}
+
+		int getWidth()
+		{
+			return width;
+		}
+
+		int getHeight()
+		{
+			return height;
+		}
+
+		double get( int index )
+		{
+			switch ( pixelType )
+			{
+				case FormatTools.UINT8:
+					return buffer.get( index ) & 0xff;
+				case FormatTools.UINT16:
+					return buffer.getShort( 2 * index ) & 0xffff;
+				case FormatTools.FLOAT:
+					return buffer.getFloat( 4 * index );
+				default:
+					throw new UnsupportedOperationException( "Unsupported pixel type: " + FormatTools.getPixelTypeString( pixelType ) );
+			}
+		}
+	}
+}
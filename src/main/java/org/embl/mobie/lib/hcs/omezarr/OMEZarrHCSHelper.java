@@ -37,13 +37,13 @@ import org.embl.mobie.lib.ThreadHelper;
 import org.embl.mobie.lib.serialize.JsonHelper;
 
 import java.io.IOException;
+import java.lang.reflect.Type;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
@@ -68,15 +68,20 @@ public class OMEZarrHCSHelper
         return imageSitePaths;
     }
 
+    // Gson is thread-safe, but it caches type adapters internally,
+    // thus each IO thread gets its own instance
+    private static final ThreadLocal< Gson > GSON = ThreadLocal.withInitial( () -> JsonHelper.buildGson( false ) );
+
+    private static final Type HCS_METADATA_TYPE = new TypeToken< HCSMetadata >() {}.getType();
+
+    private static final Type WELL_METADATA_TYPE = new TypeToken< WellMetadata >() {}.getType();
+
     public static List< String > sitePathsFromMetadata( String hcsDirectory ) throws IOException
     {
-        List< String > imageSitePaths = new CopyOnWriteArrayList<>();
-        Gson gson = JsonHelper.buildGson(false);
-
         String plateUri = hcsDirectory;
         final String plateJson = IOHelper.read( plateUri + ZATTRS );
         //System.out.println( plateJson );
-        HCSMetadata hcsMetadata = gson.fromJson(plateJson, new TypeToken< HCSMetadata >() {}.getType());
+        HCSMetadata hcsMetadata = GSON.get().fromJson( plateJson, HCS_METADATA_TYPE );
         int numWells = hcsMetadata.plate.wells.size();
 
         // lots of code for nice logging...
@@ -85,17 +90,24 @@ public class OMEZarrHCSHelper
         AtomicLong lastLogMillis = new AtomicLong( System.currentTimeMillis() );
         final long startTime = System.currentTimeMillis();
         IJ.log( "Parsing " + numWells + " wells..." );
-        parseWells( hcsMetadata, wellIndex, numWells, sourceLoggingModulo, lastLogMillis, plateUri, gson, imageSitePaths );
+        final List< String > imageSitePaths = parseWells( hcsMetadata, wellIndex, numWells, sourceLoggingModulo, lastLogMillis, plateUri );
         IJ.log( "Parsed " + numWells + " wells in " + (System.currentTimeMillis() - startTime) + " ms, using up to " + ThreadHelper.getNumIoThreads() + " thread(s).");
 
         return imageSitePaths;
     }
 
-    private static void parseWells( HCSMetadata hcsMetadata, AtomicInteger wellIndex, int numWells, AtomicInteger sourceLoggingModulo, AtomicLong lastLogMillis, String plateUri, Gson gson, List< String > imageSitePaths )
+    // Each well writes its site paths into its own slot,
+    // such that the site paths are in plate order,
+    // independent of which well is parsed first.
+    private static List< String > parseWells( HCSMetadata hcsMetadata, AtomicInteger wellIndex, int numWells, AtomicInteger sourceLoggingModulo, AtomicLong lastLogMillis, String plateUri )
     {
+        final String[][] wellSitePaths = new String[ numWells ][];
+
         ArrayList< Future< ? > > futures = ThreadHelper.getFutures();
-        for ( Well well : hcsMetadata.plate.wells )
+        for ( int slot = 0; slot < numWells; slot++ )
         {
+            final int wellSlot = slot;
+            final Well well = hcsMetadata.plate.wells.get( wellSlot );
             futures.add(
                 ThreadHelper.ioExecutorService.submit( () ->
                     {
@@ -112,16 +124,28 @@ public class OMEZarrHCSHelper
                         {
                             throw new RuntimeException( e );
                         }
-                        WellMetadata wellMetadata = gson.fromJson( wellJson, new TypeToken< WellMetadata >() {}.getType() );
+                        WellMetadata wellMetadata = GSON.get().fromJson( wellJson, WELL_METADATA_TYPE );
 
-                        for ( Image image : wellMetadata.well.images )
-                        {
-                            String imageUri = IOHelper.combinePath( wellUri, image.path );
-                            imageSitePaths.add( imageUri );
-                        }
+                        final List< Image > images = wellMetadata.well.images;
+                        final String[] sitePaths = new String[ images.size() ];
+                        for ( int imageIndex = 0; imageIndex < sitePaths.length; imageIndex++ )
+                            sitePaths[ imageIndex ] = IOHelper.combinePath( wellUri, images.get( imageIndex ).path );
+
+                        wellSitePaths[ wellSlot ] = sitePaths;
                     }
                 ) );
         }
         ThreadHelper.waitUntilFinished( futures );
+
+        // Future.get() makes the slots written by the IO threads visible here
+        int numSites = 0;
+        for ( String[] sitePaths : wellSitePaths )
+            numSites += sitePaths.length;
+
+        final List< String > imageSitePaths = new ArrayList<>( numSites );
+        for ( String[] sitePaths : wellSitePaths )
+            Collections.addAll( imageSitePaths, sitePaths );
+
+        return imageSitePaths;
     }
 }
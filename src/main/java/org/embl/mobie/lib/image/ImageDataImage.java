@@ -41,9 +41,14 @@ import org.embl.mobie.io.ImageDataFormat;
 import org.embl.mobie.DataStore;
 import org.embl.mobie.io.imagedata.ImageData;
 import org.embl.mobie.lib.hcs.Site;
+import org.embl.mobie.lib.hcs.SiteCellLoader;
 import org.embl.mobie.lib.source.SourceHelper;
 
 import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Converts various input resources into an {@code Image}.
@@ -60,6 +65,13 @@ public class ImageDataImage< T extends NumericType< T > & NativeType< T > > impl
 	private VoxelDimensions voxelDimensions;
 	@Nullable
 	private RealMaskRealInterval mask;
+	// estimating the mask may require opening the image,
+	// thus it is cached until the image is transformed
+	private volatile RealMaskRealInterval estimatedMask;
+	// counts the transforms, such that a mask that is estimated
+	// while the image is transformed is not cached
+	private int transformGeneration;
+	private final Object estimatedMaskLock = new Object();
 	private TransformedSource< T > transformedSource;
 	private AffineTransform3D currentTransform = new AffineTransform3D();
 
@@ -138,6 +150,12 @@ public class ImageDataImage< T extends NumericType< T > & NativeType< T > > impl
 			currentTransform.preConcatenate( affineTransform3D );
 		}
 
+		synchronized ( estimatedMaskLock )
+		{
+			transformGeneration++;
+			estimatedMask = null;
+		}
+
 		for ( ImageListener listener : listeners.list )
 			listener.imageChanged();
 	}
@@ -151,7 +169,24 @@ public class ImageDataImage< T extends NumericType< T > & NativeType< T > > impl
 			// because otherwise rendering 2D sources in a 3D scene
 			// will make them so thin that the {@code RegionLabelImage}
 			// does not render anything.
-			return SourceHelper.estimatePhysicalMask( getSourcePair().getSource(), 0, true );
+			RealMaskRealInterval estimatedMask = this.estimatedMask;
+			if ( estimatedMask == null )
+			{
+				final int generation;
+				synchronized ( estimatedMaskLock )
+				{
+					generation = transformGeneration;
+				}
+
+				estimatedMask = SourceHelper.estimatePhysicalMask( getSourcePair().getSource(), 0, true );
+
+				synchronized ( estimatedMaskLock )
+				{
+					if ( generation == transformGeneration )
+						this.estimatedMask = estimatedMask;
+				}
+			}
+			return estimatedMask;
 		}
 
 		return mask;
@@ -165,14 +200,26 @@ public class ImageDataImage< T extends NumericType< T > & NativeType< T > > impl
 
 	private void open()
 	{
+		if ( site != null && SiteCellLoader.isSupported( site ) )
+		{
+			final SourcePair< T > siteSourcePair = ( SourcePair ) SiteCellLoader.openSourcePair( site, name, sharedQueue );
+			if ( siteSourcePair != null )
+			{
+				createSourcePair( siteSourcePair.getSource(), siteSourcePair.getVolatileSource(), name );
+				return;
+			}
+		}
+
 		createSourcePair( openImageData(), setupId, name );
 	}
 
 	private void createSourcePair( ImageData< T > imageData, int setupId, String name )
 	{
-		final Source< T > source = imageData.getSourcePair( setupId ).getA();
-		Source< ? extends Volatile< T > > volatileSource = imageData.getSourcePair( setupId ).getB();
+		createSourcePair( imageData.getSourcePair( setupId ).getA(), imageData.getSourcePair( setupId ).getB(), name );
+	}
 
+	private void createSourcePair( Source< T > source, Source< ? extends Volatile< T > > volatileSource, String name )
+	{
 		if ( voxelDimensions != null  )
 		{
 			source.getSourceTransform( 0, 0, currentTransform );
@@ -193,6 +240,24 @@ public class ImageDataImage< T extends NumericType< T > & NativeType< T > > impl
 		sourcePair = new DefaultSourcePair<>( transformedSource, new TransformedSource<>( volatileSource, transformedSource, name ) );
 	}
 
+	// The locations of the image data, e.g. for finding
+	// out whether data derived from it is outdated.
+	public List< String > getUris()
+	{
+		if ( site != null )
+		{
+			if ( site.absolutePath != null )
+				return Collections.singletonList( site.absolutePath );
+
+			final List< String > uris = new ArrayList<>();
+			for ( Map< ?, String > zToPath : site.getPaths().values() )
+				uris.addAll( zToPath.values() );
+			return uris;
+		}
+
+		return uri == null ? Collections.emptyList() : Collections.singletonList( uri );
+	}
+
 	private ImageData< T > openImageData( )
 	{
 		if ( site != null )
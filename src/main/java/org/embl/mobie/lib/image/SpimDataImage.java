@@ -50,6 +50,13 @@ public class SpimDataImage< T extends NumericType< T > & RealType< T > > impleme
 	private String name;
 	@Nullable
 	private RealMaskRealInterval mask;
+	// estimating the mask may require opening the image,
+	// thus it is cached until the image is transformed
+	private volatile RealMaskRealInterval estimatedMask;
+	// counts the transforms, such that a mask that is estimated
+	// while the image is transformed is not cached
+	private int transformGeneration;
+	private final Object estimatedMaskLock = new Object();
 	private TransformedSource< T > transformedSource;
 	private AffineTransform3D currentTransform = new AffineTransform3D();
 
@@ -94,6 +101,12 @@ public class SpimDataImage< T extends NumericType< T > & RealType< T > > impleme
 			currentTransform.preConcatenate( affineTransform3D );
 		}
 
+		synchronized ( estimatedMaskLock )
+		{
+			transformGeneration++;
+			estimatedMask = null;
+		}
+
 		for ( ImageListener listener : listeners.list )
 			listener.imageChanged();
 	}
@@ -107,7 +120,24 @@ public class SpimDataImage< T extends NumericType< T > & RealType< T > > impleme
 			// because otherwise rendering 2D sources in a 3D scene
 			// will make them so thin that the {@code RegionLabelImage}
 			// does not render anything.
-			return SourceHelper.estimatePhysicalMask( getSourcePair().getSource(), 0, true );
+			RealMaskRealInterval estimatedMask = this.estimatedMask;
+			if ( estimatedMask == null )
+			{
+				final int generation;
+				synchronized ( estimatedMaskLock )
+				{
+					generation = transformGeneration;
+				}
+
+				estimatedMask = SourceHelper.estimatePhysicalMask( getSourcePair().getSource(), 0, true );
+
+				synchronized ( estimatedMaskLock )
+				{
+					if ( generation == transformGeneration )
+						this.estimatedMask = estimatedMask;
+				}
+			}
+			return estimatedMask;
 		}
 
 		return mask;
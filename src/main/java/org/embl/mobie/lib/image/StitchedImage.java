@@ -33,21 +33,28 @@ import bdv.util.Affine3DHelpers;
 import bdv.util.DefaultInterpolators;
 import bdv.viewer.Interpolation;
 import bdv.viewer.Source;
+import ij.IJ;
 import mpicbg.spim.data.sequence.VoxelDimensions;
+import net.imglib2.Cursor;
 import net.imglib2.FinalInterval;
 import net.imglib2.Localizable;
+import net.imglib2.RandomAccess;
 import net.imglib2.RandomAccessible;
 import net.imglib2.RandomAccessibleInterval;
 import net.imglib2.RealInterval;
+import net.imglib2.RealLocalizable;
 import net.imglib2.RealPoint;
 import net.imglib2.RealRandomAccessible;
 import net.imglib2.Volatile;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.array.ArrayImgFactory;
 import net.imglib2.interpolation.randomaccess.NearestNeighborInterpolatorFactory;
 import net.imglib2.outofbounds.OutOfBoundsConstantValueFactory;
 import net.imglib2.position.FunctionRandomAccessible;
 import net.imglib2.realtransform.AffineTransform3D;
 import net.imglib2.roi.RealMaskRealInterval;
 import net.imglib2.roi.geom.GeomMasks;
+import net.imglib2.type.NativeType;
 import net.imglib2.type.Type;
 import net.imglib2.type.numeric.NumericType;
 import net.imglib2.util.Intervals;
@@ -57,6 +64,8 @@ import net.imglib2.view.Views;
 import org.embl.mobie.DataStore;
 import org.embl.mobie.lib.MoBIEHelper;
 import org.embl.mobie.lib.ThreadHelper;
+import org.embl.mobie.lib.io.ArrayImgFiles;
+import org.embl.mobie.lib.io.FileVersions;
 import org.embl.mobie.lib.io.Status;
 import org.embl.mobie.lib.source.MoBIEVolatileTypeMatcher;
 import org.embl.mobie.lib.source.SourceHelper;
@@ -64,6 +73,9 @@ import org.embl.mobie.lib.transform.TransformHelper;
 import org.embl.mobie.lib.transform.ImageTransformer;
 
 import javax.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -72,7 +84,13 @@ import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Optional;
 import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.function.BiConsumer;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
@@ -105,11 +123,66 @@ public class StitchedImage< T extends Type< T >, V extends Volatile< T > & Type<
 	private int numTimepoints;
 	private final boolean debug = false;
 	private RealMaskRealInterval mask;
+	// the mask only changes if the image is transformed,
+	// thus it is cached until then
+	private volatile RealMaskRealInterval estimatedMask;
+	// counts the transforms, such that a mask that is estimated
+	// while the image is transformed is not cached
+	private int transformGeneration;
+	private final Object estimatedMaskLock = new Object();
+	private volatile TileIndex tileIndex;
 	private Source< T > metadataSource;
 
+	// The coarsest level of the tiles may still be (very) fine,
+	// e.g. for Bio-Formats images, which have only one level.
+	// Thus, an overview of the stitched tiles can optionally be
+	// added as one coarser level, see {@code OverviewStore}.
+	private static final long MAX_OVERVIEW_VOXELS = 4096L * 4096L;
+	// computes one overview at a time; the tiles are read by the IO threads
+	private static final ExecutorService overviewExecutorService = Executors.newSingleThreadExecutor( runnable ->
+	{
+		final Thread thread = new Thread( runnable, "MoBIE overview" );
+		thread.setDaemon( true );
+		return thread;
+	} );
+	@Nullable
+	private final File overviewCacheDirectory;
+	private int numTileLevels;
+	private int overviewDownsamplingFactor = 1;
+	private OverviewStore overviewStore;
+
+	// If the tiles are themselves stitched images, e.g. the wells of a plate,
+	// their tiles are fetched directly, see {@code FlatTileStore}.
+	private final boolean flattenNestedTiles;
+	private FlatTileStore flatTileStore;
+
 	public StitchedImage( List< ? extends Image< T > > images, Image< T > metadataImage, @Nullable List< int[] > gridPositions, String name, double relativeTileMargin )
+	{
+		this( images, metadataImage, gridPositions, name, relativeTileMargin, null );
+	}
+
+	/**
+	 * @param overviewCacheDirectory
+	 * 		if not null, the stitched image gets an additional, coarser
+	 * 		resolution level, which is computed once in the background
+	 * 		and cached in this local directory
+	 */
+	public StitchedImage( List< ? extends Image< T > > images, Image< T > metadataImage, @Nullable List< int[] > gridPositions, String name, double relativeTileMargin, @Nullable File overviewCacheDirectory )
+	{
+		this( images, metadataImage, gridPositions, name, relativeTileMargin, overviewCacheDirectory, true );
+	}
+
+	/**
+	 * @param flattenNestedTiles
+	 * 		if the tiles are themselves stitched images, e.g. the wells
+	 * 		of a plate, whether their tiles are fetched directly;
+	 * 		can be switched off, e.g. for benchmarking
+	 */
+	public StitchedImage( List< ? extends Image< T > > images, Image< T > metadataImage, @Nullable List< int[] > gridPositions, String name, double relativeTileMargin, @Nullable File overviewCacheDirectory, boolean flattenNestedTiles )
 	{
 		this.images = images;
+		this.overviewCacheDirectory = overviewCacheDirectory;
+		this.flattenNestedTiles = flattenNestedTiles;
 
 		// Fetch image dimensions, type and mask from {@code metadataImage}.
 		// The {@code metadataImage} does not need to be part of the StitchedImage;
@@ -167,7 +240,12 @@ public class StitchedImage< T extends Type< T >, V extends Volatile< T > & Type<
 		this.name = name;
 
 		setMinMaxPos();
+		numTileLevels = numMipmapLevels;
+		if ( overviewCacheDirectory != null && supportsOverview() )
+			overviewDownsamplingFactor = computeOverviewDownsamplingFactor();
 		configureMipmapAndTileDimensions();
+		if ( overviewDownsamplingFactor > 1 )
+			addOverviewLevel();
 		setTileRealDimensions( tileDimensions[ 0 ] );
 		if ( debug )
 		{
@@ -190,9 +268,51 @@ public class StitchedImage< T extends Type< T >, V extends Volatile< T > & Type<
 
 	public Optional< ? extends Image< ? > > getTileImageAtGlobalPosition( RealPoint position )
 	{
-		final Optional< ? extends Image< ? > > optionalImage = getTileImages().stream().filter( img -> Intervals.contains( img.getMask(), position ) ).findFirst();
+		TileIndex index = tileIndex;
+		if ( index == null )
+		{
+			index = new TileIndex( getTileImages() );
+			tileIndex = index;
+		}
+
+		for ( int tile : index.getCandidates( position ) )
+		{
+			final Image< ? > image = images.get( tile );
+			if ( Intervals.contains( image.getMask(), position ) )
+				return Optional.of( image );
+		}
+
+		return Optional.empty();
+	}
+
+	// To be called if the tile images have been transformed
+	// after the last call to {@code getTileImageAtGlobalPosition}.
+	public void tileImagesChanged()
+	{
+		tileIndex = null;
+	}
 
-		return optionalImage;
+	/**
+	 * Starts loading or computing the overview level of the timepoint,
+	 * if this has not been done yet.
+	 *
+	 * @return the overview, or null if this image has no overview level
+	 */
+	@Nullable
+	public CompletableFuture< RandomAccessibleInterval< T > > fetchOverview( int t )
+	{
+		return overviewStore == null ? null : overviewStore.fetch( t );
+	}
+
+	// To be called if the voxels of the tile images have changed,
+	// such that the overview is computed again.
+	// MoBIE does not call this itself, as it does not modify image data.
+	// Changes of local image files are detected by the fingerprint of the
+	// overview, but changes of remote image data are not.
+	public void invalidateOverview()
+	{
+		if ( overviewStore != null )
+			overviewStore.invalidate();
 	}
 
 	private void setPositions( List< ? extends Image< T > > images, List< int[] > positions )
@@ -312,6 +432,10 @@ public class StitchedImage< T extends Type< T >, V extends Volatile< T > & Type<
 
 		ImageTransformer.gridTransform( nestedImages, nestedTransformedNames, positions, tileRealDimensions, false, offset );
 
+		for ( Image< ? > image : images )
+			if ( image instanceof StitchedImage )
+				( ( StitchedImage< ?, ? > ) image ).tileImagesChanged();
+
 		if ( debug )
 		{
 			for ( List< ? extends Image< ? > > nestedImage : nestedImages )
@@ -352,7 +476,16 @@ public class StitchedImage< T extends Type< T >, V extends Volatile< T > & Type<
 			mipmapTransforms[ level ] = mipmapTransform;
 		}
 
-		final TileStore tileStore = new TileStore( images, positions );
+		final TileStore tileStore;
+		if ( isFlattenable() )
+		{
+			flatTileStore = new FlatTileStore();
+			tileStore = null;
+		}
+		else
+		{
+			tileStore = new TileStore( images, positions );
+		}
 
 		// non-volatile
 		//
@@ -485,7 +618,14 @@ public class StitchedImage< T extends Type< T >, V extends Volatile< T > & Type<
 			{
 				final V background = volatileType.createVariable();
 				background.setValid( true );
-				final FunctionRandomAccessible< V > stitchedTimepointAtLevel = new FunctionRandomAccessible( 3, new VolatileValueFromTilesFetcherSupplier( tileStore, t, level, background ).get(), () -> volatileType.createVariable() );
+				final BiConsumer< Localizable, V > fetcher;
+				if ( level >= numTileLevels )
+					fetcher = new VolatileValueFromOverviewFetcher( t );
+				else if ( flatTileStore != null )
+					fetcher = new VolatileValueFromInnerTilesFetcher( t, level, background );
+				else
+					fetcher = new VolatileValueFromTilesFetcherSupplier( tileStore, t, level, background ).get();
+				final FunctionRandomAccessible< V > stitchedTimepointAtLevel = new FunctionRandomAccessible( 3, fetcher, () -> volatileType.createVariable() );
 				final IntervalView< V > rai = Views.interval( stitchedTimepointAtLevel, getInterval( level ) );
 				stitched.get( t ).add( rai );
 			}
@@ -567,7 +707,11 @@ public class StitchedImage< T extends Type< T >, V extends Volatile< T > & Type<
 
 				if ( status.equals( Status.Closed ) )
 				{
-					ThreadHelper.stitchedImageExecutorService.submit( new TileOpener( t, level, xTileIndex, yTileIndex ) );
+					ThreadHelper.tileLoadingQueue.submit(
+							Arrays.asList( StitchedImage.this, t, level, xTileIndex, yTileIndex ),
+							level,
+							() -> getGlobalBounds( tileStore.getImage( xTileIndex, yTileIndex ) ),
+							new TileOpener( t, level, xTileIndex, yTileIndex ) );
 
 					volatileValue.setValid( false );
 				}
@@ -636,6 +780,90 @@ public class StitchedImage< T extends Type< T >, V extends Volatile< T > & Type<
 		}
 	}
 
+	// Fetches the values from the tiles of the tiles,
+	// using the {@code FlatTileStore}.
+	class VolatileValueFromInnerTilesFetcher implements BiConsumer< Localizable, V >
+	{
+		private final int t;
+		private final int level;
+		private final V background;
+
+		VolatileValueFromInnerTilesFetcher( int t, int level, V background )
+		{
+			this.t = t;
+			this.level = level;
+			this.background = background;
+		}
+
+		@Override
+		public void accept( Localizable location, V volatileValue )
+		{
+			final int x = location.getIntPosition( 0 );
+			final int y = location.getIntPosition( 1 );
+			final int innerTile = flatTileStore.getInnerTile( level, x, y );
+
+			if ( innerTile < 0 )
+			{
+				volatileValue.set( background );
+				volatileValue.setValid( true );
+				return;
+			}
+
+			final Status status = flatTileStore.getStatus( t, level, innerTile );
+
+			if ( status.equals( Status.Closed ) )
+			{
+				ThreadHelper.tileLoadingQueue.submit(
+						Arrays.asList( StitchedImage.this, t, level, innerTile ),
+						level,
+						() -> getGlobalBounds( flatTileStore.getImage( innerTile ) ),
+						() -> flatTileStore.open( t, level, innerTile ) );
+				volatileValue.setValid( false );
+			}
+			else if ( status.equals( Status.Opening ) )
+			{
+				volatileValue.setValid( false );
+			}
+			else
+			{
+				final V value = flatTileStore.getVolatileRandomAccessible( t, level, innerTile ).getAt(
+						x - flatTileStore.getOffset( level, innerTile, 0 ),
+						y - flatTileStore.getOffset( level, innerTile, 1 ),
+						location.getIntPosition( 2 ) );
+				volatileValue.set( value );
+			}
+		}
+	}
+
+	// Forwards the values of the overview,
+	// which are invalid until the overview is available.
+	class VolatileValueFromOverviewFetcher implements BiConsumer< Localizable, V >
+	{
+		private final int t;
+
+		VolatileValueFromOverviewFetcher( int t )
+		{
+			this.t = t;
+		}
+
+		@Override
+		public void accept( Localizable location, V volatileValue )
+		{
+			final RandomAccessibleInterval< T > overview = overviewStore.getIfDone( t );
+
+			if ( overview == null )
+			{
+				// BDV renders the finer levels meanwhile
+				overviewStore.fetch( t );
+				volatileValue.setValid( false );
+				return;
+			}
+
+			volatileValue.get().set( overview.getAt( location ) );
+			volatileValue.setValid( true );
+		}
+	}
+
 	protected Map< Integer, List< RandomAccessibleInterval< T > > > stitchTiles( TileStore tileStore )
 	{
 		final Map< Integer, List< RandomAccessibleInterval< T > > > stitched = new HashMap<>();
@@ -646,33 +874,31 @@ public class StitchedImage< T extends Type< T >, V extends Volatile< T > & Type<
 
 			for ( int l = 0; l < numMipmapLevels; l++ )
 			{
-				final int[] tileDimension = tileDimensions[ l ];
 				final int level = l;
 				final int timepoint = t;
-				BiConsumer< Localizable, T > biConsumer = ( location, value ) ->
+				BiConsumer< Localizable, T > biConsumer;
+				if ( level < numTileLevels )
 				{
-					int x = location.getIntPosition( 0 );
-					int y = location.getIntPosition( 1 );
-					final int xTileIndex = x / tileDimension[ 0 ];
-					final int yTileIndex = y / tileDimension[ 1 ];
-					x = x - xTileIndex * tileDimension[ 0 ];
-					y = y - yTileIndex * tileDimension[ 1 ];
-
-					if ( ! tileStore.contains( timepoint, level, xTileIndex, yTileIndex ) )
+					biConsumer = ( location, value ) ->
+							setTileValue( tileStore, timepoint, level, location.getIntPosition( 0 ), location.getIntPosition( 1 ), location.getIntPosition( 2 ), value );
+				}
+				else
+				{
+					biConsumer = ( location, value ) ->
 					{
-						value.set( type.createVariable() ); // background
-						return;
-					}
-
-					// this is less efficient as the corresponding volatile
-					// implementation, but right now this mainly needed
-					// to fetch very few pixel values upon segment selections
-					//
-					//
-					tileStore.open( timepoint, level, xTileIndex, yTileIndex );
-					final T type = tileStore.getRandomAccessible( timepoint, level, xTileIndex, yTileIndex ).randomAccess().setPositionAndGet( x, y, location.getIntPosition( 2 ) );
-					value.set( type );
-				} ;
+						final RandomAccessibleInterval< T > overview = overviewStore.getIfDone( timepoint );
+						if ( overview != null )
+						{
+							value.set( overview.getAt( location ) );
+							return;
+						}
+
+						// sample the coarsest tile level, as the overview does
+						final int x = overviewStore.toTileLevelPosition( location.getIntPosition( 0 ), 0 );
+						final int y = overviewStore.toTileLevelPosition( location.getIntPosition( 1 ), 1 );
+						setTileValue( tileStore, timepoint, numTileLevels - 1, x, y, location.getIntPosition( 2 ), value );
+					};
+				}
 
 				final FunctionRandomAccessible< T > randomAccessible = new FunctionRandomAccessible( 3, biConsumer, () -> type.createVariable() );
 				final IntervalView< T > rai = Views.interval( randomAccessible, getInterval( level ) );
@@ -683,6 +909,55 @@ public class StitchedImage< T extends Type< T >, V extends Volatile< T > & Type<
 		return stitched;
 	}
 
+	// this is less efficient as the corresponding volatile
+	// implementation, but right now this mainly needed
+	// to fetch very few pixel values upon segment selections
+	private void setTileValue( TileStore tileStore, int t, int level, int x, int y, int z, T value )
+	{
+		if ( flatTileStore != null )
+		{
+			final int innerTile = flatTileStore.getInnerTile( level, x, y );
+			if ( innerTile < 0 )
+			{
+				value.set( type.createVariable() ); // background
+				return;
+			}
+
+			final T tileValue = flatTileStore.getRandomAccessible( t, level, innerTile ).randomAccess().setPositionAndGet(
+					x - flatTileStore.getOffset( level, innerTile, 0 ),
+					y - flatTileStore.getOffset( level, innerTile, 1 ),
+					z );
+			value.set( tileValue );
+			return;
+		}
+
+		final int[] tileDimension = tileDimensions[ level ];
+		final int xTileIndex = x / tileDimension[ 0 ];
+		final int yTileIndex = y / tileDimension[ 1 ];
+		x = x - xTileIndex * tileDimension[ 0 ];
+		y = y - yTileIndex * tileDimension[ 1 ];
+
+		if ( ! tileStore.contains( t, level, xTileIndex, yTileIndex ) )
+		{
+			value.set( type.createVariable() ); // background
+			return;
+		}
+
+		tileStore.open( t, level, xTileIndex, yTileIndex );
+		final T tileValue = tileStore.getRandomAccessible( t, level, xTileIndex, yTileIndex ).randomAccess().setPositionAndGet( x, y, z );
+		value.set( tileValue );
+	}
+
+	// The tile image at the given level, with the margin
+	// of the grid, and zero outside the tile image.
+	private RandomAccessible< T > getTileRandomAccessible( Image< T > image, int t, int level )
+	{
+		final RandomAccessibleInterval< T > rai = Views.zeroMin( image.getSourcePair().getSource().getSource( t, level ) );
+		RandomAccessible< T > randomAccessible = new ExtendedRandomAccessibleInterval( rai, new OutOfBoundsConstantValueFactory<>( type.createVariable() ) );
+		final long[] translation = Arrays.stream( marginTranslations[ level ] ).mapToLong( d -> ( long ) d ).toArray();
+		return Views.translate( randomAccessible, translation );
+	}
+
 	protected void setTileRealDimensions( int[] tileDimensions )
 	{
 		tileRealDimensions = new double[ 3 ];
@@ -789,6 +1064,90 @@ public class StitchedImage< T extends Type< T >, V extends Volatile< T > & Type<
 		}
 	}
 
+	private boolean supportsOverview()
+	{
+		if ( ! ( type instanceof NativeType ) )
+			return false;
+
+		final ArrayImg< ?, ? > img = new ArrayImgFactory( ( NativeType ) type ).create( 1 );
+		return ArrayImgFiles.isSupported( img );
+	}
+
+	// The smallest downsampling of the coarsest tile level,
+	// by a power of two, for which the overview fits into memory.
+	private int computeOverviewDownsamplingFactor()
+	{
+		final long[] dimensions = levelToSourceDimensions.get( numTileLevels - 1 );
+		final double[] tileDimensions = new double[ 2 ];
+		for ( int d = 0; d < 2; d++ )
+			tileDimensions[ d ] = dimensions[ d ] * ( 1 + 2.0 * relativeTileMargin );
+
+		final double numVoxels =
+				( maxPos[ 0 ] - minPos[ 0 ] + 1 ) * tileDimensions[ 0 ]
+				* ( maxPos[ 1 ] - minPos[ 1 ] + 1 ) * tileDimensions[ 1 ]
+				* ( dimensions.length > 2 ? dimensions[ 2 ] : 1 );
+
+		final double maxFactor = Math.min( tileDimensions[ 0 ], tileDimensions[ 1 ] );
+		int factor = 2;
+		while ( numVoxels / factor / factor > MAX_OVERVIEW_VOXELS && 2 * factor <= maxFactor )
+			factor *= 2;
+
+		return factor;
+	}
+
+	private void addOverviewLevel()
+	{
+		final int coarsestTileLevel = numTileLevels - 1;
+		final int overviewLevel = numTileLevels;
+		numMipmapLevels = numTileLevels + 1;
+
+		downSamplingFactors = Arrays.copyOf( downSamplingFactors, numMipmapLevels );
+		mipmapScales = Arrays.copyOf( mipmapScales, numMipmapLevels );
+		tileDimensions = Arrays.copyOf( tileDimensions, numMipmapLevels );
+		marginTranslations = Arrays.copyOf( marginTranslations, numMipmapLevels );
+
+		downSamplingFactors[ overviewLevel ] = new double[ numDimensions ];
+		Arrays.fill( downSamplingFactors[ overviewLevel ], 1.0 );
+		mipmapScales[ overviewLevel ] = mipmapScales[ coarsestTileLevel ].clone();
+		tileDimensions[ overviewLevel ] = tileDimensions[ coarsestTileLevel ].clone();
+		// the overview is sampled from the tiles including their margins
+		marginTranslations[ overviewLevel ] = new double[ numDimensions ];
+
+		// The tiles at the coarsest level need not be divisible by the
+		// downsampling factor, and their layout is not changed for the overview.
+		// Thus, the overview tiles are rounded up, and the actual downsampling
+		// is such that they cover the same extent as the coarsest tiles.
+		for ( int d = 0; d < 2; d++ )
+		{
+			tileDimensions[ overviewLevel ][ d ] = ( int ) Math.ceil( ( double ) tileDimensions[ coarsestTileLevel ][ d ] / overviewDownsamplingFactor );
+			downSamplingFactors[ overviewLevel ][ d ] = ( double ) tileDimensions[ coarsestTileLevel ][ d ] / tileDimensions[ overviewLevel ][ d ];
+			mipmapScales[ overviewLevel ][ d ] *= downSamplingFactors[ overviewLevel ][ d ];
+		}
+
+		overviewStore = new OverviewStore();
+	}
+
+	// Whether all tiles are stitched images with the same
+	// tile levels as this image, see {@code FlatTileStore}.
+	private boolean isFlattenable()
+	{
+		if ( ! flattenNestedTiles || images.isEmpty() )
+			return false;
+
+		for ( Image< T > image : images )
+		{
+			if ( ! ( image instanceof StitchedImage ) )
+				return false;
+
+			final StitchedImage< ?, ? > stitchedTile = ( StitchedImage< ?, ? > ) image;
+			if ( stitchedTile.numTileLevels != stitchedTile.numMipmapLevels
+					|| stitchedTile.numTileLevels < numTileLevels )
+				return false;
+		}
+
+		return true;
+	}
+
 	protected FinalInterval getInterval( int level )
 	{
 		final long[] min = new long[ 3 ];
@@ -801,9 +1160,11 @@ public class StitchedImage< T extends Type< T >, V extends Volatile< T > & Type<
 			max[ d ] = ( maxPos[ d ] + 1 ) * tileDimensions[ level ][ d ];
 		}
 
-		// along the z-dimension it simply is the size of the reference source
-		min[ 2 ] = metadataSource.getSource( 0, level ).min( 2 );
-		max[ 2 ] = metadataSource.getSource( 0, level ).max( 2 );
+		// along the z-dimension it simply is the size of the reference source,
+		// which the overview level shares with the coarsest tile level
+		final int sourceLevel = Math.min( level, numTileLevels - 1 );
+		min[ 2 ] = metadataSource.getSource( 0, sourceLevel ).min( 2 );
+		max[ 2 ] = metadataSource.getSource( 0, sourceLevel ).max( 2 );
 
 		if ( debug )
 		{
@@ -850,6 +1211,20 @@ public class StitchedImage< T extends Type< T >, V extends Volatile< T > & Type<
 		transformedSource.getFixedTransform( transform3D );
 		transform3D.preConcatenate( affineTransform3D );
 		transformedSource.setFixedTransform( transform3D );
+		synchronized ( estimatedMaskLock )
+		{
+			transformGeneration++;
+			estimatedMask = null;
+		}
+	}
+
+	// the tiles are positioned within this image,
+	// which may be transformed further
+	private RealInterval getGlobalBounds( Image< ? > tile )
+	{
+		final AffineTransform3D transform3D = new AffineTransform3D();
+		transformedSource.getFixedTransform( transform3D );
+		return transform3D.estimateBounds( tile.getMask() );
 	}
 
 	@Override
@@ -859,8 +1234,24 @@ public class StitchedImage< T extends Type< T >, V extends Volatile< T > & Type<
 		//       to overwrite what is been set by
 		//       setMask( RealMaskRealInterval mask )
 
-		mask = SourceHelper.estimatePhysicalMask( getSourcePair().getSource(), 0, false );
-		final String toString = TransformHelper.maskToString( mask );
+		RealMaskRealInterval mask = estimatedMask;
+		if ( mask == null )
+		{
+			final int generation;
+			synchronized ( estimatedMaskLock )
+			{
+				generation = transformGeneration;
+			}
+
+			mask = SourceHelper.estimatePhysicalMask( getSourcePair().getSource(), 0, false );
+
+			synchronized ( estimatedMaskLock )
+			{
+				if ( generation == transformGeneration )
+					estimatedMask = mask;
+			}
+		}
+
 		return mask;
 	}
 
@@ -870,6 +1261,79 @@ public class StitchedImage< T extends Type< T >, V extends Volatile< T > & Type<
 		this.mask = mask;
 	}
 
+	/*
+	 * Spatial index of the masks of the tile images,
+	 * for finding the tile image at a global position
+	 * without testing all tiles.
+	 *
+	 * The xy-plane is divided into cells of the size of the
+	 * largest tile mask, such that each tile overlaps with
+	 * at most four cells.
+	 */
+	static class TileIndex
+	{
+		private static final int[] NO_TILES = new int[ 0 ];
+
+		private final double[] origin = new double[ 2 ];
+		private final double[] cellSize = new double[ 2 ];
+		private final Map< Long, int[] > cellToTiles = new HashMap<>();
+
+		TileIndex( List< ? extends Image< ? > > images )
+		{
+			final int numTiles = images.size();
+			final double[][] min = new double[ numTiles ][];
+			final double[][] max = new double[ numTiles ][];
+			Arrays.fill( origin, Double.MAX_VALUE );
+			for ( int tile = 0; tile < numTiles; tile++ )
+			{
+				final RealMaskRealInterval mask = images.get( tile ).getMask();
+				min[ tile ] = mask.minAsDoubleArray();
+				max[ tile ] = mask.maxAsDoubleArray();
+				for ( int d = 0; d < 2; d++ )
+				{
+					origin[ d ] = Math.min( origin[ d ], min[ tile ][ d ] );
+					cellSize[ d ] = Math.max( cellSize[ d ], max[ tile ][ d ] - min[ tile ][ d ] );
+				}
+			}
+
+			for ( int d = 0; d < 2; d++ )
+				if ( ! ( cellSize[ d ] > 0 ) ) cellSize[ d ] = 1.0;
+
+			// the tiles of each cell, in the order of the tiles,
+			// such that overlapping tiles are found in the same
+			// order as by testing all tiles
+			final Map< Long, List< Integer > > cellToTileList = new HashMap<>();
+			for ( int tile = 0; tile < numTiles; tile++ )
+			{
+				final long minX = getCell( min[ tile ][ 0 ], 0 );
+				final long maxX = getCell( max[ tile ][ 0 ], 0 );
+				final long minY = getCell( min[ tile ][ 1 ], 1 );
+				final long maxY = getCell( max[ tile ][ 1 ], 1 );
+				for ( long x = minX; x <= maxX; x++ )
+					for ( long y = minY; y <= maxY; y++ )
+						cellToTileList.computeIfAbsent( getKey( x, y ), k -> new ArrayList<>() ).add( tile );
+			}
+
+			cellToTileList.forEach( ( key, tiles ) -> cellToTiles.put( key, tiles.stream().mapToInt( Integer::intValue ).toArray() ) );
+		}
+
+		int[] getCandidates( RealLocalizable position )
+		{
+			final int[] tiles = cellToTiles.get( getKey( getCell( position.getDoublePosition( 0 ), 0 ), getCell( position.getDoublePosition( 1 ), 1 ) ) );
+			return tiles == null ? NO_TILES : tiles;
+		}
+
+		private long getCell( double position, int d )
+		{
+			return ( long ) Math.floor( ( position - origin[ d ] ) / cellSize[ d ] );
+		}
+
+		private static long getKey( long x, long y )
+		{
+			return ( x << 32 ) ^ ( y & 0xFFFFFFFFL );
+		}
+	}
+
 	class TileStore
 	{
 		// TODO: does it make sense to use something like
@@ -894,7 +1358,7 @@ public class StitchedImage< T extends Type< T >, V extends Volatile< T > & Type<
 				tileToImage.put( getTileKey( position[ 0 ], position[ 1 ] ), images.get( gridIndex ) );
 
 				for ( int t = 0; t < numTimepoints; t++ )
-					for ( int level = 0; level < numMipmapLevels; level++ )
+					for ( int level = 0; level < numTileLevels; level++ )
 						timeLevelTileToStatus.put( getKey( t, level, position[ 0 ], position[ 1 ] ), Status.Closed );
 			}
 		}
@@ -909,6 +1373,11 @@ public class StitchedImage< T extends Type< T >, V extends Volatile< T > & Type<
 			return timeLevelTileToVolatileRA.get( getKey( t, level, xTileIndex, yTileIndex ) );
 		}
 
+		public Image< T > getImage( int xTileIndex, int yTileIndex )
+		{
+			return tileToImage.get( getTileKey( xTileIndex, yTileIndex ) );
+		}
+
 		private String getTileKey( int xTileIndex, int yTileIndex )
 		{
 			return xTileIndex + SEP + yTileIndex;
@@ -992,4 +1461,425 @@ public class StitchedImage< T extends Type< T >, V extends Volatile< T > & Type<
 			}
 		}
 	}
+
+	/*
+	 * The tiles of the tiles in one layout, e.g. the sites of the wells
+	 * of a plate, where the wells are the tiles of this image.
+	 *
+	 * Fetching a voxel through the stitched tiles resolves the tile twice,
+	 * in this image and in the stitched tile, each with its own
+	 * {@code TileStore}. Instead, the offsets of the inner tiles within
+	 * this image are precomputed for each level, and a voxel is fetched
+	 * directly from the inner tile.
+	 *
+	 * The stitched tiles themselves are kept as they are,
+	 * e.g. for region annotations and for navigating to the wells.
+	 */
+	class FlatTileStore
+	{
+		private final List< Image< T > > innerTiles = new ArrayList<>();
+		private final int numColumns;
+		private final int numRows;
+		// the tile at each grid position, or -1
+		private final int[] gridToTile;
+		private final StitchedImage< ?, ? >[] tiles;
+		// for each tile, the inner tile at each of its grid positions, or -1
+		private final int[][] tileGridToInnerTile;
+		// for each level, the offsets of the inner tiles within this image
+		private final int[][][] offsets;
+		private final AtomicReferenceArray< Status > status;
+		private final AtomicReferenceArray< RandomAccessible< T > > randomAccessibles;
+		private final AtomicReferenceArray< RandomAccessible< V > > volatileRandomAccessibles;
+
+		FlatTileStore()
+		{
+			numColumns = ( int ) maxPos[ 0 ] + 1;
+			numRows = ( int ) maxPos[ 1 ] + 1;
+			gridToTile = new int[ numColumns * numRows ];
+			Arrays.fill( gridToTile, -1 );
+			tiles = new StitchedImage[ images.size() ];
+			tileGridToInnerTile = new int[ images.size() ][];
+
+			final List< int[] > innerTileToTileAndPosition = new ArrayList<>();
+			for ( int tile = 0; tile < images.size(); tile++ )
+			{
+				final int[] position = positions.get( tile );
+				gridToTile[ position[ 1 ] * numColumns + position[ 0 ] ] = tile;
+
+				final StitchedImage< ?, ? > stitchedTile = ( StitchedImage< ?, ? > ) images.get( tile );
+				tiles[ tile ] = stitchedTile;
+				final int tileNumColumns = ( int ) stitchedTile.maxPos[ 0 ] + 1;
+				tileGridToInnerTile[ tile ] = new int[ tileNumColumns * ( ( int ) stitchedTile.maxPos[ 1 ] + 1 ) ];
+				Arrays.fill( tileGridToInnerTile[ tile ], -1 );
+
+				for ( int i = 0; i < stitchedTile.images.size(); i++ )
+				{
+					final int[] innerPosition = stitchedTile.positions.get( i );
+					tileGridToInnerTile[ tile ][ innerPosition[ 1 ] * tileNumColumns + innerPosition[ 0 ] ] = innerTiles.size();
+					innerTiles.add( ( Image ) stitchedTile.images.get( i ) );
+					innerTileToTileAndPosition.add( new int[]{ tile, innerPosition[ 0 ], innerPosition[ 1 ] } );
+				}
+			}
+
+			offsets = new int[ numTileLevels ][ innerTiles.size() ][ 2 ];
+			for ( int level = 0; level < numTileLevels; level++ )
+			{
+				for ( int innerTile = 0; innerTile < innerTiles.size(); innerTile++ )
+				{
+					final int[] tileAndPosition = innerTileToTileAndPosition.get( innerTile );
+					final int tile = tileAndPosition[ 0 ];
+					final StitchedImage< ?, ? > stitchedTile = tiles[ tile ];
+					for ( int d = 0; d < 2; d++ )
+					{
+						offsets[ level ][ innerTile ][ d ] =
+								positions.get( tile )[ d ] * tileDimensions[ level ][ d ]
+								+ ( int ) marginTranslations[ level ][ d ]
+								+ tileAndPosition[ 1 + d ] * stitchedTile.tileDimensions[ level ][ d ]
+								+ ( int ) stitchedTile.marginTranslations[ level ][ d ];
+					}
+				}
+			}
+
+			final int size = numTimepoints * numTileLevels * innerTiles.size();
+			status = new AtomicReferenceArray<>( size );
+			for ( int i = 0; i < size; i++ )
+				status.set( i, Status.Closed );
+			randomAccessibles = new AtomicReferenceArray<>( size );
+			volatileRandomAccessibles = new AtomicReferenceArray<>( size );
+		}
+
+		// the inner tile containing the voxel, or -1 for the background
+		int getInnerTile( int level, int x, int y )
+		{
+			if ( x < 0 || y < 0 )
+				return -1;
+
+			final int[] tileDimension = tileDimensions[ level ];
+			final int xTileIndex = x / tileDimension[ 0 ];
+			final int yTileIndex = y / tileDimension[ 1 ];
+			if ( xTileIndex >= numColumns || yTileIndex >= numRows )
+				return -1;
+
+			final int tile = gridToTile[ yTileIndex * numColumns + xTileIndex ];
+			if ( tile < 0 )
+				return -1;
+
+			// the voxel within the stitched tile
+			final StitchedImage< ?, ? > stitchedTile = tiles[ tile ];
+			final int xInTile = x - xTileIndex * tileDimension[ 0 ] - ( int ) marginTranslations[ level ][ 0 ];
+			final int yInTile = y - yTileIndex * tileDimension[ 1 ] - ( int ) marginTranslations[ level ][ 1 ];
+			if ( xInTile < 0 || yInTile < 0 )
+				return -1;
+
+			final int[] innerTileDimension = stitchedTile.tileDimensions[ level ];
+			final int xInnerTileIndex = xInTile / innerTileDimension[ 0 ];
+			final int yInnerTileIndex = yInTile / innerTileDimension[ 1 ];
+			final int tileNumColumns = ( int ) stitchedTile.maxPos[ 0 ] + 1;
+			if ( xInnerTileIndex >= tileNumColumns || yInnerTileIndex > stitchedTile.maxPos[ 1 ] )
+				return -1;
+
+			return tileGridToInnerTile[ tile ][ yInnerTileIndex * tileNumColumns + xInnerTileIndex ];
+		}
+
+		Image< T > getImage( int innerTile )
+		{
+			return innerTiles.get( innerTile );
+		}
+
+		int getOffset( int level, int innerTile, int d )
+		{
+			return offsets[ level ][ innerTile ][ d ];
+		}
+
+		Status getStatus( int t, int level, int innerTile )
+		{
+			return status.get( getIndex( t, level, innerTile ) );
+		}
+
+		RandomAccessible< V > getVolatileRandomAccessible( int t, int level, int innerTile )
+		{
+			return volatileRandomAccessibles.get( getIndex( t, level, innerTile ) );
+		}
+
+		RandomAccessible< T > getRandomAccessible( int t, int level, int innerTile )
+		{
+			open( t, level, innerTile );
+
+			final RandomAccessible< T > randomAccessible = randomAccessibles.get( getIndex( t, level, innerTile ) );
+			if ( randomAccessible != null )
+				return randomAccessible;
+
+			// still being opened by another thread
+			return createRandomAccessible( innerTiles.get( innerTile ).getSourcePair().getSource().getSource( t, level ), type );
+		}
+
+		void open( int t, int level, int innerTile )
+		{
+			final int index = getIndex( t, level, innerTile );
+			if ( ! status.compareAndSet( index, Status.Closed, Status.Opening ) )
+				return;
+
+			final Image< T > image = innerTiles.get( innerTile );
+			final RandomAccessible< T > randomAccessible = createRandomAccessible( image.getSourcePair().getSource().getSource( t, level ), type );
+			final RandomAccessible< V > volatileRandomAccessible = createRandomAccessible( image.getSourcePair().getVolatileSource().getSource( t, level ), volatileType );
+
+			// ensure that random access is ready to go
+			// to avoid any blocking in BDV, see {@code TileStore}
+			try
+			{
+				volatileRandomAccessible.randomAccess().get();
+			}
+			catch ( Exception e )
+			{
+				e.printStackTrace();
+			}
+
+			randomAccessibles.set( index, randomAccessible );
+			volatileRandomAccessibles.set( index, volatileRandomAccessible );
+			status.set( index, Status.Open );
+		}
+
+		// the margins are part of the offsets
+		private < R extends Type< R > > RandomAccessible< R > createRandomAccessible( RandomAccessibleInterval< ? > rai, R type )
+		{
+			return new ExtendedRandomAccessibleInterval( Views.zeroMin( rai ), new OutOfBoundsConstantValueFactory<>( type.createVariable() ) );
+		}
+
+		private int getIndex( int t, int level, int innerTile )
+		{
+			return ( t * numTileLevels + level ) * innerTiles.size() + innerTile;
+		}
+	}
+
+	/*
+	 * Overview of all tiles, one level coarser than the coarsest tile level.
+	 *
+	 * For tiles without a resolution pyramid, e.g. Bio-Formats images,
+	 * zooming out on a plate otherwise reads all tiles at full resolution,
+	 * each time they are rendered. Here, each tile is read only once, in the
+	 * background, and the overview is written to the cache directory,
+	 * such that the tiles are not read again in the next session.
+	 *
+	 * The file name contains a fingerprint of the tiles, their layout and
+	 * the versions of their local files, such that the overview is
+	 * computed again if those change. Remote files have no version,
+	 * thus their changes are not detected, see {@code invalidateOverview}.
+	 *
+	 * If computing the overview fails, e.g. because a remote tile could
+	 * not be read, it is computed again when it is fetched the next time.
+	 *
+	 * The overview samples the coarsest tile level rather than averaging it,
+	 * such that it also works for label images.
+	 */
+	class OverviewStore
+	{
+		private final Map< Integer, CompletableFuture< RandomAccessibleInterval< T > > > timepointToOverview = new ConcurrentHashMap<>();
+		private final int coarsestTileLevel = numTileLevels - 1;
+		private final int overviewLevel = numTileLevels;
+		private volatile int generation = 0;
+
+		CompletableFuture< RandomAccessibleInterval< T > > fetch( int t )
+		{
+			final CompletableFuture< RandomAccessibleInterval< T > > future = new CompletableFuture<>();
+			final CompletableFuture< RandomAccessibleInterval< T > > existingFuture = timepointToOverview.putIfAbsent( t, future );
+			if ( existingFuture != null )
+				return existingFuture;
+
+			final int currentGeneration = generation;
+			CompletableFuture.supplyAsync( () -> loadOrCompute( t, currentGeneration ), overviewExecutorService )
+					.whenComplete( ( overview, throwable ) ->
+					{
+						if ( throwable == null )
+						{
+							future.complete( overview );
+							return;
+						}
+
+						System.err.println( "Could not create the overview of " + name + ":" );
+						throwable.printStackTrace();
+						// such that the next fetch tries again
+						timepointToOverview.remove( t, future );
+						future.completeExceptionally( throwable );
+					} );
+			return future;
+		}
+
+		@Nullable
+		RandomAccessibleInterval< T > getIfDone( int t )
+		{
+			final CompletableFuture< RandomAccessibleInterval< T > > future = timepointToOverview.get( t );
+			if ( future == null || ! future.isDone() || future.isCompletedExceptionally() )
+				return null;
+
+			return future.join();
+		}
+
+		void invalidate()
+		{
+			generation++;
+			timepointToOverview.clear();
+			for ( int t = 0; t < numTimepoints; t++ )
+				getFile( t ).delete();
+		}
+
+		// The position at the coarsest tile level,
+		// from which the overview position is sampled.
+		int toTileLevelPosition( int position, int d )
+		{
+			final int tileIndex = position / tileDimensions[ overviewLevel ][ d ];
+			final int positionInTile = position - tileIndex * tileDimensions[ overviewLevel ][ d ];
+			return tileIndex * tileDimensions[ coarsestTileLevel ][ d ]
+					+ ( int ) toPositionInTile( positionInTile, d );
+		}
+
+		// The center of the overview voxel within the tile,
+		// at the coarsest tile level.
+		private long toPositionInTile( long positionInTile, int d )
+		{
+			return ( long ) ( ( positionInTile + 0.5 ) * downSamplingFactors[ overviewLevel ][ d ] );
+		}
+
+		private RandomAccessibleInterval< T > loadOrCompute( int t, int generation )
+		{
+			final FinalInterval interval = getInterval( overviewLevel );
+			final ArrayImg< T, ? > overview = createImg( interval.dimensionsAsLongArray() );
+			final File file = getFile( t );
+
+			try
+			{
+				if ( ArrayImgFiles.read( overview, file ) )
+					return Views.translate( overview, interval.minAsLongArray() );
+			}
+			catch ( IOException e )
+			{
+				e.printStackTrace();
+			}
+
+			final long start = System.currentTimeMillis();
+			compute( t, Views.translate( overview, interval.minAsLongArray() ) );
+			IJ.log( "Computed overview of " + name + " in " + ( System.currentTimeMillis() - start ) + " ms." );
+
+			if ( generation == this.generation )
+			{
+				try
+				{
+					overviewCacheDirectory.mkdirs();
+					ArrayImgFiles.write( overview, file );
+					deleteOutdatedFiles( t, file );
+				}
+				catch ( IOException e )
+				{
+					e.printStackTrace();
+				}
+			}
+
+			return Views.translate( overview, interval.minAsLongArray() );
+		}
+
+		// Reads the tiles in parallel, each into its own image,
+		// which is then copied into the overview, because
+		// some types cannot be written concurrently.
+		private void compute( int t, RandomAccessibleInterval< T > overview )
+		{
+			final int[] overviewTileDimensions = tileDimensions[ overviewLevel ];
+			final long minZ = overview.min( 2 );
+			final long maxZ = overview.max( 2 );
+
+			final ArrayList< Future< ? > > futures = ThreadHelper.getFutures();
+			for ( int gridIndex = 0; gridIndex < positions.size(); gridIndex++ )
+			{
+				final Image< T > image = images.get( gridIndex );
+				final int[] position = positions.get( gridIndex );
+				futures.add( ThreadHelper.ioExecutorService.submit( () ->
+				{
+					final RandomAccess< T > tileAccess = getTileRandomAccessible( image, t, coarsestTileLevel ).randomAccess();
+					final ArrayImg< T, ? > tile = createImg( new long[]{ overviewTileDimensions[ 0 ], overviewTileDimensions[ 1 ], maxZ - minZ + 1 } );
+					final Cursor< T > tileCursor = tile.localizingCursor();
+					while ( tileCursor.hasNext() )
+					{
+						tileCursor.fwd();
+						tileAccess.setPosition( toPositionInTile( tileCursor.getLongPosition( 0 ), 0 ), 0 );
+						tileAccess.setPosition( toPositionInTile( tileCursor.getLongPosition( 1 ), 1 ), 1 );
+						tileAccess.setPosition( tileCursor.getLongPosition( 2 ) + minZ, 2 );
+						tileCursor.get().set( tileAccess.get() );
+					}
+
+					final long[] min = new long[]{ ( long ) position[ 0 ] * overviewTileDimensions[ 0 ], ( long ) position[ 1 ] * overviewTileDimensions[ 1 ], minZ };
+					final long[] max = new long[]{ min[ 0 ] + overviewTileDimensions[ 0 ] - 1, min[ 1 ] + overviewTileDimensions[ 1 ] - 1, maxZ };
+					synchronized ( overview )
+					{
+						final Cursor< T > overviewCursor = Views.flatIterable( Views.interval( overview, min, max ) ).cursor();
+						final Cursor< T > cursor = Views.flatIterable( tile ).cursor();
+						while ( cursor.hasNext() )
+							overviewCursor.next().set( cursor.next() );
+					}
+				} ) );
+			}
+			ThreadHelper.waitUntilFinished( futures );
+		}
+
+		private ArrayImg< T, ? > createImg( long[] dimensions )
+		{
+			return ( ArrayImg< T, ? > ) new ArrayImgFactory( ( NativeType ) type ).create( dimensions );
+		}
+
+		private File getFile( int t )
+		{
+			return new File( overviewCacheDirectory, getFilePrefix( t ) + getFingerprint( t ) + ".overview" );
+		}
+
+		private String getFilePrefix( int t )
+		{
+			return name.replaceAll( "[^A-Za-z0-9._-]", "_" ) + "-t" + t + "-";
+		}
+
+		// Identifies the tiles and their layout, which determine the overview.
+		private String getFingerprint( int t )
+		{
+			final StringBuilder key = new StringBuilder();
+			key.append( name ).append( SEP ).append( t ).append( SEP ).append( type.getClass().getName() );
+			key.append( SEP ).append( overviewDownsamplingFactor );
+			key.append( SEP ).append( Arrays.toString( levelToSourceDimensions.get( coarsestTileLevel ) ) );
+			key.append( SEP ).append( Arrays.toString( tileDimensions[ coarsestTileLevel ] ) );
+			key.append( SEP ).append( Arrays.toString( marginTranslations[ coarsestTileLevel ] ) );
+			for ( int gridIndex = 0; gridIndex < positions.size(); gridIndex++ )
+			{
+				key.append( SEP ).append( images.get( gridIndex ).getName() ).append( SEP ).append( Arrays.toString( positions.get( gridIndex ) ) );
+				appendDataVersions( key, images.get( gridIndex ) );
+			}
+
+			return UUID.nameUUIDFromBytes( key.toString().getBytes( StandardCharsets.UTF_8 ) ).toString();
+		}
+
+		// The locations of the data of the tile and their versions,
+		// such that the overview is computed again if the data changes.
+		// Remote data has no version, thus changes of it are not detected.
+		private void appendDataVersions( StringBuilder key, Image< ? > image )
+		{
+			if ( image instanceof ImageWrapper )
+			{
+				appendDataVersions( key, ( ( ImageWrapper ) image ).getWrappedImage() );
+			}
+			else if ( image instanceof StitchedImage )
+			{
+				for ( Image< ? > tile : ( ( StitchedImage< ?, ? > ) image ).images )
+					appendDataVersions( key, tile );
+			}
+			else if ( image instanceof ImageDataImage )
+			{
+				for ( String uri : ( ( ImageDataImage< ? > ) image ).getUris() )
+					key.append( SEP ).append( uri ).append( SEP ).append( FileVersions.getVersion( uri ) );
+			}
+		}
+
+		private void deleteOutdatedFiles( int t, File file )
+		{
+			final String prefix = getFilePrefix( t );
+			final File[] files = overviewCacheDirectory.listFiles( ( dir, fileName ) -> fileName.startsWith( prefix ) && fileName.endsWith( ".overview" ) );
+			if ( files == null ) return;
+			for ( File outdated : files )
+				if ( ! outdated.getName().equals( file.getName() ) )
+					outdated.delete();
+		}
+	}
 }
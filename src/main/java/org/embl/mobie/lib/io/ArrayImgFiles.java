@@ -0,0 +1,159 @@
+/*-
+ * #%L
+ * Fiji viewer for MoBIE projects
+ * %%
+ * Copyright (C) 2018 - 2024 EMBL
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.embl.mobie.lib.io;
+
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.basictypeaccess.array.ArrayDataAccess;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads and writes the voxels of an {@code ArrayImg} as raw,
+ * little-endian values, e.g. for caching computed images on disk.
+ *
+ * The file only contains the voxels; the caller is responsible for
+ * creating an {@code ArrayImg} of the right type and dimensions.
+ */
+public class ArrayImgFiles
+{
+	private static final int CHUNK_SIZE = 1 << 20; // elements
+
+	public static boolean isSupported( ArrayImg< ?, ? > img )
+	{
+		return getBytesPerElement( getData( img ) ) > 0;
+	}
+
+	/**
+	 * Writes the voxels to a temporary file, which then replaces
+	 * the given file, such that readers never see a partial file.
+	 */
+	public static void write( ArrayImg< ?, ? > img, File file ) throws IOException
+	{
+		final Object data = getData( img );
+		final File tmp = new File( file.getParentFile(), file.getName() + ".tmp" );
+		try ( FileChannel channel = FileChannel.open( tmp.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING ) )
+		{
+			transfer( channel, data, true );
+		}
+		Files.move( tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+	}
+
+	/**
+	 * Reads the voxels into the image.
+	 *
+	 * @return false, if the file does not exist, its size does not fit the image,
+	 *         or the type of the image is not supported
+	 */
+	public static boolean read( ArrayImg< ?, ? > img, File file ) throws IOException
+	{
+		final Object data = getData( img );
+		if ( getBytesPerElement( data ) == 0 || ! file.exists() || file.length() != ( long ) Array.getLength( data ) * getBytesPerElement( data ) )
+			return false;
+
+		try ( FileChannel channel = FileChannel.open( file.toPath(), StandardOpenOption.READ ) )
+		{
+			transfer( channel, data, false );
+		}
+		return true;
+	}
+
+	private static Object getData( ArrayImg< ?, ? > img )
+	{
+		final Object access = img.update( null );
+		if ( ! ( access instanceof ArrayDataAccess ) )
+			return null;
+		return ( ( ArrayDataAccess< ? > ) access ).getCurrentStorageArray();
+	}
+
+	private static int getBytesPerElement( Object data )
+	{
+		if ( data instanceof byte[] ) return 1;
+		if ( data instanceof short[] ) return 2;
+		if ( data instanceof int[] ) return 4;
+		if ( data instanceof float[] ) return 4;
+		if ( data instanceof long[] ) return 8;
+		if ( data instanceof double[] ) return 8;
+		return 0;
+	}
+
+	private static void transfer( FileChannel channel, Object data, boolean write ) throws IOException
+	{
+		final int bytesPerElement = getBytesPerElement( data );
+		if ( bytesPerElement == 0 )
+			throw new UnsupportedOperationException( "Cannot transfer data of type " + ( data == null ? null : data.getClass() ) );
+
+		final int length = Array.getLength( data );
+		final ByteBuffer buffer = ByteBuffer.allocate( Math.min( length, CHUNK_SIZE ) * bytesPerElement ).order( ByteOrder.LITTLE_ENDIAN );
+
+		for ( int offset = 0; offset < length; offset += CHUNK_SIZE )
+		{
+			final int numElements = Math.min( CHUNK_SIZE, length - offset );
+			buffer.clear();
+			buffer.limit( numElements * bytesPerElement );
+
+			if ( write )
+			{
+				// the typed views start at the position of the buffer
+				// and do not change it
+				if ( data instanceof byte[] ) buffer.duplicate().put( ( byte[] ) data, offset, numElements );
+				else if ( data instanceof short[] ) buffer.asShortBuffer().put( ( short[] ) data, offset, numElements );
+				else if ( data instanceof int[] ) buffer.asIntBuffer().put( ( int[] ) data, offset, numElements );
+				else if ( data instanceof float[] ) buffer.asFloatBuffer().put( ( float[] ) data, offset, numElements );
+				else if ( data instanceof long[] ) buffer.asLongBuffer().put( ( long[] ) data, offset, numElements );
+				else buffer.asDoubleBuffer().put( ( double[] ) data, offset, numElements );
+
+				while ( buffer.hasRemaining() )
+					channel.write( buffer );
+			}
+			else
+			{
+				while ( buffer.hasRemaining() )
+					if ( channel.read( buffer ) < 0 )
+						throw new EOFException();
+				buffer.flip();
+
+				if ( data instanceof byte[] ) buffer.duplicate().get( ( byte[] ) data, offset, numElements );
+				else if ( data instanceof short[] ) buffer.asShortBuffer().get( ( short[] ) data, offset, numElements );
+				else if ( data instanceof int[] ) buffer.asIntBuffer().get( ( int[] ) data, offset, numElements );
+				else if ( data instanceof float[] ) buffer.asFloatBuffer().get( ( float[] ) data, offset, numElements );
+				else if ( data instanceof long[] ) buffer.asLongBuffer().get( ( long[] ) data, offset, numElements );
+				else buffer.asDoubleBuffer().get( ( double[] ) data, offset, numElements );
+			}
+		}
+	}
+}
@@ -0,0 +1,153 @@
+/*-
+ * #%L
+ * Fiji viewer for MoBIE projects
+ * %%
+ * Copyright (C) 2018 - 2024 EMBL
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.embl.mobie.lib.io;
+
+import org.embl.mobie.lib.ThreadHelper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * Finds files in a directory tree, listing the directories in parallel.
+ *
+ * Each directory is listed by its own fork-join task, such that idle
+ * threads steal the listing of sub-directories from busy ones.
+ * This matters on network file systems, where listing a directory
+ * is slow and the sequential {@link Files#walk} spends most of its
+ * time waiting.
+ *
+ * The filter is applied during the traversal, such that only
+ * the matching paths are handed on. Like for {@link Files#walk},
+ * the root itself has depth 0 and symbolic links are not followed.
+ */
+public class DirectoryWalker
+{
+	/**
+	 * Returns the sorted paths of all files and directories
+	 * below the directory, up to the given depth, whose
+	 * file name matches the regular expression.
+	 */
+	public static List< String > find( String directory, int maxDepth, String fileNameRegex )
+	{
+		final Pattern pattern = Pattern.compile( fileNameRegex );
+		return find( directory, maxDepth, path -> pattern.matcher( path.getFileName().toString() ).matches() );
+	}
+
+	/**
+	 * Returns the sorted paths of all files and directories
+	 * below the directory, up to the given depth, that pass the filter.
+	 */
+	public static List< String > find( String directory, int maxDepth, Predicate< Path > filter )
+	{
+		final ConcurrentLinkedQueue< String > matches = new ConcurrentLinkedQueue<>();
+		walk( Paths.get( directory ), maxDepth, filter, path -> matches.add( path.toString() ) );
+		final ArrayList< String > paths = new ArrayList<>( matches );
+		Collections.sort( paths );
+		return paths;
+	}
+
+	/**
+	 * Hands all files and directories below the root, up to the given depth,
+	 * that pass the filter to the consumer, in no particular order.
+	 *
+	 * The filter and the consumer are called concurrently
+	 * and thus must be thread-safe.
+	 */
+	public static void walk( Path root, int maxDepth, Predicate< Path > filter, Consumer< Path > consumer )
+	{
+		if ( maxDepth < 1 ) return;
+
+		final ForkJoinPool pool = new ForkJoinPool( Math.max( 1, ThreadHelper.getNumIoThreads() ) );
+		try
+		{
+			pool.invoke( new ListDirectory( root, 1, maxDepth, filter, consumer ) );
+		}
+		finally
+		{
+			pool.shutdown();
+		}
+	}
+
+	private static class ListDirectory extends RecursiveAction
+	{
+		private final Path directory;
+		private final int depth; // of the entries of the directory
+		private final int maxDepth;
+		private final Predicate< Path > filter;
+		private final Consumer< Path > consumer;
+
+		ListDirectory( Path directory, int depth, int maxDepth, Predicate< Path > filter, Consumer< Path > consumer )
+		{
+			this.directory = directory;
+			this.depth = depth;
+			this.maxDepth = maxDepth;
+			this.filter = filter;
+			this.consumer = consumer;
+		}
+
+		@Override
+		protected void compute()
+		{
+			final List< ListDirectory > subDirectories = new ArrayList<>();
+
+			try ( DirectoryStream< Path > entries = Files.newDirectoryStream( directory ) )
+			{
+				for ( Path entry : entries )
+				{
+					if ( filter.test( entry ) )
+						consumer.accept( entry );
+
+					// only stat the entries if we need to descend
+					if ( depth < maxDepth && Files.isDirectory( entry, LinkOption.NOFOLLOW_LINKS ) )
+						subDirectories.add( new ListDirectory( entry, depth + 1, maxDepth, filter, consumer ) );
+				}
+			}
+			catch ( IOException e )
+			{
+				throw new UncheckedIOException( e );
+			}
+
+			invokeAll( subDirectories );
+		}
+	}
+}
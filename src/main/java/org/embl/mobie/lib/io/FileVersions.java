@@ -0,0 +1,138 @@
+/*-
+ * #%L
+ * Fiji viewer for MoBIE projects
+ * %%
+ * Copyright (C) 2018 - 2024 EMBL
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.embl.mobie.lib.io;
+
+import org.embl.mobie.io.util.IOHelper;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+/**
+ * Versions of image data, for finding out whether
+ * data that has been derived from it and cached is outdated.
+ *
+ * The version of a file is its modification time and its size.
+ * The version of an OME-Zarr image is the one of its metadata file,
+ * because the modification time of a directory does not change
+ * if files within it are rewritten.
+ * The version of remote data that is served via http(s), e.g. an
+ * S3 object, is its ETag, or its modification time and size, which
+ * takes one request per object; it is thus only determined on request.
+ */
+public class FileVersions
+{
+	private static final String[] ZARR_METADATA_FILES = { ".zattrs", "zarr.json", ".zarray" };
+
+	private static final int TIMEOUT_MILLIS = 10000;
+
+	/**
+	 * @return the version of local data, or null if it cannot be determined
+	 */
+	@Nullable
+	public static String getVersion( String uri )
+	{
+		return getVersion( uri, false );
+	}
+
+	/**
+	 * @param requestRemoteVersion
+	 * 		whether to request the version of remote data
+	 * @return the version of the data, or null if it cannot be determined
+	 */
+	@Nullable
+	public static String getVersion( String uri, boolean requestRemoteVersion )
+	{
+		if ( uri.startsWith( "http://" ) || uri.startsWith( "https://" ) )
+			return requestRemoteVersion ? getRemoteVersion( uri ) : null;
+
+		if ( ! IOHelper.getType( uri ).equals( IOHelper.ResourceType.FILE ) )
+			return null;
+
+		File file = new File( uri );
+		if ( file.isDirectory() )
+			file = getZarrMetadataFile( file );
+
+		if ( file == null || ! file.isFile() )
+			return null;
+
+		return file.lastModified() + "-" + file.length();
+	}
+
+	@Nullable
+	private static String getRemoteVersion( String uri )
+	{
+		try
+		{
+			final HttpURLConnection connection = ( HttpURLConnection ) new URL( uri ).openConnection();
+			connection.setRequestMethod( "HEAD" );
+			connection.setConnectTimeout( TIMEOUT_MILLIS );
+			connection.setReadTimeout( TIMEOUT_MILLIS );
+			try
+			{
+				// e.g., private objects without credentials
+				if ( connection.getResponseCode() != HttpURLConnection.HTTP_OK )
+					return null;
+
+				final String eTag = connection.getHeaderField( "ETag" );
+				if ( eTag != null )
+					return eTag;
+
+				final long lastModified = connection.getLastModified();
+				if ( lastModified == 0 )
+					return null;
+
+				return lastModified + "-" + connection.getContentLengthLong();
+			}
+			finally
+			{
+				connection.disconnect();
+			}
+		}
+		catch ( IOException e )
+		{
+			return null;
+		}
+	}
+
+	@Nullable
+	private static File getZarrMetadataFile( File directory )
+	{
+		for ( String fileName : ZARR_METADATA_FILES )
+		{
+			final File file = new File( directory, fileName );
+			if ( file.isFile() )
+				return file;
+		}
+
+		return null;
+	}
+}
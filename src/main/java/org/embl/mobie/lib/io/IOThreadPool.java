@@ -0,0 +1,343 @@
+/*-
+ * #%L
+ * Fiji viewer for MoBIE projects
+ * %%
+ * Copyright (C) 2018 - 2024 EMBL
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.embl.mobie.lib.io;
+
+import javax.annotation.Nullable;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Thread pool for reading data, whose number of threads
+ * adapts to how long the tasks wait for the data.
+ *
+ * Following Goetz, Java Concurrency in Practice (8.2), the number
+ * of threads that keeps the CPUs busy is the number of CPUs times
+ * ( 1 + wait time / compute time ) of the tasks. Thus, reading from
+ * a high latency object store gets more threads than reading from
+ * a local disk. The wait and compute times are averaged over the
+ * recent tasks, and the number of threads is only increased while
+ * tasks are queued and the throughput still increases.
+ *
+ * The pool is resized in place, and idle threads terminate,
+ * such that changing the number of threads does not leak any threads.
+ */
+public class IOThreadPool extends ThreadPoolExecutor
+{
+	// number of tasks between adaptations
+	private static final int ADAPTATION_INTERVAL = 32;
+	// weight of the latest task in the averaged times
+	private static final double SMOOTHING = 0.1;
+	private static final long MIN_COMPUTE_NANOS = 10_000;
+	private static final long KEEP_ALIVE_SECONDS = 30;
+
+	private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+	private static final AtomicInteger POOL_INDEX = new AtomicInteger();
+
+	private final ThreadLocal< long[] > taskStart = ThreadLocal.withInitial( () -> new long[ 2 ] );
+	private final Set< Runnable > runningTasks = ConcurrentHashMap.newKeySet();
+	private final int numProcessors = Runtime.getRuntime().availableProcessors();
+	private final boolean measuresComputeTime;
+	private int minThreads;
+	private int maxThreads;
+
+	// guarded by this
+	private double meanLatencyNanos;
+	private double meanComputeNanos;
+	private long numTasks;
+	private long windowStartNanos = System.nanoTime();
+	private double tasksPerSecond;
+	private double previousTasksPerSecond;
+	private boolean isSaturated;
+
+	@Nullable
+	private volatile Consumer< Metrics > metricsListener;
+
+	public IOThreadPool( int minThreads, int maxThreads )
+	{
+		super( minThreads, minThreads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), createThreadFactory() );
+		allowCoreThreadTimeOut( true );
+		this.minThreads = minThreads;
+		this.maxThreads = Math.max( minThreads, maxThreads );
+
+		boolean measuresComputeTime;
+		try
+		{
+			measuresComputeTime = THREAD_MX_BEAN.isCurrentThreadCpuTimeSupported() && THREAD_MX_BEAN.isThreadCpuTimeEnabled();
+		}
+		catch ( UnsupportedOperationException e )
+		{
+			measuresComputeTime = false;
+		}
+		this.measuresComputeTime = measuresComputeTime;
+	}
+
+	/**
+	 * The number of threads will not go below this number,
+	 * and starts from this number.
+	 */
+	public synchronized void setMinThreads( int minThreads )
+	{
+		this.minThreads = minThreads;
+		maxThreads = Math.max( minThreads, maxThreads );
+		isSaturated = false;
+		resize( minThreads );
+	}
+
+	public synchronized int getMinThreads()
+	{
+		return minThreads;
+	}
+
+	public synchronized int getMaxThreads()
+	{
+		return maxThreads;
+	}
+
+	/**
+	 * @return the current number of threads that may run at the same time
+	 */
+	public int getNumThreads()
+	{
+		return getCorePoolSize();
+	}
+
+	/**
+	 * @param metricsListener
+	 * 		is notified after each adaptation, on the thread
+	 * 		that ran the last task, or null to remove it
+	 */
+	public void setMetricsListener( @Nullable Consumer< Metrics > metricsListener )
+	{
+		this.metricsListener = metricsListener;
+	}
+
+	/**
+	 * Cancels the tasks that did not start yet and resets the
+	 * number of threads, e.g. when closing a project.
+	 */
+	public void cancelQueuedTasks()
+	{
+		final List< Runnable > tasks = new ArrayList<>();
+		getQueue().drainTo( tasks );
+		for ( Runnable task : tasks )
+			if ( task instanceof Future )
+				( ( Future< ? > ) task ).cancel( false );
+
+		synchronized ( this )
+		{
+			meanLatencyNanos = 0;
+			meanComputeNanos = 0;
+			numTasks = 0;
+			isSaturated = false;
+			resize( minThreads );
+		}
+	}
+
+	/**
+	 * Cancels the tasks that did not start yet, interrupts the running
+	 * tasks and resets the number of threads, e.g. when closing a project.
+	 *
+	 * Only tasks that have been submitted, rather than executed,
+	 * can be interrupted, because they are {@code Future}s, which
+	 * only interrupt their thread while they are running.
+	 */
+	public void cancelTasks()
+	{
+		cancelQueuedTasks();
+
+		for ( Runnable task : runningTasks )
+			if ( task instanceof Future )
+				( ( Future< ? > ) task ).cancel( true );
+	}
+
+	@Override
+	protected void beforeExecute( Thread thread, Runnable task )
+	{
+		runningTasks.add( task );
+		final long[] start = taskStart.get();
+		start[ 0 ] = System.nanoTime();
+		start[ 1 ] = measuresComputeTime ? THREAD_MX_BEAN.getCurrentThreadCpuTime() : 0;
+	}
+
+	@Override
+	protected void afterExecute( Runnable task, Throwable throwable )
+	{
+		runningTasks.remove( task );
+
+		final long[] start = taskStart.get();
+		final long latencyNanos = System.nanoTime() - start[ 0 ];
+		final long computeNanos = measuresComputeTime ? THREAD_MX_BEAN.getCurrentThreadCpuTime() - start[ 1 ] : latencyNanos;
+
+		final Metrics metrics;
+		synchronized ( this )
+		{
+			meanLatencyNanos = numTasks == 0 ? latencyNanos : ( 1 - SMOOTHING ) * meanLatencyNanos + SMOOTHING * latencyNanos;
+			meanComputeNanos = numTasks == 0 ? computeNanos : ( 1 - SMOOTHING ) * meanComputeNanos + SMOOTHING * computeNanos;
+			if ( ++numTasks % ADAPTATION_INTERVAL != 0 )
+				return;
+
+			final long now = System.nanoTime();
+			tasksPerSecond = ADAPTATION_INTERVAL * 1.0E9 / Math.max( 1, now - windowStartNanos );
+			windowStartNanos = now;
+			adapt();
+			previousTasksPerSecond = tasksPerSecond;
+			metrics = new Metrics( getCorePoolSize(), getActiveCount(), getQueue().size(), meanLatencyNanos / 1.0E6, meanComputeNanos / 1.0E6, tasksPerSecond );
+		}
+
+		final Consumer< Metrics > listener = metricsListener;
+		if ( listener != null )
+			listener.accept( metrics );
+	}
+
+	// guarded by this
+	private void adapt()
+	{
+		final double waitNanos = Math.max( 0, meanLatencyNanos - meanComputeNanos );
+		final double waitToCompute = waitNanos / Math.max( MIN_COMPUTE_NANOS, meanComputeNanos );
+		final int targetThreads = ( int ) Math.min( maxThreads, Math.max( minThreads, Math.round( numProcessors * ( 1 + waitToCompute ) ) ) );
+		final int numThreads = getCorePoolSize();
+
+		if ( targetThreads < numThreads )
+		{
+			isSaturated = false;
+			resize( targetThreads );
+		}
+		else if ( targetThreads > numThreads && ! getQueue().isEmpty() )
+		{
+			if ( isSaturated )
+				return;
+
+			// the previous increase did not help, e.g. because
+			// the bandwidth or the CPUs are the bottleneck
+			if ( numThreads > minThreads && tasksPerSecond < 1.05 * previousTasksPerSecond )
+			{
+				isSaturated = true;
+				return;
+			}
+
+			// increase gradually, to observe the throughput
+			resize( Math.min( targetThreads, 2 * numThreads ) );
+		}
+	}
+
+	// guarded by this
+	private void resize( int numThreads )
+	{
+		if ( numThreads > getMaximumPoolSize() )
+		{
+			setMaximumPoolSize( numThreads );
+			setCorePoolSize( numThreads );
+		}
+		else
+		{
+			setCorePoolSize( numThreads );
+			setMaximumPoolSize( numThreads );
+		}
+	}
+
+	private static ThreadFactory createThreadFactory()
+	{
+		final int poolIndex = POOL_INDEX.incrementAndGet();
+		final AtomicInteger threadIndex = new AtomicInteger();
+		return runnable ->
+		{
+			final Thread thread = new Thread( runnable, "MoBIE IO " + poolIndex + "-" + threadIndex.incrementAndGet() );
+			thread.setDaemon( true );
+			return thread;
+		};
+	}
+
+	public static class Metrics
+	{
+		private final int numThreads;
+		private final int numActiveThreads;
+		private final int numQueuedTasks;
+		private final double meanLatencyMillis;
+		private final double meanComputeMillis;
+		private final double tasksPerSecond;
+
+		Metrics( int numThreads, int numActiveThreads, int numQueuedTasks, double meanLatencyMillis, double meanComputeMillis, double tasksPerSecond )
+		{
+			this.numThreads = numThreads;
+			this.numActiveThreads = numActiveThreads;
+			this.numQueuedTasks = numQueuedTasks;
+			this.meanLatencyMillis = meanLatencyMillis;
+			this.meanComputeMillis = meanComputeMillis;
+			this.tasksPerSecond = tasksPerSecond;
+		}
+
+		public int getNumThreads()
+		{
+			return numThreads;
+		}
+
+		public int getNumActiveThreads()
+		{
+			return numActiveThreads;
+		}
+
+		public int getNumQueuedTasks()
+		{
+			return numQueuedTasks;
+		}
+
+		public double getMeanLatencyMillis()
+		{
+			return meanLatencyMillis;
+		}
+
+		public double getMeanComputeMillis()
+		{
+			return meanComputeMillis;
+		}
+
+		public double getTasksPerSecond()
+		{
+			return tasksPerSecond;
+		}
+
+		@Override
+		public String toString()
+		{
+			return String.format( "%d threads (%d active), %d queued tasks, latency %.1f ms, compute %.1f ms, %.1f tasks/s",
+					numThreads, numActiveThreads, numQueuedTasks, meanLatencyMillis, meanComputeMillis, tasksPerSecond );
+		}
+	}
+}
@@ -0,0 +1,299 @@
+/*-
+ * #%L
+ * Fiji viewer for MoBIE projects
+ * %%
+ * Copyright (C) 2018 - 2024 EMBL
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.embl.mobie.lib.io;
+
+import net.imglib2.RealInterval;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.Supplier;
+
+/**
+ * Queue for opening the tiles of stitched images.
+ *
+ * Opening a tile is requested for every voxel of the tile that is rendered
+ * before it is open. Thus, the same tile is requested many times,
+ * and requests for the same key are collapsed into one.
+ *
+ * The tiles that are in view of any viewer are opened first, coarser
+ * resolution levels before finer ones, and tiles closer to the centre of
+ * a view before tiles further away. Pending requests for tiles that are
+ * scrolled out of all views are cancelled; they are requested again if
+ * the tile comes back into view.
+ */
+public class TileLoadingQueue
+{
+	// tiles within this fraction of the viewport size
+	// around the viewport are still loaded, after the visible ones
+	private static final double PREFETCH_MARGIN = 0.5;
+
+	private final Map< Object, Request > keyToRequest = new HashMap<>();
+	private PriorityQueue< Request > queue = createQueue();
+	private final List< Thread > threads = new ArrayList<>();
+	private long numRequests;
+	private long numCancelled;
+	private boolean isShutdown;
+	// the global bounds of the view of each viewer
+	private final Map< Object, double[][] > viewerToViewport = new HashMap<>();
+
+	public TileLoadingQueue( int numThreads, String name )
+	{
+		for ( int i = 0; i < numThreads; i++ )
+		{
+			final Thread thread = new Thread( this::run, name + " " + ( i + 1 ) );
+			thread.setDaemon( true );
+			threads.add( thread );
+			thread.start();
+		}
+	}
+
+	/**
+	 * Requests to run the {@code task} that opens the tile with the given
+	 * {@code key}, unless there is already a pending request for it.
+	 *
+	 * @param level
+	 * 		the resolution level of the tile, coarser levels are opened first
+	 * @param bounds
+	 * 		the global bounds of the tile; only called for new requests
+	 */
+	public synchronized void submit( Object key, int level, Supplier< ? extends RealInterval > bounds, Runnable task )
+	{
+		if ( isShutdown || keyToRequest.containsKey( key ) )
+			return;
+
+		// requests for tiles out of view are not dropped, because they
+		// may come from other consumers than the viewers, but they are
+		// opened last
+		final Request request = new Request( key, level, bounds.get(), task, numRequests++ );
+		setPriority( request );
+		keyToRequest.put( key, request );
+		queue.add( request );
+		notifyAll();
+	}
+
+	/**
+	 * Sets the global bounds of the current view of a viewer, e.g. upon panning.
+	 * Pending requests for tiles that are out of all views are cancelled
+	 * and the other ones are sorted again.
+	 *
+	 * @param viewer
+	 * 		the viewer, whose previous viewport is replaced
+	 * @param viewport
+	 * 		the global bounds of the view, or null if unknown;
+	 * 		only the first two dimensions are considered
+	 */
+	public synchronized void setViewport( Object viewer, @Nullable RealInterval viewport )
+	{
+		if ( viewport == null )
+			viewerToViewport.remove( viewer );
+		else
+			viewerToViewport.put( viewer, new double[][]{
+					{ viewport.realMin( 0 ), viewport.realMin( 1 ) },
+					{ viewport.realMax( 0 ), viewport.realMax( 1 ) } } );
+
+		update();
+	}
+
+	/**
+	 * Removes the view of a viewer, e.g. when it is closed.
+	 */
+	public synchronized void removeViewport( Object viewer )
+	{
+		if ( viewerToViewport.remove( viewer ) != null )
+			update();
+	}
+
+	// guarded by this
+	private void update()
+	{
+		final PriorityQueue< Request > sorted = createQueue();
+		for ( Request request : queue )
+		{
+			if ( isNearViewport( request ) )
+			{
+				setPriority( request );
+				sorted.add( request );
+			}
+			else
+			{
+				keyToRequest.remove( request.key );
+				numCancelled++;
+			}
+		}
+		queue = sorted;
+	}
+
+	public synchronized int getNumPending()
+	{
+		return queue.size();
+	}
+
+	// the number of requests that have been cancelled
+	// because their tile was not in view
+	public synchronized long getNumCancelled()
+	{
+		return numCancelled;
+	}
+
+	public synchronized void shutdown()
+	{
+		isShutdown = true;
+		queue.clear();
+		keyToRequest.clear();
+		notifyAll();
+	}
+
+	private void run()
+	{
+		while ( true )
+		{
+			final Request request;
+			synchronized ( this )
+			{
+				while ( queue.isEmpty() && ! isShutdown )
+				{
+					try
+					{
+						wait();
+					}
+					catch ( InterruptedException e )
+					{
+						return;
+					}
+				}
+
+				if ( isShutdown )
+					return;
+
+				request = queue.poll();
+			}
+
+			try
+			{
+				request.task.run();
+			}
+			catch ( Throwable e )
+			{
+				e.printStackTrace();
+			}
+			finally
+			{
+				synchronized ( this )
+				{
+					keyToRequest.remove( request.key );
+				}
+			}
+		}
+	}
+
+	// guarded by this
+	private boolean isNearViewport( Request request )
+	{
+		if ( viewerToViewport.isEmpty() )
+			return true;
+
+		for ( double[][] viewport : viewerToViewport.values() )
+			if ( intersects( request.bounds, viewport, PREFETCH_MARGIN ) )
+				return true;
+
+		return false;
+	}
+
+	// guarded by this
+	private void setPriority( Request request )
+	{
+		if ( viewerToViewport.isEmpty() )
+		{
+			request.isVisible = true;
+			request.distance = 0;
+			return;
+		}
+
+		request.isVisible = false;
+		request.distance = Double.MAX_VALUE;
+		for ( double[][] viewport : viewerToViewport.values() )
+		{
+			request.isVisible |= intersects( request.bounds, viewport, 0 );
+			double squaredDistance = 0;
+			for ( int d = 0; d < 2; d++ )
+			{
+				final double centre = 0.5 * ( viewport[ 0 ][ d ] + viewport[ 1 ][ d ] );
+				final double tileCentre = 0.5 * ( request.bounds.realMin( d ) + request.bounds.realMax( d ) );
+				squaredDistance += ( centre - tileCentre ) * ( centre - tileCentre );
+			}
+			request.distance = Math.min( request.distance, squaredDistance );
+		}
+	}
+
+	private static boolean intersects( RealInterval bounds, double[][] viewport, double margin )
+	{
+		for ( int d = 0; d < 2; d++ )
+		{
+			final double extension = margin * ( viewport[ 1 ][ d ] - viewport[ 0 ][ d ] );
+			if ( bounds.realMax( d ) < viewport[ 0 ][ d ] - extension
+					|| bounds.realMin( d ) > viewport[ 1 ][ d ] + extension )
+				return false;
+		}
+		return true;
+	}
+
+	private static PriorityQueue< Request > createQueue()
+	{
+		return new PriorityQueue<>( Comparator
+				.comparing( ( Request request ) -> ! request.isVisible )
+				.thenComparingInt( request -> - request.level )
+				.thenComparingDouble( request -> request.distance )
+				.thenComparingLong( request -> request.index ) );
+	}
+
+	static class Request
+	{
+		private final Object key;
+		private final int level;
+		private final RealInterval bounds;
+		private final Runnable task;
+		private final long index;
+		private boolean isVisible;
+		private double distance;
+
+		Request( Object key, int level, RealInterval bounds, Runnable task, long index )
+		{
+			this.key = key;
+			this.level = level;
+			this.bounds = bounds;
+			this.task = task;
+			this.index = index;
+		}
+	}
+}
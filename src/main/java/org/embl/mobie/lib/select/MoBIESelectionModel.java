@@ -31,11 +31,14 @@ package org.embl.mobie.lib.select;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class MoBIESelectionModel< T > implements SelectionModel< T >
 {
 	private final Listeners.SynchronizedList< SelectionListener > listeners = new Listeners.SynchronizedList<>( );
-	private final Set< T > selected = new HashSet();
+	// concurrent, such that {@code isSelected}, which is called
+	// for every rendered pixel, does not need to lock
+	private final Set< T > selected = ConcurrentHashMap.newKeySet();
 	private T focusObject;
 
 	public MoBIESelectionModel()
@@ -43,7 +46,7 @@ public class MoBIESelectionModel< T > implements SelectionModel< T >
 	}
 
 	@Override
-	public synchronized boolean isSelected( T object )
+	public boolean isSelected( T object )
 	{
 		return selected.contains( object );
 	}
@@ -48,6 +48,8 @@ public class MergedGridTransformation extends AbstractGridTransformation
 
 	public transient boolean lazyLoadTables = true;
 
+	public transient String overviewCacheDirectory; // optional, local directory for caching a downsampled overview of the merged image
+
 	// Needed for GSON to populate the default values
 	public MergedGridTransformation()
 	{
@@ -0,0 +1,195 @@
+/*-
+ * #%L
+ * Fiji viewer for MoBIE projects
+ * %%
+ * Copyright (C) 2018 - 2024 EMBL
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.embl.mobie.lib.source;
+
+import bdv.util.volatiles.VolatileViews;
+import bdv.viewer.Source;
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.RealRandomAccessible;
+import net.imglib2.cache.img.CachedCellImg;
+import net.imglib2.cache.img.CellLoader;
+import net.imglib2.cache.img.ReadOnlyCachedCellImgFactory;
+import net.imglib2.cache.img.ReadOnlyCachedCellImgOptions;
+import net.imglib2.interpolation.randomaccess.NearestNeighborInterpolatorFactory;
+import net.imglib2.type.Type;
+import net.imglib2.type.numeric.integer.UnsignedByteType;
+import net.imglib2.type.volatiles.VolatileUnsignedByteType;
+import net.imglib2.util.Intervals;
+import net.imglib2.view.Views;
+import org.embl.mobie.lib.ThreadHelper;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Lazily computed boundaries of a label source, one cell image
+ * per time point and resolution level, for large label images,
+ * where computing the boundaries for every rendered pixel is slow.
+ *
+ * The cache only stores whether a voxel is a boundary voxel,
+ * thus it works for any type of label, and it is shared by
+ * the non-volatile and the volatile boundary source.
+ *
+ * The boundaries are computed at the voxel centres of each level,
+ * with the boundary width rounded to whole voxels, but at least one voxel.
+ * They are thus identical to the ones that are computed on the fly
+ * with that rounded width, sampled at the voxel centres.
+ */
+public class BoundaryCache< T extends Type< T > >
+{
+	private static final int[] CELL_DIMENSIONS = { 64, 64, 64 };
+
+	private final Source< T > source;
+	private final Map< String, CachedCellImg< UnsignedByteType, ? > > keyToBoundaries = new ConcurrentHashMap<>();
+	private final Map< String, RandomAccessibleInterval< VolatileUnsignedByteType > > keyToVolatileBoundaries = new ConcurrentHashMap<>();
+
+	/**
+	 * @param source
+	 * 		the non-volatile label source
+	 */
+	public BoundaryCache( Source< T > source )
+	{
+		this.source = source;
+	}
+
+	/**
+	 * @return per voxel of the level, 1 for a boundary voxel and 0 otherwise
+	 */
+	public RealRandomAccessible< UnsignedByteType > getBoundaries( int t, int level, int[] dimensions, double[] pixelUnitsBoundaryWidth )
+	{
+		final RandomAccessibleInterval< UnsignedByteType > boundaries = Views.translate(
+				getBoundaryImg( t, level, dimensions, pixelUnitsBoundaryWidth ),
+				Intervals.minAsLongArray( source.getSource( t, level ) ) );
+
+		return Views.interpolate( Views.extendZero( boundaries ), new NearestNeighborInterpolatorFactory<>() );
+	}
+
+	/**
+	 * The voxels are invalid until their cell has been computed
+	 * by the shared loading queue.
+	 *
+	 * @return per voxel of the level, 1 for a boundary voxel and 0 otherwise
+	 */
+	public RealRandomAccessible< VolatileUnsignedByteType > getVolatileBoundaries( int t, int level, int[] dimensions, double[] pixelUnitsBoundaryWidth )
+	{
+		final String key = key( t, level, dimensions, pixelUnitsBoundaryWidth );
+		final RandomAccessibleInterval< VolatileUnsignedByteType > volatileImg = keyToVolatileBoundaries.computeIfAbsent( key,
+				k -> VolatileViews.wrapAsVolatile( getBoundaryImg( t, level, dimensions, pixelUnitsBoundaryWidth ), ThreadHelper.sharedQueue ) );
+		final RandomAccessibleInterval< VolatileUnsignedByteType > boundaries = Views.translate(
+				volatileImg,
+				Intervals.minAsLongArray( source.getSource( t, level ) ) );
+
+		// outside the image there are no boundaries
+		final VolatileUnsignedByteType noBoundary = new VolatileUnsignedByteType( 0 );
+		noBoundary.setValid( true );
+		return Views.interpolate( Views.extendValue( boundaries, noBoundary ), new NearestNeighborInterpolatorFactory<>() );
+	}
+
+	public void clear()
+	{
+		keyToVolatileBoundaries.clear();
+		keyToBoundaries.clear();
+	}
+
+	public static long[] voxelBoundaryWidth( double[] pixelUnitsBoundaryWidth )
+	{
+		final long[] width = new long[ pixelUnitsBoundaryWidth.length ];
+		for ( int d = 0; d < width.length; d++ )
+			width[ d ] = Math.max( 1, Math.round( pixelUnitsBoundaryWidth[ d ] ) );
+		return width;
+	}
+
+	private CachedCellImg< UnsignedByteType, ? > getBoundaryImg( int t, int level, int[] dimensions, double[] pixelUnitsBoundaryWidth )
+	{
+		return keyToBoundaries.computeIfAbsent(
+				key( t, level, dimensions, pixelUnitsBoundaryWidth ),
+				k -> createBoundaryImg( t, level, dimensions, voxelBoundaryWidth( pixelUnitsBoundaryWidth ) ) );
+	}
+
+	private static String key( int t, int level, int[] dimensions, double[] pixelUnitsBoundaryWidth )
+	{
+		return t + ";" + level + ";" + Arrays.toString( dimensions ) + ";" + Arrays.toString( voxelBoundaryWidth( pixelUnitsBoundaryWidth ) );
+	}
+
+	private CachedCellImg< UnsignedByteType, ? > createBoundaryImg( int t, int level, int[] dimensions, long[] voxelBoundaryWidth )
+	{
+		final RandomAccessibleInterval< T > rai = source.getSource( t, level );
+		final long[] min = Intervals.minAsLongArray( rai );
+		// assumes that the default variable is the background value
+		final T background = source.getType().createVariable();
+
+		// the cells live in zero-min coordinates
+		final CellLoader< UnsignedByteType > loader = cell ->
+		{
+			final RandomAccess< T > access = Views.extendValue( rai, background ).randomAccess();
+			final T pixelValue = background.createVariable();
+			final Cursor< UnsignedByteType > cursor = Views.flatIterable( Views.translate( cell, min ) ).localizingCursor();
+			while ( cursor.hasNext() )
+			{
+				final UnsignedByteType isBoundary = cursor.next();
+				access.setPosition( cursor );
+				pixelValue.set( access.get() );
+				isBoundary.set( isBoundary( access, pixelValue, background, dimensions, voxelBoundaryWidth ) ? 1 : 0 );
+			}
+		};
+
+		return new ReadOnlyCachedCellImgFactory().create(
+				Intervals.dimensionsAsLongArray( rai ),
+				new UnsignedByteType(),
+				loader,
+				ReadOnlyCachedCellImgOptions.options()
+						.cellDimensions( CELL_DIMENSIONS )
+						.volatileAccesses( true ) );
+	}
+
+	// same as the boundaries that are computed on the fly,
+	// see BoundarySource
+	private static < T extends Type< T > > boolean isBoundary( RandomAccess< T > access, T pixelValue, T background, int[] dimensions, long[] voxelBoundaryWidth )
+	{
+		if ( pixelValue.valueEquals( background ) )
+			return false;
+
+		for ( int d : dimensions )
+		{
+			for ( int signum = -1; signum <= +1; signum+=2 ) // back and forth
+			{
+				access.move( signum * voxelBoundaryWidth[ d ], d );
+				final boolean isDifferent = ! access.get().valueEquals( pixelValue );
+				access.move( - signum * voxelBoundaryWidth[ d ], d );
+				if ( isDifferent )
+					return true;
+			}
+		}
+
+		return false;
+	}
+}
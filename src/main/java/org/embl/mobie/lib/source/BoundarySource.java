@@ -28,6 +28,7 @@
  */
 package org.embl.mobie.lib.source;
 
+import bdv.viewer.Interpolation;
 import bdv.viewer.Source;
 import net.imglib2.RealInterval;
 import net.imglib2.RealLocalizable;
@@ -35,53 +36,162 @@ import net.imglib2.RealRandomAccess;
 import net.imglib2.RealRandomAccessible;
 import net.imglib2.position.FunctionRealRandomAccessible;
 import net.imglib2.type.Type;
+import net.imglib2.type.numeric.integer.UnsignedByteType;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
 import java.util.function.BiConsumer;
+import java.util.function.Supplier;
 
 public class BoundarySource< T extends Type< T > > extends AbstractBoundarySource< T >
 {
+    // optional, for large label images where the boundaries
+    // are expensive to compute on the fly
+    @Nullable
+    private BoundaryCache< T > boundaryCache;
+
     public BoundarySource( Source< T > source, boolean showAsBoundaries, @Nullable float boundaryWidth, @Nullable RealInterval bounds )
     {
         super( source, showAsBoundaries, boundaryWidth, bounds );
     }
 
+    // The cache computes the boundaries per time point and resolution level,
+    // with the boundary width rounded to whole voxels, see BoundaryCache.
+    public void setBoundaryCache( @Nullable BoundaryCache< T > boundaryCache )
+    {
+        this.boundaryCache = boundaryCache;
+    }
+
+    @Nullable
+    public BoundaryCache< T > getBoundaryCache()
+    {
+        return boundaryCache;
+    }
+
+    @Override
+    public void showAsBoundary( boolean showAsBoundaries, double boundaryWidth )
+    {
+        if ( boundaryCache != null && boundaryWidth != this.boundaryWidth )
+            boundaryCache.clear();
+
+        super.showAsBoundary( showAsBoundaries, boundaryWidth );
+    }
+
+    @Override
+    public RealRandomAccessible< T > getInterpolatedSource( final int t, final int level, final Interpolation method )
+    {
+        if ( showAsBoundaries && boundaryCache != null )
+        {
+            final RealRandomAccessible< T > rra = source.getInterpolatedSource( t, level, Interpolation.NEARESTNEIGHBOR );
+            final RealRandomAccessible< UnsignedByteType > boundaries = boundaryCache.getBoundaries(
+                    t,
+                    level,
+                    boundaryDimensions.stream().mapToInt( Integer::intValue ).toArray(),
+                    pixelBoundaryWidth( t, level ) );
+            return new FunctionRealRandomAccessible( 3, new CachedBoundariesSupplier( rra, boundaries ), () -> getType().createVariable() );
+        }
+
+        return super.getInterpolatedSource( t, level, method );
+    }
+
     protected RealRandomAccessible< T > createBoundaryRealRandomAccessible( RealRandomAccessible< T > rra, ArrayList< Integer > dimensions, double[] pixelUnitsBoundaryWidth )
     {
-        BiConsumer< RealLocalizable, T > biConsumer = ( l, output ) ->
+        return new FunctionRealRandomAccessible( 3, new BoundariesSupplier( rra, dimensions, pixelUnitsBoundaryWidth ), () -> getType().createVariable() );
+    }
+
+    // Creates one function per sampler, such that the
+    // access and the temporary variables can be reused
+    // for all the pixels that are rendered by that sampler.
+    class BoundariesSupplier implements Supplier< BiConsumer< RealLocalizable, T > >
+    {
+        private final RealRandomAccessible< T > rra;
+        private final int[] dimensions;
+        private final double[] pixelUnitsBoundaryWidth;
+
+        public BoundariesSupplier( RealRandomAccessible< T > rra, ArrayList< Integer > dimensions, double[] pixelUnitsBoundaryWidth )
         {
-            final RealRandomAccess< T > access = rra.realRandomAccess();
-            final T pixelValue = access.setPositionAndGet( l ).copy();
-            // assumes that the default variable is the background value
-            final T background = pixelValue.createVariable();
+            this.rra = rra;
+            this.dimensions = dimensions.stream().mapToInt( Integer::intValue ).toArray();
+            this.pixelUnitsBoundaryWidth = pixelUnitsBoundaryWidth;
+        }
 
-            // set to background
-            output.set( background );
+        @Override
+        public BiConsumer< RealLocalizable, T > get()
+        {
+            return new Boundaries();
+        }
 
-            if ( pixelValue.valueEquals( background ) )
-                return;
+        private class Boundaries implements BiConsumer< RealLocalizable, T >
+        {
+            private final RealRandomAccess< T > access = rra.realRandomAccess();
+            private final T pixelValue = getType().createVariable();
+            // assumes that the default variable is the background value
+            private final T background = getType().createVariable();
 
-            // check whether input is a boundary pixel
-            for ( Integer d : dimensions )
+            @Override
+            public void accept( RealLocalizable l, T output )
             {
-                for ( int signum = -1; signum <= +1; signum+=2 ) // back and forth
+                pixelValue.set( access.setPositionAndGet( l ) );
+
+                // set to background
+                output.set( background );
+
+                if ( pixelValue.valueEquals( background ) )
+                    return;
+
+                // check whether input is a boundary pixel
+                for ( int d : dimensions )
                 {
-                    access.move( signum * pixelUnitsBoundaryWidth[ d ], d );
-                    final T neighbourValue = access.get();
-                    if ( ! neighbourValue.valueEquals( pixelValue )  )
+                    for ( int signum = -1; signum <= +1; signum+=2 ) // back and forth
                     {
-                        // input is a non-background boundary pixel...
-                        // ...thus it keeps its value
-                        output.set( pixelValue );
-                        return;
+                        access.move( signum * pixelUnitsBoundaryWidth[ d ], d );
+                        final T neighbourValue = access.get();
+                        if ( ! neighbourValue.valueEquals( pixelValue )  )
+                        {
+                            // input is a non-background boundary pixel...
+                            // ...thus it keeps its value
+                            output.set( pixelValue );
+                            return;
+                        }
+                        // move back to center
+                        access.move( - signum * pixelUnitsBoundaryWidth[ d ], d );
                     }
-                    // move back to center
-                    access.move( - signum * pixelUnitsBoundaryWidth[ d ], d );
                 }
             }
-        };
+        }
+    }
 
-        return new FunctionRealRandomAccessible( 3, biConsumer, () -> getType().createVariable() );
+    class CachedBoundariesSupplier implements Supplier< BiConsumer< RealLocalizable, T > >
+    {
+        private final RealRandomAccessible< T > rra;
+        private final RealRandomAccessible< UnsignedByteType > boundaries;
+
+        public CachedBoundariesSupplier( RealRandomAccessible< T > rra, RealRandomAccessible< UnsignedByteType > boundaries )
+        {
+            this.rra = rra;
+            this.boundaries = boundaries;
+        }
+
+        @Override
+        public BiConsumer< RealLocalizable, T > get()
+        {
+            return new CachedBoundaries();
+        }
+
+        private class CachedBoundaries implements BiConsumer< RealLocalizable, T >
+        {
+            private final RealRandomAccess< T > access = rra.realRandomAccess();
+            private final RealRandomAccess< UnsignedByteType > boundaryAccess = boundaries.realRandomAccess();
+            private final T background = getType().createVariable();
+
+            @Override
+            public void accept( RealLocalizable l, T output )
+            {
+                if ( boundaryAccess.setPositionAndGet( l ).get() == 0 )
+                    output.set( background );
+                else
+                    output.set( access.setPositionAndGet( l ) );
+            }
+        }
     }
 }
@@ -28,22 +28,36 @@
  */
 package org.embl.mobie.lib.source;
 
+import net.imglib2.Cursor;
+import net.imglib2.FinalInterval;
 import net.imglib2.RandomAccess;
 import net.imglib2.RandomAccessible;
 import net.imglib2.RandomAccessibleInterval;
 import net.imglib2.Volatile;
 import net.imglib2.algorithm.neighborhood.Neighborhood;
 import net.imglib2.algorithm.neighborhood.Shape;
+import net.imglib2.cache.img.CellLoader;
+import net.imglib2.cache.img.ReadOnlyCachedCellImgFactory;
+import net.imglib2.cache.img.ReadOnlyCachedCellImgOptions;
 import net.imglib2.converter.Converter;
 import net.imglib2.converter.Converters;
+import net.imglib2.img.Img;
+import net.imglib2.type.NativeType;
 import net.imglib2.type.numeric.RealType;
+import net.imglib2.util.Intervals;
 import net.imglib2.util.Util;
 import net.imglib2.view.Views;
 
+import java.util.Arrays;
+
 /*
  * This version of NeighborhoodNonZeroBoundariesConverter
  * might be faster, but one does need to know the RAI
  * on which to compute on upon time of construction.
+ *
+ * For rectangular neighborhoods, computeBoundaries and
+ * getBoundariesView compute the same result, but with a
+ * cost per pixel that does not depend on the boundary width.
  */
 public class NeighborhoodBoundariesConverter< R extends RealType< R > >
 		implements Converter< Neighborhood< R >, R >
@@ -91,9 +105,9 @@ public class NeighborhoodBoundariesConverter< R extends RealType< R > >
 
 	private R getCenterValue( Neighborhood< R > neighborhood )
 	{
-		long[] centrePosition = new long[ neighborhood.numDimensions() ];
-		neighborhood.localize( centrePosition );
-		return randomAccess.setPositionAndGet( centrePosition );
+		// the neighborhood is localized at its center
+		randomAccess.setPosition( neighborhood );
+		return randomAccess.get();
 	}
 
 	public static < R extends RealType< R > >
@@ -114,4 +128,149 @@ public class NeighborhoodBoundariesConverter< R extends RealType< R > >
 				neighborhoodConverter,
 				Util.getTypeFromInterval( rai ) );
 	}
+
+	/*
+	 * Lazily computes the boundaries of the whole rai,
+	 * block by block, using computeBoundaries.
+	 * The result is identical to getNeighborhoodConvertedView
+	 * with a RectangleShape of the given span.
+	 */
+	@SuppressWarnings( { "unchecked", "rawtypes" } )
+	public static < R extends RealType< R > & NativeType< R > >
+	RandomAccessibleInterval< R > getBoundariesView(
+			RandomAccessibleInterval< R > rai,
+			long span,
+			float background,
+			int[] blockSize )
+	{
+		final long[] min = Intervals.minAsLongArray( rai );
+
+		final CellLoader< R > loader = cell ->
+				computeBoundaries( rai, Views.translate( cell, min ), span, background );
+
+		final Img< R > img = ( Img ) new ReadOnlyCachedCellImgFactory().create(
+				Intervals.dimensionsAsLongArray( rai ),
+				Util.getTypeFromInterval( rai ),
+				( CellLoader ) loader,
+				ReadOnlyCachedCellImgOptions.options().cellDimensions( blockSize ) );
+
+		return Views.translate( img, min );
+	}
+
+	/*
+	 * Computes the boundaries of rai within the interval of the output,
+	 * with the same result as the converter with a
+	 * RectangleShape( span, skipCenter ) neighborhood:
+	 * a pixel keeps its value if any pixel within the box of
+	 * the given span has another value, otherwise it is set to background.
+	 *
+	 * The box is tested separably, one dimension after the other,
+	 * using the lengths of the runs of equal values along each line,
+	 * such that the cost per pixel is independent of the span.
+	 */
+	public static < R extends RealType< R > > void computeBoundaries(
+			RandomAccessibleInterval< R > rai,
+			RandomAccessibleInterval< R > output,
+			long span,
+			float background )
+	{
+		final int numDimensions = output.numDimensions();
+		final long[] min = new long[ numDimensions ];
+		final long[] dimensions = new long[ numDimensions ];
+		final long[] strides = new long[ numDimensions ];
+		long size = 1;
+		for ( int d = 0; d < numDimensions; d++ )
+		{
+			min[ d ] = output.min( d ) - span;
+			dimensions[ d ] = output.dimension( d ) + 2 * span;
+			strides[ d ] = size;
+			size *= dimensions[ d ];
+		}
+
+		if ( size > Integer.MAX_VALUE - 8 )
+			throw new IllegalArgumentException( "Block is too large to compute boundaries: " + size + " pixels." );
+
+		// read the block, padded by the span
+		final float[] values = new float[ ( int ) size ];
+		final Cursor< R > cursor = Views.flatIterable( Views.interval( Views.extendValue( rai, background ), FinalInterval.createMinSize( min, dimensions ) ) ).cursor();
+		for ( int i = 0; cursor.hasNext(); i++ )
+			values[ i ] = cursor.next().getRealFloat();
+
+		// uniform[ i ]: all pixels within the box around i,
+		// for the dimensions processed so far, have the value of i
+		final boolean[] uniform = new boolean[ ( int ) size ];
+		Arrays.fill( uniform, true );
+
+		for ( int d = 0; d < numDimensions; d++ )
+		{
+			final int stride = ( int ) strides[ d ];
+			final int length = ( int ) dimensions[ d ];
+			final int[] leftRunLengths = new int[ length ];
+			final int numOuter = ( int ) ( size / ( ( long ) stride * length ) );
+			for ( int outer = 0; outer < numOuter; outer++ )
+			{
+				for ( int inner = 0; inner < stride; inner++ )
+				{
+					final int offset = outer * stride * length + inner;
+					uniformAlongLine( values, uniform, offset, stride, length, span, leftRunLengths );
+				}
+			}
+		}
+
+		final RandomAccess< R > centerAccess = rai.randomAccess();
+		final Cursor< R > outputCursor = Views.flatIterable( output ).localizingCursor();
+		while ( outputCursor.hasNext() )
+		{
+			final R value = outputCursor.next();
+
+			int i = 0;
+			for ( int d = 0; d < numDimensions; d++ )
+				i += ( outputCursor.getLongPosition( d ) - min[ d ] ) * strides[ d ];
+
+			if ( value instanceof Volatile )
+			{
+				centerAccess.setPosition( outputCursor );
+				if ( !( ( Volatile ) centerAccess.get() ).isValid() )
+				{
+					( ( Volatile< ? > ) value ).setValid( false );
+					continue;
+				}
+			}
+
+			final float centerFloat = values[ i ];
+			if ( centerFloat == background || uniform[ i ] )
+				value.setReal( background );
+			else
+				value.setReal( centerFloat );
+		}
+	}
+
+	// A position is uniform along the line if the whole window
+	// [ -span, span ] around it lies within one run of equal
+	// values that were uniform along the previous dimensions.
+	private static void uniformAlongLine( float[] values, boolean[] uniform, int offset, int stride, int length, long span, int[] leftRunLengths )
+	{
+		for ( int k = 0, i = offset; k < length; k++, i += stride )
+		{
+			if ( ! uniform[ i ] )
+				leftRunLengths[ k ] = 0;
+			else if ( k > 0 && leftRunLengths[ k - 1 ] > 0 && values[ i - stride ] == values[ i ] )
+				leftRunLengths[ k ] = leftRunLengths[ k - 1 ] + 1;
+			else
+				leftRunLengths[ k ] = 1;
+		}
+
+		int rightRunLength = 0;
+		for ( int k = length - 1, i = offset + k * stride; k >= 0; k--, i -= stride )
+		{
+			if ( ! uniform[ i ] )
+				rightRunLength = 0;
+			else if ( rightRunLength > 0 && values[ i + stride ] == values[ i ] )
+				rightRunLength++;
+			else
+				rightRunLength = 1;
+
+			uniform[ i ] = leftRunLengths[ k ] > span && rightRunLength > span;
+		}
+	}
 }
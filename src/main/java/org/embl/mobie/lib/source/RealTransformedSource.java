@@ -33,14 +33,16 @@ import bdv.viewer.Source;
 import bdv.viewer.render.DefaultMipmapOrdering;
 import bdv.viewer.render.MipmapOrdering;
 import mpicbg.spim.data.sequence.VoxelDimensions;
+import net.imglib2.FinalInterval;
 import net.imglib2.Interval;
 import net.imglib2.RandomAccessibleInterval;
 import net.imglib2.RealRandomAccessible;
 import net.imglib2.realtransform.*;
-import net.imglib2.util.Intervals;
 import net.imglib2.view.Views;
 
-
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class RealTransformedSource<T> implements Source<T>, MipmapOrdering, SourceWrapper< T >
 {
@@ -52,6 +54,11 @@ public class RealTransformedSource<T> implements Source<T>, MipmapOrdering, Sour
 
     private final RealTransform realTransform;
 
+    private final Map< String, Interval > timepointAndLevelToInterval = new ConcurrentHashMap<>();
+
+    // per dimension, on the surface of the interval
+    private static final int NUM_SURFACE_SAMPLES = 33;
+
     public RealTransformedSource(
             final Source<T> source,
             final RealTransform realTransform,
@@ -74,25 +81,107 @@ public class RealTransformedSource<T> implements Source<T>, MipmapOrdering, Sour
     @Override
     public RandomAccessibleInterval<T> getSource( final int t, final int level ) {
 
-        return source.getSource( 0, 0 );
-
-//        return Views.interval(
-//                Views.raster(
-//                        getInterpolatedSource(
-//                                t,
-//                                level,
-//                                Interpolation.NEARESTNEIGHBOR)),
-//                estimateBoundingInterval(t, level));
+        return Views.interval(
+                Views.raster(
+                        getInterpolatedSource(
+                                t,
+                                level,
+                                Interpolation.NEARESTNEIGHBOR)),
+                estimateBoundingInterval(t, level));
     }
 
+    // The bounding interval in the voxel grid of the given level.
+    // BDV also uses this for culling, thus it is only computed once
+    // per time point and level; this assumes that the real transform
+    // is not changed after construction of this source.
     private Interval estimateBoundingInterval( final int t, final int level ) {
 
-        // TODO: this is currently ignoring the real transform, which may or may not be ok....
-        final Interval wrappedInterval = source.getSource(t, level);
-        AffineTransform3D sourceTransform = new AffineTransform3D();
-        source.getSourceTransform( t, level, sourceTransform );
-        Interval interval = Intervals.smallestContainingInterval( sourceTransform.estimateBounds( wrappedInterval ) );
-        return interval;
+        return timepointAndLevelToInterval.computeIfAbsent( t + ";" + level, key -> {
+            final Interval wrappedInterval = source.getSource( t, level );
+            if ( ! ( realTransform instanceof InvertibleRealTransform ) )
+            {
+                // we cannot map the wrapped interval into the
+                // transformed space, thus assume that the
+                // transform roughly keeps the data in place
+                return new FinalInterval( wrappedInterval );
+            }
+
+            final AffineTransform3D sourceTransform = new AffineTransform3D();
+            source.getSourceTransform( t, level, sourceTransform );
+
+            // maps voxels of the wrapped source to voxels of this source
+            final InvertibleRealTransformSequence voxelTransform = new InvertibleRealTransformSequence();
+            voxelTransform.add( sourceTransform );
+            voxelTransform.add( ( ( InvertibleRealTransform ) realTransform ).copy().inverse() );
+            voxelTransform.add( sourceTransform.inverse() );
+
+            return estimateBoundingInterval( wrappedInterval, voxelTransform );
+        } );
+    }
+
+    // Transforms sample points on the surface of the voxel extent
+    // of the interval; for a continuous and invertible transform
+    // the extrema of the transformed volume lie on its surface.
+    // A voxel of the result is included if its centre lies within
+    // the transformed extent.
+    static Interval estimateBoundingInterval( final Interval interval, final RealTransform transform ) {
+
+        final int n = interval.numDimensions();
+        final double[] extentMin = new double[ n ];
+        final double[] extentMax = new double[ n ];
+        final int[] numSamples = new int[ n ];
+        for ( int d = 0; d < n; d++ )
+        {
+            extentMin[ d ] = interval.min( d ) - 0.5;
+            extentMax[ d ] = interval.max( d ) + 0.5;
+            numSamples[ d ] = ( int ) Math.min( interval.dimension( d ) + 1, NUM_SURFACE_SAMPLES );
+        }
+
+        final double[] transformedMin = new double[ n ];
+        final double[] transformedMax = new double[ n ];
+        Arrays.fill( transformedMin, Double.MAX_VALUE );
+        Arrays.fill( transformedMax, -Double.MAX_VALUE );
+
+        final int[] sampleIndices = new int[ n ];
+        final double[] position = new double[ n ];
+        final double[] transformed = new double[ n ];
+        while ( true )
+        {
+            boolean onSurface = false;
+            for ( int d = 0; d < n; d++ )
+            {
+                onSurface |= sampleIndices[ d ] == 0 || sampleIndices[ d ] == numSamples[ d ] - 1;
+                position[ d ] = extentMin[ d ] + ( extentMax[ d ] - extentMin[ d ] ) * sampleIndices[ d ] / ( numSamples[ d ] - 1 );
+            }
+
+            if ( onSurface )
+            {
+                transform.apply( position, transformed );
+                for ( int d = 0; d < n; d++ )
+                {
+                    transformedMin[ d ] = Math.min( transformedMin[ d ], transformed[ d ] );
+                    transformedMax[ d ] = Math.max( transformedMax[ d ], transformed[ d ] );
+                }
+            }
+
+            // next sample
+            int d = 0;
+            for ( ; d < n; d++ )
+            {
+                if ( ++sampleIndices[ d ] < numSamples[ d ] ) break;
+                sampleIndices[ d ] = 0;
+            }
+            if ( d == n ) break;
+        }
+
+        final long[] min = new long[ n ];
+        final long[] max = new long[ n ];
+        for ( int d = 0; d < n; d++ )
+        {
+            min[ d ] = ( long ) Math.ceil( transformedMin[ d ] );
+            max[ d ] = Math.max( min[ d ], ( long ) Math.floor( transformedMax[ d ] ) );
+        }
+        return new FinalInterval( min, max );
     }
 
     @Override
@@ -118,10 +207,6 @@ public class RealTransformedSource<T> implements Source<T>, MipmapOrdering, Sour
     public void getSourceTransform(final int t, final int level, final AffineTransform3D transform)
     {
         source.getSourceTransform( t, level, transform );
-        if ( level == 0 )
-        {
-            int a = 1;
-        }
     }
 
     @Override
@@ -35,21 +35,31 @@ import bdv.util.AbstractSource;
 import bdv.util.Affine3DHelpers;
 import bdv.util.BdvHandle;
 import bdv.util.ResampledSource;
+import bdv.util.volatiles.VolatileViews;
 import bdv.viewer.Source;
 import mpicbg.spim.data.sequence.FinalVoxelDimensions;
 import mpicbg.spim.data.sequence.VoxelDimensions;
 import net.imglib2.FinalRealInterval;
 import net.imglib2.Interval;
 import net.imglib2.Point;
+import net.imglib2.RandomAccess;
 import net.imglib2.RandomAccessibleInterval;
 import net.imglib2.RealInterval;
 import net.imglib2.RealPoint;
+import net.imglib2.cache.img.CachedCellImg;
+import net.imglib2.cache.volatiles.CacheHints;
+import net.imglib2.cache.volatiles.LoadingStrategy;
+import net.imglib2.img.cell.AbstractCellImg;
+import net.imglib2.img.cell.CellGrid;
+import net.imglib2.iterator.LocalizingIntervalIterator;
 import net.imglib2.realtransform.AffineTransform3D;
 import net.imglib2.roi.RealMaskRealInterval;
 import net.imglib2.roi.geom.GeomMasks;
 import net.imglib2.roi.geom.real.WritableBox;
 import net.imglib2.util.Intervals;
+import org.embl.mobie.lib.ThreadHelper;
 import org.embl.mobie.lib.bdv.GlobalMousePositionProvider;
+import org.embl.mobie.lib.image.SourcePair;
 import org.jetbrains.annotations.NotNull;
 
 import java.lang.reflect.Field;
@@ -61,6 +71,93 @@ import static sc.fiji.bdvpg.sourceandconverter.SourceAndConverterHelper.getVoxel
 public abstract class SourceHelper
 {
 
+	// Forces the initialisation of all resolution levels,
+	// which, depending on the image data, may read metadata and
+	// one cell per level.
+	public static void initAllLevels( Source< ? > source )
+	{
+		final int levels = source.getNumMipmapLevels();
+		for ( int level = 0; level < levels; level++ )
+			source.getSource( 0, level ).randomAccess();
+	}
+
+	// The queue priority of the prefetched cells: the highest,
+	// such that they are loaded ahead of the cells that BDV
+	// requests while rendering.
+	public static final int PREFETCH_PRIORITY = 0;
+
+	// The stride for touching all cells of images without a cell grid.
+	private static final int PREFETCH_STRIDE = 64;
+
+	// Requests all cells of the coarsest resolution level,
+	// which is the first level that BDV renders.
+	// Cached cell images are wrapped as volatile, such that the
+	// cells are enqueued with the {@code PREFETCH_PRIORITY} in the
+	// shared queue, without blocking.
+	// Otherwise, the cells are requested from the volatile source,
+	// with the cache hints of that source.
+	public static void prefetchCoarsestLevel( SourcePair< ? > sourcePair, int t )
+	{
+		final Source< ? > source = sourcePair.getSource();
+		final int level = source.getNumMipmapLevels() - 1;
+		final RandomAccessibleInterval< ? > rai = source.getSource( t, level );
+		if ( rai instanceof CachedCellImg )
+		{
+			try
+			{
+				final CacheHints cacheHints = new CacheHints( LoadingStrategy.VOLATILE, PREFETCH_PRIORITY, true );
+				final RandomAccessibleInterval< ? > volatileRai = VolatileViews.wrapAsVolatile( ( CachedCellImg ) rai, ThreadHelper.sharedQueue, cacheHints );
+				touchAllCells( volatileRai, cellDimensions( ( CachedCellImg< ?, ? > ) rai ) );
+				return;
+			}
+			catch ( IllegalArgumentException e )
+			{
+				// no volatile accesses
+			}
+		}
+
+		final Source< ? > volatileSource = sourcePair.getVolatileSource();
+		final RandomAccessibleInterval< ? > prefetchRai = volatileSource != null ? volatileSource.getSource( t, level ) : rai;
+		if ( prefetchRai instanceof AbstractCellImg )
+		{
+			touchAllCells( prefetchRai, cellDimensions( ( AbstractCellImg< ?, ?, ?, ? > ) prefetchRai ) );
+		}
+		else
+		{
+			final int[] stride = new int[ prefetchRai.numDimensions() ];
+			Arrays.fill( stride, PREFETCH_STRIDE );
+			touchAllCells( prefetchRai, stride );
+		}
+	}
+
+	private static int[] cellDimensions( AbstractCellImg< ?, ?, ?, ? > img )
+	{
+		final CellGrid cellGrid = img.getCellGrid();
+		final int[] cellDimensions = new int[ cellGrid.numDimensions() ];
+		for ( int d = 0; d < cellDimensions.length; d++ )
+			cellDimensions[ d ] = cellGrid.cellDimension( d );
+		return cellDimensions;
+	}
+
+	// Accesses one voxel per cell
+	private static void touchAllCells( RandomAccessibleInterval< ? > rai, int[] cellDimensions )
+	{
+		final int numDimensions = rai.numDimensions();
+		final long[] numCells = new long[ numDimensions ];
+		for ( int d = 0; d < numDimensions; d++ )
+			numCells[ d ] = ( rai.dimension( d ) - 1 ) / cellDimensions[ d ] + 1;
+
+		final RandomAccess< ? > access = rai.randomAccess();
+		final LocalizingIntervalIterator cells = new LocalizingIntervalIterator( numCells );
+		while ( cells.hasNext() )
+		{
+			cells.fwd();
+			for ( int d = 0; d < numDimensions; d++ )
+				access.setPosition( rai.min( d ) + cells.getLongPosition( d ) * cellDimensions[ d ], d );
+			access.get();
+		}
+	}
+
 	public static < T > T unwrapSource( Source source, Class< T > clazz )
 	{
 		if ( source == null )
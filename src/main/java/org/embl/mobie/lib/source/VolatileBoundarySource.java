@@ -28,6 +28,7 @@
  */
 package org.embl.mobie.lib.source;
 
+import bdv.viewer.Interpolation;
 import bdv.viewer.Source;
 import net.imglib2.RealInterval;
 import net.imglib2.RealLocalizable;
@@ -36,74 +37,194 @@ import net.imglib2.RealRandomAccessible;
 import net.imglib2.Volatile;
 import net.imglib2.position.FunctionRealRandomAccessible;
 import net.imglib2.type.Type;
+import net.imglib2.type.volatiles.VolatileUnsignedByteType;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
 import java.util.function.BiConsumer;
+import java.util.function.Supplier;
 
 public class VolatileBoundarySource< T extends Type< T >, V extends Volatile< T > & Type< V > > extends AbstractBoundarySource< V >
 {
+    // optional, shared with the non-volatile BoundarySource
+    @Nullable
+    private BoundaryCache< ? > boundaryCache;
+
     public VolatileBoundarySource( Source< V > source, boolean showAsBoundaries, float boundaryWidth, @Nullable RealInterval bounds )
     {
         super( source, showAsBoundaries, boundaryWidth, bounds );
     }
 
+    // The cache of the boundaries of the corresponding non-volatile source,
+    // see BoundarySource.setBoundaryCache.
+    public void setBoundaryCache( @Nullable BoundaryCache< ? > boundaryCache )
+    {
+        this.boundaryCache = boundaryCache;
+    }
+
+    @Override
+    public RealRandomAccessible< V > getInterpolatedSource( final int t, final int level, final Interpolation method )
+    {
+        if ( showAsBoundaries && boundaryCache != null )
+        {
+            final RealRandomAccessible< V > rra = source.getInterpolatedSource( t, level, Interpolation.NEARESTNEIGHBOR );
+            final RealRandomAccessible< VolatileUnsignedByteType > boundaries = boundaryCache.getVolatileBoundaries(
+                    t,
+                    level,
+                    boundaryDimensions.stream().mapToInt( Integer::intValue ).toArray(),
+                    pixelBoundaryWidth( t, level ) );
+            final V type = rra.realRandomAccess().get();
+            return new FunctionRealRandomAccessible( 3, new CachedBoundariesSupplier( rra, type, boundaries ), () -> type.createVariable() );
+        }
+
+        return super.getInterpolatedSource( t, level, method );
+    }
+
     @Override
     protected RealRandomAccessible< V > createBoundaryRealRandomAccessible( RealRandomAccessible< V > rra, ArrayList< Integer > boundaryDimensions, double[] pixelUnitsBoundaryWidth )
     {
-        BiConsumer< RealLocalizable, V > boundaries = ( l, output ) ->
+        final V type = rra.realRandomAccess().get();
+        final FunctionRealRandomAccessible< V > randomAccessible = new FunctionRealRandomAccessible( 3, new BoundariesSupplier( rra, type, boundaryDimensions, pixelUnitsBoundaryWidth ), () -> type.createVariable() );
+        return randomAccessible;
+    }
+
+    // Creates one function per sampler, such that the
+    // access and the temporary variables are reused
+    // for all the pixels that are rendered by that sampler.
+    class BoundariesSupplier implements Supplier< BiConsumer< RealLocalizable, V > >
+    {
+        private final RealRandomAccessible< V > rra;
+        private final V type;
+        private final int[] boundaryDimensions;
+        private final double[] pixelUnitsBoundaryWidth;
+
+        public BoundariesSupplier( RealRandomAccessible< V > rra, V type, ArrayList< Integer > boundaryDimensions, double[] pixelUnitsBoundaryWidth )
+        {
+            this.rra = rra;
+            this.type = type;
+            this.boundaryDimensions = boundaryDimensions.stream().mapToInt( Integer::intValue ).toArray();
+            this.pixelUnitsBoundaryWidth = pixelUnitsBoundaryWidth;
+        }
+
+        @Override
+        public BiConsumer< RealLocalizable, V > get()
+        {
+            return new Boundaries();
+        }
+
+        private class Boundaries implements BiConsumer< RealLocalizable, V >
         {
-            final RealRandomAccess< V > access = rra.realRandomAccess();
-            final V input = access.setPositionAndGet( l ).copy();
-            if ( ! input.isValid() )
+            private final RealRandomAccess< V > access = rra.realRandomAccess();
+            private final V input = type.createVariable();
+            // assumes that the default variable is the background value
+            private final V background = type.createVariable();
+
+            @Override
+            public void accept( RealLocalizable l, V output )
             {
-                output.setValid( false );
-                return;
+                input.set( access.setPositionAndGet( l ) );
+                if ( ! input.isValid() )
+                {
+                    output.setValid( false );
+                    return;
+                }
+
+                // set to valid background
+                output.set( background );
+                output.setValid( true );
+
+                if ( input.valueEquals( background )  )
+                    return;
+
+                // ...unless it is a boundary pixel
+                for ( int d : boundaryDimensions )
+                {
+                    for ( int signum = -1; signum <= +1; signum +=2  ) // back and forth
+                    {
+                        access.move( signum * pixelUnitsBoundaryWidth[ d ], d );
+
+                        final V neighbour = access.get();
+                        if ( ! neighbour.isValid() )
+                        {
+                            // a pixel around the input is not valid
+                            // thus we cannot yet determine whether
+                            // it is a boundary pixel
+                            output.setValid( false );
+                            return;
+                        }
+
+                        if ( ! neighbour.valueEquals( input )  )
+                        {
+                            // a pixel around the input
+                            // has a different value,
+                            // thus the input is a boundary pixel,
+                            // thus it keeps its value
+                            output.set( input );
+                            return;
+                        }
+
+                        access.move( - signum * pixelUnitsBoundaryWidth[ d ], d ); // move back to center
+                    }
+                }
             }
+        }
+    }
 
-            // assumes that the default variable is the background value
-            final V background = input.createVariable();
+    class CachedBoundariesSupplier implements Supplier< BiConsumer< RealLocalizable, V > >
+    {
+        private final RealRandomAccessible< V > rra;
+        private final V type;
+        private final RealRandomAccessible< VolatileUnsignedByteType > boundaries;
+
+        public CachedBoundariesSupplier( RealRandomAccessible< V > rra, V type, RealRandomAccessible< VolatileUnsignedByteType > boundaries )
+        {
+            this.rra = rra;
+            this.type = type;
+            this.boundaries = boundaries;
+        }
 
-            // set to valid background
-            output.set( background );
-            output.setValid( true );
+        @Override
+        public BiConsumer< RealLocalizable, V > get()
+        {
+            return new CachedBoundaries();
+        }
 
-            if ( input.valueEquals( background )  )
-                return;
+        private class CachedBoundaries implements BiConsumer< RealLocalizable, V >
+        {
+            private final RealRandomAccess< V > access = rra.realRandomAccess();
+            private final RealRandomAccess< VolatileUnsignedByteType > boundaryAccess = boundaries.realRandomAccess();
+            private final V input = type.createVariable();
+            // assumes that the default variable is the background value
+            private final V background = type.createVariable();
 
-            // ...unless it is a boundary pixel
-            for ( Integer d : boundaryDimensions )
+            @Override
+            public void accept( RealLocalizable l, V output )
             {
-                for ( int signum = -1; signum <= +1; signum +=2  ) // back and forth
+                input.set( access.setPositionAndGet( l ) );
+                if ( ! input.isValid() )
                 {
-                    access.move( signum * pixelUnitsBoundaryWidth[ d ], d );
+                    output.setValid( false );
+                    return;
+                }
 
-                    if ( ! access.get().isValid() )
-                    {
-                        // a pixel around the input is not valid
-                        // thus we cannot yet determine whether
-                        // it is a boundary pixel
-                        output.setValid( false );
-                        return;
-                    }
+                // set to valid background
+                output.set( background );
+                output.setValid( true );
 
-                    if ( ! access.get().valueEquals( input )  )
-                    {
-                        // a pixel around the input
-                        // has a different value,
-                        // thus the input is a boundary pixel,
-                        // thus it keeps its value
-                        output.set( input );
-                        return;
-                    }
+                if ( input.valueEquals( background ) )
+                    return;
 
-                    access.move( - signum * pixelUnitsBoundaryWidth[ d ], d ); // move back to center
+                final VolatileUnsignedByteType isBoundary = boundaryAccess.setPositionAndGet( l );
+                if ( ! isBoundary.isValid() )
+                {
+                    // the boundaries of this cell are not yet computed
+                    output.setValid( false );
+                    return;
                 }
-            }
-        };
 
-        final V type = rra.realRandomAccess().get();
-        final FunctionRealRandomAccessible< V > randomAccessible = new FunctionRealRandomAccessible( 3, boundaries, () -> type.createVariable() );
-        return randomAccessible;
+                if ( isBoundary.get().get() != 0 )
+                    output.set( input );
+            }
+        }
     }
 }
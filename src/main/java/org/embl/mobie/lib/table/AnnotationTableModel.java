@@ -59,11 +59,40 @@ public interface AnnotationTableModel< A extends Annotation >
 		return new ValuePair<>( min, max );
 	}
 
+	// Bulk access to the values of a numeric column,
+	// in the order of the annotations.
+	// Implementations may override this to avoid the
+	// per annotation access.
+	default double[] getNumbers( String columnName )
+	{
+		final ArrayList< A > annotations = annotations();
+		final double[] values = new double[ annotations.size() ];
+		for ( int rowIndex = 0; rowIndex < values.length; rowIndex++ )
+			values[ rowIndex ] = annotations.get( rowIndex ).getNumber( columnName );
+		return values;
+	}
+
+	// Bulk write of the values of a numeric column,
+	// in the order of the annotations.
+	default void setNumbers( String columnName, double[] values )
+	{
+		final ArrayList< A > annotations = annotations();
+		for ( int rowIndex = 0; rowIndex < values.length; rowIndex++ )
+			annotations.get( rowIndex ).setNumber( columnName, values[ rowIndex ] );
+	}
+
 	List< String > columnNames();
 	List< String > numericColumnNames();
 	Class< ? > columnClass( String columnName );
 	int numAnnotations(); // TODO: avoid this as it could hamper lazy loading..?! rather use rows() below? Or maybe add back the iterator?
 	int rowIndexOf( A annotation );
+	// The row index of the annotation, if it can be found in
+	// constant time without locking, e.g. for caching per annotation
+	// during rendering, and -1 otherwise.
+	default int fastRowIndexOf( A annotation )
+	{
+		return -1;
+	}
 	A annotation( int rowIndex );
 	void loadTableChunk( String tableChunk ); // load additional chunks from the table source
 	void loadExternalTableChunk( StorageLocation location ); // load chunks from an external table source
@@ -0,0 +1,146 @@
+/*-
+ * #%L
+ * Fiji viewer for MoBIE projects
+ * %%
+ * Copyright (C) 2018 - 2024 EMBL
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.embl.mobie.lib.table;
+
+import ij.measure.ResultsTable;
+import net.imglib2.type.numeric.ARGBType;
+import org.embl.mobie.lib.annotation.Annotation;
+import org.embl.mobie.lib.color.ColoringModel;
+import tech.tablesaw.api.IntColumn;
+import tech.tablesaw.api.StringColumn;
+import tech.tablesaw.api.Table;
+import tech.tablesaw.io.csv.CsvWriteOptions;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+// Exports the mapping of the values of one column
+// to the colors with which the annotations are rendered.
+public class ColorMapExporter
+{
+	public static final String VALUE = "value";
+	public static final String R = "r";
+	public static final String G = "g";
+	public static final String B = "b";
+
+	private static final int BLOCK_SIZE = 10000;
+
+	// Computes the colors of all annotations, in parallel.
+	public static < A extends Annotation > int[] computeColors( List< A > annotations, ColoringModel< A > coloringModel )
+	{
+		final int numAnnotations = annotations.size();
+		final int[] colors = new int[ numAnnotations ];
+		final int numBlocks = ( numAnnotations + BLOCK_SIZE - 1 ) / BLOCK_SIZE;
+
+		IntStream.range( 0, numBlocks ).parallel().forEach( blockIndex ->
+		{
+			final ARGBType argbType = new ARGBType();
+			final int end = Math.min( numAnnotations, ( blockIndex + 1 ) * BLOCK_SIZE );
+			for ( int rowIndex = blockIndex * BLOCK_SIZE; rowIndex < end; rowIndex++ )
+			{
+				coloringModel.convert( annotations.get( rowIndex ), argbType );
+				colors[ rowIndex ] = argbType.get();
+			}
+		} );
+
+		return colors;
+	}
+
+	// Returns one row per distinct value and color,
+	// in the order of their first occurrence.
+	// A value may occur with multiple colors, e.g. if only
+	// some of the annotations with that value are selected.
+	public static < A extends Annotation > Table createColorMapTable( List< A > annotations, String columnName, int[] colors )
+	{
+		final Map< String, Set< Integer > > valueToColors = new LinkedHashMap<>();
+		for ( int rowIndex = 0; rowIndex < colors.length; rowIndex++ )
+		{
+			final Object value = annotations.get( rowIndex ).getValue( columnName );
+			valueToColors.computeIfAbsent( String.valueOf( value ), v -> new LinkedHashSet<>() ).add( colors[ rowIndex ] );
+		}
+
+		final List< String > values = new ArrayList<>();
+		final List< Integer > reds = new ArrayList<>();
+		final List< Integer > greens = new ArrayList<>();
+		final List< Integer > blues = new ArrayList<>();
+		valueToColors.forEach( ( value, valueColors ) ->
+		{
+			for ( int color : valueColors )
+			{
+				values.add( value );
+				reds.add( ARGBType.red( color ) );
+				greens.add( ARGBType.green( color ) );
+				blues.add( ARGBType.blue( color ) );
+			}
+		} );
+
+		return Table.create( columnName + " color map",
+				StringColumn.create( VALUE, values ),
+				IntColumn.create( R, reds.stream().mapToInt( i -> i ).toArray() ),
+				IntColumn.create( G, greens.stream().mapToInt( i -> i ).toArray() ),
+				IntColumn.create( B, blues.stream().mapToInt( i -> i ).toArray() ) );
+	}
+
+	public static < A extends Annotation > Table createColorMapTable( AnnotationTableModel< A > tableModel, String columnName, ColoringModel< A > coloringModel )
+	{
+		final ArrayList< A > annotations = tableModel.annotations();
+		final int[] colors = computeColors( annotations, coloringModel );
+		return createColorMapTable( annotations, columnName, colors );
+	}
+
+	public static void saveAsFile( Table colorMap, String path ) throws IOException
+	{
+		final CsvWriteOptions options = CsvWriteOptions.builder( new File( path ) ).separator( '\t' ).build();
+		colorMap.write().usingOptions( options );
+	}
+
+	public static ResultsTable toResultsTable( Table colorMap )
+	{
+		final ResultsTable resultsTable = new ResultsTable( colorMap.rowCount() );
+		final StringColumn values = colorMap.stringColumn( VALUE );
+		final IntColumn reds = colorMap.intColumn( R );
+		final IntColumn greens = colorMap.intColumn( G );
+		final IntColumn blues = colorMap.intColumn( B );
+		for ( int rowIndex = 0; rowIndex < colorMap.rowCount(); rowIndex++ )
+		{
+			resultsTable.setValue( VALUE, rowIndex, values.get( rowIndex ) );
+			resultsTable.setValue( R, rowIndex, reds.getInt( rowIndex ) );
+			resultsTable.setValue( G, rowIndex, greens.getInt( rowIndex ) );
+			resultsTable.setValue( B, rowIndex, blues.getInt( rowIndex ) );
+		}
+		return resultsTable;
+	}
+}
@@ -30,20 +30,38 @@ package org.embl.mobie.lib.table;
 
 import net.imglib2.realtransform.AffineTransform3D;
 import net.imglib2.util.Pair;
+import net.imglib2.util.ValuePair;
+import org.embl.mobie.lib.ThreadHelper;
 import org.embl.mobie.lib.annotation.Annotation;
 import org.embl.mobie.lib.io.StorageLocation;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
 
-public class ConcatenatedAnnotationTableModel< A extends Annotation > extends AbstractAnnotationTableModel< A > implements AnnotationListener< A >
+public class ConcatenatedAnnotationTableModel< A extends Annotation > extends AbstractAnnotationTableModel< A >
 {
 	private final Set< AnnotationTableModel< A > > tableModels;
 	private AnnotationTableModel< A > referenceTable;
-	private ArrayList< A > annotations = new ArrayList<>();
+	// the tables may be loaded concurrently, thus all access
+	// to the annotations is guarded by the annotationsLock
+	private final ArrayList< A > annotations = new ArrayList<>();
+	// the loaded table models, in the order in which
+	// their annotations have been concatenated
+	private final List< AnnotationTableModel< A > > loadedTableModels = new ArrayList<>();
+	private final List< Integer > rowOffsets = new ArrayList<>();
+	// the loaded table models and their row offsets by the source of their
+	// first annotation, for finding the row index of an annotation without
+	// locking; it is replaced, rather than modified, when a table is loaded
+	private volatile Map< String, Pair< AnnotationTableModel< A >, Integer > > sourceToTableModel = new HashMap<>();
+	private final Object annotationsLock = new Object();
 	private boolean allTablesLoaded = false;
 
 	public ConcatenatedAnnotationTableModel( Set< AnnotationTableModel< A > > tableModels )
@@ -54,7 +72,27 @@ public class ConcatenatedAnnotationTableModel< A extends Annotation > extends Ab
 		// it handled by the listening.
 		for ( AnnotationTableModel< A > tableModel : tableModels )
 		{
-			tableModel.addAnnotationListener( this );
+			tableModel.addAnnotationListener( new AnnotationListener< A >()
+			{
+				@Override
+				public void annotationsAdded( Collection< A > annotations )
+				{
+					addAnnotations( tableModel, annotations );
+				}
+
+				@Override
+				public void columnsAdded( Collection< String > columns )
+				{
+					// additions of columns occurs via
+					// {@code addStringColumn} or
+					// {@code loadTableChunk},
+					// which notify listeners themselves.
+					// notifying listeners here would cause notification
+					// from each of the wrapped table model, which is not needed
+					// and in fact leads to concurrency errors
+					// re-rendering views of this table.
+				}
+			} );
 		}
 
 		this.referenceTable = tableModels.iterator().next();
@@ -81,13 +119,49 @@ public class ConcatenatedAnnotationTableModel< A extends Annotation > extends Ab
 	@Override
 	public int numAnnotations()
 	{
-		return annotations.size();
+		synchronized ( annotationsLock )
+		{
+			return annotations.size();
+		}
 	}
 
 	@Override
 	public int rowIndexOf( A annotation )
 	{
-		return annotations.indexOf( annotation );
+		final ArrayList< AnnotationTableModel< A > > tableModels;
+		final ArrayList< Integer > offsets;
+		synchronized ( annotationsLock )
+		{
+			tableModels = new ArrayList<>( loadedTableModels );
+			offsets = new ArrayList<>( rowOffsets );
+		}
+
+		// the models are loaded already, thus asking them
+		// for the row index does not trigger any loading
+		for ( int i = 0; i < tableModels.size(); i++ )
+		{
+			final int rowIndex = tableModels.get( i ).rowIndexOf( annotation );
+			if ( rowIndex > -1 )
+				return offsets.get( i ) + rowIndex;
+		}
+
+		return -1;
+	}
+
+	@Override
+	public int fastRowIndexOf( A annotation )
+	{
+		final Pair< AnnotationTableModel< A >, Integer > tableModelAndOffset = sourceToTableModel.get( annotation.source() );
+		if ( tableModelAndOffset == null )
+			return -1;
+
+		// a table may contain annotations of several sources,
+		// which are not in this map
+		final int rowIndex = tableModelAndOffset.getA().fastRowIndexOf( annotation );
+		if ( rowIndex < 0 )
+			return -1;
+
+		return tableModelAndOffset.getB() + rowIndex;
 	}
 
 	@Override
@@ -97,7 +171,10 @@ public class ConcatenatedAnnotationTableModel< A extends Annotation > extends Ab
 		// because one should only ask for
 		// rows with an index lower than the
 		// current numRows.
-		return annotations.get( rowIndex );
+		synchronized ( annotationsLock )
+		{
+			return annotations.get( rowIndex );
+		}
 	}
 
 	@Override
@@ -131,13 +208,70 @@ public class ConcatenatedAnnotationTableModel< A extends Annotation > extends Ab
 	@Override
 	public Pair< Double, Double > getMinMax( String columnName )
 	{
-		return getColumnMinMax( columnName, annotations() );
+		final ArrayList< AnnotationTableModel< A > > tableModels;
+		synchronized ( annotationsLock )
+		{
+			tableModels = new ArrayList<>( loadedTableModels );
+		}
+
+		// merge the (cached) statistics of the individual tables
+		return tableModels.parallelStream()
+				.map( tableModel -> tableModel.getMinMax( columnName ) )
+				.reduce( new ValuePair<>( Double.MAX_VALUE, -Double.MAX_VALUE ),
+						( a, b ) -> new ValuePair<>(
+								Math.min( a.getA(), b.getA() ),
+								Math.max( a.getB(), b.getB() ) ) );
+	}
+
+	@Override
+	public double[] getNumbers( String columnName )
+	{
+		final ArrayList< AnnotationTableModel< A > > tableModels;
+		final ArrayList< Integer > offsets;
+		final double[] values;
+		synchronized ( annotationsLock )
+		{
+			tableModels = new ArrayList<>( loadedTableModels );
+			offsets = new ArrayList<>( rowOffsets );
+			values = new double[ annotations.size() ];
+		}
+
+		IntStream.range( 0, tableModels.size() ).parallel().forEach( i ->
+		{
+			final double[] tableValues = tableModels.get( i ).getNumbers( columnName );
+			System.arraycopy( tableValues, 0, values, offsets.get( i ), tableValues.length );
+		} );
+
+		return values;
+	}
+
+	@Override
+	public void setNumbers( String columnName, double[] values )
+	{
+		final ArrayList< AnnotationTableModel< A > > tableModels;
+		final ArrayList< Integer > offsets;
+		synchronized ( annotationsLock )
+		{
+			tableModels = new ArrayList<>( loadedTableModels );
+			offsets = new ArrayList<>( rowOffsets );
+			offsets.add( annotations.size() );
+		}
+
+		IntStream.range( 0, tableModels.size() ).parallel().forEach( i ->
+		{
+			final double[] tableValues = Arrays.copyOfRange( values, offsets.get( i ), offsets.get( i + 1 ) );
+			tableModels.get( i ).setNumbers( columnName, tableValues );
+		} );
 	}
 
 	@Override
+	// a snapshot, because more tables may be added concurrently
 	public ArrayList< A > annotations()
 	{
-		return annotations;
+		synchronized ( annotationsLock )
+		{
+			return new ArrayList<>( annotations );
+		}
 	}
 
 	@Override
@@ -193,44 +327,46 @@ public class ConcatenatedAnnotationTableModel< A extends Annotation > extends Ab
 	public void addAnnotationListener( AnnotationListener< A > listener )
 	{
 		listeners.add( listener );
+		final ArrayList< A > annotations = annotations();
 		if( annotations.size() > 0 )
 			listener.annotationsAdded( annotations );
 	}
 
-	@Override
-	public void annotationsAdded( Collection< A > annotations )
+	private void addAnnotations( AnnotationTableModel< A > tableModel, Collection< A > annotations )
 	{
 		// this method is called, e.g., if
 		// {@code Annotations} have been added to (one of)
 		// the wrapped
 		// {code Set< AnnotationTableModel< A > > tableModels}
 		// and should thus be added to this model.
-		this.annotations.addAll( annotations );
+		// the tables may be loaded concurrently, thus
+		// the concatenated index is extended as they finish.
+		synchronized ( annotationsLock )
+		{
+			if ( ! annotations.isEmpty() )
+			{
+				final Map< String, Pair< AnnotationTableModel< A >, Integer > > sourceToTableModel = new HashMap<>( this.sourceToTableModel );
+				sourceToTableModel.putIfAbsent( annotations.iterator().next().source(), new ValuePair<>( tableModel, this.annotations.size() ) );
+				this.sourceToTableModel = sourceToTableModel;
+			}
+			loadedTableModels.add( tableModel );
+			rowOffsets.add( this.annotations.size() );
+			this.annotations.addAll( annotations );
+		}
 
 		// inform listeners such as the {@code TableView}
 		for ( AnnotationListener< A > listener : listeners.list )
 			listener.annotationsAdded( annotations );
 	}
 
-	@Override
-	public void columnsAdded( Collection< String > columns )
-	{
-		// additions of columns occurs via
-		// {@code addStringColumn} or
-		// {@code loadTableChunk},
-		// which notify listeners themselves.
-		// notifying listeners here would cause notification
-		// from each of the wrapped table model, which is not needed
-		// and in fact leads to concurrency errors
-		// re-rendering views of this table.
-	}
-
 	public synchronized void loadAllTables()
 	{
 		if ( ! allTablesLoaded )
 		{
+			final ArrayList< Future< ? > > futures = ThreadHelper.getFutures();
 			for ( AnnotationTableModel< ? extends Annotation > tableModel : tableModels )
-				tableModel.annotations();
+				futures.add( ThreadHelper.ioExecutorService.submit( () -> { tableModel.annotations(); } ) );
+			ThreadHelper.waitUntilFinished( futures );
 
 			allTablesLoaded = true;
 		}
@@ -42,16 +42,21 @@ import org.jetbrains.annotations.NotNull;
 
 import java.util.*;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 public class DistanceComputer
 {
-    enum AverageMethod
+    // number of rows that are processed together,
+    // such that the partial results of a block stay in the CPU cache
+    private static final int BLOCK_SIZE = 4096;
+
+    public enum AverageMethod
     {
         Mean,
         Median;
     }
 
-    enum DistanceMetric
+    public enum DistanceMetric
     {
         Euclidian,
         Cosine;
@@ -74,6 +79,7 @@ public class DistanceComputer
         gd.addChoice( "Averaging Method", MoBIEHelper.enumAsStringArray( AverageMethod.class ), AverageMethod.Median.toString() );
         gd.addStringField( "Results Column Name", "distance" );
         gd.addCheckbox( "Color by Results", true );
+        gd.addNumericField( "Select Nearest Rows (0 = none)", 0, 0 );
         gd.showDialog();
         if( gd.wasCanceled() ) return;
 
@@ -84,6 +90,7 @@ public class DistanceComputer
         AverageMethod averageMethod = AverageMethod.valueOf( gd.getNextChoice() );
         final String resultColumnName = gd.getNextString();
         boolean colorByDistances = gd.getNextBoolean();
+        final int numNearest = ( int ) gd.getNextNumber();
 
         List< String > distanceFeatures = tableModel.columnNames().stream()
                 .filter( columnName -> columnName.matches( columnNamesRegEx ) )
@@ -96,9 +103,17 @@ public class DistanceComputer
 
         // compute distances
         //
+        final double[] referenceValues = computeReferenceValues( averageMethod, distanceFeatures, referenceRows );
+        final double[] distances = computeDistancesAndAddToTable( tableModel, resultColumnName, distanceMetric, distanceFeatures, referenceValues );
 
-        Map< String, Double > referenceValues = computeReferenceValues( averageMethod, distanceFeatures, referenceRows );
-        computeDistancesAndAddToTable( tableModel, resultColumnName, distanceMetric, distanceFeatures, referenceValues );
+        if ( numNearest > 0 )
+        {
+            final int[] nearestRows = nearestRows( distances, numNearest );
+            final List< A > nearestAnnotations = new ArrayList<>( nearestRows.length );
+            for ( int rowIndex : nearestRows )
+                nearestAnnotations.add( tableModel.annotation( rowIndex ) );
+            selectionModel.setSelected( nearestAnnotations, true );
+        }
 
         // visualise
         //
@@ -116,7 +131,7 @@ public class DistanceComputer
         }
     }
 
-    private static < A extends Annotation > void computeDistancesAndAddToTable( AnnotationTableModel< A > tableModel, String resultColumnName, DistanceMetric distanceMetric, List< String > selectedColumnNames, Map< String, Double > columnAverages )
+    private static < A extends Annotation > double[] computeDistancesAndAddToTable( AnnotationTableModel< A > tableModel, String resultColumnName, DistanceMetric distanceMetric, List< String > selectedColumnNames, double[] referenceValues )
     {
         if ( tableModel.columnNames().contains( resultColumnName ) )
         {
@@ -129,116 +144,249 @@ public class DistanceComputer
         }
 
         long start = System.currentTimeMillis();
-        switch ( distanceMetric )
-        {
-            case Euclidian:
-                computeEuclidanDistances( tableModel, selectedColumnNames, columnAverages, resultColumnName );
-                break;
-            case Cosine:
-            default:
-                computeCosineDistances( tableModel, selectedColumnNames, columnAverages, resultColumnName );
-                break;
-        }
+        final double[][] features = extractFeatures( tableModel, selectedColumnNames );
+        final double[] distances = computeDistances( features, referenceValues, distanceMetric );
+        tableModel.setNumbers( resultColumnName, distances );
         IJ.log( "Computed the " + distanceMetric + " distance of " + selectedColumnNames.size()
-                + " features for " + tableModel.annotations().size() + " annotations in " +
+                + " features for " + distances.length + " annotations in " +
                 ( System.currentTimeMillis() - start ) + " ms.");
+
+        return distances;
+    }
+
+    // Returns one contiguous array per feature (column major),
+    // which allows the distance kernels to stream through memory.
+    public static < A extends Annotation > double[][] extractFeatures( AnnotationTableModel< A > tableModel, List< String > columnNames )
+    {
+        final double[][] features = new double[ columnNames.size() ][];
+        for ( int featureIndex = 0; featureIndex < features.length; featureIndex++ )
+            features[ featureIndex ] = tableModel.getNumbers( columnNames.get( featureIndex ) );
+        return features;
     }
 
     @NotNull
-    private static < A extends Annotation > Map< String, Double > computeReferenceValues( AverageMethod averageMethod, List< String > selectedColumnNames, Set< A > selectedAnnotations )
+    public static < A extends Annotation > double[] computeReferenceValues( AverageMethod averageMethod, List< String > selectedColumnNames, Collection< A > selectedAnnotations )
     {
-        switch ( averageMethod )
+        final double[] referenceValues = new double[ selectedColumnNames.size() ];
+        final double[] values = new double[ selectedAnnotations.size() ];
+        for ( int featureIndex = 0; featureIndex < referenceValues.length; featureIndex++ )
         {
-            case Mean:
-                return computeMeanOfSelectedAnnotations( selectedColumnNames, selectedAnnotations );
-            case Median:
-            default:
-               return computeMedianOfSelectedAnnotations( selectedColumnNames, selectedAnnotations );
+            final String column = selectedColumnNames.get( featureIndex );
+            int i = 0;
+            for ( A annotation : selectedAnnotations )
+                values[ i++ ] = annotation.getNumber( column );
+
+            switch ( averageMethod )
+            {
+                case Mean:
+                    referenceValues[ featureIndex ] = mean( values );
+                    break;
+                case Median:
+                default:
+                    referenceValues[ featureIndex ] = median( values );
+                    break;
+            }
         }
+        return referenceValues;
     }
 
-    @NotNull
-    private static < A extends Annotation > Map< String, Double > computeMeanOfSelectedAnnotations( List< String > selectedColumnNames, Set< A > selectedAnnotations )
+    static double mean( double[] values )
     {
-        Map<String, Double> columnAverages = new HashMap<>();
-        for (String column : selectedColumnNames ) {
-            double sum = selectedAnnotations.stream()
-                    .mapToDouble(annotation -> annotation.getNumber(column).doubleValue())
-                    .sum();
-            double average = sum / selectedAnnotations.size();
-            columnAverages.put(column, average);
-        }
-        return columnAverages;
+        double sum = 0.0;
+        for ( double value : values )
+            sum += value;
+        return sum / values.length;
     }
 
-    @NotNull
-    private static < A extends Annotation > Map< String, Double > computeMedianOfSelectedAnnotations( List< String > selectedColumnNames, Set< A > selectedAnnotations )
+    // Computes the median without sorting, using a selection algorithm.
+    // Note that the order of the values is modified.
+    static double median( double[] values )
     {
-        Map<String, Double> columnMedians = new HashMap<>();
-        for (String column : selectedColumnNames) {
-            List<Double> values = selectedAnnotations.stream()
-                    .map(annotation -> annotation.getNumber(column).doubleValue())
-                    .sorted()
-                    .collect(Collectors.toList());
-            double median;
-            int size = values.size();
-            if (size % 2 == 0) {
-                median = (values.get(size / 2 - 1) + values.get(size / 2)) / 2.0;
-            } else {
-                median = values.get(size / 2);
-            }
-            columnMedians.put(column, median);
-        }
-        return columnMedians;
+        final int size = values.length;
+        final double upper = select( values, size / 2 );
+        if ( size % 2 == 1 )
+            return upper;
+
+        // after the selection all values left of size / 2 are smaller or equal
+        double lower = values[ 0 ];
+        for ( int i = 1; i < size / 2; i++ )
+            lower = Math.max( lower, values[ i ] );
+        return ( lower + upper ) / 2.0;
     }
 
-    private static < A extends Annotation > void computeEuclidanDistances( AnnotationTableModel< A > tableModel, List< String > selectedColumnNames, Map< String, Double > originCoordinates, String resultColumnName )
+    // Quickselect: returns the k-th smallest value and partially
+    // orders the array such that values[ k ] holds that value,
+    // all values left of k are smaller or equal and all values
+    // right of k are larger or equal.
+    private static double select( double[] values, int k )
     {
-        // Compute Euclidean distances
-        List< A > annotations = tableModel.annotations();
-
-        annotations.parallelStream().forEach(annotation -> {
-            double sumOfSquares = 0.0;
-            for (String column : selectedColumnNames) {
-                final double value = annotation.getNumber(column).doubleValue();
-                final double origin = originCoordinates.get(column);
-                sumOfSquares += Math.pow(value - origin, 2);
+        int left = 0;
+        int right = values.length - 1;
+        while ( left < right )
+        {
+            final double pivot = values[ ( left + right ) >>> 1 ];
+            int i = left;
+            int j = right;
+            while ( i <= j )
+            {
+                while ( values[ i ] < pivot ) i++;
+                while ( values[ j ] > pivot ) j--;
+                if ( i <= j )
+                {
+                    final double tmp = values[ i ];
+                    values[ i ] = values[ j ];
+                    values[ j ] = tmp;
+                    i++;
+                    j--;
+                }
             }
-            final double euclideanDistance = Math.sqrt(sumOfSquares);
-            annotation.setNumber(resultColumnName, euclideanDistance);
-        });
 
+            if ( k <= j )
+                right = j;
+            else if ( k >= i )
+                left = i;
+            else
+                break;
+        }
+        return values[ k ];
     }
 
-    private static <A extends Annotation> void computeCosineDistances(AnnotationTableModel<A> tableModel, List<String>
-            selectedColumnNames, Map<String, Double> originCoordinates, String resultColumnName)
+    public static double[] computeDistances( double[][] features, double[] referenceValues, DistanceMetric distanceMetric )
     {
-        List< A > annotations = tableModel.annotations();
+        final int numRows = features.length == 0 ? 0 : features[ 0 ].length;
+        final double[] distances = new double[ numRows ];
+        final int numBlocks = ( numRows + BLOCK_SIZE - 1 ) / BLOCK_SIZE;
 
-        annotations.parallelStream().forEach( annotation ->
+        IntStream.range( 0, numBlocks ).parallel().forEach( blockIndex ->
         {
-            double dotProduct = 0.0;
-            double normA = 0.0;
-            double normB = 0.0;
-
-            for ( String column : selectedColumnNames )
+            final int start = blockIndex * BLOCK_SIZE;
+            final int end = Math.min( start + BLOCK_SIZE, numRows );
+            switch ( distanceMetric )
             {
-                final double value = annotation.getNumber( column ).doubleValue();
-                final double origin = originCoordinates.get( column );
+                case Euclidian:
+                    computeEuclidianDistances( features, referenceValues, start, end, distances );
+                    break;
+                case Cosine:
+                default:
+                    computeCosineDistances( features, referenceValues, start, end, distances );
+                    break;
+            }
+        } );
 
-                dotProduct += value * origin;
-                normA += Math.pow( value, 2 );
-                normB += Math.pow( origin, 2 );
+        return distances;
+    }
+
+    // The inner loops run over contiguous arrays without
+    // dependencies between iterations, such that the JIT
+    // can vectorise them.
+    private static void computeEuclidianDistances( double[][] features, double[] origin, int start, int end, double[] distances )
+    {
+        final int size = end - start;
+        final double[] sumOfSquares = new double[ size ];
+        for ( int featureIndex = 0; featureIndex < features.length; featureIndex++ )
+        {
+            final double[] values = features[ featureIndex ];
+            final double originValue = origin[ featureIndex ];
+            for ( int i = 0; i < size; i++ )
+            {
+                final double difference = values[ start + i ] - originValue;
+                sumOfSquares[ i ] += difference * difference;
             }
+        }
+
+        for ( int i = 0; i < size; i++ )
+            distances[ start + i ] = Math.sqrt( sumOfSquares[ i ] );
+    }
 
-            normA = Math.sqrt( normA );
-            normB = Math.sqrt( normB );
+    private static void computeCosineDistances( double[][] features, double[] origin, int start, int end, double[] distances )
+    {
+        double normB = 0.0;
+        for ( double originValue : origin )
+            normB += originValue * originValue;
+        normB = Math.sqrt( normB );
 
-            final double cosineSimilarity = dotProduct / ( normA * normB );
+        final int size = end - start;
+        final double[] dotProducts = new double[ size ];
+        final double[] normsA = new double[ size ];
+        for ( int featureIndex = 0; featureIndex < features.length; featureIndex++ )
+        {
+            final double[] values = features[ featureIndex ];
+            final double originValue = origin[ featureIndex ];
+            for ( int i = 0; i < size; i++ )
+            {
+                final double value = values[ start + i ];
+                dotProducts[ i ] += value * originValue;
+                normsA[ i ] += value * value;
+            }
+        }
+
+        for ( int i = 0; i < size; i++ )
+        {
+            final double cosineSimilarity = dotProducts[ i ] / ( Math.sqrt( normsA[ i ] ) * normB );
             // Cosine distance is defined as 1 - cosine similarity
-            final double cosineDistance = 1 - cosineSimilarity;
+            distances[ start + i ] = 1 - cosineSimilarity;
+        }
+    }
 
-            annotation.setNumber( resultColumnName, cosineDistance );
-        } );
+    // Returns the row indices of the k smallest distances,
+    // sorted by increasing distance.
+    // Uses a bounded max-heap, such that only k rows are kept.
+    public static int[] nearestRows( double[] distances, int k )
+    {
+        k = Math.min( k, distances.length );
+        final int[] heap = new int[ k ];
+        int heapSize = 0;
+        for ( int rowIndex = 0; rowIndex < distances.length; rowIndex++ )
+        {
+            final double distance = distances[ rowIndex ];
+            if ( Double.isNaN( distance ) )
+                continue;
+
+            if ( heapSize < k )
+            {
+                // sift up
+                int child = heapSize++;
+                while ( child > 0 )
+                {
+                    final int parent = ( child - 1 ) / 2;
+                    if ( distances[ heap[ parent ] ] >= distance ) break;
+                    heap[ child ] = heap[ parent ];
+                    child = parent;
+                }
+                heap[ child ] = rowIndex;
+            }
+            else if ( k > 0 && distance < distances[ heap[ 0 ] ] )
+            {
+                siftDown( heap, heapSize, rowIndex, distances );
+            }
+        }
+
+        // sort the heap by increasing distance
+        final int[] nearestRows = new int[ heapSize ];
+        for ( int i = heapSize - 1; i >= 0; i-- )
+        {
+            nearestRows[ i ] = heap[ 0 ];
+            siftDown( heap, i, heap[ i ], distances );
+        }
+        return nearestRows;
+    }
+
+    // Replaces the root of the max-heap by the given row and restores the heap order.
+    private static void siftDown( int[] heap, int heapSize, int rowIndex, double[] distances )
+    {
+        final double distance = distances[ rowIndex ];
+        int parent = 0;
+        while ( true )
+        {
+            int child = 2 * parent + 1;
+            if ( child >= heapSize ) break;
+            if ( child + 1 < heapSize && distances[ heap[ child + 1 ] ] > distances[ heap[ child ] ] )
+                child++;
+            if ( distances[ heap[ child ] ] <= distance ) break;
+            heap[ parent ] = heap[ child ];
+            parent = child;
+        }
+        if ( heapSize > 0 )
+            heap[ parent ] = rowIndex;
     }
 }
@@ -105,12 +105,15 @@ public class SwingTableModel implements TableModel
 		final Class< ? > columnClass = getColumnClass( columnIndex );
 		if ( columnClass.equals( String.class ) )
 		{
-			tableModel.annotations().get( rowIndex ).setString( columnName, aValue.toString() );
+			tableModel.annotation( rowIndex ).setString( columnName, aValue.toString() );
 		}
 		else if ( columnClass.isAssignableFrom( Number.class ) )
 		{
-			tableModel.annotations().get( rowIndex ).setNumber( columnName, ( Double ) aValue );
+			tableModel.annotation( rowIndex ).setNumber( columnName, ( Double ) aValue );
 		}
+
+		for ( TableModelListener listener : tableModelListeners )
+			listener.tableChanged( new TableModelEvent( this, rowIndex, rowIndex, columnIndex ) );
 	}
 
 	@Override
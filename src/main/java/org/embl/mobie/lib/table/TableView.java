@@ -50,14 +50,17 @@ import org.embl.mobie.lib.select.SelectionModel;
 import org.embl.mobie.ui.ColumnColoringModelDialog;
 import net.imglib2.type.numeric.ARGBType;
 import org.embl.mobie.ui.UserInterfaceHelper;
+import tech.tablesaw.api.Table;
 
 import javax.swing.*;
+import javax.swing.event.TableModelEvent;
 import javax.swing.table.DefaultTableCellRenderer;
 import java.awt.*;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
@@ -81,6 +84,10 @@ public class TableView< A extends Annotation > implements SelectionListener< A >
 	private boolean controlKeyPressed;
 	private boolean doubleClick;
 
+	private static final String RESULTS_TABLE = "Results Table";
+	private static final String FILE = "File";
+	private static final String LOG_WINDOW = "Log Window";
+
 	private enum RowSelectionMode
 	{
 		None,
@@ -140,6 +147,14 @@ public class TableView< A extends Annotation > implements SelectionListener< A >
 	private void configureJTable()
 	{
 		swingTableModel = new SwingTableModel( tableModel );
+		if ( coloringModel != null )
+		{
+			// the coloring may depend on the edited values
+			swingTableModel.addTableModelListener( event -> {
+				if ( event.getType() == TableModelEvent.UPDATE && event.getFirstRow() != TableModelEvent.HEADER_ROW )
+					coloringModel.valuesChanged();
+			} );
+		}
 		jTable = new JTable( swingTableModel );
 		jTable.updateUI();
 		jTable.setPreferredScrollableViewportSize( new Dimension(500, 200) );
@@ -596,36 +611,63 @@ public class TableView< A extends Annotation > implements SelectionListener< A >
 		JMenu coloringMenu = new JMenu( "Color" );
 		addColorByColumnMenuItem( coloringMenu );
 		// TODO: add menu item to configure values that should be transparent
-		addColorLoggingMenuItem( coloringMenu );
+		addColorMapExportMenuItem( coloringMenu );
 		return coloringMenu;
 	}
 
-	private void addColorLoggingMenuItem( JMenu coloringMenu )
+	private void addColorMapExportMenuItem( JMenu coloringMenu )
 	{
-		final JMenuItem menuItem = new JMenuItem( "Log Current Color Map" );
+		final JMenuItem menuItem = new JMenuItem( "Export Current Color Map..." );
 		menuItem.addActionListener( e ->
 				new Thread( () ->
-						logCurrentValueToColorMap() ).start() );
+						exportCurrentColorMap() ).start() );
 		coloringMenu.add( menuItem );
 	}
 
-	private void logCurrentValueToColorMap()
+	private void exportCurrentColorMap()
 	{
 		String coloringColumnName = getColoringColumnName();
 
-		Logger.info( " "  );
-		Logger.info( "Column used for coloring: " + coloringColumnName );
-		Logger.info( " "  );
-		Logger.info( "Value, R, G, B"  );
+		final GenericDialog gd = new GenericDialog( "Export Color Map" );
+		gd.addChoice( "Export to", new String[]{ RESULTS_TABLE, FILE, LOG_WINDOW }, RESULTS_TABLE );
+		gd.showDialog();
+		if ( gd.wasCanceled() ) return;
+		final String exportTo = gd.getNextChoice();
+
+		final long start = System.currentTimeMillis();
+		final Table colorMap = ColorMapExporter.createColorMapTable( tableModel, coloringColumnName, coloringModel );
+		IJ.log( "Computed the color map of " + tableModel.numAnnotations() + " annotations in " + ( System.currentTimeMillis() - start ) + " ms." );
 
-		for ( int rowIndex = 0; rowIndex < tableModel.numAnnotations(); rowIndex++ )
+		switch ( exportTo )
 		{
-			final A annotation = tableModel.annotation( rowIndex );
-			final String value = annotation.getValue( coloringColumnName ).toString();
-			final ARGBType argbType = new ARGBType();
-			coloringModel.convert( annotation, argbType );
-			final int colorIndex = argbType.get();
-			Logger.info( value + ": " + ARGBType.red( colorIndex ) + ", " + ARGBType.green( colorIndex ) + ", " + ARGBType.blue( colorIndex ) );
+			case FILE:
+				final String path = UserInterfaceHelper.selectFilePath( "tsv", "color map", false );
+				if ( path == null ) return;
+				try
+				{
+					ColorMapExporter.saveAsFile( colorMap, path );
+					IJ.log( "Color map saved to " + path );
+				}
+				catch ( IOException e )
+				{
+					throw new RuntimeException( e );
+				}
+				break;
+			case LOG_WINDOW:
+				Logger.info( " "  );
+				Logger.info( "Column used for coloring: " + coloringColumnName );
+				Logger.info( " "  );
+				Logger.info( "Value, R, G, B"  );
+				for ( int rowIndex = 0; rowIndex < colorMap.rowCount(); rowIndex++ )
+					Logger.info( colorMap.stringColumn( ColorMapExporter.VALUE ).get( rowIndex ) + ": "
+							+ colorMap.intColumn( ColorMapExporter.R ).getInt( rowIndex ) + ", "
+							+ colorMap.intColumn( ColorMapExporter.G ).getInt( rowIndex ) + ", "
+							+ colorMap.intColumn( ColorMapExporter.B ).getInt( rowIndex ) );
+				break;
+			case RESULTS_TABLE:
+			default:
+				ColorMapExporter.toResultsTable( colorMap ).show( tableName + " color map" );
+				break;
 		}
 	}
 
@@ -38,11 +38,15 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 public class TransformedAnnotationTableModel< A extends Annotation, TA extends A > extends AbstractAnnotationTableModel< TA >
 {
 	private final AnnotationTableModel< A > tableModel;
 	private final AnnotationTransformer< A, TA > transformer;
+	// transformed annotations are created lazily, per row index,
+	// and kept such that their identity is stable
+	private volatile AtomicReferenceArray< TA > transformedAnnotations = new AtomicReferenceArray<>( 0 );
 	private ArrayList< TA > annotations;
 
 	public TransformedAnnotationTableModel( AnnotationTableModel< A > tableModel, AnnotationTransformer< A, TA > transformer )
@@ -78,15 +82,51 @@ public class TransformedAnnotationTableModel< A extends Annotation, TA extends A
 	@Override
 	public int rowIndexOf( TA annotation )
 	{
-		update();
-		return annotations.indexOf( annotation );
+		// only annotations that have been created can be asked for
+		final AtomicReferenceArray< TA > transformedAnnotations = this.transformedAnnotations;
+		final int length = transformedAnnotations.length();
+		for ( int rowIndex = 0; rowIndex < length; rowIndex++ )
+			if ( transformedAnnotations.get( rowIndex ) == annotation )
+				return rowIndex;
+
+		return -1;
 	}
 
 	@Override
 	public TA annotation( int rowIndex )
 	{
-		update();
-		return annotations.get( rowIndex );
+		// lock-free for rows that have been accessed already
+		final AtomicReferenceArray< TA > transformedAnnotations = this.transformedAnnotations;
+		if ( rowIndex < transformedAnnotations.length() )
+		{
+			final TA annotation = transformedAnnotations.get( rowIndex );
+			if ( annotation != null )
+				return annotation;
+		}
+
+		return createAnnotation( rowIndex );
+	}
+
+	private synchronized TA createAnnotation( int rowIndex )
+	{
+		if ( rowIndex >= transformedAnnotations.length() )
+		{
+			// the wrapped table may have grown, e.g. due to lazy loading
+			final int numAnnotations = Math.max( rowIndex + 1, tableModel.numAnnotations() );
+			final AtomicReferenceArray< TA > resized = new AtomicReferenceArray<>( numAnnotations );
+			for ( int i = 0; i < transformedAnnotations.length(); i++ )
+				resized.set( i, transformedAnnotations.get( i ) );
+			transformedAnnotations = resized;
+		}
+
+		TA annotation = transformedAnnotations.get( rowIndex );
+		if ( annotation == null )
+		{
+			annotation = transformer.transform( tableModel.annotation( rowIndex ) );
+			transformedAnnotations.set( rowIndex, annotation );
+		}
+
+		return annotation;
 	}
 
 	@Override
@@ -117,7 +157,22 @@ public class TransformedAnnotationTableModel< A extends Annotation, TA extends A
 	@Override
 	public Pair< Double, Double > getMinMax( String columnName )
 	{
-		return getColumnMinMax( columnName, annotations() );
+		// the transformation does not change the features
+		return tableModel.getMinMax( columnName );
+	}
+
+	@Override
+	public double[] getNumbers( String columnName )
+	{
+		// the transformed annotations share the
+		// features and the order of the wrapped ones
+		return tableModel.getNumbers( columnName );
+	}
+
+	@Override
+	public void setNumbers( String columnName, double[] values )
+	{
+		tableModel.setNumbers( columnName, values );
 	}
 
 	@Override
@@ -127,18 +182,18 @@ public class TransformedAnnotationTableModel< A extends Annotation, TA extends A
 		return annotations;
 	}
 
+	// Materialises the transformed annotations of all rows.
+	// This is only needed for consumers that need all of them,
+	// such as the table view; the rendering only creates the
+	// transformed annotations of the rows that are accessed.
 	private synchronized void update()
 	{
 		if ( annotations == null )
 		{
-			annotations = new ArrayList<>();
-
 			final int numAnnotations = tableModel.numAnnotations();
+			annotations = new ArrayList<>( numAnnotations );
 			for ( int rowIndex = 0; rowIndex < numAnnotations; rowIndex++ )
-			{
-				final TA transformedAnnotation = transformer.transform( tableModel.annotation( rowIndex ) );
-				annotations.add( transformedAnnotation );
-			}
+				annotations.add( annotation( rowIndex ) );
 
 			for ( AnnotationListener< TA > listener : listeners.list )
 				listener.annotationsAdded( annotations );
@@ -75,6 +75,7 @@ public abstract class AbstractTableSawAnnotation implements Annotation
 	public void setNumber( String columnName, double value )
 	{
 		model.getTable().doubleColumn( columnName ).set( rowIndex, value );
+		model.columnValuesChanged( columnName );
 	}
 
 }
@@ -30,42 +30,29 @@ package org.embl.mobie.lib.table.saw;
 
 import net.imglib2.realtransform.AffineTransform3D;
 import org.embl.mobie.lib.annotation.AnnotatedSegment;
-import net.imglib2.FinalRealInterval;
 import net.imglib2.RealInterval;
-import org.embl.mobie.lib.table.ColumnNames;
 import org.embl.mobie.lib.volume.MeshTransformer;
 
+// A thin view on one row of a segment table.
+// The spatial properties are stored in primitive columns,
+// which are shared by all segments of the table, and the
+// uuid is derived on demand. This keeps the memory footprint
+// low for tables with millions of segments.
 public class TableSawAnnotatedSegment extends AbstractTableSawAnnotation implements AnnotatedSegment
 {
-	private static final String[] idColumns = new String[]{ ColumnNames.LABEL_ID, ColumnNames.TIMEPOINT };
-
-	private final int timePoint;
-	private final int labelId;
-	private final double[] position;
-	private RealInterval boundingBox;
+	private final TableSawSegmentColumns columns;
+	private RealInterval boundingBox; // only set if it is not available from the columns
 	private float[] mesh;
-	private String source;
-	private String uuid;
 
 	// TODO only the model is TableSaw specific
 	//   all the other code is generic and could be reused to open other tables
-	public TableSawAnnotatedSegment(
+	TableSawAnnotatedSegment(
 			TableSawAnnotationTableModel< TableSawAnnotatedSegment > model,
 			int rowIndex,
-			String source,
-			String uuid,
-			Integer labelId,
-			int timePoint,
-			double[] position,
-			FinalRealInterval boundingBox )
+			TableSawSegmentColumns columns )
 	{
 		super( model, rowIndex );
-		this.source = source;
-		this.uuid = uuid;
-		this.labelId = labelId;
-		this.timePoint = timePoint;
-		this.position = position;
-		this.boundingBox = boundingBox;
+		this.columns = columns;
 	}
 
 	@Override
@@ -77,31 +64,36 @@ public class TableSawAnnotatedSegment extends AbstractTableSawAnnotation impleme
 	@Override
 	public int label()
 	{
-		return labelId;
+		return columns.labelId( rowIndex );
 	}
 
 	@Override
 	public Integer timePoint()
 	{
-		return timePoint;
+		return columns.timePoint( rowIndex );
 	}
 
 	@Override
 	public double[] positionAsDoubleArray()
 	{
+		final double[] position = new double[ 3 ];
+		columns.position( rowIndex, position );
 		return position;
 	}
 
 	@Override
 	public double getDoublePosition( int d )
 	{
-		return position[ d ];
+		return columns.position( rowIndex, d );
 	}
 
 	@Override
 	public RealInterval boundingBox()
 	{
-		return boundingBox;
+		if ( boundingBox != null )
+			return boundingBox;
+
+		return columns.boundingBox( rowIndex );
 	}
 
 	@Override
@@ -125,20 +117,19 @@ public class TableSawAnnotatedSegment extends AbstractTableSawAnnotation impleme
 	@Override
 	public String uuid()
 	{
-		return uuid;
+		return source() + ";" + columns.timePoint( rowIndex ) + ";" + columns.labelId( rowIndex );
 	}
 
 	@Override
 	public String source()
 	{
-		return source;
+		return columns.source( rowIndex );
 	}
 
 	@Override
 	public void transform( AffineTransform3D affineTransform3D )
 	{
-		if ( position != null )
-			affineTransform3D.apply( position, position );
+		columns.transform( rowIndex, affineTransform3D );
 
 		if ( boundingBox != null )
 			boundingBox = affineTransform3D.estimateBounds( boundingBox );
@@ -150,6 +141,6 @@ public class TableSawAnnotatedSegment extends AbstractTableSawAnnotation impleme
 	@Override
 	public int numDimensions()
 	{
-		return positionAsDoubleArray().length;
+		return 3;
 	}
 }
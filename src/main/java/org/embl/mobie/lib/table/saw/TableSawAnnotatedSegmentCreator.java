@@ -28,9 +28,7 @@
  */
 package org.embl.mobie.lib.table.saw;
 
-import net.imglib2.FinalRealInterval;
 import org.embl.mobie.lib.table.TableDataFormat;
-import org.embl.mobie.lib.table.columns.MicrogliaSegmentColumnNames;
 import org.embl.mobie.lib.table.columns.SegmentColumnNames;
 import tech.tablesaw.api.Table;
 
@@ -54,6 +52,7 @@ public class TableSawAnnotatedSegmentCreator implements TableSawAnnotationCreato
 	private boolean is3D;
 	private boolean hasBoundingBox;
 	private ArrayList< String > idColumns;
+	private volatile TableSawSegmentColumns columns;
 
 	public TableSawAnnotatedSegmentCreator( @Nullable Table table )
 	{
@@ -103,32 +102,32 @@ public class TableSawAnnotatedSegmentCreator implements TableSawAnnotationCreato
 	@Override
 	public TableSawAnnotatedSegment create( TableSawAnnotationTableModel< TableSawAnnotatedSegment > model, int rowIndex )
 	{
-		final Table table = model.getTable();
+		if ( columns == null )
+			initSegmentColumns( model.getTable() );
 
-		if ( ! columnsInitialised.get() )
-			initColumns( table );
-
-		Integer labelId = table.intColumn( labelIdColumnIndex ).get( rowIndex );
-
-		String source = labelImageColumnIndex > -1 ? table.stringColumn( labelImageColumnIndex ).get( rowIndex ) : table.name();
-
-		int timePoint = timePointColumnIndex > -1 ? table.intColumn( timePointColumnIndex ).get( rowIndex ) : 0;
-
-		if ( timePointColumnIndex > -1 && segmentColumnNames.timePointsAreOneBased()  )
-			timePoint -= 1;
-
-		final FinalRealInterval boundingBox = boundingBox( table, rowIndex );
+		return new TableSawAnnotatedSegment( model, rowIndex, columns );
+	}
 
-		// TODO do we want to support missing anchor columns?
-		double[] position = new double[]{
-				table.numberColumn( anchorColumnIndices[ 0 ] ).getDouble( rowIndex ),
-				table.numberColumn( anchorColumnIndices[ 1 ] ).getDouble( rowIndex ),
-				is3D ? table.numberColumn( anchorColumnIndices[ 2 ] ).getDouble( rowIndex ) : 0
-		};
+	// Reads the columns that are needed to create the segments
+	// once for all rows into primitive arrays.
+	private synchronized void initSegmentColumns( Table table )
+	{
+		if ( columns != null ) return;
 
-		final String uuid = source + ";" + timePoint + ";" + labelId;
+		if ( ! columnsInitialised.get() )
+			initColumns( table );
 
-		return new TableSawAnnotatedSegment( model, rowIndex, source, uuid, labelId, timePoint, position, boundingBox );
+		columns = new TableSawSegmentColumns(
+				table,
+				labelIdColumnIndex,
+				timePointColumnIndex,
+				segmentColumnNames.timePointsAreOneBased(),
+				labelImageColumnIndex,
+				anchorColumnIndices,
+				bbMinColumnIndices,
+				bbMaxColumnIndices,
+				is3D,
+				hasBoundingBox );
 	}
 
 	@Override
@@ -137,30 +136,6 @@ public class TableSawAnnotatedSegmentCreator implements TableSawAnnotationCreato
 		return new int[ 0 ];
 	}
 
-	private FinalRealInterval boundingBox( Table table, int rowIndex )
-	{
-		if ( ! hasBoundingBox ) return null;
-
-		// TODO: if we want to support this for IJ ParticleAnalyzer ResultsTable
-		//  we need to do some math, because it is given as min and size.
-
-		final double[] min = {
-				table.numberColumn( bbMinColumnIndices[ 0 ] ).getDouble( rowIndex ),
-				table.numberColumn( bbMinColumnIndices[ 1 ] ).getDouble( rowIndex ),
-				is3D ? table.numberColumn( bbMinColumnIndices[ 2 ] ).getDouble( rowIndex ) : 0
-		};
-
-		final double[] max = {
-				table.numberColumn( bbMaxColumnIndices[ 0 ] ).getDouble( rowIndex ),
-				table.numberColumn( bbMaxColumnIndices[ 1 ] ).getDouble( rowIndex ),
-				is3D ? table.numberColumn( bbMaxColumnIndices[ 2 ] ).getDouble( rowIndex ) : 0
-		};
-
-		final FinalRealInterval boundingBox = new FinalRealInterval( min, max );
-
-		return boundingBox;
-	}
-
 	@Override
 	public List< String > getIDColumns()
 	{
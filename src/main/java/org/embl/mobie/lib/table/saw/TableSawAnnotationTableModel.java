@@ -31,6 +31,7 @@ package org.embl.mobie.lib.table.saw;
 import ij.IJ;
 import net.imglib2.realtransform.AffineTransform3D;
 import net.imglib2.util.Pair;
+import net.imglib2.util.ValuePair;
 import org.embl.mobie.io.util.IOHelper;
 import org.embl.mobie.lib.annotation.Annotation;
 import org.embl.mobie.lib.io.Status;
@@ -41,6 +42,7 @@ import org.embl.mobie.lib.table.DefaultValues;
 import org.embl.mobie.lib.table.TableDataFormat;
 import tech.tablesaw.api.ColumnType;
 import tech.tablesaw.api.DoubleColumn;
+import tech.tablesaw.api.NumericColumn;
 import tech.tablesaw.api.StringColumn;
 import tech.tablesaw.api.Table;
 
@@ -52,7 +54,9 @@ import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 public class TableSawAnnotationTableModel< A extends Annotation > extends AbstractAnnotationTableModel< A >
@@ -70,6 +74,7 @@ public class TableSawAnnotationTableModel< A extends Annotation > extends Abstra
 	private boolean updateTransforms = false;
 	private final StorageLocation storageLocation;
 	private final TableDataFormat tableDataFormat;
+	private final Map< String, Pair< Double, Double > > columnToMinMax = new ConcurrentHashMap<>();
 
 	public TableSawAnnotationTableModel(
 			String name,
@@ -132,6 +137,8 @@ public class TableSawAnnotationTableModel< A extends Annotation > extends Abstra
 
 		if ( columnsAdded )
 		{
+			// joined columns may have replaced existing ones
+			columnToMinMax.clear();
 			for ( AnnotationListener< A > listener : listeners.list )
 				listener.columnsAdded( null );
 		}
@@ -274,6 +281,13 @@ public class TableSawAnnotationTableModel< A extends Annotation > extends Abstra
 	{
 		update();
 
+		if ( annotation instanceof AbstractTableSawAnnotation
+				&& ( ( AbstractTableSawAnnotation ) annotation ).model == this )
+		{
+			// the annotations of this model are views on its rows
+			return ( ( AbstractTableSawAnnotation ) annotation ).rowIndex;
+		}
+
 		// TODO a Map may be more efficient, but
 		//   since this method is not called very frequently
 		//   the current implementation may do, and avoid building the map,
@@ -288,6 +302,16 @@ public class TableSawAnnotationTableModel< A extends Annotation > extends Abstra
 		return annotations.indexOf( annotation );
 	}
 
+	@Override
+	public int fastRowIndexOf( A annotation )
+	{
+		if ( annotation instanceof AbstractTableSawAnnotation
+				&& ( ( AbstractTableSawAnnotation ) annotation ).model == this )
+			return ( ( AbstractTableSawAnnotation ) annotation ).rowIndex;
+
+		return -1;
+	}
+
 	@Override
 	public synchronized A annotation( int rowIndex )
 	{
@@ -325,7 +349,62 @@ public class TableSawAnnotationTableModel< A extends Annotation > extends Abstra
 	@Override
 	public Pair< Double, Double > getMinMax( String columnName )
 	{
-		return getColumnMinMax( columnName, annotations() );
+		update();
+
+		// cached, because this is called for each contrast
+		// adjustment and also when merging the statistics
+		// of concatenated tables
+		return columnToMinMax.computeIfAbsent( columnName, this::computeMinMax );
+	}
+
+	private Pair< Double, Double > computeMinMax( String columnName )
+	{
+		final NumericColumn< ? > column = table.numberColumn( columnName );
+		final int rowCount = column.size();
+		double min = Double.MAX_VALUE;
+		double max = -min;
+		for ( int rowIndex = 0; rowIndex < rowCount; rowIndex++ )
+		{
+			final double value = column.getDouble( rowIndex );
+
+			if ( value > max )
+				max = value;
+
+			if ( value < min )
+				min = value;
+		}
+
+		return new ValuePair<>( min, max );
+	}
+
+	@Override
+	public synchronized double[] getNumbers( String columnName )
+	{
+		update();
+
+		final NumericColumn< ? > column = table.numberColumn( columnName );
+		final double[] values = new double[ column.size() ];
+		for ( int rowIndex = 0; rowIndex < values.length; rowIndex++ )
+			values[ rowIndex ] = column.getDouble( rowIndex );
+		return values;
+	}
+
+	@Override
+	public synchronized void setNumbers( String columnName, double[] values )
+	{
+		update();
+
+		if ( values.length != table.rowCount() )
+			throw new IllegalArgumentException( "Expected " + table.rowCount() + " values for column " + columnName + ", but got " + values.length );
+
+		table.replaceColumn( columnName, DoubleColumn.create( columnName, values ) );
+		columnValuesChanged( columnName );
+	}
+
+	// Must be called when the values of a column have been modified.
+	void columnValuesChanged( String columnName )
+	{
+		columnToMinMax.remove( columnName );
 	}
 
 	@Override
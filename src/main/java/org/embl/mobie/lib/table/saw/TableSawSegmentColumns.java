@@ -0,0 +1,199 @@
+/*-
+ * #%L
+ * Fiji viewer for MoBIE projects
+ * %%
+ * Copyright (C) 2018 - 2024 EMBL
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.embl.mobie.lib.table.saw;
+
+import net.imglib2.FinalRealInterval;
+import net.imglib2.RealInterval;
+import net.imglib2.realtransform.AffineTransform3D;
+import tech.tablesaw.api.IntColumn;
+import tech.tablesaw.api.NumericColumn;
+import tech.tablesaw.api.StringColumn;
+import tech.tablesaw.api.Table;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+// Primitive, column oriented storage of the spatial properties
+// of all segments of one table.
+// This is backing the {@code TableSawAnnotatedSegment}s, which
+// are thin views on one row index of this storage.
+// In contrast to the table itself, the positions and bounding boxes
+// stored here are modified when the annotations are transformed.
+class TableSawSegmentColumns
+{
+	private final int[] labelIds;
+	private final int[] timePoints; // null if there is no time point column
+	private final String[] sourceDictionary;
+	private final int[] sourceIndices; // null if there is only one source
+	private final double[] positions; // 3 values per row
+	private final double[] bbMins; // 3 values per row; null if there is no bounding box
+	private final double[] bbMaxs; // 3 values per row; null if there is no bounding box
+
+	TableSawSegmentColumns(
+			Table table,
+			int labelIdColumnIndex,
+			int timePointColumnIndex,
+			boolean timePointsAreOneBased,
+			int labelImageColumnIndex,
+			int[] anchorColumnIndices,
+			int[] bbMinColumnIndices,
+			int[] bbMaxColumnIndices,
+			boolean is3D,
+			boolean hasBoundingBox )
+	{
+		final int rowCount = table.rowCount();
+
+		labelIds = new int[ rowCount ];
+		final IntColumn labelIdColumn = table.intColumn( labelIdColumnIndex );
+		for ( int rowIndex = 0; rowIndex < rowCount; rowIndex++ )
+			labelIds[ rowIndex ] = labelIdColumn.getInt( rowIndex );
+
+		if ( timePointColumnIndex > -1 )
+		{
+			timePoints = new int[ rowCount ];
+			final IntColumn timePointColumn = table.intColumn( timePointColumnIndex );
+			final int offset = timePointsAreOneBased ? 1 : 0;
+			for ( int rowIndex = 0; rowIndex < rowCount; rowIndex++ )
+				timePoints[ rowIndex ] = timePointColumn.getInt( rowIndex ) - offset;
+		}
+		else
+		{
+			timePoints = null;
+		}
+
+		if ( labelImageColumnIndex > -1 )
+		{
+			// dictionary encode the sources, as there are
+			// typically only very few different ones
+			final Map< String, Integer > sourceToIndex = new HashMap<>();
+			final ArrayList< String > sources = new ArrayList<>();
+			sourceIndices = new int[ rowCount ];
+			final StringColumn sourceColumn = table.stringColumn( labelImageColumnIndex );
+			for ( int rowIndex = 0; rowIndex < rowCount; rowIndex++ )
+			{
+				final String source = sourceColumn.get( rowIndex );
+				Integer sourceIndex = sourceToIndex.get( source );
+				if ( sourceIndex == null )
+				{
+					sourceIndex = sources.size();
+					sources.add( source );
+					sourceToIndex.put( source, sourceIndex );
+				}
+				sourceIndices[ rowIndex ] = sourceIndex;
+			}
+			sourceDictionary = sources.toArray( new String[ 0 ] );
+		}
+		else
+		{
+			sourceIndices = null;
+			sourceDictionary = new String[]{ table.name() };
+		}
+
+		// TODO do we want to support missing anchor columns?
+		positions = readXYZ( table, anchorColumnIndices, is3D );
+
+		// TODO: if we want to support this for IJ ParticleAnalyzer ResultsTable
+		//  we need to do some math, because it is given as min and size.
+		bbMins = hasBoundingBox ? readXYZ( table, bbMinColumnIndices, is3D ) : null;
+		bbMaxs = hasBoundingBox ? readXYZ( table, bbMaxColumnIndices, is3D ) : null;
+	}
+
+	private static double[] readXYZ( Table table, int[] columnIndices, boolean is3D )
+	{
+		final int rowCount = table.rowCount();
+		final double[] xyz = new double[ 3 * rowCount ];
+		final int numDimensions = is3D ? 3 : 2;
+		for ( int d = 0; d < numDimensions; d++ )
+		{
+			final NumericColumn< ? > column = table.numberColumn( columnIndices[ d ] );
+			for ( int rowIndex = 0; rowIndex < rowCount; rowIndex++ )
+				xyz[ 3 * rowIndex + d ] = column.getDouble( rowIndex );
+		}
+		return xyz;
+	}
+
+	int labelId( int rowIndex )
+	{
+		return labelIds[ rowIndex ];
+	}
+
+	int timePoint( int rowIndex )
+	{
+		return timePoints == null ? 0 : timePoints[ rowIndex ];
+	}
+
+	String source( int rowIndex )
+	{
+		return sourceIndices == null ? sourceDictionary[ 0 ] : sourceDictionary[ sourceIndices[ rowIndex ] ];
+	}
+
+	double position( int rowIndex, int d )
+	{
+		return positions[ 3 * rowIndex + d ];
+	}
+
+	void position( int rowIndex, double[] position )
+	{
+		System.arraycopy( positions, 3 * rowIndex, position, 0, 3 );
+	}
+
+	boolean hasBoundingBox()
+	{
+		return bbMins != null;
+	}
+
+	RealInterval boundingBox( int rowIndex )
+	{
+		if ( bbMins == null ) return null;
+
+		final double[] min = new double[ 3 ];
+		final double[] max = new double[ 3 ];
+		System.arraycopy( bbMins, 3 * rowIndex, min, 0, 3 );
+		System.arraycopy( bbMaxs, 3 * rowIndex, max, 0, 3 );
+		return new FinalRealInterval( min, max );
+	}
+
+	void transform( int rowIndex, AffineTransform3D affineTransform3D )
+	{
+		final double[] position = new double[ 3 ];
+		position( rowIndex, position );
+		affineTransform3D.apply( position, position );
+		System.arraycopy( position, 0, positions, 3 * rowIndex, 3 );
+
+		if ( bbMins == null ) return;
+
+		final RealInterval boundingBox = affineTransform3D.estimateBounds( boundingBox( rowIndex ) );
+		for ( int d = 0; d < 3; d++ )
+		{
+			bbMins[ 3 * rowIndex + d ] = boundingBox.realMin( d );
+			bbMaxs[ 3 * rowIndex + d ] = boundingBox.realMax( d );
+		}
+	}
+}
@@ -36,10 +36,11 @@ import org.embl.mobie.lib.volume.MeshTransformer;
 public class AffineTransformedAnnotatedSegment< AS extends AnnotatedSegment > implements AnnotatedSegment
 {
 	private final AS annotatedSegment;
-	private final AffineTransform3D affineTransform3D;
+	// typically shared by all segments of one table,
+	// thus it must not be modified in place
+	private AffineTransform3D affineTransform3D;
 	private float[] mesh; // the transformed mesh
 	private RealInterval boundingBox; // the transformed bb
-	private double[] position; // the transformed position
 
 	public AffineTransformedAnnotatedSegment( AS annotatedSegment, AffineTransform3D affineTransform3D )
 	{
@@ -69,19 +70,19 @@ public class AffineTransformedAnnotatedSegment< AS extends AnnotatedSegment > im
 	@Override
 	public double[] positionAsDoubleArray()
 	{
-		if ( position == null )
-		{
-			position = new double[ 3 ];
-			affineTransform3D.apply( annotatedSegment.positionAsDoubleArray(), position );
-		}
-
+		final double[] position = new double[ 3 ];
+		affineTransform3D.apply( annotatedSegment.positionAsDoubleArray(), position );
 		return position;
 	}
 
 	@Override
 	public double getDoublePosition( int d )
 	{
-		return positionAsDoubleArray()[ d ];
+		// computed on demand, to not store a position per segment
+		return affineTransform3D.get( d, 0 ) * annotatedSegment.getDoublePosition( 0 )
+				+ affineTransform3D.get( d, 1 ) * annotatedSegment.getDoublePosition( 1 )
+				+ affineTransform3D.get( d, 2 ) * annotatedSegment.getDoublePosition( 2 )
+				+ affineTransform3D.get( d, 3 );
 	}
 
 	@Override
@@ -153,21 +154,18 @@ public class AffineTransformedAnnotatedSegment< AS extends AnnotatedSegment > im
 	@Override
 	public void transform( AffineTransform3D affineTransform3D )
 	{
-		if ( position != null )
-			affineTransform3D.apply( position, position );
-
 		if ( boundingBox != null )
 			boundingBox = affineTransform3D.estimateBounds( boundingBox );
 
 		if ( mesh != null )
 			mesh = MeshTransformer.transform( mesh, affineTransform3D );
 
-		this.affineTransform3D.preConcatenate( affineTransform3D );
+		this.affineTransform3D = this.affineTransform3D.copy().preConcatenate( affineTransform3D );
 	}
 
 	@Override
 	public int numDimensions()
 	{
-		return positionAsDoubleArray().length;
+		return 3;
 	}
 }
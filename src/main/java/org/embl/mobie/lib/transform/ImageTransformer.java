@@ -30,25 +30,325 @@ package org.embl.mobie.lib.transform;
 
 import net.imglib2.realtransform.AffineTransform3D;
 import net.imglib2.type.numeric.IntegerType;
+import org.embl.mobie.DataStore;
 import org.embl.mobie.lib.ThreadHelper;
 import org.embl.mobie.lib.annotation.Annotation;
-import org.embl.mobie.lib.annotation.DefaultAnnotationAdapter;
+import org.embl.mobie.lib.annotation.TransformedAnnotationAdapter;
 import org.embl.mobie.lib.image.*;
 import org.embl.mobie.lib.serialize.transformation.AffineTransformation;
+import org.embl.mobie.lib.serialize.transformation.CropTransformation;
+import org.embl.mobie.lib.serialize.transformation.GridTransformation;
+import org.embl.mobie.lib.serialize.transformation.ImageTransformation;
 import org.embl.mobie.lib.serialize.transformation.InterpolatedAffineTransformation;
+import org.embl.mobie.lib.serialize.transformation.MergedGridTransformation;
 import org.embl.mobie.lib.serialize.transformation.TimepointsTransformation;
+import org.embl.mobie.lib.serialize.transformation.Transformation;
 import org.embl.mobie.lib.table.AnnData;
+import org.embl.mobie.lib.table.ConcatenatedAnnotationTableModel;
 import sc.fiji.bdvpg.bdv.BdvHandleHelper;
 
 import javax.annotation.Nullable;
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
-import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.concurrent.Future;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 public class ImageTransformer
 {
+	/*
+	 * Applies the transformations as if one after the other.
+	 *
+	 * Transformations that do not depend on each other,
+	 * i.e. that do not read or write images that the other one
+	 * writes, are applied concurrently.
+	 */
+	public static void transform( List< Transformation > transformations )
+	{
+		final int numTransformations = transformations.size();
+		final List< CompletableFuture< Void > > futures = new ArrayList<>( numTransformations );
+
+		// for each image name, the transformation that last created it
+		// and the transformations that read it since then
+		final Map< String, CompletableFuture< Void > > nameToWriter = new HashMap<>();
+		final Map< String, List< CompletableFuture< Void > > > nameToReaders = new HashMap<>();
+		CompletableFuture< Void > barrier = null;
+
+		for ( Transformation transformation : transformations )
+		{
+			final Set< String > inputs = getInputNames( transformation );
+			final Set< String > outputs = getOutputNames( transformation );
+
+			final Set< CompletableFuture< Void > > dependencies = Collections.newSetFromMap( new IdentityHashMap<>() );
+			if ( inputs == null || outputs == null )
+			{
+				// unknown dependencies, thus wait for all previous transformations
+				dependencies.addAll( futures );
+			}
+			else
+			{
+				if ( barrier != null )
+					dependencies.add( barrier );
+
+				for ( String name : inputs )
+					if ( nameToWriter.containsKey( name ) )
+						dependencies.add( nameToWriter.get( name ) );
+
+				for ( String name : outputs )
+				{
+					if ( nameToWriter.containsKey( name ) )
+						dependencies.add( nameToWriter.get( name ) );
+					if ( nameToReaders.containsKey( name ) )
+						dependencies.addAll( nameToReaders.get( name ) );
+				}
+			}
+
+			final CompletableFuture< Void > ready = dependencies.isEmpty() ?
+					CompletableFuture.completedFuture( null ) :
+					CompletableFuture.allOf( dependencies.toArray( new CompletableFuture[ 0 ] ) );
+			final CompletableFuture< Void > future = ready.thenRunAsync( () -> transform( transformation ), ThreadHelper.executorService );
+			futures.add( future );
+
+			if ( inputs == null || outputs == null )
+			{
+				barrier = future;
+				nameToWriter.clear();
+				nameToReaders.clear();
+				continue;
+			}
+
+			for ( String name : inputs )
+				nameToReaders.computeIfAbsent( name, k -> new ArrayList<>() ).add( future );
+
+			for ( String name : outputs )
+			{
+				nameToWriter.put( name, future );
+				nameToReaders.remove( name );
+			}
+		}
+
+		try
+		{
+			CompletableFuture.allOf( futures.toArray( new CompletableFuture[ 0 ] ) ).join();
+		}
+		catch ( CompletionException e )
+		{
+			if ( e.getCause() instanceof RuntimeException )
+				throw ( RuntimeException ) e.getCause();
+			throw new RuntimeException( e.getCause() );
+		}
+	}
+
+	// null if the inputs are not known
+	private static Set< String > getInputNames( Transformation transformation )
+	{
+		final List< String > sources = transformation.getSources();
+		if ( sources == null )
+			return null;
+
+		final Set< String > inputs = new HashSet<>( sources );
+		if ( transformation instanceof MergedGridTransformation
+				&& ( ( MergedGridTransformation ) transformation ).metadataSource != null )
+			inputs.add( ( ( MergedGridTransformation ) transformation ).metadataSource );
+
+		return inputs;
+	}
+
+	// null if the outputs are not known
+	private static Set< String > getOutputNames( Transformation transformation )
+	{
+		if ( transformation instanceof ImageTransformation )
+		{
+			final Set< String > outputs = new HashSet<>();
+			for ( String source : transformation.getSources() )
+			{
+				final String transformedImageName = ( ( ImageTransformation ) transformation ).getTransformedImageName( source );
+				outputs.add( transformedImageName == null ? source : transformedImageName );
+			}
+			return outputs;
+		}
+		else if ( transformation instanceof MergedGridTransformation )
+		{
+			return Collections.singleton( ( ( MergedGridTransformation ) transformation ).getName() );
+		}
+		else if ( transformation instanceof GridTransformation )
+		{
+			final GridTransformation gridTransformation = ( GridTransformation ) transformation;
+			if ( gridTransformation.transformedNames == null )
+				return new HashSet<>( gridTransformation.getSources() );
+
+			final Set< String > outputs = new HashSet<>();
+			for ( List< String > names : gridTransformation.transformedNames )
+				outputs.addAll( names );
+			return outputs;
+		}
+		else
+		{
+			return null;
+		}
+	}
+
+	public static void transform( Transformation transformation )
+	{
+		if ( transformation instanceof ImageTransformation )
+		{
+			final List< ? extends Image< ? > > images = DataStore.getImageList( transformation.getSources() );
+
+			if ( transformation instanceof AffineTransformation )
+			{
+				final AffineTransformation affineTransformation = ( AffineTransformation ) transformation;
+
+				for ( Image< ? > image : images )
+				{
+					DataStore.addImage( ImageTransformer.affineTransform( image, affineTransformation ) );
+				}
+			}
+			else if ( transformation instanceof CropTransformation )
+			{
+				final CropTransformation cropTransformation = ( CropTransformation ) transformation;
+
+				for ( Image< ? > image : images )
+				{
+					final CroppedImage< ? > croppedImage = new CroppedImage<>(
+							image,
+							cropTransformation.getTransformedImageName( image.getName() ),
+							cropTransformation.min,
+							cropTransformation.max,
+							cropTransformation.centerAtOrigin );
+					DataStore.addImage( croppedImage );
+				}
+			}
+			else if ( transformation instanceof TimepointsTransformation )
+			{
+				final TimepointsTransformation timepointsTransformation = ( TimepointsTransformation ) transformation;
+
+				for ( Image< ? > image : images )
+				{
+					DataStore.addImage( ImageTransformer.timeTransform( image, timepointsTransformation ) );
+				}
+			}
+			else if ( transformation instanceof InterpolatedAffineTransformation )
+			{
+				InterpolatedAffineTransformation interpolatedAffineTransformation = ( InterpolatedAffineTransformation ) transformation;
+
+				for ( Image< ? > image : images )
+				{
+					DataStore.addImage( ImageTransformer.interpolatedAffineTransform( image, interpolatedAffineTransformation ) );
+				}
+			}
+			else
+			{
+				throw new UnsupportedOperationException( "Transformations of type " + transformation.getClass().getName() + " are not yet implemented.");
+			}
+		}
+		else // not an ImageTransformation
+		{
+			if ( transformation instanceof MergedGridTransformation )
+			{
+				final MergedGridTransformation mergedGridTransformation = ( MergedGridTransformation ) transformation;
+
+				List< ? extends Image< ? > > images = DataStore.getImageList( mergedGridTransformation.getSources() );
+
+//						if ( images.size() == 1 )
+//						{
+//							DataStore.addImage( images.get( 0 ) );
+//							continue;
+//						}
+
+				// Fetch grid metadata image
+				Image< ? > metadataImage = ( mergedGridTransformation.metadataSource == null ) ? images.get( 0 ) : DataStore.getImage( mergedGridTransformation.metadataSource );
+
+				// Create the stitched grid image
+				//
+				if ( images.get( 0 ) instanceof AnnotationImage )
+				{
+					final StitchedAnnotationImage< ? extends Annotation > annotatedStitchedImage
+							= new StitchedAnnotationImage<>(
+									( List ) images,
+									( Image ) metadataImage,
+									mergedGridTransformation.positions,
+									mergedGridTransformation.getName(),
+									mergedGridTransformation.margin );
+
+					if ( ! mergedGridTransformation.lazyLoadTables
+							&& annotatedStitchedImage.getAnnData().getTable() instanceof ConcatenatedAnnotationTableModel )
+					{
+						// force loading of all tables to enable meaningful
+						// row sorting and creating a meaningful scatterplot
+						final ConcatenatedAnnotationTableModel< ? extends Annotation > concatenatedTableModel = ( ConcatenatedAnnotationTableModel ) annotatedStitchedImage.getAnnData().getTable();
+						concatenatedTableModel.loadAllTables();
+					}
+
+					DataStore.addImage( annotatedStitchedImage );
+				}
+				else
+				{
+					DataStore.addImage( new StitchedImage<>(
+							( List ) images,
+							( Image ) metadataImage,
+							mergedGridTransformation.positions,
+							mergedGridTransformation.getName(),
+							mergedGridTransformation.margin,
+							mergedGridTransformation.overviewCacheDirectory == null ? null : new File( mergedGridTransformation.overviewCacheDirectory ) )
+					 );
+				}
+			}
+			else if ( transformation instanceof GridTransformation )
+			{
+				final GridTransformation gridTransformation = ( GridTransformation ) transformation;
+
+				final List< List< String > > nestedSources = gridTransformation.nestedSources;
+				final List< List< ? extends Image< ? > > > nestedImages = new ArrayList<>();
+				for ( List< String > sources : nestedSources )
+				{
+					final List< ? extends Image< ? > > images = DataStore.getImageList( sources );
+					nestedImages.add( images );
+				}
+
+				// The size of the tile of the grid is the size of the
+				// largest union mask of the images at
+				// the grid positions.
+				// The union masks are computed in parallel,
+				// because for large grids this is the bottleneck.
+				double[] tileRealDimensions = nestedImages.parallelStream()
+						.map( images -> TransformHelper.getRealDimensions( TransformHelper.union( images ) ) )
+						.reduce( new double[ 2 ], ( a, b ) -> new double[]{ Math.max( a[ 0 ], b[ 0 ] ), Math.max( a[ 1 ], b[ 1 ] ) } );
+
+				// Add a margin to the tiles
+				for ( int d = 0; d < 2; d++ )
+				{
+					tileRealDimensions[ d ] = tileRealDimensions[ d ] * ( 1.0 + 2 * gridTransformation.margin );
+				}
+
+				// Compute the corresponding offset of where to place
+				// the images within the tile
+				final double[] offset = new double[ 2 ];
+				for ( int d = 0; d < 2; d++ )
+				{
+					offset[ d ] = tileRealDimensions[ d ] * gridTransformation.margin;
+				}
+
+				final List< int[] > gridPositions = gridTransformation.positions == null ? TransformHelper.createGridPositions( nestedSources.size() ) : gridTransformation.positions;
+
+				final List< ? extends Image< ? > > transformedImages = ImageTransformer.gridTransform( nestedImages, gridTransformation.transformedNames, gridPositions, tileRealDimensions, gridTransformation.centerAtOrigin, offset );
+
+				DataStore.putImages( transformedImages );
+			}
+			else
+			{
+				throw new UnsupportedOperationException( "Transformations of type " + transformation.getClass().getName() + " are not yet implemented.");
+			}
+		}
+	}
+
 	public static Image< ? > affineTransform( Image< ? > image, AffineTransformation affineTransformation )
 	{
 		String transformedImageName = affineTransformation.getTransformedImageName( image.getName() );
@@ -121,45 +421,30 @@ public class ImageTransformer
 
 		TransformedAnnData< A, TA > transformedAnnData = new TransformedAnnData<>( annData, affineTransformer );
 
-		final DefaultAnnotationAdapter< TA > annotationAdapter = new DefaultAnnotationAdapter<>( transformedAnnData, annotatedLabelImage.getName() );
+		final TransformedAnnotationAdapter< A, TA > annotationAdapter = new TransformedAnnotationAdapter<>( annData, transformedAnnData, annotatedLabelImage.getName() );
 
 		final Image< ? extends IntegerType< ? > > transformedLabelImage = ( Image< ? extends IntegerType< ? > > ) affineTransform( labelImage, affineTransformation );
 
         return new DefaultAnnotationLabelImage< TA >( transformedLabelImage, transformedAnnData, annotationAdapter );
 	}
 
+	// Uses a parallel stream rather than the ThreadHelper.executorService,
+	// because this may be called from within a transformation
+	// that already runs on the executorService.
 	public static List< ? extends Image< ? > > gridTransform( List< List< ? extends Image< ? > > > nestedImages, @Nullable List< List< String > > nestedTransformedNames, List< int[] > positions, double[] tileRealDimensions, boolean centerAtOrigin, double[] withinTileOffset )
 	{
-		final CopyOnWriteArrayList< ? extends Image< ? > > transformedImages = new CopyOnWriteArrayList<>();
-
-		final ArrayList< Future< ? > > futures = ThreadHelper.getFutures();
 		final int numGridPositions = nestedImages.size();
-		for ( int gridIndex = 0; gridIndex < numGridPositions; gridIndex++ )
+		return IntStream.range( 0, numGridPositions ).parallel().mapToObj( gridIndex ->
 		{
-			int finalGridIndex = gridIndex;
-			futures.add( ThreadHelper.executorService.submit( () -> {
-				try
-				{
-					final List< ? extends Image< ? > > images = nestedImages.get( finalGridIndex );
-					final double[] translation = new double[ 2 ];
-					for ( int d = 0; d < 2; d++ )
-						translation[ d ] = tileRealDimensions[ d ] * positions.get( finalGridIndex )[ d ] + withinTileOffset[ d ];
-
-					List< String > transformedImageNames = nestedTransformedNames == null ? null : nestedTransformedNames.get( finalGridIndex );
+			final List< ? extends Image< ? > > images = nestedImages.get( gridIndex );
+			final double[] translation = new double[ 2 ];
+			for ( int d = 0; d < 2; d++ )
+				translation[ d ] = tileRealDimensions[ d ] * positions.get( gridIndex )[ d ] + withinTileOffset[ d ];
 
-					final List< ? extends Image< ? > > translatedImages = translate( images, transformedImageNames, centerAtOrigin, translation[ 0 ], translation[ 1 ] );
-
-					transformedImages.addAll( ( List ) translatedImages );
-				}
-				catch ( Exception e )
-				{
-					throw ( e );
-				}
-			} ) );
-		}
-		ThreadHelper.waitUntilFinished( futures );
+			List< String > transformedImageNames = nestedTransformedNames == null ? null : nestedTransformedNames.get( gridIndex );
 
-		return transformedImages;
+			return translate( images, transformedImageNames, centerAtOrigin, translation[ 0 ], translation[ 1 ] );
+		} ).flatMap( List::stream ).collect( Collectors.toList() );
 	}
 
 	public static ArrayList< Image< ? > > translate( List< ? extends Image< ? > > images, @Nullable List< String > transformedNames, boolean centerAtOrigin, double translationX, double translationY )
@@ -33,18 +33,18 @@ import net.imglib2.RealLocalizable;
 import net.imglib2.RealPositionable;
 import net.imglib2.realtransform.AffineTransform3D;
 import net.imglib2.realtransform.RealTransform;
-import org.jetbrains.annotations.NotNull;
 
-import java.util.Map;
+import java.util.Arrays;
 import java.util.TreeMap;
 import java.util.Map.Entry;
-import java.util.concurrent.ConcurrentHashMap;
 
 public class InterpolatedAffineRealTransform implements RealTransform {
     private final String name;
     private final AffineTransform3D globalToSource;
     private TreeMap<Double, double[]> transforms;
-    private transient final Map<Integer, AffineTransform3D> cache;
+    // precomputed from the transforms, immutable,
+    // thus it can be shared with copies
+    private transient volatile Sections sections;
 
     public InterpolatedAffineRealTransform( String name, AffineTransform3D globalToSource ) {
         this.name = name;
@@ -53,16 +53,17 @@ public class InterpolatedAffineRealTransform implements RealTransform {
         // because the z-position in the source is the key in the {@code transforms}
         this.globalToSource = globalToSource;
         transforms = new TreeMap<>();
-        cache = new ConcurrentHashMap<>();
     }
 
     public void addTransform( double z, double[] transform ) {
         transforms.put( z, transform );
+        sections = null;
     }
 
     public void addTransforms( TreeMap< Double, double[] > transforms )
     {
         this.transforms.putAll( transforms );
+        sections = null;
     }
     
     @Override
@@ -80,27 +81,27 @@ public class InterpolatedAffineRealTransform implements RealTransform {
      */
     @Override
     public void apply( double[] source, double[] target ) {
-        if (transforms.isEmpty()) throw new IllegalStateException("No transforms added.");
-        final double[] voxelPositionInSource = getVoxelPositionInSource( source );
-        final AffineTransform3D interpolatedTransform = getInterpolatedTransform( voxelPositionInSource[2] );
-        interpolatedTransform.apply(source, target);
+        final double x = source[ 0 ], y = source[ 1 ], z = source[ 2 ];
+        final Sections sections = getSections();
+        final double[] matrix = sections.matrix;
+        final int i = sections.offset( x, y, z );
+        final double dz = sections.dz( i, x, y, z );
+        target[ 0 ] = sections.apply( matrix, i, dz, 0, x, y, z );
+        target[ 1 ] = sections.apply( matrix, i, dz, 4, x, y, z );
+        target[ 2 ] = sections.apply( matrix, i, dz, 8, x, y, z );
     }
 
     @Override
     public void apply( RealLocalizable source, RealPositionable target )
     {
-        if (transforms.isEmpty()) throw new IllegalStateException("No transforms added.");
-        final double[] voxelPositionInSource = getVoxelPositionInSource( source.positionAsDoubleArray() );
-        final AffineTransform3D interpolatedTransform = getInterpolatedTransform( voxelPositionInSource[ 2 ] );
-        interpolatedTransform.apply(source, target);
-    }
-
-    @NotNull
-    private double[] getVoxelPositionInSource( double[] source )
-    {
-        final double[] voxelPositionInSource = new double[ 3 ];
-        globalToSource.apply( source, voxelPositionInSource );
-        return voxelPositionInSource;
+        final double x = source.getDoublePosition( 0 ), y = source.getDoublePosition( 1 ), z = source.getDoublePosition( 2 );
+        final Sections sections = getSections();
+        final double[] matrix = sections.matrix;
+        final int i = sections.offset( x, y, z );
+        final double dz = sections.dz( i, x, y, z );
+        target.setPosition( sections.apply( matrix, i, dz, 0, x, y, z ), 0 );
+        target.setPosition( sections.apply( matrix, i, dz, 4, x, y, z ), 1 );
+        target.setPosition( sections.apply( matrix, i, dz, 8, x, y, z ), 2 );
     }
 
     @Override
@@ -111,6 +112,7 @@ public class InterpolatedAffineRealTransform implements RealTransform {
         {
             copy.addTransform( entry.getKey(), entry.getValue() );
         }
+        copy.sections = sections;
 
         return copy;
     }
@@ -121,43 +123,116 @@ public class InterpolatedAffineRealTransform implements RealTransform {
         return false;
     }
 
-    private AffineTransform3D getInterpolatedTransform( double z )
+    // Returns the transform for the given z-position in the source,
+    // interpolated linearly between the two neighbouring key sections.
+    public AffineTransform3D getInterpolatedTransform( double z )
+    {
+        final Sections sections = getSections();
+        final int i = sections.section( z ) * 24;
+        final double dz = sections.dz( i, z );
+        final double[] interpolated = new double[ 12 ];
+        for ( int j = 0; j < 12; j++ )
+            interpolated[ j ] = sections.matrix[ i + j ] + dz * sections.matrix[ i + 12 + j ];
+        final AffineTransform3D affineTransform3D = new AffineTransform3D();
+        affineTransform3D.set( interpolated );
+        return affineTransform3D;
+    }
+
+    private Sections getSections()
     {
-        return cache.computeIfAbsent( (int) z, k -> computeInterpolatedAffineTransform3D( z ) );
+        Sections sections = this.sections;
+        if ( sections == null )
+        {
+            if ( transforms.isEmpty() ) throw new IllegalStateException("No transforms added.");
+            sections = new Sections( transforms, globalToSource );
+            this.sections = sections;
+        }
+        return sections;
     }
 
-    @NotNull
-    private AffineTransform3D computeInterpolatedAffineTransform3D( double z )
+    /*
+     * The transform within each interval between two key sections
+     * is the transform of the lower key section plus the
+     * change of the transform per unit z times the distance to it.
+     * Below the first and above the last key section the transform
+     * of that section is used, i.e. the change is zero.
+     */
+    static class Sections
     {
-        Entry< Double, double[] > floor = transforms.floorEntry( z );
-        Entry< Double, double[] > ceil = transforms.ceilingEntry( z );
+        // the lower z of each interval, the first one is -infinity
+        final double[] keys;
+        // per interval: 12 values of the transform at the key and
+        // 12 values of its change per unit z
+        final double[] matrix;
+        // the row of globalToSource that computes the z-position in the source
+        final double[] zRow = new double[ 4 ];
+
+        Sections( TreeMap< Double, double[] > transforms, AffineTransform3D globalToSource )
+        {
+            for ( int c = 0; c < 4; c++ )
+                zRow[ c ] = globalToSource.get( 2, c );
+
+            final int numKeys = transforms.size();
+            keys = new double[ numKeys + 1 ];
+            matrix = new double[ ( numKeys + 1 ) * 24 ];
+
+            final Double[] zs = transforms.keySet().toArray( new Double[ 0 ] );
+            final double[][] values = transforms.values().toArray( new double[ 0 ][] );
+
+            keys[ 0 ] = Double.NEGATIVE_INFINITY;
+            System.arraycopy( values[ 0 ], 0, matrix, 0, 12 );
+            for ( int k = 0; k < numKeys; k++ )
+            {
+                final int offset = ( k + 1 ) * 24;
+                keys[ k + 1 ] = zs[ k ];
+                System.arraycopy( values[ k ], 0, matrix, offset, 12 );
+                if ( k + 1 < numKeys )
+                {
+                    final double distance = zs[ k + 1 ] - zs[ k ];
+                    for ( int j = 0; j < 12; j++ )
+                        matrix[ offset + 12 + j ] = ( values[ k + 1 ][ j ] - values[ k ][ j ] ) / distance;
+                }
+            }
+        }
 
-        if ( floor == null || ceil == null || floor.getKey().equals( ceil.getKey() ) )
+        int section( double z )
         {
-            AffineTransform3D affineTransform3D = new AffineTransform3D();
-            if ( floor != null )
-                affineTransform3D.set( floor.getValue() );
-            else
-                affineTransform3D.set( ceil.getValue() );
-            return affineTransform3D;
+            final int index = Arrays.binarySearch( keys, z );
+            // an exact match is the start of its interval,
+            // otherwise the insertion point is after the interval
+            return index >= 0 ? index : - index - 2;
         }
-        else
+
+        int offset( double x, double y, double z )
         {
-            double t = ( z - floor.getKey() ) / ( ceil.getKey() - floor.getKey() );
-            return interpolateTransforms( floor.getValue(), ceil.getValue(), t );
+            return section( sourceZ( x, y, z ) ) * 24;
         }
-    }
 
-    private AffineTransform3D interpolateTransforms(double[] matrix1,
-                                                    double[] matrix2,
-                                                    double t) {
-            double[] interpolate = new double[ matrix1.length ];
-            for ( int i = 0; i < matrix1.length; i++ ) {
-                interpolate[ i ] = matrix1[ i ] * ( 1 - t ) + matrix2[ i ] * t;
-            }
-            AffineTransform3D interpolatedTransform = new AffineTransform3D();
-            interpolatedTransform.set( interpolate );
-            return interpolatedTransform;
+        double dz( int offset, double z )
+        {
+            final double key = keys[ offset / 24 ];
+            return key == Double.NEGATIVE_INFINITY ? 0 : z - key;
+        }
+
+        double dz( int offset, double x, double y, double z )
+        {
+            return dz( offset, sourceZ( x, y, z ) );
+        }
+
+        double sourceZ( double x, double y, double z )
+        {
+            return zRow[ 0 ] * x + zRow[ 1 ] * y + zRow[ 2 ] * z + zRow[ 3 ];
+        }
+
+        double apply( double[] matrix, int offset, double dz, int row, double x, double y, double z )
+        {
+            final int i = offset + row;
+            final int s = i + 12;
+            return ( matrix[ i ] + dz * matrix[ s ] ) * x
+                    + ( matrix[ i + 1 ] + dz * matrix[ s + 1 ] ) * y
+                    + ( matrix[ i + 2 ] + dz * matrix[ s + 2 ] ) * z
+                    + ( matrix[ i + 3 ] + dz * matrix[ s + 3 ] );
+        }
     }
 
     public String toJSON()
@@ -176,4 +251,3 @@ public class InterpolatedAffineRealTransform implements RealTransform {
         return name;
     }
 }
-
@@ -46,7 +46,7 @@ public class TransformedAnnData< A extends Annotation, TA extends Annotation > i
 	}
 
 	@Override
-	public AnnotationTableModel< TA > getTable()
+	public synchronized AnnotationTableModel< TA > getTable()
 	{
 		if ( tableModel == null )
 			tableModel = new TransformedAnnotationTableModel( annData.getTable(), annotationTransformer );
@@ -366,168 +366,18 @@ public class ViewManager
 
 		// transform images
 		// this may create new images with new names
-
-		// TODO factor this out int an image transformer class
 		final List< Transformation > transformations = view.getTransformations();
 		if ( transformations != null )
-		{
-			for ( Transformation transformation : transformations )
-			{
-				if ( transformation instanceof ImageTransformation )
-				{
-					final List< ? extends Image< ? > > images = DataStore.getImageList( transformation.getSources() );
-
-					if ( transformation instanceof AffineTransformation )
-					{
-						final AffineTransformation affineTransformation = ( AffineTransformation ) transformation;
-
-						for ( Image< ? > image : images )
-						{
-							DataStore.addImage( ImageTransformer.affineTransform( image, affineTransformation ) );
-						}
-					}
-					else if ( transformation instanceof CropTransformation )
-					{
-						final CropTransformation cropTransformation = ( CropTransformation ) transformation;
-
-						for ( Image< ? > image : images )
-						{
-							// TODO: move this into the ImageTransformer class
-							final CroppedImage< ? > croppedImage = new CroppedImage<>(
-									image,
-									cropTransformation.getTransformedImageName( image.getName() ),
-									cropTransformation.min,
-									cropTransformation.max,
-									cropTransformation.centerAtOrigin );
-							DataStore.addImage( croppedImage );
-						}
-					}
-					else if ( transformation instanceof TimepointsTransformation )
-					{
-						final TimepointsTransformation timepointsTransformation = ( TimepointsTransformation ) transformation;
-
-						for ( Image< ? > image : images )
-						{
-							DataStore.addImage( ImageTransformer.timeTransform( image, timepointsTransformation ) );
-						}
-					}
-					else if ( transformation instanceof InterpolatedAffineTransformation )
-					{
-						InterpolatedAffineTransformation interpolatedAffineTransformation = ( InterpolatedAffineTransformation ) transformation;
+			ImageTransformer.transform( transformations );
 
-						for ( Image< ? > image : images )
-						{
-							DataStore.addImage( ImageTransformer.interpolatedAffineTransform( image, interpolatedAffineTransformation ) );
-						}
-					}
-					else
-					{
-						throw new UnsupportedOperationException( "Transformations of type " + transformation.getClass().getName() + " are not yet implemented.");
-					}
-				}
-				else // not an ImageTransformation
-				{
-					if ( transformation instanceof MergedGridTransformation )
-					{
-						// TODO: move this into the ImageTransformer class
-						final MergedGridTransformation mergedGridTransformation = ( MergedGridTransformation ) transformation;
-
-						List< ? extends Image< ? > > images = DataStore.getImageList( mergedGridTransformation.getSources() );
-
-//						if ( images.size() == 1 )
-//						{
-//							DataStore.addImage( images.get( 0 ) );
-//							continue;
-//						}
-
-						// Fetch grid metadata image
-						Image< ? > metadataImage = ( mergedGridTransformation.metadataSource == null ) ? images.get( 0 ) : DataStore.getImage( mergedGridTransformation.metadataSource );
-
-						// Create the stitched grid image
-						//
-						if ( images.get( 0 ) instanceof AnnotationImage )
-						{
-							final StitchedAnnotationImage< ? extends Annotation > annotatedStitchedImage
-									= new StitchedAnnotationImage<>(
-											( List ) images,
-											( Image ) metadataImage,
-											mergedGridTransformation.positions,
-											mergedGridTransformation.getName(),
-											mergedGridTransformation.margin );
-
-							if ( ! mergedGridTransformation.lazyLoadTables
-									&& annotatedStitchedImage.getAnnData().getTable() instanceof ConcatenatedAnnotationTableModel )
-							{
-								// force loading of all tables to enable meaningful
-								// row sorting and creating a meaningful scatterplot
-								final ConcatenatedAnnotationTableModel< ? extends Annotation > concatenatedTableModel = ( ConcatenatedAnnotationTableModel ) annotatedStitchedImage.getAnnData().getTable();
-								concatenatedTableModel.loadAllTables();
-							}
-
-							DataStore.addImage( annotatedStitchedImage );
-						}
-						else
-						{
-							DataStore.addImage( new StitchedImage<>(
-									( List ) images,
-									( Image ) metadataImage,
-									mergedGridTransformation.positions,
-									mergedGridTransformation.getName(),
-									mergedGridTransformation.margin )
-							 );
-						}
-					}
-					else if ( transformation instanceof GridTransformation )
-					{
-						// FIXME: move this into the ImageTransformer class
-						final GridTransformation gridTransformation = ( GridTransformation ) transformation;
-
-						final List< List< String > > nestedSources = gridTransformation.nestedSources;
-						final List< List< ? extends Image< ? > > > nestedImages = new ArrayList<>();
-						for ( List< String > sources : nestedSources )
-						{
-							final List< ? extends Image< ? > > images = DataStore.getImageList( sources );
-							nestedImages.add( images );
-						}
-
-						// The size of the tile of the grid is the size of the
-						// largest union mask of the images at
-						// the grid positions.
-						double[] tileRealDimensions = new double[ 2 ];
-						for ( List< ? extends Image< ? > > images : nestedImages )
-						{
-							final RealMaskRealInterval unionMask = TransformHelper.union( images );
-							final double[] realDimensions = TransformHelper.getRealDimensions( unionMask );
-							for ( int d = 0; d < 2; d++ )
-								tileRealDimensions[ d ] = Math.max( realDimensions[ d ], tileRealDimensions[ d ] );
-						}
-
-						// Add a margin to the tiles
-						for ( int d = 0; d < 2; d++ )
-						{
-							tileRealDimensions[ d ] = tileRealDimensions[ d ] * ( 1.0 + 2 * gridTransformation.margin );
-						}
-
-						// Compute the corresponding offset of where to place
-						// the images within the tile
-						final double[] offset = new double[ 2 ];
-						for ( int d = 0; d < 2; d++ )
-						{
-							offset[ d ] = tileRealDimensions[ d ] * gridTransformation.margin;
-						}
-
-						final List< int[] > gridPositions = gridTransformation.positions == null ? TransformHelper.createGridPositions( nestedSources.size() ) : gridTransformation.positions;
-
-						final List< ? extends Image< ? > > transformedImages = ImageTransformer.gridTransform( nestedImages, gridTransformation.transformedNames, gridPositions, tileRealDimensions, gridTransformation.centerAtOrigin, offset );
-
-						DataStore.putImages( transformedImages );
-					}
-					else
-					{
-						throw new UnsupportedOperationException( "Transformations of type " + transformation.getClass().getName() + " are not yet implemented.");
-					}
-				}
-			}
+		if ( ! dataSources.isEmpty() )
+		{
+			// only the images that are about to be shown,
+			// using the names after the transformations
+			final Set< String > shownImages = view.displays().stream()
+					.flatMap( display -> display.getSources().stream() )
+					.collect( Collectors.toSet() );
+			moBIE.prefetchCoarsestLevels( shownImages );
 		}
 
 		// Instantiate {@code RegionDisplay}s
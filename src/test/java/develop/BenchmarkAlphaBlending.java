@@ -0,0 +1,132 @@
+/*-
+ * #%L
+ * Fiji viewer for MoBIE projects
+ * %%
+ * Copyright (C) 2018 - 2024 EMBL
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package develop;
+
+import net.imglib2.Cursor;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.img.basictypeaccess.array.IntArray;
+import net.imglib2.type.numeric.ARGBType;
+import org.embl.mobie.lib.bdv.blend.AccumulateAlphaBlendingProjectorARGB;
+
+import java.util.Random;
+
+public class BenchmarkAlphaBlending
+{
+	public static final int WIDTH = 3840;
+	public static final int HEIGHT = 2160;
+
+	public static void main( String[] args )
+	{
+		// a few distinct screen images, shared by the sources to save memory
+		final Random random = new Random( 42 );
+		final int numScreenImages = 4;
+		final ArrayImg< ARGBType, IntArray >[] screenImages = new ArrayImg[ numScreenImages ];
+		for ( int i = 0; i < numScreenImages; i++ )
+		{
+			screenImages[ i ] = ArrayImgs.argbs( WIDTH, HEIGHT );
+			final int[] pixels = screenImages[ i ].update( null ).getCurrentStorageArray();
+			for ( int p = 0; p < pixels.length; p++ )
+				pixels[ p ] = random.nextInt( 4 ) == 0 ? 0 : random.nextInt(); // some fully transparent pixels
+		}
+
+		for ( int numSources = 2; numSources <= 32; numSources *= 2 )
+		{
+			final boolean[] alphaBlending = new boolean[ numSources ];
+			final int[] order = new int[ numSources ];
+			for ( int sourceIndex = 0; sourceIndex < numSources; sourceIndex++ )
+			{
+				alphaBlending[ sourceIndex ] = sourceIndex % 2 == 0;
+				order[ sourceIndex ] = numSources - 1 - sourceIndex;
+			}
+
+			for ( int repetition = 0; repetition < 3; repetition++ )
+			{
+				final Cursor< ARGBType >[] cursors = cursors( screenImages, numSources );
+				long start = System.currentTimeMillis();
+				long checksum = 0;
+				for ( int p = 0; p < WIDTH * HEIGHT; p++ )
+				{
+					for ( Cursor< ARGBType > cursor : cursors )
+						cursor.fwd();
+					checksum += AccumulateAlphaBlendingProjectorARGB.getArgbIndex( cursors, alphaBlending, order );
+				}
+				final long integerDuration = System.currentTimeMillis() - start;
+
+				final Cursor< ARGBType >[] doubleCursors = cursors( screenImages, numSources );
+				start = System.currentTimeMillis();
+				for ( int p = 0; p < WIDTH * HEIGHT; p++ )
+				{
+					for ( Cursor< ARGBType > cursor : doubleCursors )
+						cursor.fwd();
+					checksum += getArgbIndexDouble( doubleCursors, alphaBlending, order );
+				}
+				final long doubleDuration = System.currentTimeMillis() - start;
+
+				System.out.println( numSources + " sources: integer " + integerDuration + " ms, double " + doubleDuration + " ms per 4K frame (" + checksum + ")" );
+			}
+		}
+	}
+
+	private static Cursor< ARGBType >[] cursors( ArrayImg< ARGBType, IntArray >[] screenImages, int numSources )
+	{
+		final Cursor< ARGBType >[] cursors = new Cursor[ numSources ];
+		for ( int sourceIndex = 0; sourceIndex < numSources; sourceIndex++ )
+			cursors[ sourceIndex ] = screenImages[ sourceIndex % screenImages.length ].cursor();
+		return cursors;
+	}
+
+	// the previous, floating point, compositing for comparison
+	private static int getArgbIndexDouble( Cursor< ? extends ARGBType >[] accesses, boolean[] alphaBlending, int[] order )
+	{
+		int aAccu = 0, rAccu = 0, gAccu = 0, bAccu = 0;
+
+		for ( int sourceIndex : order )
+		{
+			final int argb = accesses[ sourceIndex ].get().get();
+			final double alpha = ARGBType.alpha( argb ) / 255.0;
+			if ( alpha == 0 ) continue;
+
+			if ( alphaBlending[ sourceIndex ] )
+			{
+				aAccu *= ( 1 - alpha );
+				rAccu *= ( 1 - alpha );
+				gAccu *= ( 1 - alpha );
+				bAccu *= ( 1 - alpha );
+			}
+
+			aAccu += 255 * alpha;
+			rAccu += ARGBType.red( argb ) * alpha;
+			gAccu += ARGBType.green( argb ) * alpha;
+			bAccu += ARGBType.blue( argb ) * alpha;
+		}
+
+		return ARGBType.rgba( Math.min( 255, rAccu ), Math.min( 255, gAccu ), Math.min( 255, bAccu ), Math.min( 255, aAccu ) );
+	}
+}
@@ -0,0 +1,139 @@
+/*-
+ * #%L
+ * Fiji viewer for MoBIE projects
+ * %%
+ * Copyright (C) 2018 - 2024 EMBL
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package develop;
+
+import net.imglib2.type.numeric.ARGBType;
+import org.embl.mobie.lib.color.AbstractColoringModel;
+import org.embl.mobie.lib.color.AnnotationARGBConverter;
+import org.embl.mobie.lib.color.MobieColoringModel;
+import org.embl.mobie.lib.color.lut.ARGBLut;
+import org.embl.mobie.lib.color.lut.LUTs;
+import org.embl.mobie.lib.select.MoBIESelectionModel;
+import org.embl.mobie.lib.source.AnnotationType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/*
+ * Measures the time to convert the annotations of a 4K frame of a
+ * label image to colors, with some annotations being selected, as
+ * BDV does with several render threads.
+ * It compares converting via the colouring and selection models for
+ * each pixel with the AnnotationARGBConverter, which converts each
+ * annotation only once. The annotations are their own row index.
+ */
+public class BenchmarkAnnotationARGBConverter
+{
+	public static final int NUM_PIXELS = 3840 * 2160;
+	public static final int NUM_ANNOTATIONS = 100000;
+
+	public static void main( String[] args ) throws Exception
+	{
+		final ARGBLut lut = LUTs.getLut( LUTs.GLASBEY );
+		final AbstractColoringModel< Integer > coloringModel = new AbstractColoringModel< Integer >()
+		{
+			@Override
+			public void convert( Integer annotation, ARGBType color )
+			{
+				color.set( lut.getARGB( ( annotation * 0.618034 ) % 1.0 ) );
+			}
+		};
+
+		final MoBIESelectionModel< Integer > selectionModel = new MoBIESelectionModel<>();
+		final MobieColoringModel< Integer > mobieColoringModel = new MobieColoringModel<>( coloringModel, selectionModel, new ARGBType( ARGBType.rgba( 255, 255, 0, 255 ) ), 0.15 );
+
+		// label image of annotations, as a flat array of pixels
+		final Random random = new Random( 42 );
+		final Integer[] annotations = new Integer[ NUM_ANNOTATIONS ];
+		for ( int i = 0; i < NUM_ANNOTATIONS; i++ )
+			annotations[ i ] = i;
+		final List< AnnotationType< Integer > > pixels = new ArrayList<>( NUM_PIXELS );
+		for ( int i = 0; i < NUM_PIXELS; i++ )
+			pixels.add( new AnnotationType<>( annotations[ ( i / 50 ) % NUM_ANNOTATIONS ] ) );
+		for ( int i = 0; i < 100; i++ )
+			selectionModel.setSelected( annotations[ random.nextInt( NUM_ANNOTATIONS ) ], true );
+
+		final int numCpus = Runtime.getRuntime().availableProcessors();
+		for ( int numThreads : new int[]{ 1, 8, numCpus } )
+		{
+			final ExecutorService executorService = Executors.newFixedThreadPool( numThreads );
+			for ( int repetition = 0; repetition < 3; repetition++ )
+			{
+				final AnnotationARGBConverter< Integer > converter = new AnnotationARGBConverter<>( mobieColoringModel, annotation -> annotation );
+				converter.setOpacity( 0.5 );
+
+				final long perPixel = render( executorService, numThreads, pixels, ( pixel, color ) ->
+				{
+					mobieColoringModel.convert( pixel.getAnnotation(), color );
+					converter.adjustOpacity( color, 0.5 );
+				} );
+				final long fusedFirstFrame = render( executorService, numThreads, pixels, converter::convert );
+				final long fused = render( executorService, numThreads, pixels, converter::convert );
+
+				System.out.println( numThreads + " threads: per pixel " + perPixel + " ms, "
+						+ "per annotation " + fusedFirstFrame + " ms (first frame), " + fused + " ms" );
+			}
+			executorService.shutdown();
+		}
+	}
+
+	interface PixelConverter
+	{
+		void convert( AnnotationType< Integer > pixel, ARGBType color );
+	}
+
+	private static long render( ExecutorService executorService, int numThreads, List< AnnotationType< Integer > > pixels, PixelConverter converter ) throws Exception
+	{
+		final long start = System.currentTimeMillis();
+		final List< Future< ? > > futures = new ArrayList<>();
+		final int pixelsPerThread = pixels.size() / numThreads + 1;
+		for ( int thread = 0; thread < numThreads; thread++ )
+		{
+			final int min = thread * pixelsPerThread;
+			final int max = Math.min( pixels.size(), min + pixelsPerThread );
+			futures.add( executorService.submit( () ->
+			{
+				final ARGBType color = new ARGBType();
+				final int[] frame = new int[ max - min ];
+				for ( int i = min; i < max; i++ )
+				{
+					converter.convert( pixels.get( i ), color );
+					frame[ i - min ] = color.get();
+				}
+			} ) );
+		}
+		for ( Future< ? > future : futures )
+			future.get();
+		return System.currentTimeMillis() - start;
+	}
+}
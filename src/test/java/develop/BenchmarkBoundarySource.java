@@ -0,0 +1,102 @@
+/*-
+ * #%L
+ * Fiji viewer for MoBIE projects
+ * %%
+ * Copyright (C) 2018 - 2024 EMBL
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package develop;
+
+import bdv.util.RandomAccessibleIntervalSource;
+import bdv.viewer.Interpolation;
+import net.imglib2.FinalInterval;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.RealRandomAccess;
+import net.imglib2.RealRandomAccessible;
+import net.imglib2.position.FunctionRandomAccessible;
+import net.imglib2.realtransform.AffineTransform3D;
+import net.imglib2.type.numeric.integer.UnsignedIntType;
+import net.imglib2.view.Views;
+import org.embl.mobie.lib.source.BoundaryCache;
+import org.embl.mobie.lib.source.BoundarySource;
+
+import java.util.stream.IntStream;
+
+public class BenchmarkBoundarySource
+{
+	public static final int WIDTH = 1920;
+	public static final int HEIGHT = 1080;
+
+	public static void main( String[] args )
+	{
+		// procedural label image with 50^3 voxel sized segments
+		final FunctionRandomAccessible< UnsignedIntType > labels = new FunctionRandomAccessible<>( 3,
+				( position, value ) -> value.set( 1
+						+ position.getIntPosition( 0 ) / 50
+						+ 40 * ( position.getIntPosition( 1 ) / 50 )
+						+ 1600 * ( position.getIntPosition( 2 ) / 50 ) ),
+				UnsignedIntType::new );
+		final RandomAccessibleInterval< UnsignedIntType > rai = Views.interval( labels, new FinalInterval( 2000, 2000, 500 ) );
+		final RandomAccessibleIntervalSource< UnsignedIntType > source = new RandomAccessibleIntervalSource<>( rai, new UnsignedIntType(), new AffineTransform3D(), "labels" );
+
+		final BoundarySource< UnsignedIntType > boundarySource = new BoundarySource<>( source, false, 2.0F, null );
+
+		for ( int repetition = 0; repetition < 3; repetition++ )
+		{
+			boundarySource.showAsBoundary( false, 2.0 );
+			benchmark( "No boundaries", boundarySource );
+
+			boundarySource.setBoundaryCache( null );
+			boundarySource.showAsBoundary( true, 2.0 );
+			benchmark( "Boundaries", boundarySource );
+
+			boundarySource.setBoundaryCache( new BoundaryCache<>( source ) );
+			benchmark( "Cached boundaries (first frame)", boundarySource );
+			benchmark( "Cached boundaries", boundarySource );
+		}
+	}
+
+	// renders one full HD frame, with one access per line, like the BDV renderer
+	private static void benchmark( String name, BoundarySource< UnsignedIntType > boundarySource )
+	{
+		final RealRandomAccessible< UnsignedIntType > rra = boundarySource.getInterpolatedSource( 0, 0, Interpolation.NEARESTNEIGHBOR );
+		final long start = System.currentTimeMillis();
+		final long numBoundaryPixels = IntStream.range( 0, HEIGHT ).parallel().mapToLong( y ->
+		{
+			final RealRandomAccess< UnsignedIntType > access = rra.realRandomAccess();
+			long count = 0;
+			access.setPosition( 250.5, 2 );
+			access.setPosition( y + 0.5, 1 );
+			for ( int x = 0; x < WIDTH; x++ )
+			{
+				access.setPosition( x + 0.5, 0 );
+				if ( access.get().get() != 0 )
+					count++;
+			}
+			return count;
+		} ).sum();
+		final long duration = System.currentTimeMillis() - start;
+		System.out.println( name + ": " + duration + " ms per frame (" + numBoundaryPixels + " non-zero pixels)" );
+	}
+}
@@ -0,0 +1,125 @@
+/*-
+ * #%L
+ * Fiji viewer for MoBIE projects
+ * %%
+ * Copyright (C) 2018 - 2024 EMBL
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package develop;
+
+import org.embl.mobie.lib.ThreadHelper;
+import org.embl.mobie.lib.io.StorageLocation;
+import org.embl.mobie.lib.table.AnnotationTableModel;
+import org.embl.mobie.lib.table.ColumnNames;
+import org.embl.mobie.lib.table.ConcatenatedAnnotationTableModel;
+import org.embl.mobie.lib.table.TableDataFormat;
+import org.embl.mobie.lib.table.saw.TableSawAnnotatedSegment;
+import org.embl.mobie.lib.table.saw.TableSawAnnotatedSegmentCreator;
+import org.embl.mobie.lib.table.saw.TableSawAnnotationTableModel;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+public class BenchmarkConcatenatedAnnotationTableModel
+{
+	private static final int NUM_WELLS = 384;
+	private static final int NUM_ROWS = 200;
+
+	public static void main( String[] args ) throws IOException
+	{
+		final Path root = Files.createTempDirectory( "mobie-concatenated-tables" );
+		try
+		{
+			final List< String > wells = writeWellTables( root );
+
+			// the first round warms up the JIT and the file system caches
+			for ( int round = 0; round < 3; round++ )
+			{
+				long start = System.currentTimeMillis();
+				int numAnnotations = 0;
+				for ( TableSawAnnotationTableModel< TableSawAnnotatedSegment > tableModel : createTableModels( root, wells ) )
+					numAnnotations += tableModel.numAnnotations();
+				final long sequentialMillis = System.currentTimeMillis() - start;
+
+				final ConcatenatedAnnotationTableModel< TableSawAnnotatedSegment > concatenatedModel = new ConcatenatedAnnotationTableModel<>( new HashSet< AnnotationTableModel< TableSawAnnotatedSegment > >( createTableModels( root, wells ) ) );
+				start = System.currentTimeMillis();
+				concatenatedModel.loadAllTables();
+				final long concurrentMillis = System.currentTimeMillis() - start;
+
+				System.out.println( "Loaded " + NUM_WELLS + " tables (" + numAnnotations + " rows) sequentially in " + sequentialMillis + " ms and concurrently in " + concurrentMillis + " ms (" + concatenatedModel.numAnnotations() + " rows)." );
+			}
+		}
+		finally
+		{
+			try ( Stream< Path > stream = Files.walk( root ) )
+			{
+				stream.sorted( Comparator.reverseOrder() ).forEach( path -> path.toFile().delete() );
+			}
+			ThreadHelper.ioExecutorService.shutdown();
+		}
+	}
+
+	private static List< String > writeWellTables( Path root ) throws IOException
+	{
+		final Random random = new Random( 42 );
+		final List< String > wells = new ArrayList<>();
+		for ( int wellIndex = 0; wellIndex < NUM_WELLS; wellIndex++ )
+		{
+			final String well = "well" + wellIndex;
+			final Path wellDir = Files.createDirectories( root.resolve( well ) );
+			final StringBuilder table = new StringBuilder();
+			table.append( String.join( "\t", ColumnNames.LABEL_ID, ColumnNames.ANCHOR_X, ColumnNames.ANCHOR_Y, "size" ) ).append( "\n" );
+			for ( int rowIndex = 0; rowIndex < NUM_ROWS; rowIndex++ )
+			{
+				table.append( rowIndex + 1 ).append( "\t" )
+						.append( 100 * random.nextDouble() ).append( "\t" )
+						.append( 100 * random.nextDouble() ).append( "\t" )
+						.append( 1000 * random.nextGaussian() ).append( "\n" );
+			}
+			Files.write( wellDir.resolve( TableDataFormat.MOBIE_DEFAULT_CHUNK ), table.toString().getBytes() );
+			wells.add( well );
+		}
+		return wells;
+	}
+
+	private static List< TableSawAnnotationTableModel< TableSawAnnotatedSegment > > createTableModels( Path root, List< String > wells )
+	{
+		final List< TableSawAnnotationTableModel< TableSawAnnotatedSegment > > tableModels = new ArrayList<>();
+		for ( String well : wells )
+		{
+			final StorageLocation storageLocation = new StorageLocation();
+			storageLocation.absolutePath = root.resolve( well ).toString();
+			storageLocation.defaultChunk = TableDataFormat.MOBIE_DEFAULT_CHUNK;
+			tableModels.add( new TableSawAnnotationTableModel<>( well, new TableSawAnnotatedSegmentCreator( null ), storageLocation, TableDataFormat.TSV, null ) );
+		}
+		return tableModels;
+	}
+}
@@ -0,0 +1,112 @@
+/*-
+ * #%L
+ * Fiji viewer for MoBIE projects
+ * %%
+ * Copyright (C) 2018 - 2024 EMBL
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package develop;
+
+import org.embl.mobie.lib.ThreadHelper;
+import org.embl.mobie.lib.io.DirectoryWalker;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class BenchmarkDirectoryWalker
+{
+	private static final int NUM_PLATES = 100;
+	private static final int NUM_WELLS = 100;
+	private static final int NUM_FILES = 100;
+	private static final String REGEX = ".*-ch[0-9]+\\.tif";
+
+	public static void main( String[] args ) throws IOException
+	{
+		final Path root = Files.createTempDirectory( "mobie-directory-walker" );
+		try
+		{
+			System.out.println( "Creating " + NUM_PLATES * NUM_WELLS * NUM_FILES + " files in " + root + "..." );
+			createTree( root );
+
+			// the first round warms up the file system caches
+			for ( int round = 0; round < 3; round++ )
+			{
+				long start = System.currentTimeMillis();
+				final List< String > expected = findSequentially( root, 3, REGEX );
+				final long sequentialMillis = System.currentTimeMillis() - start;
+
+				start = System.currentTimeMillis();
+				final List< String > paths = DirectoryWalker.find( root.toString(), 3, REGEX );
+				final long parallelMillis = System.currentTimeMillis() - start;
+
+				System.out.println( "Found " + paths.size() + " files: sequential " + sequentialMillis + " ms, parallel " + parallelMillis + " ms using " + ThreadHelper.getNumIoThreads() + " threads; same result: " + expected.equals( paths ) );
+			}
+		}
+		finally
+		{
+			try ( Stream< Path > stream = Files.walk( root ) )
+			{
+				stream.sorted( Comparator.reverseOrder() ).forEach( path -> path.toFile().delete() );
+			}
+			ThreadHelper.ioExecutorService.shutdown();
+		}
+	}
+
+	private static List< String > findSequentially( Path root, int maxDepth, String regex ) throws IOException
+	{
+		final Pattern pattern = Pattern.compile( regex );
+		try ( Stream< Path > stream = Files.walk( root, maxDepth ) )
+		{
+			return stream
+					.filter( path -> ! path.equals( root ) )
+					.filter( path -> pattern.matcher( path.getFileName().toString() ).matches() )
+					.map( Path::toString )
+					.sorted()
+					.collect( Collectors.toList() );
+		}
+	}
+
+	// plate/well/files, where every other file is not an image
+	private static void createTree( Path root ) throws IOException
+	{
+		for ( int plate = 0; plate < NUM_PLATES; plate++ )
+		{
+			for ( int well = 0; well < NUM_WELLS; well++ )
+			{
+				final Path wellDirectory = Files.createDirectories( root.resolve( "plate" + plate ).resolve( "well" + well ) );
+				for ( int file = 0; file < NUM_FILES; file++ )
+				{
+					final String extension = file % 2 == 0 ? ".tif" : ".txt";
+					Files.createFile( wellDirectory.resolve( "site" + file / 2 + "-ch1" + extension ) );
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,70 @@
+/*-
+ * #%L
+ * Fiji viewer for MoBIE projects
+ * %%
+ * Copyright (C) 2018 - 2024 EMBL
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package develop;
+
+import org.embl.mobie.lib.table.DistanceComputer;
+
+import java.util.Random;
+
+public class BenchmarkDistanceComputer
+{
+	public static void main( String[] args )
+	{
+		final int numFeatures = 200;
+		final Random random = new Random( 42 );
+		final double[] reference = new double[ numFeatures ];
+		for ( int featureIndex = 0; featureIndex < numFeatures; featureIndex++ )
+			reference[ featureIndex ] = random.nextGaussian();
+
+		for ( int numRows : new int[]{ 10_000, 100_000, 1_000_000 } )
+		{
+			final double[][] features = new double[ numFeatures ][ numRows ];
+			for ( int featureIndex = 0; featureIndex < numFeatures; featureIndex++ )
+				for ( int rowIndex = 0; rowIndex < numRows; rowIndex++ )
+					features[ featureIndex ][ rowIndex ] = random.nextGaussian();
+
+			for ( DistanceComputer.DistanceMetric metric : DistanceComputer.DistanceMetric.values() )
+			{
+				long best = Long.MAX_VALUE;
+				double[] distances = null;
+				for ( int iteration = 0; iteration < 5; iteration++ )
+				{
+					final long start = System.currentTimeMillis();
+					distances = DistanceComputer.computeDistances( features, reference, metric );
+					best = Math.min( best, System.currentTimeMillis() - start );
+				}
+				System.out.println( metric + ": " + numRows + " rows x " + numFeatures + " features [ms]: " + best );
+
+				final long start = System.currentTimeMillis();
+				final int[] nearestRows = DistanceComputer.nearestRows( distances, 100 );
+				System.out.println( metric + ": top " + nearestRows.length + " of " + numRows + " rows [ms]: " + ( System.currentTimeMillis() - start ) );
+			}
+		}
+	}
+}
@@ -0,0 +1,152 @@
+/*-
+ * #%L
+ * Fiji viewer for MoBIE projects
+ * %%
+ * Copyright (C) 2018 - 2024 EMBL
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package develop;
+
+import net.imglib2.FinalRealInterval;
+import net.imglib2.realtransform.AffineTransform3D;
+import net.imglib2.roi.RealMaskRealInterval;
+import net.imglib2.roi.geom.GeomMasks;
+import net.imglib2.util.Intervals;
+import org.embl.mobie.lib.bdv.ImageBoundsIndex;
+import org.embl.mobie.lib.bdv.ImageNameOverlay;
+import org.embl.mobie.lib.image.Image;
+import org.embl.mobie.lib.image.SourcePair;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class BenchmarkImageBoundsIndex
+{
+	private static final int NUM_EVENTS = 200;
+
+	public static void main( String[] args )
+	{
+		for ( int numTiles : new int[]{ 1000, 10000, 100000 } )
+		{
+			final List< Image< ? > > images = createTiles( numTiles );
+			// one large image, e.g. an overview, covering all tiles
+			images.add( new MaskImage( "overview", GeomMasks.closedBox( new double[]{ -10, -10, 0 }, new double[]{ 100000, 100000, 0 } ) ) );
+
+			long start = System.nanoTime();
+			final ImageBoundsIndex index = new ImageBoundsIndex( images );
+			final double buildMillis = ( System.nanoTime() - start ) / 1.0E6;
+
+			// pan across the plate, like a user dragging the view
+			long indexNanos = 0;
+			long allImagesNanos = 0;
+			int numBounds = 0;
+			for ( int event = 0; event < NUM_EVENTS; event++ )
+			{
+				final AffineTransform3D viewerTransform = new AffineTransform3D();
+				viewerTransform.scale( 0.5 );
+				viewerTransform.translate( -20.0 * event, -10.0 * event, 0 );
+				final FinalRealInterval viewerInterval = new FinalRealInterval(
+						new double[]{ 40.0 * event, 20.0 * event, -0.5 },
+						new double[]{ 40.0 * event + 3840, 20.0 * event + 2160, 0.5 } );
+
+				start = System.nanoTime();
+				numBounds += ImageNameOverlay.getViewerImageBounds( index, viewerTransform, viewerInterval ).size();
+				indexNanos += System.nanoTime() - start;
+
+				// what the overlay did before there was an index
+				start = System.nanoTime();
+				final Map< String, FinalRealInterval > bounds = new LinkedHashMap<>();
+				for ( Image< ? > image : images )
+				{
+					final RealMaskRealInterval imageMask = image.getMask();
+					if ( ! Intervals.isEmpty( Intervals.intersect( viewerInterval, imageMask ) ) )
+						bounds.put( image.getName(), viewerTransform.estimateBounds( imageMask ) );
+				}
+				numBounds -= bounds.size();
+				allImagesNanos += System.nanoTime() - start;
+			}
+
+			System.out.printf( "%d tiles: index built in %.1f ms; per transform event: index %.3f ms, all images %.3f ms; same number of bounds: %b%n",
+					numTiles, buildMillis, indexNanos / 1.0E6 / NUM_EVENTS, allImagesNanos / 1.0E6 / NUM_EVENTS, numBounds == 0 );
+		}
+	}
+
+	// tiles of 90 x 90 on a grid of 100 x 100, like the sites of a plate
+	private static List< Image< ? > > createTiles( int numTiles )
+	{
+		final int numColumns = ( int ) Math.ceil( Math.sqrt( numTiles ) );
+		final List< Image< ? > > images = new ArrayList<>();
+		for ( int i = 0; i < numTiles; i++ )
+		{
+			final double x = 100.0 * ( i % numColumns );
+			final double y = 100.0 * ( i / numColumns );
+			images.add( new MaskImage( "tile" + i, GeomMasks.closedBox( new double[]{ x, y, 0 }, new double[]{ x + 90, y + 90, 0 } ) ) );
+		}
+		return images;
+	}
+
+	private static class MaskImage implements Image< Object >
+	{
+		private final String name;
+		private RealMaskRealInterval mask;
+
+		MaskImage( String name, RealMaskRealInterval mask )
+		{
+			this.name = name;
+			this.mask = mask;
+		}
+
+		@Override
+		public SourcePair< Object > getSourcePair()
+		{
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public String getName()
+		{
+			return name;
+		}
+
+		@Override
+		public void transform( AffineTransform3D affineTransform3D )
+		{
+			mask = mask.transform( affineTransform3D.inverse() );
+		}
+
+		@Override
+		public RealMaskRealInterval getMask()
+		{
+			return mask;
+		}
+
+		@Override
+		public void setMask( RealMaskRealInterval mask )
+		{
+			this.mask = mask;
+		}
+	}
+}
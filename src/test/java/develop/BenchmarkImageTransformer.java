@@ -0,0 +1,145 @@
+/*-
+ * #%L
+ * Fiji viewer for MoBIE projects
+ * %%
+ * Copyright (C) 2018 - 2024 EMBL
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package develop;
+
+import net.imglib2.realtransform.AffineTransform3D;
+import net.imglib2.roi.RealMaskRealInterval;
+import net.imglib2.roi.geom.GeomMasks;
+import org.embl.mobie.DataStore;
+import org.embl.mobie.lib.ThreadHelper;
+import org.embl.mobie.lib.image.Image;
+import org.embl.mobie.lib.image.SourcePair;
+import org.embl.mobie.lib.serialize.transformation.AffineTransformation;
+import org.embl.mobie.lib.serialize.transformation.GridTransformation;
+import org.embl.mobie.lib.serialize.transformation.Transformation;
+import org.embl.mobie.lib.transform.ImageTransformer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class BenchmarkImageTransformer
+{
+	private static final int NUM_IMAGES = 5000;
+
+	public static void main( String[] args )
+	{
+		// the first round warms up the JIT
+		for ( int round = 0; round < 3; round++ )
+		{
+			putImages();
+			long start = System.currentTimeMillis();
+			for ( Transformation transformation : createTransformations() )
+				ImageTransformer.transform( transformation );
+			final long sequentialMillis = System.currentTimeMillis() - start;
+			DataStore.clearImages();
+
+			putImages();
+			start = System.currentTimeMillis();
+			ImageTransformer.transform( createTransformations() );
+			final long concurrentMillis = System.currentTimeMillis() - start;
+			DataStore.clearImages();
+
+			System.out.println( "Transformed " + NUM_IMAGES + " images; sequential: " + sequentialMillis + " ms, concurrent: " + concurrentMillis + " ms" );
+		}
+
+		ThreadHelper.executorService.shutdown();
+	}
+
+	private static void putImages()
+	{
+		for ( int i = 0; i < NUM_IMAGES; i++ )
+			DataStore.addImage( new MaskImage( "image" + i ) );
+	}
+
+	private static List< Transformation > createTransformations()
+	{
+		final List< String > first = new ArrayList<>();
+		final List< String > second = new ArrayList<>();
+		final List< String > all = new ArrayList<>();
+		for ( int i = 0; i < NUM_IMAGES; i++ )
+		{
+			( i < NUM_IMAGES / 2 ? first : second ).add( "image" + i );
+			all.add( "image" + i );
+		}
+
+		final List< Transformation > transformations = new ArrayList<>();
+		final AffineTransform3D scale = new AffineTransform3D();
+		scale.scale( 2.0, 0.5, 1.0 );
+		transformations.add( new AffineTransformation( "scale", scale.getRowPackedCopy(), first ) );
+		final AffineTransform3D rotation = new AffineTransform3D();
+		rotation.rotate( 2, 0.3 );
+		transformations.add( new AffineTransformation( "rotation", rotation.getRowPackedCopy(), second ) );
+		transformations.add( new GridTransformation( all ) );
+		final AffineTransform3D translation = new AffineTransform3D();
+		translation.translate( 5, -3, 7 );
+		transformations.add( new AffineTransformation( "translation", translation.getRowPackedCopy(), first.subList( 0, 10 ) ) );
+		return transformations;
+	}
+
+	private static class MaskImage implements Image< Object >
+	{
+		private final String name;
+		private RealMaskRealInterval mask = GeomMasks.closedBox( new double[]{ 0, 0, 0 }, new double[]{ 10, 20, 1 } );
+
+		MaskImage( String name )
+		{
+			this.name = name;
+		}
+
+		@Override
+		public SourcePair< Object > getSourcePair()
+		{
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public String getName()
+		{
+			return name;
+		}
+
+		@Override
+		public synchronized void transform( AffineTransform3D affineTransform3D )
+		{
+			mask = mask.transform( affineTransform3D.inverse() );
+		}
+
+		@Override
+		public RealMaskRealInterval getMask()
+		{
+			return mask;
+		}
+
+		@Override
+		public void setMask( RealMaskRealInterval mask )
+		{
+			this.mask = mask;
+		}
+	}
+}
@@ -0,0 +1,89 @@
+/*-
+ * #%L
+ * Fiji viewer for MoBIE projects
+ * %%
+ * Copyright (C) 2018 - 2024 EMBL
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package develop;
+
+import net.imglib2.RealPoint;
+import net.imglib2.realtransform.AffineTransform3D;
+import org.embl.mobie.lib.transform.InterpolatedAffineRealTransform;
+
+import java.util.Random;
+
+public class BenchmarkInterpolatedAffineRealTransform
+{
+	public static void main( String[] args )
+	{
+		// serial sections with one key transform every 10 sections
+		final Random random = new Random( 42 );
+		final AffineTransform3D globalToSource = new AffineTransform3D();
+		globalToSource.scale( 1 / 0.05 );
+		final InterpolatedAffineRealTransform transform = new InterpolatedAffineRealTransform( "benchmark", globalToSource );
+		for ( int z = 0; z <= 1000; z += 10 )
+		{
+			final AffineTransform3D affine = new AffineTransform3D();
+			affine.rotate( 2, 0.01 * random.nextGaussian() );
+			affine.translate( random.nextGaussian(), random.nextGaussian(), 0 );
+			transform.addTransform( z, affine.getRowPackedCopy() );
+		}
+
+		final int numPoints = 50_000_000;
+		final double[] source = new double[ 3 ];
+		final double[] target = new double[ 3 ];
+		final RealPoint sourcePoint = new RealPoint( 3 );
+		final RealPoint targetPoint = new RealPoint( 3 );
+		for ( int repetition = 0; repetition < 5; repetition++ )
+		{
+			long start = System.currentTimeMillis();
+			double checksum = 0;
+			for ( int i = 0; i < numPoints; i++ )
+			{
+				source[ 0 ] = i % 1000;
+				source[ 1 ] = ( i / 1000 ) % 1000;
+				source[ 2 ] = 50.0 * i / numPoints;
+				transform.apply( source, target );
+				checksum += target[ 0 ];
+			}
+			final long arrayDuration = System.currentTimeMillis() - start;
+
+			start = System.currentTimeMillis();
+			for ( int i = 0; i < numPoints; i++ )
+			{
+				sourcePoint.setPosition( i % 1000, 0 );
+				sourcePoint.setPosition( ( i / 1000 ) % 1000, 1 );
+				sourcePoint.setPosition( 50.0 * i / numPoints, 2 );
+				transform.apply( sourcePoint, targetPoint );
+				checksum += targetPoint.getDoublePosition( 0 );
+			}
+			final long localizableDuration = System.currentTimeMillis() - start;
+
+			System.out.println( "double[]: " + ( 1000L * numPoints / Math.max( 1, arrayDuration ) ) + " points/s"
+					+ ", RealLocalizable: " + ( 1000L * numPoints / Math.max( 1, localizableDuration ) ) + " points/s"
+					+ " (" + checksum + ")" );
+		}
+	}
+}
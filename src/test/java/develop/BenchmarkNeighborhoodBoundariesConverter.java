@@ -0,0 +1,89 @@
+/*-
+ * #%L
+ * Fiji viewer for MoBIE projects
+ * %%
+ * Copyright (C) 2018 - 2024 EMBL
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package develop;
+
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.algorithm.neighborhood.RectangleShape;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.img.basictypeaccess.array.IntArray;
+import net.imglib2.type.numeric.integer.UnsignedIntType;
+import net.imglib2.view.Views;
+import org.embl.mobie.lib.source.NeighborhoodBoundariesConverter;
+
+import java.util.Random;
+
+public class BenchmarkNeighborhoodBoundariesConverter
+{
+	public static void main( String[] args )
+	{
+		// random 3D label image with blobs of about 20^3 voxels
+		final long[] dimensions = { 256, 256, 64 };
+		final ArrayImg< UnsignedIntType, IntArray > labels = ArrayImgs.unsignedInts( dimensions );
+		final Random random = new Random( 42 );
+		final int[] labelOfCell = random.ints( 13 * 13 * 4, 0, 1000 ).toArray();
+		final Cursor< UnsignedIntType > cursor = labels.localizingCursor();
+		while ( cursor.hasNext() )
+		{
+			cursor.fwd();
+			final int cell = cursor.getIntPosition( 0 ) / 20 + 13 * ( cursor.getIntPosition( 1 ) / 20 ) + 169 * ( cursor.getIntPosition( 2 ) / 20 );
+			cursor.get().set( labelOfCell[ cell ] );
+		}
+
+		for ( int width = 1; width <= 10; width++ )
+		{
+			final RandomAccessibleInterval< UnsignedIntType > neighborhoodBoundaries =
+					NeighborhoodBoundariesConverter.getNeighborhoodConvertedView(
+							labels,
+							new NeighborhoodBoundariesConverter<>( labels, 0 ),
+							new RectangleShape( width, false ),
+							0 );
+
+			long start = System.currentTimeMillis();
+			long neighborhoodSum = 0;
+			for ( UnsignedIntType value : Views.flatIterable( neighborhoodBoundaries ) )
+				neighborhoodSum += value.get();
+			final long neighborhoodDuration = System.currentTimeMillis() - start;
+
+			final ArrayImg< UnsignedIntType, IntArray > separableBoundaries = ArrayImgs.unsignedInts( dimensions );
+			start = System.currentTimeMillis();
+			NeighborhoodBoundariesConverter.computeBoundaries( labels, separableBoundaries, width, 0 );
+			long separableSum = 0;
+			for ( UnsignedIntType value : separableBoundaries )
+				separableSum += value.get();
+			final long separableDuration = System.currentTimeMillis() - start;
+
+			System.out.println( "Width " + width
+					+ ": neighborhood " + neighborhoodDuration + " ms"
+					+ ", separable " + separableDuration + " ms"
+					+ ( neighborhoodSum == separableSum ? "" : " (DIFFERENT RESULTS!)" ) );
+		}
+	}
+}
@@ -0,0 +1,237 @@
+/*-
+ * #%L
+ * Fiji viewer for MoBIE projects
+ * %%
+ * Copyright (C) 2018 - 2024 EMBL
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package develop;
+
+import bdv.util.RandomAccessibleIntervalSource;
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.Volatile;
+import net.imglib2.converter.Converters;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.realtransform.AffineTransform3D;
+import net.imglib2.roi.RealMaskRealInterval;
+import net.imglib2.roi.geom.GeomMasks;
+import net.imglib2.type.numeric.integer.UnsignedShortType;
+import net.imglib2.type.volatiles.VolatileUnsignedShortType;
+import org.embl.mobie.DataStore;
+import org.embl.mobie.lib.image.DefaultSourcePair;
+import org.embl.mobie.lib.image.Image;
+import org.embl.mobie.lib.image.SourcePair;
+import org.embl.mobie.lib.image.StitchedImage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/*
+ * Compares the cost of fetching voxels from a plate of 384 wells
+ * with 9 sites each, where the wells are stitched from the sites
+ * and the plate is stitched from the wells, with and without
+ * flattening the nested tiles into one layout.
+ *
+ * All sites share the same voxels, such that the memory is
+ * the one of the layout, i.e. the tile stores.
+ */
+public class BenchmarkNestedStitchedImage
+{
+	public static final int SITE_SIZE = 256;
+	public static final int NUM_WELL_COLUMNS = 24;
+	public static final int NUM_WELL_ROWS = 16;
+	public static final int NUM_SITES_PER_WELL = 9;
+	public static final int NUM_VOXELS = 10_000_000;
+
+	public static void main( String[] args )
+	{
+		final SourcePair< UnsignedShortType > sourcePair = createSourcePair();
+
+		for ( int run = 0; run < 3; run++ )
+		{
+			for ( boolean flatten : new boolean[]{ false, true } )
+			{
+				final long memoryBefore = getUsedMemory();
+				long start = System.nanoTime();
+				final StitchedImage< UnsignedShortType, ? > plate = createPlate( sourcePair, flatten );
+				final double initMillis = ( System.nanoTime() - start ) / 1.0E6;
+
+				final RandomAccessibleInterval< UnsignedShortType > rai = plate.getSourcePair().getSource().getSource( 0, 0 );
+				final RandomAccessibleInterval< ? extends Volatile< UnsignedShortType > > volatileRai = plate.getSourcePair().getVolatileSource().getSource( 0, 0 );
+				final long[] positions = createRandomPositions( rai );
+
+				// the first pass opens all sites
+				start = System.nanoTime();
+				long sum = fetch( rai.randomAccess(), positions );
+				final double firstPassNanos = ( double ) ( System.nanoTime() - start ) / NUM_VOXELS;
+
+				start = System.nanoTime();
+				sum += fetch( rai.randomAccess(), positions );
+				final double nanos = ( double ) ( System.nanoTime() - start ) / NUM_VOXELS;
+
+				start = System.nanoTime();
+				sum += fetchVolatile( volatileRai.randomAccess(), positions );
+				final double volatileNanos = ( double ) ( System.nanoTime() - start ) / NUM_VOXELS;
+
+				final long memoryAfter = getUsedMemory();
+
+				System.out.printf( "%s %s: init %.0f ms, first pass %.1f ns/voxel, non-volatile %.1f ns/voxel, volatile %.1f ns/voxel, memory %.1f MB (checksum %d)%n",
+						plate.getName(), flatten ? "flat" : "nested", initMillis, firstPassNanos, nanos, volatileNanos, ( memoryAfter - memoryBefore ) / 1.0E6, sum );
+			}
+		}
+	}
+
+	private static StitchedImage< UnsignedShortType, ? > createPlate( SourcePair< UnsignedShortType > sourcePair, boolean flattenNestedTiles )
+	{
+		DataStore.clearImages();
+
+		final int sitesPerRow = ( int ) Math.ceil( Math.sqrt( NUM_SITES_PER_WELL ) );
+		final List< StitchedImage< UnsignedShortType, ? > > wells = new ArrayList<>();
+		final List< int[] > wellPositions = new ArrayList<>();
+		for ( int row = 0; row < NUM_WELL_ROWS; row++ )
+		{
+			for ( int column = 0; column < NUM_WELL_COLUMNS; column++ )
+			{
+				final String wellName = "well-" + row + "-" + column;
+				final List< SiteImage > sites = new ArrayList<>();
+				final List< int[] > sitePositions = new ArrayList<>();
+				for ( int site = 0; site < NUM_SITES_PER_WELL; site++ )
+				{
+					final SiteImage siteImage = new SiteImage( wellName + "-site-" + site, sourcePair );
+					DataStore.addImage( siteImage );
+					sites.add( siteImage );
+					sitePositions.add( new int[]{ site % sitesPerRow, site / sitesPerRow } );
+				}
+
+				wells.add( new StitchedImage<>( ( List ) sites, sites.get( 0 ), sitePositions, wellName, 0.02 ) );
+				wellPositions.add( new int[]{ column, row } );
+			}
+		}
+
+		return new StitchedImage<>( ( List ) wells, wells.get( 0 ), wellPositions, "plate", 0.1, null, flattenNestedTiles );
+	}
+
+	private static long[] createRandomPositions( RandomAccessibleInterval< ? > rai )
+	{
+		final Random random = new Random( 42 );
+		final long[] positions = new long[ 2 * NUM_VOXELS ];
+		for ( int i = 0; i < NUM_VOXELS; i++ )
+		{
+			positions[ 2 * i ] = rai.min( 0 ) + ( long ) ( random.nextDouble() * rai.dimension( 0 ) );
+			positions[ 2 * i + 1 ] = rai.min( 1 ) + ( long ) ( random.nextDouble() * rai.dimension( 1 ) );
+		}
+		return positions;
+	}
+
+	private static long fetch( RandomAccess< UnsignedShortType > access, long[] positions )
+	{
+		long sum = 0;
+		for ( int i = 0; i < NUM_VOXELS; i++ )
+			sum += access.setPositionAndGet( positions[ 2 * i ], positions[ 2 * i + 1 ], 0 ).get();
+		return sum;
+	}
+
+	private static long fetchVolatile( RandomAccess< ? extends Volatile< UnsignedShortType > > access, long[] positions )
+	{
+		long sum = 0;
+		for ( int i = 0; i < NUM_VOXELS; i++ )
+		{
+			final Volatile< UnsignedShortType > value = access.setPositionAndGet( positions[ 2 * i ], positions[ 2 * i + 1 ], 0 );
+			if ( value.isValid() )
+				sum += value.get().get();
+		}
+		return sum;
+	}
+
+	private static long getUsedMemory()
+	{
+		for ( int i = 0; i < 3; i++ )
+			System.gc();
+		final Runtime runtime = Runtime.getRuntime();
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	private static SourcePair< UnsignedShortType > createSourcePair()
+	{
+		final ArrayImg< UnsignedShortType, ? > img = ArrayImgs.unsignedShorts( SITE_SIZE, SITE_SIZE, 1 );
+		final Random random = new Random( 42 );
+		img.forEach( voxel -> voxel.set( 1 + random.nextInt( 1000 ) ) );
+
+		final RandomAccessibleInterval< VolatileUnsignedShortType > volatileImg = Converters.convert( ( RandomAccessibleInterval< UnsignedShortType > ) img, ( input, output ) ->
+		{
+			output.get().set( input.get() );
+			output.setValid( true );
+		}, new VolatileUnsignedShortType() );
+
+		return new DefaultSourcePair<>(
+				new RandomAccessibleIntervalSource<>( img, new UnsignedShortType(), new AffineTransform3D(), "site" ),
+				new RandomAccessibleIntervalSource<>( volatileImg, new VolatileUnsignedShortType(), new AffineTransform3D(), "site" ) );
+	}
+
+	static class SiteImage implements Image< UnsignedShortType >
+	{
+		private final String name;
+		private final SourcePair< UnsignedShortType > sourcePair;
+		private RealMaskRealInterval mask = GeomMasks.closedBox( new double[]{ 0, 0, 0 }, new double[]{ SITE_SIZE - 1, SITE_SIZE - 1, 0 } );
+
+		SiteImage( String name, SourcePair< UnsignedShortType > sourcePair )
+		{
+			this.name = name;
+			this.sourcePair = sourcePair;
+		}
+
+		@Override
+		public SourcePair< UnsignedShortType > getSourcePair()
+		{
+			return sourcePair;
+		}
+
+		@Override
+		public String getName()
+		{
+			return name;
+		}
+
+		@Override
+		public void transform( AffineTransform3D affineTransform3D )
+		{
+			mask = mask.transform( affineTransform3D.inverse() );
+		}
+
+		@Override
+		public RealMaskRealInterval getMask()
+		{
+			return mask;
+		}
+
+		@Override
+		public void setMask( RealMaskRealInterval mask )
+		{
+			this.mask = mask;
+		}
+	}
+}
@@ -0,0 +1,153 @@
+/*-
+ * #%L
+ * Fiji viewer for MoBIE projects
+ * %%
+ * Copyright (C) 2018 - 2024 EMBL
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package develop;
+
+import org.embl.mobie.lib.hcs.OperettaMetadata;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+
+public class BenchmarkOperettaMetadata
+{
+	private static final int NUM_CHANNELS = 4;
+	private static final int NUM_FIELDS = 25;
+	private static final int NUM_PLANES = 10;
+	private static final long TARGET_FILE_SIZE = 200L * 1024 * 1024;
+
+	public static void main( String[] args ) throws IOException
+	{
+		final File xml = File.createTempFile( "Index", ".idx.xml" );
+		try
+		{
+			final int numImages = writeIndexXml( xml );
+
+			final long usedHeapBefore = usedHeapAfterGC();
+			final long start = System.currentTimeMillis();
+			final OperettaMetadata metadata = new OperettaMetadata( xml );
+			final long parseMillis = System.currentTimeMillis() - start;
+			final long retainedHeap = usedHeapAfterGC() - usedHeapBefore;
+
+			// a DOM of the same document needs several times the file size
+			System.out.println( "Parsed " + numImages + " images (" + xml.length() / 1024 / 1024 + " MB) in " + parseMillis + " ms, retaining " + retainedHeap / 1024 / 1024 + " MB" );
+			System.out.println( "Last image found: " + metadata.contains( filename( numImages - 1 ) ) );
+		}
+		finally
+		{
+			xml.delete();
+		}
+	}
+
+	private static long usedHeapAfterGC()
+	{
+		final Runtime runtime = Runtime.getRuntime();
+		for ( int i = 0; i < 3; i++ )
+			System.gc();
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	// r<row>c<col>f<field>p<plane>-ch<channel>sk1fk1fl1.tiff
+	private static String filename( int imageIndex )
+	{
+		final int channel = imageIndex % NUM_CHANNELS + 1;
+		final int plane = imageIndex / NUM_CHANNELS % NUM_PLANES + 1;
+		final int field = imageIndex / NUM_CHANNELS / NUM_PLANES % NUM_FIELDS + 1;
+		final int well = imageIndex / NUM_CHANNELS / NUM_PLANES / NUM_FIELDS;
+		final int row = well / 24 + 1;
+		final int column = well % 24 + 1;
+		return String.format( "r%02dc%02df%02dp%02d-ch%dsk1fk1fl1.tiff", row, column, field, plane, channel );
+	}
+
+	// Mimics the layout of the Harmony V5 Index.xml
+	private static int writeIndexXml( File xml ) throws IOException
+	{
+		final int[] wavelengths = { 456, 520, 599, 706 };
+		int imageIndex = 0;
+		try ( BufferedWriter writer = new BufferedWriter( new FileWriter( xml ), 1 << 16 ) )
+		{
+			writer.write( "<?xml version=\"1.0\" encoding=\"utf-8\"?>\n" );
+			writer.write( "<EvaluationInputData xmlns=\"http://www.perkinelmer.com/PEHH/HarmonyV5\" Version=\"2\">\n" );
+			writer.write( "  <Images>\n" );
+			while ( true )
+			{
+				final String filename = filename( imageIndex );
+				final int field = imageIndex / NUM_CHANNELS / NUM_PLANES % NUM_FIELDS;
+				writer.write( "    <Image Version=\"1\">\n" );
+				writer.write( "      <id>" + filename.replace( ".tiff", "" ) + "</id>\n" );
+				writer.write( "      <State>Ok</State>\n" );
+				writer.write( "      <URL>" + filename + "</URL>\n" );
+				writer.write( "      <Row>1</Row>\n" );
+				writer.write( "      <Col>1</Col>\n" );
+				writer.write( "      <FieldID>1</FieldID>\n" );
+				writer.write( "      <PlaneID>1</PlaneID>\n" );
+				writer.write( "      <TimepointID>0</TimepointID>\n" );
+				writer.write( "      <FlimID>1</FlimID>\n" );
+				writer.write( "      <ChannelID>" + ( imageIndex % NUM_CHANNELS + 1 ) + "</ChannelID>\n" );
+				writer.write( "      <PositionX Unit=\"m\">" + field * 3.2E-4 + "</PositionX>\n" );
+				writer.write( "      <PositionY Unit=\"m\">" + field * -1.6E-4 + "</PositionY>\n" );
+				writer.write( "      <PositionZ Unit=\"m\">-2E-06</PositionZ>\n" );
+				writer.write( "      <AbsPositionZ Unit=\"m\">0.134943</AbsPositionZ>\n" );
+				writer.write( "      <MeasurementTimeOffset Unit=\"s\">12.5</MeasurementTimeOffset>\n" );
+				writer.write( "      <AbsTime>2023-06-07T13:16:02.387+02:00</AbsTime>\n" );
+				writer.write( "    </Image>\n" );
+				imageIndex++;
+
+				if ( imageIndex % 1000 == 0 )
+				{
+					writer.flush();
+					if ( xml.length() >= TARGET_FILE_SIZE )
+						break;
+				}
+			}
+			writer.write( "  </Images>\n" );
+			writer.write( "  <Maps>\n" );
+			writer.write( "    <Map>\n" );
+			for ( int channel = 1; channel <= NUM_CHANNELS; channel++ )
+			{
+				writer.write( "      <Entry ChannelID=\"" + channel + "\">\n" );
+				writer.write( "        <ChannelName>Channel " + channel + "</ChannelName>\n" );
+				writer.write( "        <ImageType>Signal</ImageType>\n" );
+				writer.write( "        <ImageResolutionX Unit=\"m\">2.96688132474701E-07</ImageResolutionX>\n" );
+				writer.write( "        <ImageResolutionY Unit=\"m\">2.96688132474701E-07</ImageResolutionY>\n" );
+				writer.write( "        <ImageSizeX>1080</ImageSizeX>\n" );
+				writer.write( "        <ImageSizeY>1080</ImageSizeY>\n" );
+				writer.write( "        <BinningX>2</BinningX>\n" );
+				writer.write( "        <BinningY>2</BinningY>\n" );
+				writer.write( "        <MaxIntensity>4095</MaxIntensity>\n" );
+				writer.write( "        <MainEmissionWavelength Unit=\"nm\">" + wavelengths[ channel - 1 ] + "</MainEmissionWavelength>\n" );
+				writer.write( "      </Entry>\n" );
+			}
+			writer.write( "    </Map>\n" );
+			writer.write( "  </Maps>\n" );
+			writer.write( "</EvaluationInputData>\n" );
+		}
+		return imageIndex;
+	}
+}
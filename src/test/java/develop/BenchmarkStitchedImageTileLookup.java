@@ -0,0 +1,147 @@
+/*-
+ * #%L
+ * Fiji viewer for MoBIE projects
+ * %%
+ * Copyright (C) 2018 - 2024 EMBL
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package develop;
+
+import bdv.util.RandomAccessibleIntervalSource;
+import net.imglib2.RealPoint;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.realtransform.AffineTransform3D;
+import net.imglib2.roi.RealMaskRealInterval;
+import net.imglib2.roi.geom.GeomMasks;
+import net.imglib2.type.numeric.integer.UnsignedByteType;
+import net.imglib2.util.Intervals;
+import org.embl.mobie.lib.image.DefaultSourcePair;
+import org.embl.mobie.lib.image.Image;
+import org.embl.mobie.lib.image.SourcePair;
+import org.embl.mobie.lib.image.StitchedImage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+
+/*
+ * Measures the latency of finding the tile image below the
+ * mouse pointer in a StitchedImage, as done when clicking on
+ * a plate, for increasing numbers of tiles, and compares it with
+ * testing the masks of all tiles, as MoBIE did before.
+ */
+public class BenchmarkStitchedImageTileLookup
+{
+	public static final int NUM_CLICKS = 10000;
+
+	public static void main( String[] args )
+	{
+		final RandomAccessibleIntervalSource< UnsignedByteType > source = new RandomAccessibleIntervalSource<>( ArrayImgs.unsignedBytes( 100, 100, 1 ), new UnsignedByteType(), new AffineTransform3D(), "tile" );
+		final SourcePair< UnsignedByteType > sourcePair = new DefaultSourcePair<>( source, null );
+
+		for ( int numTiles : new int[]{ 100, 1000, 10000, 50000 } )
+		{
+			final List< TileImage > tiles = new ArrayList<>();
+			for ( int i = 0; i < numTiles; i++ )
+				tiles.add( new TileImage( "tile" + i, sourcePair ) );
+
+			final StitchedImage< UnsignedByteType, ? > stitchedImage = new StitchedImage<>( ( List ) tiles, new TileImage( "metadata", sourcePair ), null, "plate", 0.1 );
+
+			final int numColumns = ( int ) Math.ceil( Math.sqrt( numTiles ) );
+			final Random random = new Random( 42 );
+			final List< RealPoint > clicks = new ArrayList<>();
+			for ( int i = 0; i < NUM_CLICKS; i++ )
+				clicks.add( new RealPoint( random.nextDouble() * numColumns * 120, random.nextDouble() * numColumns * 120, 0 ) );
+
+			// the first click builds the index
+			long start = System.nanoTime();
+			stitchedImage.getTileImageAtGlobalPosition( clicks.get( 0 ) );
+			final double firstClickMillis = ( System.nanoTime() - start ) / 1.0E6;
+
+			start = System.nanoTime();
+			int numHits = 0;
+			for ( RealPoint click : clicks )
+				if ( stitchedImage.getTileImageAtGlobalPosition( click ).isPresent() )
+					numHits++;
+			final double indexMicros = ( System.nanoTime() - start ) / 1.0E3 / NUM_CLICKS;
+
+			start = System.nanoTime();
+			int numLinearHits = 0;
+			for ( RealPoint click : clicks )
+			{
+				final Optional< ? extends Image< ? > > image = stitchedImage.getTileImages().stream().filter( img -> Intervals.contains( img.getMask(), click ) ).findFirst();
+				if ( image.isPresent() )
+					numLinearHits++;
+			}
+			final double linearMicros = ( System.nanoTime() - start ) / 1.0E3 / NUM_CLICKS;
+
+			System.out.printf( "%d tiles: first click %.2f ms, index %.2f us/click, all tiles %.2f us/click (%d / %d hits)%n",
+					numTiles, firstClickMillis, indexMicros, linearMicros, numHits, numLinearHits );
+		}
+	}
+
+	static class TileImage implements Image< UnsignedByteType >
+	{
+		private final String name;
+		private final SourcePair< UnsignedByteType > sourcePair;
+		private RealMaskRealInterval mask = GeomMasks.closedBox( new double[]{ 0, 0, 0 }, new double[]{ 99, 99, 0 } );
+
+		TileImage( String name, SourcePair< UnsignedByteType > sourcePair )
+		{
+			this.name = name;
+			this.sourcePair = sourcePair;
+		}
+
+		@Override
+		public SourcePair< UnsignedByteType > getSourcePair()
+		{
+			return sourcePair;
+		}
+
+		@Override
+		public String getName()
+		{
+			return name;
+		}
+
+		@Override
+		public void transform( AffineTransform3D affineTransform3D )
+		{
+			mask = mask.transform( affineTransform3D.inverse() );
+		}
+
+		@Override
+		public RealMaskRealInterval getMask()
+		{
+			return mask;
+		}
+
+		@Override
+		public void setMask( RealMaskRealInterval mask )
+		{
+			this.mask = mask;
+		}
+	}
+}
@@ -0,0 +1,118 @@
+/*-
+ * #%L
+ * Fiji viewer for MoBIE projects
+ * %%
+ * Copyright (C) 2018 - 2024 EMBL
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package develop;
+
+import org.embl.mobie.lib.table.ColumnNames;
+import org.embl.mobie.lib.table.saw.TableSawAnnotatedSegment;
+import org.embl.mobie.lib.table.saw.TableSawAnnotatedSegmentCreator;
+import org.embl.mobie.lib.table.saw.TableSawAnnotationTableModel;
+import tech.tablesaw.api.DoubleColumn;
+import tech.tablesaw.api.IntColumn;
+import tech.tablesaw.api.Table;
+
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+public class BenchmarkTableSawAnnotatedSegmentMemory
+{
+	public static void main( String[] args ) throws Exception
+	{
+		final int numRows = 3_000_000;
+		final Random random = new Random( 42 );
+
+		final int[] labelIds = new int[ numRows ];
+		final double[][] values = new double[ 9 ][ numRows ];
+		for ( int rowIndex = 0; rowIndex < numRows; rowIndex++ )
+		{
+			labelIds[ rowIndex ] = rowIndex + 1;
+			for ( int d = 0; d < 3; d++ )
+			{
+				final double anchor = 1000 * random.nextDouble();
+				values[ d ][ rowIndex ] = anchor;
+				values[ 3 + d ][ rowIndex ] = anchor - 5;
+				values[ 6 + d ][ rowIndex ] = anchor + 5;
+			}
+		}
+
+		final Table table = Table.create( "segments",
+				IntColumn.create( ColumnNames.LABEL_ID, labelIds ),
+				DoubleColumn.create( ColumnNames.ANCHOR_X, values[ 0 ] ),
+				DoubleColumn.create( ColumnNames.ANCHOR_Y, values[ 1 ] ),
+				DoubleColumn.create( ColumnNames.ANCHOR_Z, values[ 2 ] ),
+				DoubleColumn.create( ColumnNames.BB_MIN_X, values[ 3 ] ),
+				DoubleColumn.create( ColumnNames.BB_MIN_Y, values[ 4 ] ),
+				DoubleColumn.create( ColumnNames.BB_MIN_Z, values[ 5 ] ),
+				DoubleColumn.create( ColumnNames.BB_MAX_X, values[ 6 ] ),
+				DoubleColumn.create( ColumnNames.BB_MAX_Y, values[ 7 ] ),
+				DoubleColumn.create( ColumnNames.BB_MAX_Z, values[ 8 ] ) );
+
+		final long tableBytes = usedMemory();
+		System.out.println( "Table with " + numRows + " rows [MB]: " + tableBytes / 1024 / 1024 );
+
+		long start = System.currentTimeMillis();
+		final TableSawAnnotatedSegmentCreator annotationCreator = new TableSawAnnotatedSegmentCreator( table );
+		final TableSawAnnotationTableModel< TableSawAnnotatedSegment > tableModel = new TableSawAnnotationTableModel<>( "segments", annotationCreator, null, null, table );
+		System.out.println( "Create annotations [ms]: " + ( System.currentTimeMillis() - start ) );
+
+		final long annotationBytes = usedMemory() - tableBytes;
+		System.out.println( "Annotations [MB]: " + annotationBytes / 1024 / 1024 );
+		System.out.println( "Annotations [bytes/row]: " + annotationBytes / numRows );
+
+		start = System.currentTimeMillis();
+		double sum = 0;
+		for ( TableSawAnnotatedSegment segment : tableModel.annotations() )
+			sum += segment.getDoublePosition( 0 ) + segment.boundingBox().realMax( 2 );
+		System.out.println( "Access positions and bounding boxes [ms]: " + ( System.currentTimeMillis() - start ) + " (checksum " + sum + ")" );
+
+		System.out.println( "Heap histogram (top entries):" );
+		final String histogram = ( String ) ManagementFactory.getPlatformMBeanServer().invoke(
+				new ObjectName( "com.sun.management:type=DiagnosticCommand" ),
+				"gcClassHistogram",
+				new Object[]{ null },
+				new String[]{ String[].class.getName() } );
+		final String[] lines = histogram.split( "\n" );
+		for ( int i = 0; i < Math.min( 25, lines.length ); i++ )
+			System.out.println( lines[ i ] );
+
+		// keep the model reachable until after the histogram
+		System.out.println( "Number of annotations: " + tableModel.numAnnotations() );
+	}
+
+	private static long usedMemory() throws InterruptedException
+	{
+		for ( int i = 0; i < 3; i++ )
+		{
+			System.gc();
+			Thread.sleep( 100 );
+		}
+		final Runtime runtime = Runtime.getRuntime();
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+}
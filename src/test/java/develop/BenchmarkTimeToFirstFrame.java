@@ -0,0 +1,220 @@
+/*-
+ * #%L
+ * Fiji viewer for MoBIE projects
+ * %%
+ * Copyright (C) 2018 - 2024 EMBL
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package develop;
+
+import bdv.viewer.Interpolation;
+import bdv.viewer.Source;
+import mpicbg.spim.data.sequence.FinalVoxelDimensions;
+import mpicbg.spim.data.sequence.VoxelDimensions;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.RealRandomAccessible;
+import net.imglib2.cache.img.CellLoader;
+import net.imglib2.cache.img.ReadOnlyCachedCellImgFactory;
+import net.imglib2.cache.img.ReadOnlyCachedCellImgOptions;
+import net.imglib2.interpolation.randomaccess.NearestNeighborInterpolatorFactory;
+import net.imglib2.realtransform.AffineTransform3D;
+import net.imglib2.type.numeric.integer.UnsignedByteType;
+import net.imglib2.view.Views;
+import org.embl.mobie.lib.image.DefaultSourcePair;
+import org.embl.mobie.lib.source.SourceHelper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * Compares the time until the first frame of a view with many
+ * sources can be rendered, with all resolution levels initialised
+ * upfront, as MoBIE did before, and with only the coarsest level
+ * being prefetched.
+ *
+ * The sources stand in for remote image data: opening a resolution
+ * level (reading its metadata) and reading a cell sleep for a while.
+ */
+public class BenchmarkTimeToFirstFrame
+{
+	public static final int NUM_SOURCES = 1000;
+	public static final int NUM_LEVELS = 5;
+	public static final int METADATA_LATENCY_MILLIS = 20;
+	public static final int CELL_LATENCY_MILLIS = 10;
+	public static final int NUM_IO_THREADS = 16;
+
+	private static final AtomicInteger numMetadataReads = new AtomicInteger();
+	private static final AtomicInteger numCellReads = new AtomicInteger();
+
+	public static void main( String[] args ) throws Exception
+	{
+		final ExecutorService ioExecutorService = Executors.newFixedThreadPool( NUM_IO_THREADS );
+
+		timeToFirstFrame( "All levels", true, ioExecutorService );
+		timeToFirstFrame( "Coarsest level", false, ioExecutorService );
+
+		ioExecutorService.shutdown();
+	}
+
+	private static void timeToFirstFrame( String name, boolean initAllLevels, ExecutorService ioExecutorService ) throws Exception
+	{
+		numMetadataReads.set( 0 );
+		numCellReads.set( 0 );
+
+		final List< Source< UnsignedByteType > > sources = new ArrayList<>();
+		for ( int i = 0; i < NUM_SOURCES; i++ )
+			sources.add( new LatencySource( "source" + i ) );
+
+		final long start = System.currentTimeMillis();
+
+		// MoBIE.initDataSources
+		if ( initAllLevels )
+		{
+			final ArrayList< Future< ? > > futures = new ArrayList<>();
+			for ( Source< UnsignedByteType > source : sources )
+				futures.add( ioExecutorService.submit( () -> SourceHelper.initAllLevels( source ) ) );
+			for ( Future< ? > future : futures )
+				future.get();
+		}
+		else
+		{
+			for ( Source< UnsignedByteType > source : sources )
+				ioExecutorService.submit( () -> SourceHelper.prefetchCoarsestLevel( new DefaultSourcePair<>( source, null ), 0 ) );
+		}
+
+		final long viewShown = System.currentTimeMillis() - start;
+
+		// first frame: BDV renders the coarsest level of every source
+		final ArrayList< Future< ? > > futures = new ArrayList<>();
+		for ( Source< UnsignedByteType > source : sources )
+			futures.add( ioExecutorService.submit( () -> readCoarsestLevel( source ) ) );
+		for ( Future< ? > future : futures )
+			future.get();
+
+		final long firstFrame = System.currentTimeMillis() - start;
+
+		System.out.println( name + ": view initialised after " + viewShown + " ms"
+				+ ", first frame after " + firstFrame + " ms"
+				+ " (" + numMetadataReads.get() + " metadata reads, " + numCellReads.get() + " cell reads)" );
+	}
+
+	// the coarsest level consists of a single cell
+	private static void readCoarsestLevel( Source< ? > source )
+	{
+		source.getSource( 0, source.getNumMipmapLevels() - 1 ).randomAccess().get();
+	}
+
+	static class LatencySource implements Source< UnsignedByteType >
+	{
+		private final String name;
+		private final RandomAccessibleInterval< UnsignedByteType >[] levels = new RandomAccessibleInterval[ NUM_LEVELS ];
+
+		LatencySource( String name )
+		{
+			this.name = name;
+		}
+
+		@Override
+		public boolean isPresent( int t )
+		{
+			return t == 0;
+		}
+
+		@Override
+		public synchronized RandomAccessibleInterval< UnsignedByteType > getSource( int t, int level )
+		{
+			if ( levels[ level ] == null )
+			{
+				sleep( METADATA_LATENCY_MILLIS );
+				numMetadataReads.incrementAndGet();
+				final long size = 1024 >> level;
+				final CellLoader< UnsignedByteType > loader = cell ->
+				{
+					sleep( CELL_LATENCY_MILLIS );
+					numCellReads.incrementAndGet();
+					cell.forEach( value -> value.set( 1 ) );
+				};
+				levels[ level ] = new ReadOnlyCachedCellImgFactory().create(
+						new long[]{ size, size, 64 },
+						new UnsignedByteType(),
+						loader,
+						ReadOnlyCachedCellImgOptions.options().cellDimensions( 64 ).volatileAccesses( true ) );
+			}
+			return levels[ level ];
+		}
+
+		@Override
+		public RealRandomAccessible< UnsignedByteType > getInterpolatedSource( int t, int level, Interpolation method )
+		{
+			return Views.interpolate( Views.extendZero( getSource( t, level ) ), new NearestNeighborInterpolatorFactory<>() );
+		}
+
+		@Override
+		public void getSourceTransform( int t, int level, AffineTransform3D transform )
+		{
+			transform.identity();
+			transform.scale( 1 << level, 1 << level, 1 );
+		}
+
+		@Override
+		public UnsignedByteType getType()
+		{
+			return new UnsignedByteType();
+		}
+
+		@Override
+		public String getName()
+		{
+			return name;
+		}
+
+		@Override
+		public VoxelDimensions getVoxelDimensions()
+		{
+			return new FinalVoxelDimensions( "um", 1, 1, 1 );
+		}
+
+		@Override
+		public int getNumMipmapLevels()
+		{
+			return NUM_LEVELS;
+		}
+	}
+
+	private static void sleep( int millis )
+	{
+		try
+		{
+			Thread.sleep( millis );
+		}
+		catch ( InterruptedException e )
+		{
+			throw new RuntimeException( e );
+		}
+	}
+}
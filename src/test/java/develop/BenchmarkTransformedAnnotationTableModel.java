@@ -0,0 +1,130 @@
+/*-
+ * #%L
+ * Fiji viewer for MoBIE projects
+ * %%
+ * Copyright (C) 2018 - 2024 EMBL
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package develop;
+
+import net.imglib2.realtransform.AffineTransform3D;
+import org.embl.mobie.lib.annotation.AnnotatedSegment;
+import org.embl.mobie.lib.annotation.TransformedAnnotationAdapter;
+import org.embl.mobie.lib.table.AnnData;
+import org.embl.mobie.lib.table.ColumnNames;
+import org.embl.mobie.lib.table.DefaultAnnData;
+import org.embl.mobie.lib.table.saw.TableSawAnnotatedSegment;
+import org.embl.mobie.lib.table.saw.TableSawAnnotatedSegmentCreator;
+import org.embl.mobie.lib.table.saw.TableSawAnnotationTableModel;
+import org.embl.mobie.lib.transform.AnnotationAffineTransformer;
+import org.embl.mobie.lib.transform.TransformedAnnData;
+import tech.tablesaw.api.DoubleColumn;
+import tech.tablesaw.api.IntColumn;
+import tech.tablesaw.api.Table;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class BenchmarkTransformedAnnotationTableModel
+{
+	public static void main( String[] args ) throws InterruptedException
+	{
+		final int numImages = 100;
+		final int numSegments = 50_000;
+		final Random random = new Random( 42 );
+
+		final List< AnnData< AnnotatedSegment > > annDatas = new ArrayList<>();
+		for ( int imageIndex = 0; imageIndex < numImages; imageIndex++ )
+		{
+			final int[] labelIds = new int[ numSegments ];
+			final double[][] anchors = new double[ 2 ][ numSegments ];
+			for ( int rowIndex = 0; rowIndex < numSegments; rowIndex++ )
+			{
+				labelIds[ rowIndex ] = rowIndex + 1;
+				anchors[ 0 ][ rowIndex ] = 1000 * random.nextDouble();
+				anchors[ 1 ][ rowIndex ] = 1000 * random.nextDouble();
+			}
+			final String name = "image" + imageIndex;
+			final Table table = Table.create( name,
+					IntColumn.create( ColumnNames.LABEL_ID, labelIds ),
+					DoubleColumn.create( ColumnNames.ANCHOR_X, anchors[ 0 ] ),
+					DoubleColumn.create( ColumnNames.ANCHOR_Y, anchors[ 1 ] ) );
+			final TableSawAnnotationTableModel< TableSawAnnotatedSegment > tableModel = new TableSawAnnotationTableModel<>( name, new TableSawAnnotatedSegmentCreator( table ), null, null, table );
+			annDatas.add( ( AnnData ) new DefaultAnnData<>( tableModel ) );
+		}
+
+		final long baseline = usedMemory();
+
+		// grid transform
+		long start = System.currentTimeMillis();
+		final List< TransformedAnnotationAdapter< AnnotatedSegment, AnnotatedSegment > > adapters = new ArrayList<>();
+		final List< TransformedAnnData< AnnotatedSegment, AnnotatedSegment > > transformedAnnDatas = new ArrayList<>();
+		for ( int imageIndex = 0; imageIndex < numImages; imageIndex++ )
+		{
+			final AffineTransform3D translation = new AffineTransform3D();
+			translation.translate( 1000 * ( imageIndex % 10 ), 1000 * ( imageIndex / 10 ), 0 );
+			final AnnData< AnnotatedSegment > annData = annDatas.get( imageIndex );
+			final TransformedAnnData< AnnotatedSegment, AnnotatedSegment > transformedAnnData = new TransformedAnnData<>( annData, new AnnotationAffineTransformer<>( translation ) );
+			final TransformedAnnotationAdapter< AnnotatedSegment, AnnotatedSegment > adapter = new TransformedAnnotationAdapter<>( annData, transformedAnnData, "image" + imageIndex );
+			adapter.init();
+			adapters.add( adapter );
+			transformedAnnDatas.add( transformedAnnData );
+		}
+		System.out.println( "Init " + numImages + " transformed segmentations [ms]: " + ( System.currentTimeMillis() - start ) );
+
+		// simulate rendering a few thousand segments per image
+		start = System.currentTimeMillis();
+		double checksum = 0;
+		for ( int imageIndex = 0; imageIndex < numImages; imageIndex++ )
+		{
+			for ( int i = 0; i < 5000; i++ )
+			{
+				final AnnotatedSegment segment = adapters.get( imageIndex ).getAnnotation( "image" + imageIndex, 0, 1 + random.nextInt( numSegments ) );
+				checksum += segment.getDoublePosition( 0 );
+			}
+		}
+		System.out.println( "Access 5000 segments per image [ms]: " + ( System.currentTimeMillis() - start ) + " (checksum " + checksum + ")" );
+		System.out.println( "Additional memory [MB]: " + ( usedMemory() - baseline ) / 1024 / 1024 );
+
+		// materialise all, as needed e.g. for showing the tables
+		start = System.currentTimeMillis();
+		long numAnnotations = 0;
+		for ( TransformedAnnData< AnnotatedSegment, AnnotatedSegment > transformedAnnData : transformedAnnDatas )
+			numAnnotations += transformedAnnData.getTable().annotations().size();
+		System.out.println( "Materialise " + numAnnotations + " transformed segments [ms]: " + ( System.currentTimeMillis() - start ) );
+		System.out.println( "Additional memory [MB]: " + ( usedMemory() - baseline ) / 1024 / 1024 );
+	}
+
+	private static long usedMemory() throws InterruptedException
+	{
+		for ( int i = 0; i < 3; i++ )
+		{
+			System.gc();
+			Thread.sleep( 100 );
+		}
+		final Runtime runtime = Runtime.getRuntime();
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+}
@@ -0,0 +1,200 @@
+/*-
+ * #%L
+ * Fiji viewer for MoBIE projects
+ * %%
+ * Copyright (C) 2018 - 2024 EMBL
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.embl.mobie.lib.hcs;
+
+import ch.epfl.biop.bdv.img.opener.ChannelProperties;
+import mpicbg.spim.data.sequence.VoxelDimensions;
+import org.embl.mobie.lib.color.ColorHelper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OperettaMetadataTest
+{
+	private static final int NUM_CHANNELS = 4;
+	private static final int NUM_FIELDS = 3;
+	private static final int NUM_PLANES = 2;
+	private static final int NUM_IMAGES = 2 * NUM_CHANNELS * NUM_PLANES * NUM_FIELDS;
+
+	@TempDir
+	Path tempDir;
+
+	@Test
+	void parseIndexXml() throws Exception
+	{
+		final File xml = tempDir.resolve( "Index.idx.xml" ).toFile();
+		writeIndexXml( xml, NUM_IMAGES );
+
+		final OperettaMetadata metadata = new OperettaMetadata( xml );
+
+		final VoxelDimensions voxelDimensions = metadata.getVoxelDimensions( "any" );
+		assertEquals( "m", voxelDimensions.unit() );
+		assertEquals( 2.96688132474701E-07, voxelDimensions.dimension( 0 ) );
+		assertEquals( 2.96688132474701E-07, voxelDimensions.dimension( 1 ) );
+		assertArrayEquals( new int[]{ 1080, 1080 }, metadata.getSiteDimensions( "any" ) );
+		assertArrayEquals( new double[]{ 0, 4095 }, metadata.getContrastLimits( "any" ) );
+
+		assertFalse( metadata.contains( "/some/folder/r99c99f99p99-ch9sk1fk1fl1.tiff" ) );
+
+		// compare against a DOM parse of the same document,
+		// which is how the metadata used to be read
+		final Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse( xml );
+		final Map< String, Integer > channelToWavelength = new HashMap<>();
+		final NodeList entries = document.getElementsByTagName( "Entry" );
+		for ( int i = 0; i < entries.getLength(); i++ )
+		{
+			final Element entry = ( Element ) entries.item( i );
+			channelToWavelength.put( entry.getAttribute( "ChannelID" ), Integer.parseInt( text( entry, "MainEmissionWavelength" ) ) );
+		}
+
+		final NodeList images = document.getElementsByTagName( "Image" );
+		assertEquals( NUM_IMAGES, images.getLength() );
+		for ( int imageIndex = 0; imageIndex < images.getLength(); imageIndex++ )
+		{
+			final Element image = ( Element ) images.item( imageIndex );
+			final String path = "/some/folder/" + text( image, "URL" );
+			assertEquals( filename( imageIndex ), text( image, "URL" ) );
+
+			assertTrue( metadata.contains( path ) );
+			assertEquals( imageIndex, metadata.getImageIndex( path ) );
+			assertArrayEquals( new double[]{
+					Double.parseDouble( text( image, "PositionX" ) ),
+					-Double.parseDouble( text( image, "PositionY" ) ) },
+					metadata.getRealPosition( path ) );
+
+			final int wavelength = channelToWavelength.get( text( image, "ChannelID" ) );
+			final String expectedColor = ColorHelper.getString( ColorHelper.getARGBType( ChannelProperties.getColorFromWavelength( wavelength ) ) );
+			assertEquals( expectedColor, metadata.getColor( path ) );
+		}
+
+		// images of different channels get different colors
+		for ( int channel = 2; channel <= NUM_CHANNELS; channel++ )
+			assertNotEquals( metadata.getColor( filename( channel - 2 ) ), metadata.getColor( filename( channel - 1 ) ) );
+	}
+
+	private static String text( Element element, String tag )
+	{
+		return element.getElementsByTagName( tag ).item( 0 ).getTextContent();
+	}
+
+	private static int wavelength( int channel )
+	{
+		return new int[]{ 456, 520, 599, 706 }[ channel - 1 ];
+	}
+
+	private static double positionX( int imageIndex )
+	{
+		return ( imageIndex / NUM_CHANNELS / NUM_PLANES % NUM_FIELDS ) * 3.2E-4;
+	}
+
+	private static double positionY( int imageIndex )
+	{
+		return ( imageIndex / NUM_CHANNELS / NUM_PLANES % NUM_FIELDS ) * -1.6E-4;
+	}
+
+	// r<row>c<col>f<field>p<plane>-ch<channel>sk1fk1fl1.tiff
+	private static String filename( int imageIndex )
+	{
+		final int channel = imageIndex % NUM_CHANNELS + 1;
+		final int plane = imageIndex / NUM_CHANNELS % NUM_PLANES + 1;
+		final int field = imageIndex / NUM_CHANNELS / NUM_PLANES % NUM_FIELDS + 1;
+		final int well = imageIndex / NUM_CHANNELS / NUM_PLANES / NUM_FIELDS;
+		final int row = well / 24 + 1;
+		final int column = well % 24 + 1;
+		return String.format( "r%02dc%02df%02dp%02d-ch%dsk1fk1fl1.tiff", row, column, field, plane, channel );
+	}
+
+	// Mimics the layout of the Harmony V5 Index.xml
+	private static void writeIndexXml( File xml, int numImages ) throws IOException
+	{
+		try ( BufferedWriter writer = new BufferedWriter( new FileWriter( xml ), 1 << 16 ) )
+		{
+			writer.write( "<?xml version=\"1.0\" encoding=\"utf-8\"?>\n" );
+			writer.write( "<EvaluationInputData xmlns=\"http://www.perkinelmer.com/PEHH/HarmonyV5\" Version=\"2\">\n" );
+			writer.write( "  <Images>\n" );
+			for ( int imageIndex = 0; imageIndex < numImages; imageIndex++ )
+			{
+				final String filename = filename( imageIndex );
+				final int channel = imageIndex % NUM_CHANNELS + 1;
+				writer.write( "    <Image Version=\"1\">\n" );
+				writer.write( "      <id>" + filename.replace( ".tiff", "" ) + "</id>\n" );
+				writer.write( "      <State>Ok</State>\n" );
+				writer.write( "      <URL>" + filename + "</URL>\n" );
+				writer.write( "      <Row>1</Row>\n" );
+				writer.write( "      <Col>1</Col>\n" );
+				writer.write( "      <FieldID>1</FieldID>\n" );
+				writer.write( "      <PlaneID>1</PlaneID>\n" );
+				writer.write( "      <TimepointID>0</TimepointID>\n" );
+				writer.write( "      <FlimID>1</FlimID>\n" );
+				writer.write( "      <ChannelID>" + channel + "</ChannelID>\n" );
+				writer.write( "      <PositionX Unit=\"m\">" + positionX( imageIndex ) + "</PositionX>\n" );
+				writer.write( "      <PositionY Unit=\"m\">" + positionY( imageIndex ) + "</PositionY>\n" );
+				writer.write( "      <PositionZ Unit=\"m\">-2E-06</PositionZ>\n" );
+				writer.write( "      <AbsPositionZ Unit=\"m\">0.134943</AbsPositionZ>\n" );
+				writer.write( "      <MeasurementTimeOffset Unit=\"s\">12.5</MeasurementTimeOffset>\n" );
+				writer.write( "      <AbsTime>2023-06-07T13:16:02.387+02:00</AbsTime>\n" );
+				writer.write( "    </Image>\n" );
+			}
+			writer.write( "  </Images>\n" );
+			writer.write( "  <Maps>\n" );
+			writer.write( "    <Map>\n" );
+			for ( int channel = 1; channel <= NUM_CHANNELS; channel++ )
+			{
+				writer.write( "      <Entry ChannelID=\"" + channel + "\">\n" );
+				writer.write( "        <ChannelName>Channel " + channel + "</ChannelName>\n" );
+				writer.write( "        <ImageType>Signal</ImageType>\n" );
+				writer.write( "        <ImageResolutionX Unit=\"m\">2.96688132474701E-07</ImageResolutionX>\n" );
+				writer.write( "        <ImageResolutionY Unit=\"m\">2.96688132474701E-07</ImageResolutionY>\n" );
+				writer.write( "        <ImageSizeX>1080</ImageSizeX>\n" );
+				writer.write( "        <ImageSizeY>1080</ImageSizeY>\n" );
+				writer.write( "        <BinningX>2</BinningX>\n" );
+				writer.write( "        <BinningY>2</BinningY>\n" );
+				writer.write( "        <MaxIntensity>4095</MaxIntensity>\n" );
+				writer.write( "        <MainEmissionWavelength Unit=\"nm\">" + wavelength( channel ) + "</MainEmissionWavelength>\n" );
+				writer.write( "      </Entry>\n" );
+			}
+			writer.write( "    </Map>\n" );
+			writer.write( "  </Maps>\n" );
+			writer.write( "</EvaluationInputData>\n" );
+		}
+	}
+}
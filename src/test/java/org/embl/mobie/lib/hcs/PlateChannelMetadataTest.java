@@ -0,0 +1,222 @@
+/*-
+ * #%L
+ * Fiji viewer for MoBIE projects
+ * %%
+ * Copyright (C) 2018 - 2024 EMBL
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.embl.mobie.lib.hcs;
+
+import ij.IJ;
+import ij.ImagePlus;
+import ij.io.FileSaver;
+import ij.process.ImageProcessor;
+import mpicbg.spim.data.sequence.FinalVoxelDimensions;
+import org.embl.mobie.io.ImageDataFormat;
+import org.embl.mobie.io.imagedata.ImageData;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PlateChannelMetadataTest
+{
+	static { net.imagej.patcher.LegacyInjector.preinit(); }
+
+	private static final int WIDTH = 64;
+	private static final int HEIGHT = 48;
+	private static final int NUM_WELLS = 4;
+
+	@TempDir
+	Path tempDir;
+
+	@Test
+	void readsTheHeaderOncePerChannel()
+	{
+		final List< String > paths = createPlate();
+
+		final CountingReader reader = new CountingReader();
+		final Plate plate = openPlate( paths, null, reader );
+		assertEquals( 2, reader.numProbedFiles );
+		assertEquals( 0, reader.numOpenedImages );
+
+		assertArrayEquals( new int[]{ WIDTH, HEIGHT }, plate.getSiteDimensions() );
+		assertArrayEquals( new double[]{ 100, 100 + getValue( WIDTH - 1, HEIGHT - 1 ) }, getChannel( plate, "1" ).getContrastLimits() );
+		assertArrayEquals( new double[]{ 0, 255 }, getChannel( plate, "2" ).getContrastLimits() );
+		assertTrue( plate.is2D() );
+	}
+
+	@Test
+	void reopeningReadsNoFile()
+	{
+		final List< String > paths = createPlate();
+		final String cacheDirectory = tempDir.resolve( "cache" ).toString();
+
+		final CountingReader reader = new CountingReader();
+		final Plate plate = openPlate( paths, cacheDirectory, reader );
+		assertEquals( 2, reader.numProbedFiles );
+		assertTrue( new ChannelMetadataCache( new File( cacheDirectory ), tempDir.toString() ).getFile().exists() );
+
+		final CountingReader reopeningReader = new CountingReader();
+		final Plate reopened = openPlate( paths, cacheDirectory, reopeningReader );
+		assertEquals( 0, reopeningReader.numProbedFiles );
+		assertEquals( 0, reopeningReader.numOpenedImages );
+
+		assertArrayEquals( plate.getSiteDimensions(), reopened.getSiteDimensions() );
+		assertArrayEquals( plate.getSiteRealDimensions(), reopened.getSiteRealDimensions() );
+		for ( String channelName : new String[]{ "1", "2" } )
+		{
+			assertEquals( getChannel( plate, channelName ).getColor(), getChannel( reopened, channelName ).getColor() );
+			assertArrayEquals( getChannel( plate, channelName ).getContrastLimits(), getChannel( reopened, channelName ).getContrastLimits() );
+		}
+	}
+
+	@Test
+	void changedFilesAreReadAgain()
+	{
+		final List< String > paths = createPlate();
+		final String cacheDirectory = tempDir.resolve( "cache" ).toString();
+		openPlate( paths, cacheDirectory, new CountingReader() );
+
+		final File file = new File( paths.get( 0 ) );
+		saveImage( file, "16-bit", 200 );
+		file.setLastModified( file.lastModified() + 10000 );
+
+		final CountingReader reopeningReader = new CountingReader();
+		final Plate reopened = openPlate( paths, cacheDirectory, reopeningReader );
+		assertEquals( 1, reopeningReader.numProbedFiles );
+		assertArrayEquals( new double[]{ 200, 200 + getValue( WIDTH - 1, HEIGHT - 1 ) }, getChannel( reopened, "1" ).getContrastLimits() );
+	}
+
+	@Test
+	void contrastLimitsOfTheOpenedImagesByDefault()
+	{
+		final List< String > paths = createPlate();
+		final String cacheDirectory = tempDir.resolve( "cache" ).toString();
+
+		final CountingReader reader = new CountingReader();
+		openPlate( paths, cacheDirectory, false, reader );
+		assertEquals( 0, reader.numProbedFiles );
+		assertEquals( 2, reader.numOpenedImages );
+
+		final CountingReader reopeningReader = new CountingReader();
+		openPlate( paths, cacheDirectory, false, reopeningReader );
+		assertEquals( 0, reopeningReader.numProbedFiles );
+		assertEquals( 0, reopeningReader.numOpenedImages );
+
+		// the cached contrast limits are of the other kind
+		final CountingReader firstPlaneReader = new CountingReader();
+		openPlate( paths, cacheDirectory, true, firstPlaneReader );
+		assertEquals( 2, firstPlaneReader.numProbedFiles );
+		assertEquals( 0, firstPlaneReader.numOpenedImages );
+	}
+
+	@Test
+	void filesWithoutVersionAreNotCached()
+	{
+		final String cacheDirectory = tempDir.resolve( "cache" ).toString();
+		final ChannelMetadataCache cache = new ChannelMetadataCache( new File( cacheDirectory ), tempDir.toString() );
+
+		// like an S3 object, the version of which is not known
+		final String imagePath = "s3://bucket/plate/W0001F0001T0001Z001C1.tif";
+		cache.put( "1", new ChannelMetadata( imagePath, "white", new double[]{ 0, 255 }, 1, new int[]{ WIDTH, HEIGHT }, new FinalVoxelDimensions( "micrometer", 1, 1, 1 ) ) );
+		cache.save();
+
+		assertNull( cache.get( "1", imagePath ) );
+		assertFalse( cache.getFile().exists() );
+	}
+
+	private static class CountingReader implements Plate.ImageFileReader
+	{
+		private int numProbedFiles;
+		private int numOpenedImages;
+
+		@Override
+		public List< ChannelMetadata > readChannelMetadata( String imagePath )
+		{
+			numProbedFiles++;
+			return Plate.IMAGE_FILE_READER.readChannelMetadata( imagePath );
+		}
+
+		@Override
+		public ImageData< ? > open( String imagePath, ImageDataFormat imageDataFormat )
+		{
+			numOpenedImages++;
+			return Plate.IMAGE_FILE_READER.open( imagePath, imageDataFormat );
+		}
+	}
+
+	private Plate openPlate( List< String > paths, String cacheDirectory, Plate.ImageFileReader reader )
+	{
+		return openPlate( paths, cacheDirectory, true, reader );
+	}
+
+	private Plate openPlate( List< String > paths, String cacheDirectory, boolean contrastLimitsFromFirstPlane, Plate.ImageFileReader reader )
+	{
+		return new Plate( tempDir.toString(), HCSPattern.YokogawaCQ1, ImageDataFormat.Tiff, paths, cacheDirectory, contrastLimitsFromFirstPlane, reader );
+	}
+
+	// a 16-bit and an 8-bit channel, one site per well
+	private List< String > createPlate()
+	{
+		final List< String > paths = new ArrayList<>();
+		for ( int well = 1; well <= NUM_WELLS; well++ )
+		{
+			for ( int channel = 1; channel <= 2; channel++ )
+			{
+				final File file = tempDir.resolve( String.format( "W%04dF0001T0001Z001C%d.tif", well, channel ) ).toFile();
+				saveImage( file, channel == 1 ? "16-bit" : "8-bit", 100 );
+				paths.add( file.getAbsolutePath() );
+			}
+		}
+		return paths;
+	}
+
+	private static void saveImage( File file, String type, int offset )
+	{
+		final ImagePlus imagePlus = IJ.createImage( "", type + " black", WIDTH, HEIGHT, 1 );
+		final ImageProcessor processor = imagePlus.getProcessor();
+		for ( int y = 0; y < HEIGHT; y++ )
+			for ( int x = 0; x < WIDTH; x++ )
+				processor.set( x, y, ( offset + getValue( x, y ) ) % ( type.equals( "8-bit" ) ? 256 : 65536 ) );
+		assertTrue( new FileSaver( imagePlus ).saveAsTiff( file.getAbsolutePath() ) );
+	}
+
+	private static int getValue( int x, int y )
+	{
+		return x + y * WIDTH;
+	}
+
+	private static Channel getChannel( Plate plate, String name )
+	{
+		return plate.getChannels().stream()
+				.filter( channel -> channel.getName().equals( name ) )
+				.findFirst().get();
+	}
+}
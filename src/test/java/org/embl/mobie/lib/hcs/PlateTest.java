@@ -0,0 +1,179 @@
+/*-
+ * #%L
+ * Fiji viewer for MoBIE projects
+ * %%
+ * Copyright (C) 2018 - 2024 EMBL
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.embl.mobie.lib.hcs;
+
+import mpicbg.spim.data.sequence.FinalVoxelDimensions;
+import org.embl.mobie.io.ImageDataFormat;
+import org.embl.mobie.io.imagedata.ImageData;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PlateTest
+{
+	static { net.imagej.patcher.LegacyInjector.preinit(); }
+
+	private static final String ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZ";
+	private static final int NUM_REPETITIONS = 3;
+
+	@Test
+	void operetta()
+	{
+		// 1536 wells, 4 channels
+		final IntFunction< List< String > > paths = numSites -> {
+			final List< String > list = new ArrayList<>();
+			for ( int site = 1; site <= numSites; site++ )
+				for ( int row = 1; row <= 32; row++ )
+					for ( int column = 1; column <= 48; column++ )
+						for ( int channel = 1; channel <= 4; channel++ )
+							list.add( String.format( "/plate/Images/r%02dc%02df%02dp01-ch%dsk1fk1fl1.tiff", row, column, site, channel ) );
+			return list;
+		};
+
+		final Plate plate = assertLinearScaling( HCSPattern.Operetta, paths.apply( 8 ), paths.apply( 80 ) );
+		assertEquals( 4, plate.getChannels().size() );
+		for ( Channel channel : plate.getChannels() )
+			assertEquals( 1536, plate.getWells( channel ).size() );
+		assertEquals( 80, plate.getSitesPerWell() );
+		assertEquals( 1, plate.getTPositions().size() );
+	}
+
+	@Test
+	void yokogawaCQ1()
+	{
+		// 384 wells, 9 fields, 5 slices, 2 channels
+		final IntFunction< List< String > > paths = numTimepoints -> {
+			final List< String > list = new ArrayList<>();
+			for ( int t = 1; t <= numTimepoints; t++ )
+				for ( int well = 1; well <= 384; well++ )
+					for ( int field = 1; field <= 9; field++ )
+						for ( int z = 1; z <= 5; z++ )
+							for ( int channel = 1; channel <= 2; channel++ )
+								list.add( String.format( "/plate/W%04dF%04dT%04dZ%03dC%d.tif", well, field, t, z, channel ) );
+			return list;
+		};
+
+		final Plate plate = assertLinearScaling( HCSPattern.YokogawaCQ1, paths.apply( 1 ), paths.apply( 14 ) );
+		assertEquals( 2, plate.getChannels().size() );
+		for ( Channel channel : plate.getChannels() )
+			assertEquals( 384, plate.getWells( channel ).size() );
+		assertEquals( 9, plate.getSitesPerWell() );
+		assertEquals( 14, plate.getTPositions().size() );
+		assertFalse( plate.is2D() );
+	}
+
+	@Test
+	void incuCyte()
+	{
+		// 384 wells, 9 sites, one frame per hour
+		final IntFunction< List< String > > paths = numFrames -> {
+			final List< String > list = new ArrayList<>();
+			for ( int frame = 0; frame < numFrames; frame++ )
+				for ( int row = 0; row < 16; row++ )
+					for ( int column = 1; column <= 24; column++ )
+						for ( int site = 1; site <= 9; site++ )
+							list.add( String.format( "/plate/MiaPaCa2-PhaseOriginal_%s%d_%d_%02dd%02dh00m.tif", ALPHABET.charAt( row ), column, site, frame / 24, frame % 24 ) );
+			return list;
+		};
+
+		final Plate plate = assertLinearScaling( HCSPattern.IncuCyte, paths.apply( 15 ), paths.apply( 145 ) );
+		assertEquals( 1, plate.getChannels().size() );
+		for ( Channel channel : plate.getChannels() )
+			assertEquals( 384, plate.getWells( channel ).size() );
+		assertEquals( 9, plate.getSitesPerWell() );
+		assertEquals( 145, plate.getTPositions().size() );
+	}
+
+	@Test
+	void skipsFilesThatDoNotMatch()
+	{
+		final List< String > paths = new ArrayList<>();
+		paths.add( "/plate/.DS_Store" );
+		paths.add( "/plate/W0001F0001T0001Z001C1.tif" );
+		paths.add( "/plate/thumbs.db" );
+		paths.add( "/plate/W0002F0001T0001Z001C1.tif" );
+
+		final Plate plate = createPlate( HCSPattern.YokogawaCQ1, paths );
+		final Channel channel = plate.getChannels().iterator().next();
+		assertEquals( 2, plate.getWells( channel ).size() );
+	}
+
+	// builds the plate from a small and a ten times larger listing,
+	// and checks that the time per path does not grow with the number of paths
+	private static Plate assertLinearScaling( HCSPattern hcsPattern, List< String > smallListing, List< String > largeListing )
+	{
+		// warm up
+		createPlate( hcsPattern, smallListing );
+
+		// the best of several repetitions is least affected by
+		// garbage collection and other load on the machine
+		double smallMillisPerPath = Double.MAX_VALUE;
+		double largeMillisPerPath = Double.MAX_VALUE;
+		Plate plate = null;
+		for ( int repetition = 0; repetition < NUM_REPETITIONS; repetition++ )
+		{
+			long start = System.currentTimeMillis();
+			createPlate( hcsPattern, smallListing );
+			smallMillisPerPath = Math.min( smallMillisPerPath, ( System.currentTimeMillis() - start + 1.0 ) / smallListing.size() );
+
+			start = System.currentTimeMillis();
+			plate = createPlate( hcsPattern, largeListing );
+			largeMillisPerPath = Math.min( largeMillisPerPath, ( System.currentTimeMillis() - start + 1.0 ) / largeListing.size() );
+		}
+
+		// quadratic scaling would be ten times slower per path
+		assertTrue( largeMillisPerPath < 5 * smallMillisPerPath );
+
+		return plate;
+	}
+
+	private static Plate createPlate( HCSPattern hcsPattern, List< String > paths )
+	{
+		return new Plate( "/plate", hcsPattern, ImageDataFormat.Tiff, paths, null, true, new Plate.ImageFileReader()
+		{
+			// the image files do not exist
+			@Override
+			public List< ChannelMetadata > readChannelMetadata( String imagePath )
+			{
+				return Collections.singletonList( new ChannelMetadata( imagePath, "white", new double[]{ 0, 255 }, 1, new int[]{ 1024, 1024 }, new FinalVoxelDimensions( "micrometer", 1, 1, 1 ) ) );
+			}
+
+			@Override
+			public ImageData< ? > open( String imagePath, ImageDataFormat imageDataFormat )
+			{
+				throw new UnsupportedOperationException( "Cannot open " + imagePath );
+			}
+		} );
+	}
+}
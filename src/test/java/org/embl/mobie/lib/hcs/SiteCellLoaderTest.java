@@ -0,0 +1,160 @@
+/*-
+ * #%L
+ * Fiji viewer for MoBIE projects
+ * %%
+ * Copyright (C) 2018 - 2024 EMBL
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.embl.mobie.lib.hcs;
+
+import ij.IJ;
+import ij.ImagePlus;
+import ij.ImageStack;
+import ij.io.FileSaver;
+import ij.process.ImageProcessor;
+import mpicbg.spim.data.sequence.FinalVoxelDimensions;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.Volatile;
+import net.imglib2.type.numeric.integer.UnsignedShortType;
+import org.embl.mobie.io.ImageDataFormat;
+import org.embl.mobie.lib.ThreadHelper;
+import org.embl.mobie.lib.image.SourcePair;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SiteCellLoaderTest
+{
+	static { net.imagej.patcher.LegacyInjector.preinit(); }
+
+	private static final int WIDTH = 64;
+	private static final int HEIGHT = 48;
+	private static final int NUM_T = 2;
+	private static final int NUM_Z = 3;
+	private static final int NUM_PAGES = 2;
+
+	@TempDir
+	Path tempDir;
+
+	@Test
+	void sameVoxelsAsVirtualStack()
+	{
+		final Site site = createSite();
+		final SourcePair< UnsignedShortType > sourcePair = SiteCellLoader.openSourcePair( site, "site", ThreadHelper.sharedQueue );
+		assertNotNull( sourcePair );
+
+		final VirtualBioFormatsStack virtualStack = new VirtualBioFormatsStack( WIDTH, HEIGHT, null, "" );
+		for ( int t = 0; t < NUM_T; t++ )
+			for ( int z = 0; z < NUM_Z; z++ )
+				virtualStack.addSlice( getPath( t, z ) );
+
+		for ( int t = 0; t < NUM_T; t++ )
+		{
+			final RandomAccessibleInterval< UnsignedShortType > rai = sourcePair.getSource().getSource( t, 0 );
+			assertArrayEquals( new long[]{ WIDTH, HEIGHT, NUM_Z }, rai.dimensionsAsLongArray() );
+
+			for ( int z = 0; z < NUM_Z; z++ )
+			{
+				final ImageProcessor processor = virtualStack.getProcessor( t * NUM_Z + z + 1 );
+				for ( int y = 0; y < HEIGHT; y++ )
+					for ( int x = 0; x < WIDTH; x++ )
+						assertEquals( processor.get( x, y ), rai.getAt( x, y, z ).get() );
+			}
+		}
+	}
+
+	@Test
+	void volatileSourceDoesNotBlock() throws InterruptedException
+	{
+		final Site site = createSite();
+		final SourcePair< UnsignedShortType > sourcePair = SiteCellLoader.openSourcePair( site, "site", ThreadHelper.sharedQueue );
+		final RandomAccessibleInterval< ? extends Volatile< UnsignedShortType > > volatileRai = sourcePair.getVolatileSource().getSource( 1, 0 );
+
+		// the plane is loaded in the background
+		final Volatile< UnsignedShortType > first = volatileRai.getAt( 3, 4, 2 );
+		assertFalse( first.isValid() );
+
+		final long start = System.currentTimeMillis();
+		Volatile< UnsignedShortType > value = volatileRai.getAt( 3, 4, 2 );
+		while ( ! value.isValid() )
+		{
+			assertTrue( System.currentTimeMillis() - start < 10000 );
+			Thread.sleep( 10 );
+			value = volatileRai.getAt( 3, 4, 2 );
+		}
+
+		assertEquals( getValue( 1, 2, 0, 3, 4 ), value.get().get() );
+		assertEquals( getValue( 1, 2, 0, 3, 4 ), sourcePair.getSource().getSource( 1, 0 ).getAt( 3, 4, 2 ).get() );
+	}
+
+	// One multi-page TIFF per plane, one of which is
+	// smaller than the site.
+	private Site createSite()
+	{
+		final Site site = new Site( "0", ImageDataFormat.Tiff );
+		site.setDimensions( new int[]{ WIDTH, HEIGHT } );
+		site.setVoxelDimensions( new FinalVoxelDimensions( "micrometer", 0.5, 0.5, 2.0 ) );
+
+		for ( int t = 0; t < NUM_T; t++ )
+		{
+			for ( int z = 0; z < NUM_Z; z++ )
+			{
+				final String path = getPath( t, z );
+				if ( ! new File( path ).exists() )
+				{
+					final boolean isSmaller = t == 1 && z == 0;
+					final int width = isSmaller ? WIDTH / 2 : WIDTH;
+					final int height = isSmaller ? HEIGHT / 2 : HEIGHT;
+					final ImageStack stack = new ImageStack( width, height );
+					for ( int page = 0; page < NUM_PAGES; page++ )
+					{
+						final ImageProcessor processor = IJ.createImage( "", "16-bit black", width, height, 1 ).getProcessor();
+						for ( int y = 0; y < height; y++ )
+							for ( int x = 0; x < width; x++ )
+								processor.set( x, y, getValue( t, z, page, x, y ) );
+						stack.addSlice( processor );
+					}
+					assertTrue( new FileSaver( new ImagePlus( "", stack ) ).saveAsTiffStack( path ) );
+				}
+				site.addPath( String.valueOf( t ), String.valueOf( z ), path );
+			}
+		}
+
+		return site;
+	}
+
+	private String getPath( int t, int z )
+	{
+		return tempDir.resolve( "site-t" + t + "-z" + z + ".tif" ).toString();
+	}
+
+	private static int getValue( int t, int z, int page, int x, int y )
+	{
+		return 1 + t * 10000 + z * 1000 + page * 500 + ( x + y ) % 400;
+	}
+}
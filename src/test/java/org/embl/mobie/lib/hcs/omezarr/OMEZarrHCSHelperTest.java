@@ -0,0 +1,115 @@
+/*-
+ * #%L
+ * Fiji viewer for MoBIE projects
+ * %%
+ * Copyright (C) 2018 - 2024 EMBL
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.embl.mobie.lib.hcs.omezarr;
+
+import org.embl.mobie.io.util.IOHelper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OMEZarrHCSHelperTest
+{
+	private static final int NUM_ROWS = 32;
+	private static final int NUM_COLUMNS = 48;
+	private static final int NUM_SITES = 4;
+
+	@TempDir
+	Path tempDir;
+
+	@Test
+	void parse1536WellPlate() throws IOException
+	{
+		final Path plate = tempDir.resolve( "plate.ome.zarr" );
+		final List< String > wellPaths = writePlate( plate );
+		assertEquals( 1536, wellPaths.size() );
+
+		final String plateUri = plate.toString();
+		final List< String > expected = new ArrayList<>();
+		for ( String wellPath : wellPaths )
+			for ( int site = 0; site < NUM_SITES; site++ )
+				expected.add( IOHelper.combinePath( IOHelper.combinePath( plateUri, wellPath ), "" + site ) );
+
+		// plate order, independent of the order in which the wells were parsed
+		assertEquals( expected, OMEZarrHCSHelper.sitePathsFromMetadata( plateUri ) );
+	}
+
+	private static String rowName( int row )
+	{
+		final String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZ";
+		return row < alphabet.length() ? "" + alphabet.charAt( row ) : "A" + alphabet.charAt( row - alphabet.length() );
+	}
+
+	// Writes the .zattrs of the plate and of its wells,
+	// without any image data, and returns the well paths.
+	private static List< String > writePlate( Path plate ) throws IOException
+	{
+		final List< String > wellPaths = new ArrayList<>();
+		final StringBuilder rows = new StringBuilder();
+		final StringBuilder columns = new StringBuilder();
+		final StringBuilder wells = new StringBuilder();
+
+		for ( int row = 0; row < NUM_ROWS; row++ )
+			rows.append( row == 0 ? "" : "," ).append( "{\"name\":\"" ).append( rowName( row ) ).append( "\"}" );
+
+		for ( int column = 0; column < NUM_COLUMNS; column++ )
+			columns.append( column == 0 ? "" : "," ).append( "{\"name\":\"" ).append( column + 1 ).append( "\"}" );
+
+		final StringBuilder images = new StringBuilder();
+		for ( int site = 0; site < NUM_SITES; site++ )
+			images.append( site == 0 ? "" : "," ).append( "{\"path\":\"" ).append( site ).append( "\"}" );
+		final String wellJson = "{\"well\":{\"images\":[" + images + "],\"version\":\"0.4\"}}";
+
+		for ( int row = 0; row < NUM_ROWS; row++ )
+		{
+			for ( int column = 0; column < NUM_COLUMNS; column++ )
+			{
+				final String wellPath = rowName( row ) + "/" + ( column + 1 );
+				wellPaths.add( wellPath );
+				wells.append( wells.length() == 0 ? "" : "," ).append( "{\"path\":\"" ).append( wellPath ).append( "\",\"rowIndex\":" ).append( row ).append( ",\"columnIndex\":" ).append( column ).append( "}" );
+
+				final Path well = Files.createDirectories( plate.resolve( rowName( row ) ).resolve( "" + ( column + 1 ) ) );
+				Files.write( well.resolve( ".zattrs" ), wellJson.getBytes( StandardCharsets.UTF_8 ) );
+			}
+		}
+
+		final String plateJson = "{\"plate\":{\"columns\":[" + columns + "],\"rows\":[" + rows + "],\"wells\":[" + wells + "],\"field_count\":" + NUM_SITES + ",\"name\":\"test\",\"version\":\"0.4\"}}";
+		Files.createDirectories( plate );
+		Files.write( plate.resolve( ".zattrs" ), plateJson.getBytes( StandardCharsets.UTF_8 ) );
+
+		return wellPaths;
+	}
+}
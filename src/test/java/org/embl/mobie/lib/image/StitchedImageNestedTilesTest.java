@@ -0,0 +1,113 @@
+/*-
+ * #%L
+ * Fiji viewer for MoBIE projects
+ * %%
+ * Copyright (C) 2018 - 2024 EMBL
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.embl.mobie.lib.image;
+
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.Volatile;
+import net.imglib2.type.numeric.integer.UnsignedShortType;
+import net.imglib2.view.Views;
+import org.embl.mobie.DataStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.embl.mobie.lib.image.StitchedImageOverviewTest.createTile;
+import static org.junit.jupiter.api.Assertions.*;
+
+class StitchedImageNestedTilesTest
+{
+	@AfterEach
+	void tearDown()
+	{
+		DataStore.clearImages();
+	}
+
+	@Test
+	void flattenedLayoutHasTheVoxelsOfTheNestedLayout()
+	{
+		final StitchedImage< UnsignedShortType, ? > nestedPlate = createPlate( false );
+		final StitchedImage< UnsignedShortType, ? > flatPlate = createPlate( true );
+
+		final RandomAccessibleInterval< UnsignedShortType > nested = nestedPlate.getSourcePair().getSource().getSource( 0, 0 );
+		final RandomAccessibleInterval< UnsignedShortType > flat = flatPlate.getSourcePair().getSource().getSource( 0, 0 );
+		assertArrayEquals( nested.minAsLongArray(), flat.minAsLongArray() );
+		assertArrayEquals( nested.maxAsLongArray(), flat.maxAsLongArray() );
+
+		// this also opens the sites for the volatile access
+		final RandomAccess< UnsignedShortType > nestedAccess = nested.randomAccess();
+		final Cursor< UnsignedShortType > flatCursor = Views.iterable( flat ).localizingCursor();
+		int numBackground = 0;
+		while ( flatCursor.hasNext() )
+		{
+			flatCursor.fwd();
+			assertEquals( nestedAccess.setPositionAndGet( flatCursor ).get(), flatCursor.get().get() );
+			if ( flatCursor.get().get() == 0 ) numBackground++;
+		}
+		assertTrue( numBackground > 0 );
+
+		final RandomAccessibleInterval< ? extends Volatile< UnsignedShortType > > volatileFlat = flatPlate.getSourcePair().getVolatileSource().getSource( 0, 0 );
+		final Cursor< ? extends Volatile< UnsignedShortType > > volatileCursor = Views.iterable( volatileFlat ).localizingCursor();
+		while ( volatileCursor.hasNext() )
+		{
+			final Volatile< UnsignedShortType > value = volatileCursor.next();
+			assertTrue( value.isValid() );
+			assertEquals( nestedAccess.setPositionAndGet( volatileCursor ).get(), value.get().get() );
+		}
+	}
+
+	// 3 x 2 wells with 2 x 2 sites, one well misses a site
+	private static StitchedImage< UnsignedShortType, ? > createPlate( boolean flattenNestedTiles )
+	{
+		DataStore.clearImages();
+
+		final List< StitchedImage< UnsignedShortType, ? > > wells = new ArrayList<>();
+		final List< int[] > wellPositions = new ArrayList<>();
+		for ( int well = 0; well < 6; well++ )
+		{
+			final List< StitchedImageOverviewTest.TileImage > sites = new ArrayList<>();
+			final List< int[] > sitePositions = new ArrayList<>();
+			for ( int site = 0; site < ( well == 4 ? 3 : 4 ); site++ )
+			{
+				final StitchedImageOverviewTest.TileImage siteImage = createTile( "well" + well + "-site" + site, 4 * well + site );
+				DataStore.addImage( siteImage );
+				sites.add( siteImage );
+				sitePositions.add( new int[]{ site % 2, site / 2 } );
+			}
+
+			wells.add( new StitchedImage<>( ( List ) sites, sites.get( 0 ), sitePositions, "well" + well, 0.05 ) );
+			wellPositions.add( new int[]{ well % 3, well / 3 } );
+		}
+
+		return new StitchedImage<>( ( List ) wells, wells.get( 0 ), wellPositions, "plate", 0.1, null, flattenNestedTiles );
+	}
+}
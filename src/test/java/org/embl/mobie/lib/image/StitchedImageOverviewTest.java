@@ -0,0 +1,305 @@
+/*-
+ * #%L
+ * Fiji viewer for MoBIE projects
+ * %%
+ * Copyright (C) 2018 - 2024 EMBL
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.embl.mobie.lib.image;
+
+import bdv.util.RandomAccessibleIntervalSource;
+import bdv.viewer.Source;
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.Volatile;
+import net.imglib2.converter.Converters;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.realtransform.AffineTransform3D;
+import net.imglib2.roi.RealMaskRealInterval;
+import net.imglib2.roi.geom.GeomMasks;
+import net.imglib2.type.numeric.integer.UnsignedShortType;
+import net.imglib2.type.volatiles.VolatileUnsignedShortType;
+import net.imglib2.view.Views;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StitchedImageOverviewTest
+{
+	private static final int TILE_SIZE = 64;
+	private static final int NUM_TILES = 16;
+
+	@TempDir
+	Path tempDir;
+
+	@Test
+	void coarseLevelRendersFromCache()
+	{
+		final File cacheDirectory = tempDir.toFile();
+
+		// compute the overview
+		final List< TileImage > tiles = createTiles();
+		final StitchedImage< UnsignedShortType, ? > stitchedImage = new StitchedImage<>( ( List ) tiles, createTile( "metadata", 0 ), null, "plate", 0.1, cacheDirectory );
+		final Source< UnsignedShortType > source = stitchedImage.getSourcePair().getSource();
+
+		// the tiles have only one resolution level
+		assertEquals( 2, source.getNumMipmapLevels() );
+		final int overviewLevel = 1;
+
+		final RandomAccessibleInterval< UnsignedShortType > overview = stitchedImage.fetchOverview( 0 ).join();
+		for ( TileImage tile : tiles )
+			assertTrue( tile.numAccesses.get() > 0 );
+		assertEquals( 1, cacheDirectory.list().length );
+
+		// the overview samples the full resolution tiles
+		final int factor = ( int ) Math.round( getScale( source, overviewLevel ) / getScale( source, 0 ) );
+		assertTrue( factor >= 2 );
+		final RandomAccess< UnsignedShortType > level0Access = source.getSource( 0, 0 ).randomAccess();
+		final Cursor< UnsignedShortType > overviewCursor = Views.iterable( source.getSource( 0, overviewLevel ) ).localizingCursor();
+		int numForeground = 0;
+		while ( overviewCursor.hasNext() )
+		{
+			overviewCursor.fwd();
+			level0Access.setPosition( new long[]{
+					overviewCursor.getLongPosition( 0 ) * factor + factor / 2,
+					overviewCursor.getLongPosition( 1 ) * factor + factor / 2,
+					overviewCursor.getLongPosition( 2 ) } );
+			assertEquals( level0Access.get().get(), overviewCursor.get().get() );
+			assertEquals( overview.getAt( overviewCursor ).get(), overviewCursor.get().get() );
+			if ( overviewCursor.get().get() > 0 ) numForeground++;
+		}
+		assertTrue( numForeground > 0 );
+
+		// in the next session, the coarse level renders
+		// from the cache, without accessing any tile
+		final List< TileImage > newTiles = createTiles();
+		final StitchedImage< UnsignedShortType, ? > cachedImage = new StitchedImage<>( ( List ) newTiles, createTile( "metadata", 0 ), null, "plate", 0.1, cacheDirectory );
+		cachedImage.fetchOverview( 0 ).join();
+
+		final RandomAccessibleInterval< ? extends Volatile< UnsignedShortType > > volatileOverview = cachedImage.getSourcePair().getVolatileSource().getSource( 0, overviewLevel );
+		final Cursor< ? extends Volatile< UnsignedShortType > > volatileCursor = Views.iterable( volatileOverview ).localizingCursor();
+		while ( volatileCursor.hasNext() )
+		{
+			final Volatile< UnsignedShortType > value = volatileCursor.next();
+			assertTrue( value.isValid() );
+			assertEquals( overview.getAt( volatileCursor ).get(), value.get().get() );
+		}
+
+		for ( TileImage tile : newTiles )
+			assertEquals( 0, tile.numAccesses.get() );
+	}
+
+	@Test
+	void volatileCoarseLevelIsInvalidUntilComputed()
+	{
+		final StitchedImage< UnsignedShortType, ? > stitchedImage = new StitchedImage<>( ( List ) createTiles(), createTile( "metadata", 0 ), null, "plate", 0.1, tempDir.toFile() );
+		final RandomAccessibleInterval< ? extends Volatile< UnsignedShortType > > volatileOverview = stitchedImage.getSourcePair().getVolatileSource().getSource( 0, 1 );
+		final long[] center = new long[]{ volatileOverview.dimension( 0 ) / 2, volatileOverview.dimension( 1 ) / 2, 0 };
+
+		// the first access starts computing the overview
+		assertFalse( volatileOverview.getAt( center ).isValid() );
+		stitchedImage.fetchOverview( 0 ).join();
+		assertTrue( volatileOverview.getAt( center ).isValid() );
+	}
+
+	@Test
+	void overviewIsComputedAgainIfTilesChange()
+	{
+		final File cacheDirectory = tempDir.toFile();
+
+		final StitchedImage< UnsignedShortType, ? > stitchedImage = new StitchedImage<>( ( List ) createTiles(), createTile( "metadata", 0 ), null, "plate", 0.1, cacheDirectory );
+		stitchedImage.fetchOverview( 0 ).join();
+		final String[] files = cacheDirectory.list();
+		assertEquals( 1, files.length );
+
+		// other tile layout
+		final List< TileImage > tiles = createTiles();
+		final List< int[] > positions = new ArrayList<>();
+		for ( int tile = 0; tile < NUM_TILES; tile++ )
+			positions.add( new int[]{ tile, 0 } );
+		final StitchedImage< UnsignedShortType, ? > rowImage = new StitchedImage<>( ( List ) tiles, createTile( "metadata", 0 ), positions, "plate", 0.1, cacheDirectory );
+		rowImage.fetchOverview( 0 ).join();
+		assertTrue( tiles.stream().allMatch( tile -> tile.numAccesses.get() > 0 ) );
+
+		// the outdated overview has been replaced
+		final String[] rowFiles = cacheDirectory.list();
+		assertEquals( 1, rowFiles.length );
+		assertNotEquals( files[ 0 ], rowFiles[ 0 ] );
+
+		// changed voxels
+		tiles.forEach( tile -> tile.numAccesses.set( 0 ) );
+		rowImage.invalidateOverview();
+		assertEquals( 0, cacheDirectory.list().length );
+		rowImage.fetchOverview( 0 ).join();
+		assertTrue( tiles.stream().allMatch( tile -> tile.numAccesses.get() > 0 ) );
+		assertEquals( 1, cacheDirectory.list().length );
+	}
+
+	@Test
+	void failedOverviewIsComputedAgain()
+	{
+		final File cacheDirectory = tempDir.toFile();
+
+		// e.g. a remote tile that cannot be read for a while
+		final AtomicBoolean isReadable = new AtomicBoolean( false );
+		final List< TileImage > tiles = new ArrayList<>( createTiles() );
+		tiles.set( 0, createTile( "tile0", 0, isReadable ) );
+		final StitchedImage< UnsignedShortType, ? > stitchedImage = new StitchedImage<>( ( List ) tiles, createTile( "metadata", 0 ), null, "plate", 0.1, cacheDirectory );
+
+		assertThrows( CompletionException.class, () -> stitchedImage.fetchOverview( 0 ).join() );
+		assertEquals( 0, cacheDirectory.list().length );
+
+		isReadable.set( true );
+		stitchedImage.fetchOverview( 0 ).join();
+		assertEquals( 1, cacheDirectory.list().length );
+	}
+
+	@Test
+	void overviewKeepsTheTileLayout()
+	{
+		// tiles with margins of an odd number of voxels,
+		// which are not divisible by the downsampling of the overview
+		final double relativeTileMargin = 0.12;
+		final Source< UnsignedShortType > source = new StitchedImage<>( ( List ) createTiles(), createTile( "metadata", 0 ), null, "plate", relativeTileMargin, tempDir.toFile() ).getSourcePair().getSource();
+		final Source< UnsignedShortType > sourceWithoutOverview = new StitchedImage<>( ( List ) createTiles(), createTile( "metadata", 0 ), null, "plate", relativeTileMargin ).getSourcePair().getSource();
+
+		assertEquals( 1, sourceWithoutOverview.getNumMipmapLevels() );
+		final long[] dimensions = sourceWithoutOverview.getSource( 0, 0 ).dimensionsAsLongArray();
+		assertArrayEquals( dimensions, source.getSource( 0, 0 ).dimensionsAsLongArray() );
+		assertEquals( 1, dimensions[ 0 ] / 4 % 2 );
+
+		// the overview covers the same extent, up to one of its voxels
+		final long[] overviewDimensions = source.getSource( 0, 1 ).dimensionsAsLongArray();
+		assertEquals( dimensions[ 0 ] * getScale( source, 0 ), overviewDimensions[ 0 ] * getScale( source, 1 ), getScale( source, 1 ) );
+	}
+
+	private static double getScale( Source< ? > source, int level )
+	{
+		final AffineTransform3D transform = new AffineTransform3D();
+		source.getSourceTransform( 0, level, transform );
+		return transform.get( 0, 0 );
+	}
+
+	private static List< TileImage > createTiles()
+	{
+		final List< TileImage > tiles = new ArrayList<>();
+		for ( int tile = 0; tile < NUM_TILES; tile++ )
+			tiles.add( createTile( "tile" + tile, tile ) );
+		return Collections.unmodifiableList( tiles );
+	}
+
+	static TileImage createTile( String name, int index )
+	{
+		return createTile( name, index, new AtomicBoolean( true ) );
+	}
+
+	// the voxels cannot be read while {@code isReadable} is false
+	static TileImage createTile( String name, int index, AtomicBoolean isReadable )
+	{
+		final ArrayImg< UnsignedShortType, ? > img = ArrayImgs.unsignedShorts( TILE_SIZE, TILE_SIZE, 1 );
+		final Cursor< UnsignedShortType > cursor = img.localizingCursor();
+		while ( cursor.hasNext() )
+		{
+			cursor.fwd();
+			cursor.get().set( 1 + index * 100 + ( cursor.getIntPosition( 0 ) + cursor.getIntPosition( 1 ) ) % 100 );
+		}
+
+		final RandomAccessibleInterval< UnsignedShortType > readableImg = Converters.convert( ( RandomAccessibleInterval< UnsignedShortType > ) img, ( input, output ) ->
+		{
+			if ( ! isReadable.get() )
+				throw new RuntimeException( "Could not read " + name );
+			output.set( input );
+		}, new UnsignedShortType() );
+
+		final RandomAccessibleInterval< VolatileUnsignedShortType > volatileImg = Converters.convert( readableImg, ( input, output ) ->
+		{
+			output.get().set( input.get() );
+			output.setValid( true );
+		}, new VolatileUnsignedShortType() );
+
+		final DefaultSourcePair< UnsignedShortType > sourcePair = new DefaultSourcePair<>(
+				new RandomAccessibleIntervalSource<>( readableImg, new UnsignedShortType(), new AffineTransform3D(), name ),
+				new RandomAccessibleIntervalSource<>( volatileImg, new VolatileUnsignedShortType(), new AffineTransform3D(), name ) );
+
+		return new TileImage( name, sourcePair );
+	}
+
+	// Counts the accesses to its voxels
+	static class TileImage implements Image< UnsignedShortType >
+	{
+		private final String name;
+		private final SourcePair< UnsignedShortType > sourcePair;
+		private final AtomicInteger numAccesses = new AtomicInteger();
+		private RealMaskRealInterval mask = GeomMasks.closedBox( new double[]{ 0, 0, 0 }, new double[]{ TILE_SIZE - 1, TILE_SIZE - 1, 0 } );
+
+		TileImage( String name, SourcePair< UnsignedShortType > sourcePair )
+		{
+			this.name = name;
+			this.sourcePair = sourcePair;
+		}
+
+		@Override
+		public SourcePair< UnsignedShortType > getSourcePair()
+		{
+			numAccesses.incrementAndGet();
+			return sourcePair;
+		}
+
+		@Override
+		public String getName()
+		{
+			return name;
+		}
+
+		@Override
+		public void transform( AffineTransform3D affineTransform3D )
+		{
+			mask = mask.transform( affineTransform3D.inverse() );
+		}
+
+		@Override
+		public RealMaskRealInterval getMask()
+		{
+			return mask;
+		}
+
+		@Override
+		public void setMask( RealMaskRealInterval mask )
+		{
+			this.mask = mask;
+		}
+	}
+}
@@ -0,0 +1,116 @@
+/*-
+ * #%L
+ * Fiji viewer for MoBIE projects
+ * %%
+ * Copyright (C) 2018 - 2024 EMBL
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.embl.mobie.lib.io;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DirectoryWalkerTest
+{
+	// large enough for the directories to be scanned by several threads;
+	// see develop.BenchmarkDirectoryWalker for the timing of a large plate
+	private static final int NUM_PLATES = 4;
+	private static final int NUM_WELLS = 12;
+	private static final int NUM_FILES = 10;
+	private static final String REGEX = ".*-ch[0-9]+\\.tif";
+
+	@TempDir
+	Path tempDir;
+
+	@Test
+	void findSortedFiles() throws IOException
+	{
+		createTree( tempDir );
+
+		final List< String > paths = DirectoryWalker.find( tempDir.toString(), 3, REGEX );
+
+		// every other file matches
+		assertEquals( NUM_PLATES * NUM_WELLS * NUM_FILES / 2, paths.size() );
+		// the same files, in the same order, as a sequential walk
+		assertEquals( findSequentially( tempDir, 3, REGEX ), paths );
+	}
+
+	@Test
+	void respectMaxDepth() throws IOException
+	{
+		final Path plate = Files.createDirectories( tempDir.resolve( "plate" ).resolve( "well" ) );
+		Files.createFile( tempDir.resolve( "a-ch1.tif" ) );
+		Files.createFile( tempDir.resolve( "plate" ).resolve( "b-ch1.tif" ) );
+		Files.createFile( plate.resolve( "c-ch1.tif" ) );
+		Files.createFile( plate.resolve( "c-ch1.txt" ) );
+
+		assertEquals( findSequentially( tempDir, 1, REGEX ), DirectoryWalker.find( tempDir.toString(), 1, REGEX ) );
+		assertEquals( findSequentially( tempDir, 2, REGEX ), DirectoryWalker.find( tempDir.toString(), 2, REGEX ) );
+		assertEquals( 3, DirectoryWalker.find( tempDir.toString(), 3, REGEX ).size() );
+
+		// directories are also found
+		assertEquals( 2, DirectoryWalker.find( tempDir.toString(), 3, "plate|well" ).size() );
+	}
+
+	private static List< String > findSequentially( Path root, int maxDepth, String regex ) throws IOException
+	{
+		final Pattern pattern = Pattern.compile( regex );
+		try ( Stream< Path > stream = Files.walk( root, maxDepth ) )
+		{
+			return stream
+					.filter( path -> ! path.equals( root ) )
+					.filter( path -> pattern.matcher( path.getFileName().toString() ).matches() )
+					.map( Path::toString )
+					.sorted()
+					.collect( Collectors.toList() );
+		}
+	}
+
+	// plate/well/files, where every other file is not an image
+	private static void createTree( Path root ) throws IOException
+	{
+		for ( int plate = 0; plate < NUM_PLATES; plate++ )
+		{
+			for ( int well = 0; well < NUM_WELLS; well++ )
+			{
+				final Path wellDirectory = Files.createDirectories( root.resolve( "plate" + plate ).resolve( "well" + well ) );
+				for ( int file = 0; file < NUM_FILES; file++ )
+				{
+					final String extension = file % 2 == 0 ? ".tif" : ".txt";
+					Files.createFile( wellDirectory.resolve( "site" + file / 2 + "-ch1" + extension ) );
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,215 @@
+/*-
+ * #%L
+ * Fiji viewer for MoBIE projects
+ * %%
+ * Copyright (C) 2018 - 2024 EMBL
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.embl.mobie.lib.io;
+
+import org.embl.mobie.lib.ThreadHelper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IOThreadPoolTest
+{
+	private static final int NUM_FILES = 16;
+	private static final int NUM_PROCESSORS = Runtime.getRuntime().availableProcessors();
+
+	@TempDir
+	Path tempDir;
+
+	@Test
+	void highLatencyGetsMoreThreads() throws IOException
+	{
+		final LatencyInjectingFileStore store = new LatencyInjectingFileStore( tempDir, 20 );
+		final IOThreadPool pool = new IOThreadPool( 2, 16 );
+		final AtomicInteger maxNumThreads = new AtomicInteger();
+		pool.setMetricsListener( metrics -> maxNumThreads.accumulateAndGet( metrics.getNumThreads(), Math::max ) );
+
+		readAll( pool, store, 1000 );
+		pool.shutdown();
+
+		assertTrue( maxNumThreads.get() > 2, "Threads: " + maxNumThreads.get() );
+		assertTrue( pool.getLargestPoolSize() <= 16 );
+	}
+
+	@Test
+	void lowLatencyStaysBoundedByTheProcessors() throws IOException
+	{
+		final LatencyInjectingFileStore store = new LatencyInjectingFileStore( tempDir, 0 );
+		final int maxThreads = 8 * NUM_PROCESSORS;
+		final IOThreadPool pool = new IOThreadPool( 1, maxThreads );
+		final AtomicInteger maxNumThreads = new AtomicInteger();
+		pool.setMetricsListener( metrics -> maxNumThreads.accumulateAndGet( metrics.getNumThreads(), Math::max ) );
+
+		readAll( pool, store, 20000 );
+		pool.shutdown();
+
+		assertTrue( maxNumThreads.get() > 0 );
+		assertTrue( pool.getLargestPoolSize() <= 4 * NUM_PROCESSORS, "Threads: " + pool.getLargestPoolSize() );
+	}
+
+	@Test
+	void setNumIoThreadsDoesNotLeakThreads()
+	{
+		final int numIoThreads = ThreadHelper.getNumIoThreads();
+		final int maxThreads = ThreadHelper.ioExecutorService.getMaxThreads();
+		final long numIoThreadsBefore = countIoThreads();
+
+		for ( int i = 0; i < 100; i++ )
+		{
+			ThreadHelper.setNumIoThreads( 2 + i % 10 );
+			final List< Future< ? > > futures = ThreadHelper.getFutures();
+			for ( int task = 0; task < 20; task++ )
+				futures.add( ThreadHelper.ioExecutorService.submit( () -> sleep( 1 ) ) );
+			ThreadHelper.waitUntilFinished( futures );
+		}
+
+		final long numNewIoThreads = countIoThreads() - numIoThreadsBefore;
+		assertTrue( numNewIoThreads <= maxThreads, "Threads: " + numNewIoThreads );
+		assertTrue( ThreadHelper.ioExecutorService.getLargestPoolSize() <= maxThreads );
+
+		ThreadHelper.setNumIoThreads( numIoThreads );
+		assertEquals( numIoThreads, ThreadHelper.getNumIoThreads() );
+	}
+
+	@Test
+	void cancelQueuedTasks() throws InterruptedException
+	{
+		final IOThreadPool pool = new IOThreadPool( 1, 1 );
+		final CountDownLatch latch = new CountDownLatch( 1 );
+		final Future< ? > running = pool.submit( () -> { latch.await(); return null; } );
+		final List< Future< ? > > queued = new ArrayList<>();
+		for ( int task = 0; task < 5; task++ )
+			queued.add( pool.submit( () -> sleep( 1 ) ) );
+
+		pool.cancelQueuedTasks();
+		latch.countDown();
+
+		assertTrue( queued.stream().allMatch( Future::isCancelled ) );
+		assertFalse( running.isCancelled() );
+		assertEquals( 0, pool.getQueue().size() );
+		pool.shutdown();
+	}
+
+	@Test
+	void cancelTasksInterruptsRunningTasks() throws InterruptedException
+	{
+		final IOThreadPool pool = new IOThreadPool( 1, 1 );
+		final CountDownLatch started = new CountDownLatch( 1 );
+		final CountDownLatch interrupted = new CountDownLatch( 1 );
+		final Future< ? > running = pool.submit( () ->
+		{
+			started.countDown();
+			try
+			{
+				Thread.sleep( 60_000 );
+			}
+			catch ( InterruptedException e )
+			{
+				interrupted.countDown();
+			}
+		} );
+		final Future< ? > queued = pool.submit( () -> sleep( 1 ) );
+
+		started.await();
+		pool.cancelTasks();
+
+		assertTrue( interrupted.await( 10, TimeUnit.SECONDS ) );
+		assertTrue( running.isCancelled() );
+		assertTrue( queued.isCancelled() );
+		pool.shutdown();
+	}
+
+	private static void readAll( IOThreadPool pool, LatencyInjectingFileStore store, int numReads )
+	{
+		final List< Future< ? > > futures = new ArrayList<>();
+		for ( int i = 0; i < numReads; i++ )
+		{
+			final int file = i % NUM_FILES;
+			futures.add( pool.submit( () -> store.read( file ) ) );
+		}
+		ThreadHelper.waitUntilFinished( futures );
+	}
+
+	private static long countIoThreads()
+	{
+		return Thread.getAllStackTraces().keySet().stream()
+				.filter( thread -> thread.getName().startsWith( "MoBIE IO" ) )
+				.count();
+	}
+
+	private static void sleep( long millis )
+	{
+		try
+		{
+			Thread.sleep( millis );
+		}
+		catch ( InterruptedException e )
+		{
+			throw new RuntimeException( e );
+		}
+	}
+
+	// Local files, with the latency of an object store
+	static class LatencyInjectingFileStore
+	{
+		private final Path directory;
+		private final long latencyMillis;
+
+		LatencyInjectingFileStore( Path directory, long latencyMillis ) throws IOException
+		{
+			this.directory = directory;
+			this.latencyMillis = latencyMillis;
+			final byte[] bytes = new byte[ 4096 ];
+			for ( int file = 0; file < NUM_FILES; file++ )
+				Files.write( getPath( file ), bytes );
+		}
+
+		byte[] read( int file ) throws IOException
+		{
+			if ( latencyMillis > 0 )
+				sleep( latencyMillis );
+			return Files.readAllBytes( getPath( file ) );
+		}
+
+		private Path getPath( int file )
+		{
+			return directory.resolve( "chunk" + file );
+		}
+	}
+}
@@ -0,0 +1,243 @@
+/*-
+ * #%L
+ * Fiji viewer for MoBIE projects
+ * %%
+ * Copyright (C) 2018 - 2024 EMBL
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.embl.mobie.lib.io;
+
+import net.imglib2.FinalRealInterval;
+import net.imglib2.RealInterval;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TileLoadingQueueTest
+{
+	private static final int NUM_TILES = 20;
+	private static final double TILE_SIZE = 100;
+	private static final double VIEWPORT_SIZE = 290;
+	private static final Object VIEWER = new Object();
+
+	private TileLoadingQueue queue;
+	private List< List< Integer > > opened;
+	private CountDownLatch release;
+
+	@BeforeEach
+	void setUp() throws InterruptedException
+	{
+		queue = new TileLoadingQueue( 1, "Test tiles" );
+		opened = Collections.synchronizedList( new ArrayList<>() );
+
+		// block the only worker, such that the requests pile up
+		release = new CountDownLatch( 1 );
+		final CountDownLatch blocked = new CountDownLatch( 1 );
+		queue.submit( "blocker", 0, () -> tileBounds( 0, 0 ), () -> {
+			blocked.countDown();
+			await( release );
+		} );
+		assertTrue( blocked.await( 10, TimeUnit.SECONDS ) );
+	}
+
+	@AfterEach
+	void tearDown()
+	{
+		release.countDown();
+		queue.shutdown();
+	}
+
+	@Test
+	void panningOpensTheFinalViewFirst() throws InterruptedException
+	{
+		// pan from left to right along the first rows of the plate,
+		// requesting every visible tile repeatedly, like the renderer does
+		final int numSteps = 18;
+		for ( int step = 0; step < numSteps; step++ )
+		{
+			final RealInterval viewport = viewport( 5 + step * TILE_SIZE, 5 );
+			queue.setViewport( VIEWER, viewport );
+			for ( int repeat = 0; repeat < 3; repeat++ )
+				for ( int level = 0; level < 2; level++ )
+					for ( int x = 0; x < NUM_TILES; x++ )
+						for ( int y = 0; y < NUM_TILES; y++ )
+							if ( intersects( tileBounds( x, y ), viewport ) )
+								submit( level, x, y );
+		}
+
+		final RealInterval finalViewport = viewport( 5 + ( numSteps - 1 ) * TILE_SIZE, 5 );
+		assertTrue( queue.getNumCancelled() > 0 );
+
+		release.countDown();
+		awaitIdle( finalViewport );
+
+		// duplicate requests are collapsed
+		assertEquals( opened.size(), opened.stream().distinct().count() );
+
+		// every visible tile is opened, before any other tile
+		final int numVisible = 2 * 3 * 3;
+		final List< List< Integer > > visible = opened.subList( 0, numVisible );
+		for ( List< Integer > tile : visible )
+			assertTrue( intersects( tileBounds( tile.get( 1 ), tile.get( 2 ) ), finalViewport ), tile.toString() );
+
+		// coarser levels first, and closer to the centre of the view first
+		for ( int i = 1; i < numVisible; i++ )
+		{
+			final List< Integer > previous = visible.get( i - 1 );
+			final List< Integer > current = visible.get( i );
+			assertTrue( previous.get( 0 ) >= current.get( 0 ) );
+			if ( previous.get( 0 ).equals( current.get( 0 ) ) )
+				assertTrue( distance( previous, finalViewport ) <= distance( current, finalViewport ) );
+		}
+
+		// tiles that were scrolled out of view are not opened
+		for ( List< Integer > tile : opened )
+			assertTrue( tile.get( 1 ) >= 14, tile.toString() );
+	}
+
+	@Test
+	void cancelledTilesAreOpenedWhenRequestedAgain() throws InterruptedException
+	{
+		queue.setViewport( VIEWER, viewport( 5, 5 ) );
+		submit( 0, 0, 0 );
+		final RealInterval otherViewport = viewport( 1505, 5 );
+		queue.setViewport( VIEWER, otherViewport );
+		assertEquals( 0, queue.getNumPending() );
+		assertEquals( 1, queue.getNumCancelled() );
+
+		release.countDown();
+		awaitIdle( otherViewport );
+		assertTrue( opened.isEmpty() );
+
+		final RealInterval viewport = viewport( 5, 5 );
+		queue.setViewport( VIEWER, viewport );
+		submit( 0, 0, 0 );
+		awaitIdle( viewport );
+		assertEquals( Collections.singletonList( Arrays.asList( 0, 0, 0 ) ), opened );
+	}
+
+	@Test
+	void tilesInViewOfAnyViewerAreKept() throws InterruptedException
+	{
+		final Object otherViewer = new Object();
+		queue.setViewport( VIEWER, viewport( 5, 5 ) );
+		queue.setViewport( otherViewer, viewport( 1505, 5 ) );
+		submit( 0, 0, 0 );
+		submit( 0, 15, 0 );
+		// out of all views, thus opened last, but not dropped
+		submit( 0, 8, 8 );
+		assertEquals( 3, queue.getNumPending() );
+
+		// panning one viewer keeps the tiles in view of the other one
+		queue.setViewport( VIEWER, viewport( 5, 1505 ) );
+		assertEquals( 1, queue.getNumPending() );
+		assertEquals( 2, queue.getNumCancelled() );
+
+		// closing the other viewer
+		queue.removeViewport( otherViewer );
+		assertEquals( 0, queue.getNumPending() );
+
+		// without any viewer, all tiles are opened
+		queue.removeViewport( VIEWER );
+		submit( 0, 8, 8 );
+		release.countDown();
+		awaitIdle( viewport( 5, 5 ) );
+		assertEquals( Collections.singletonList( Arrays.asList( 0, 8, 8 ) ), opened );
+	}
+
+	private void submit( int level, int x, int y )
+	{
+		final List< Integer > tile = Arrays.asList( level, x, y );
+		queue.submit( tile, level, () -> tileBounds( x, y ), () -> opened.add( tile ) );
+	}
+
+	// with only one worker, the queue is idle once a request has run
+	// that is sorted after all others: not visible and of the lowest level
+	private void awaitIdle( RealInterval viewport ) throws InterruptedException
+	{
+		final double[] position = new double[ 2 ];
+		for ( int d = 0; d < 2; d++ )
+			position[ d ] = viewport.realMax( d ) + 0.25 * VIEWPORT_SIZE;
+		final CountDownLatch idle = new CountDownLatch( 1 );
+		queue.submit( new Object(), -1, () -> new FinalRealInterval( position, position ), idle::countDown );
+		assertTrue( idle.await( 10, TimeUnit.SECONDS ) );
+		assertEquals( 0, queue.getNumPending() );
+	}
+
+	private static RealInterval tileBounds( int x, int y )
+	{
+		return new FinalRealInterval(
+				new double[]{ x * TILE_SIZE, y * TILE_SIZE },
+				new double[]{ ( x + 1 ) * TILE_SIZE, ( y + 1 ) * TILE_SIZE } );
+	}
+
+	private static RealInterval viewport( double minX, double minY )
+	{
+		return new FinalRealInterval(
+				new double[]{ minX, minY },
+				new double[]{ minX + VIEWPORT_SIZE, minY + VIEWPORT_SIZE } );
+	}
+
+	private static boolean intersects( RealInterval a, RealInterval b )
+	{
+		for ( int d = 0; d < 2; d++ )
+			if ( a.realMax( d ) < b.realMin( d ) || a.realMin( d ) > b.realMax( d ) )
+				return false;
+		return true;
+	}
+
+	private static double distance( List< Integer > tile, RealInterval viewport )
+	{
+		final RealInterval bounds = tileBounds( tile.get( 1 ), tile.get( 2 ) );
+		double squaredDistance = 0;
+		for ( int d = 0; d < 2; d++ )
+		{
+			final double delta = 0.5 * ( bounds.realMin( d ) + bounds.realMax( d ) )
+					- 0.5 * ( viewport.realMin( d ) + viewport.realMax( d ) );
+			squaredDistance += delta * delta;
+		}
+		return squaredDistance;
+	}
+
+	private static void await( CountDownLatch latch )
+	{
+		try
+		{
+			latch.await();
+		}
+		catch ( InterruptedException e )
+		{
+			Thread.currentThread().interrupt();
+		}
+	}
+}
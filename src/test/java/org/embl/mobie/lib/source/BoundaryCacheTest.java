@@ -0,0 +1,139 @@
+/*-
+ * #%L
+ * Fiji viewer for MoBIE projects
+ * %%
+ * Copyright (C) 2018 - 2024 EMBL
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.embl.mobie.lib.source;
+
+import bdv.util.RandomAccessibleIntervalMipmapSource;
+import bdv.viewer.Interpolation;
+import mpicbg.spim.data.sequence.FinalVoxelDimensions;
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.RealRandomAccess;
+import net.imglib2.RealRandomAccessible;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.img.basictypeaccess.array.ByteArray;
+import net.imglib2.realtransform.AffineTransform3D;
+import net.imglib2.type.numeric.integer.UnsignedByteType;
+import net.imglib2.view.Views;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoundaryCacheTest
+{
+	@Test
+	void cachedBoundariesEqualBoundariesComputedOnTheFly()
+	{
+		final RandomAccessibleIntervalMipmapSource< UnsignedByteType > source = randomLabelPyramid( new Random( 42 ) );
+
+		// whole voxels, fractions of voxels and less than a voxel
+		for ( double boundaryWidth : new double[]{ 1.0, 2.0, 3.0, 1.4, 0.3 } )
+		{
+			final BoundarySource< UnsignedByteType > cached = new BoundarySource<>( source, true, ( float ) boundaryWidth, null );
+			cached.setBoundaryCache( new BoundaryCache<>( source ) );
+
+			for ( int level = 0; level < source.getNumMipmapLevels(); level++ )
+			{
+				// the cache rounds the width to whole voxels of the level, but at least one
+				final double scale = 1 << level;
+				final double roundedWidth = Math.max( 1, Math.round( boundaryWidth / scale ) ) * scale;
+				final BoundarySource< UnsignedByteType > onTheFly = new BoundarySource<>( source, true, ( float ) roundedWidth, null );
+
+				final long numBoundaryVoxels = assertSameValuesAtVoxelCentres(
+						source.getSource( 0, level ),
+						onTheFly.getInterpolatedSource( 0, level, Interpolation.NEARESTNEIGHBOR ),
+						cached.getInterpolatedSource( 0, level, Interpolation.NEARESTNEIGHBOR ),
+						"width " + boundaryWidth + ", level " + level );
+				assertTrue( numBoundaryVoxels > 0 );
+			}
+		}
+	}
+
+	@Test
+	void boundaryWidthIsRoundedToWholeVoxels()
+	{
+		assertArrayEquals( new long[]{ 1, 1, 2 }, BoundaryCache.voxelBoundaryWidth( new double[]{ 0.3, 1.4, 1.5 } ) );
+	}
+
+	private static long assertSameValuesAtVoxelCentres( RandomAccessibleInterval< UnsignedByteType > voxels, RealRandomAccessible< UnsignedByteType > expected, RealRandomAccessible< UnsignedByteType > actual, String message )
+	{
+		final RealRandomAccess< UnsignedByteType > expectedAccess = expected.realRandomAccess();
+		final RealRandomAccess< UnsignedByteType > actualAccess = actual.realRandomAccess();
+		final Cursor< UnsignedByteType > cursor = Views.flatIterable( voxels ).localizingCursor();
+		long numBoundaryVoxels = 0;
+		while ( cursor.hasNext() )
+		{
+			cursor.fwd();
+			expectedAccess.setPosition( cursor );
+			actualAccess.setPosition( cursor );
+			final int value = expectedAccess.get().get();
+			assertEquals( value, actualAccess.get().get(), message );
+			if ( value != 0 )
+				numBoundaryVoxels++;
+		}
+		return numBoundaryVoxels;
+	}
+
+	// overlapping random boxes of random labels, including the background;
+	// the full resolution level is wider than one cell of the cache and
+	// has a non-zero minimum to check the coordinate handling
+	@SuppressWarnings( "unchecked" )
+	private static RandomAccessibleIntervalMipmapSource< UnsignedByteType > randomLabelPyramid( Random random )
+	{
+		final long[] dimensions = { 70, 30, 20 };
+		final ArrayImg< UnsignedByteType, ByteArray > img = ArrayImgs.unsignedBytes( dimensions );
+		final long[] min = new long[ 3 ];
+		final long[] max = new long[ 3 ];
+		for ( int box = 0; box < 40; box++ )
+		{
+			for ( int d = 0; d < 3; d++ )
+			{
+				min[ d ] = random.nextInt( ( int ) dimensions[ d ] );
+				max[ d ] = Math.min( dimensions[ d ] - 1, min[ d ] + random.nextInt( ( int ) dimensions[ d ] / 2 ) );
+			}
+			final int label = random.nextInt( 6 );
+			Views.interval( img, min, max ).forEach( value -> value.set( label ) );
+		}
+
+		final RandomAccessibleInterval< UnsignedByteType >[] levels = new RandomAccessibleInterval[]{
+				Views.translate( img, 3, -2, 1 ),
+				Views.subsample( img, 2 ) };
+		final double[][] mipmapScales = { { 1, 1, 1 }, { 2, 2, 2 } };
+
+		return new RandomAccessibleIntervalMipmapSource<>(
+				levels,
+				new UnsignedByteType(),
+				mipmapScales,
+				new FinalVoxelDimensions( "um", 1, 1, 1 ),
+				new AffineTransform3D(),
+				"labels" );
+	}
+}
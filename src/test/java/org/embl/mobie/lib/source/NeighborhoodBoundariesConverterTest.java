@@ -0,0 +1,127 @@
+/*-
+ * #%L
+ * Fiji viewer for MoBIE projects
+ * %%
+ * Copyright (C) 2018 - 2024 EMBL
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.embl.mobie.lib.source;
+
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.algorithm.neighborhood.RectangleShape;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.img.basictypeaccess.array.ByteArray;
+import net.imglib2.type.numeric.integer.UnsignedByteType;
+import net.imglib2.view.Views;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NeighborhoodBoundariesConverterTest
+{
+	@Test
+	void separableBoundariesEqualNeighborhoodBoundaries2D()
+	{
+		final Random random = new Random( 42 );
+		for ( int repetition = 0; repetition < 5; repetition++ )
+			assertEqualBoundaries( randomLabelImage( random, 67, 43 ) );
+	}
+
+	@Test
+	void separableBoundariesEqualNeighborhoodBoundaries3D()
+	{
+		final Random random = new Random( 43 );
+		for ( int repetition = 0; repetition < 3; repetition++ )
+			assertEqualBoundaries( randomLabelImage( random, 31, 23, 17 ) );
+	}
+
+	private static void assertEqualBoundaries( RandomAccessibleInterval< UnsignedByteType > labels )
+	{
+		for ( int span = 0; span <= 4; span++ )
+		{
+			for ( boolean skipCenter : new boolean[]{ false, true } )
+			{
+				final RandomAccessibleInterval< UnsignedByteType > expected =
+						NeighborhoodBoundariesConverter.getNeighborhoodConvertedView(
+								labels,
+								new NeighborhoodBoundariesConverter<>( labels, 0 ),
+								new RectangleShape( span, skipCenter ),
+								0 );
+
+				final ArrayImg< UnsignedByteType, ByteArray > img = ArrayImgs.unsignedBytes( labels.dimensionsAsLongArray() );
+				final RandomAccessibleInterval< UnsignedByteType > computed = Views.translate( img, labels.minAsLongArray() );
+				NeighborhoodBoundariesConverter.computeBoundaries( labels, computed, span, 0 );
+				assertSameValues( expected, computed, "span " + span );
+
+				final int[] blockSize = new int[ labels.numDimensions() ];
+				for ( int d = 0; d < blockSize.length; d++ )
+					blockSize[ d ] = 5 + 2 * d;
+				final RandomAccessibleInterval< UnsignedByteType > cached = NeighborhoodBoundariesConverter.getBoundariesView( labels, span, 0, blockSize );
+				assertSameValues( expected, cached, "span " + span + " (cached)" );
+			}
+		}
+	}
+
+	private static void assertSameValues( RandomAccessibleInterval< UnsignedByteType > expected, RandomAccessibleInterval< UnsignedByteType > actual, String message )
+	{
+		final Cursor< UnsignedByteType > cursor = Views.flatIterable( expected ).localizingCursor();
+		final RandomAccess< UnsignedByteType > access = actual.randomAccess();
+		while ( cursor.hasNext() )
+		{
+			final int value = cursor.next().get();
+			access.setPosition( cursor );
+			assertEquals( value, access.get().get(), message );
+		}
+	}
+
+	// overlapping random boxes of random labels, including the background,
+	// with a non-zero minimum to check the coordinate handling
+	private static RandomAccessibleInterval< UnsignedByteType > randomLabelImage( Random random, long... dimensions )
+	{
+		final ArrayImg< UnsignedByteType, ByteArray > img = ArrayImgs.unsignedBytes( dimensions );
+		final int numDimensions = dimensions.length;
+		final long[] min = new long[ numDimensions ];
+		final long[] max = new long[ numDimensions ];
+		for ( int box = 0; box < 40; box++ )
+		{
+			for ( int d = 0; d < numDimensions; d++ )
+			{
+				min[ d ] = random.nextInt( ( int ) dimensions[ d ] );
+				max[ d ] = Math.min( dimensions[ d ] - 1, min[ d ] + random.nextInt( ( int ) dimensions[ d ] / 2 ) );
+			}
+			final int label = random.nextInt( 6 );
+			Views.interval( img, min, max ).forEach( value -> value.set( label ) );
+		}
+
+		final long[] translation = new long[ numDimensions ];
+		for ( int d = 0; d < numDimensions; d++ )
+			translation[ d ] = random.nextInt( 21 ) - 10;
+		return Views.translate( img, translation );
+	}
+}
@@ -0,0 +1,108 @@
+/*-
+ * #%L
+ * Fiji viewer for MoBIE projects
+ * %%
+ * Copyright (C) 2018 - 2024 EMBL
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.embl.mobie.lib.source;
+
+import bdv.util.RandomAccessibleIntervalMipmapSource;
+import mpicbg.spim.data.sequence.FinalVoxelDimensions;
+import net.imglib2.FinalInterval;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.position.FunctionRandomAccessible;
+import net.imglib2.realtransform.AffineTransform3D;
+import net.imglib2.realtransform.ThinplateSplineTransform;
+import net.imglib2.realtransform.inverse.WrappedIterativeInvertibleRealTransform;
+import net.imglib2.type.numeric.integer.UnsignedByteType;
+import net.imglib2.util.Intervals;
+import net.imglib2.view.Views;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RealTransformedSourceTest
+{
+	@Test
+	void mipmapLevelIntervals()
+	{
+		final long[] dimensions = { 128, 96, 40 };
+		final int numLevels = 4;
+
+		final FunctionRandomAccessible< UnsignedByteType > image = new FunctionRandomAccessible<>( 3,
+				( position, value ) -> value.set( position.getIntPosition( 0 ) % 256 ),
+				UnsignedByteType::new );
+		final RandomAccessibleInterval< UnsignedByteType >[] levels = new RandomAccessibleInterval[ numLevels ];
+		final double[][] mipmapScales = new double[ numLevels ][ 3 ];
+		for ( int level = 0; level < numLevels; level++ )
+		{
+			final long scale = 1L << level;
+			levels[ level ] = Views.interval( image, new FinalInterval( dimensions[ 0 ] / scale, dimensions[ 1 ] / scale, dimensions[ 2 ] / scale ) );
+			mipmapScales[ level ] = new double[]{ scale, scale, scale };
+		}
+		final RandomAccessibleIntervalMipmapSource< UnsignedByteType > pyramid = new RandomAccessibleIntervalMipmapSource<>(
+				levels,
+				new UnsignedByteType(),
+				mipmapScales,
+				new FinalVoxelDimensions( "um", 1, 1, 1 ),
+				new AffineTransform3D(),
+				"pyramid" );
+
+		// thin plate spline, whose landmarks are translated
+		// by a multiple of the coarsest voxel size
+		final double[] translation = { 16, -32, 8 };
+		final double[][] sourceLandmarks = new double[ 3 ][ 9 ];
+		final double[][] targetLandmarks = new double[ 3 ][ 9 ];
+		for ( int landmark = 0; landmark < 9; landmark++ )
+		{
+			for ( int d = 0; d < 3; d++ )
+			{
+				// the corners of the image and its centre
+				final double position = landmark == 8 ? dimensions[ d ] / 2.0 : ( ( landmark >> d ) & 1 ) * dimensions[ d ];
+				sourceLandmarks[ d ][ landmark ] = position;
+				targetLandmarks[ d ][ landmark ] = position + translation[ d ];
+			}
+		}
+		final WrappedIterativeInvertibleRealTransform< ThinplateSplineTransform > tps =
+				new WrappedIterativeInvertibleRealTransform<>( new ThinplateSplineTransform( sourceLandmarks, targetLandmarks ) );
+
+		final RealTransformedSource< UnsignedByteType > transformedSource = new RealTransformedSource<>( pyramid, tps, "transformed" );
+
+		for ( int level = 0; level < numLevels; level++ )
+		{
+			final long scale = 1L << level;
+			final RandomAccessibleInterval< UnsignedByteType > rai = transformedSource.getSource( 0, level );
+			for ( int d = 0; d < 3; d++ )
+			{
+				assertEquals( dimensions[ d ] / scale, rai.dimension( d ), "level " + level );
+				assertEquals( ( long ) ( - translation[ d ] / scale ), rai.min( d ), "level " + level );
+			}
+			assertEquals( Intervals.numElements( levels[ level ] ), Intervals.numElements( rai ), "level " + level );
+		}
+
+		// coarse levels are actually coarse
+		assertEquals( Intervals.numElements( levels[ 0 ] ) / 512, Intervals.numElements( transformedSource.getSource( 0, numLevels - 1 ) ) );
+	}
+}
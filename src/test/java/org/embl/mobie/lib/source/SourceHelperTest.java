@@ -0,0 +1,106 @@
+/*-
+ * #%L
+ * Fiji viewer for MoBIE projects
+ * %%
+ * Copyright (C) 2018 - 2024 EMBL
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.embl.mobie.lib.source;
+
+import bdv.util.RandomAccessibleIntervalMipmapSource;
+import mpicbg.spim.data.sequence.FinalVoxelDimensions;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.cache.img.ReadOnlyCachedCellImgFactory;
+import net.imglib2.cache.img.ReadOnlyCachedCellImgOptions;
+import net.imglib2.realtransform.AffineTransform3D;
+import net.imglib2.type.numeric.integer.UnsignedByteType;
+import org.embl.mobie.lib.image.DefaultSourcePair;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SourceHelperTest
+{
+	// the coarsest level has 2 x 3 x 1 cells
+	private static final int NUM_COARSEST_CELLS = 6;
+
+	@Test
+	void prefetchAllCellsOfTheCoarsestLevel() throws InterruptedException
+	{
+		final AtomicInteger[] numLoadedCells = { new AtomicInteger(), new AtomicInteger() };
+		final RandomAccessibleIntervalMipmapSource< UnsignedByteType > source = createPyramid( numLoadedCells, true );
+
+		SourceHelper.prefetchCoarsestLevel( new DefaultSourcePair<>( source, null ), 0 );
+
+		// the cells are loaded by the shared queue
+		final long start = System.currentTimeMillis();
+		while ( numLoadedCells[ 1 ].get() < NUM_COARSEST_CELLS && System.currentTimeMillis() - start < 10_000 )
+			Thread.sleep( 10 );
+
+		assertEquals( NUM_COARSEST_CELLS, numLoadedCells[ 1 ].get() );
+		assertEquals( 0, numLoadedCells[ 0 ].get() );
+	}
+
+	@Test
+	void prefetchAllCellsWithoutVolatileAccess()
+	{
+		final AtomicInteger[] numLoadedCells = { new AtomicInteger(), new AtomicInteger() };
+		final RandomAccessibleIntervalMipmapSource< UnsignedByteType > source = createPyramid( numLoadedCells, false );
+
+		// there is no volatile source, thus the cells are loaded right away
+		SourceHelper.prefetchCoarsestLevel( new DefaultSourcePair<>( source, null ), 0 );
+
+		assertEquals( NUM_COARSEST_CELLS, numLoadedCells[ 1 ].get() );
+		assertEquals( 0, numLoadedCells[ 0 ].get() );
+	}
+
+	@SuppressWarnings( "unchecked" )
+	private static RandomAccessibleIntervalMipmapSource< UnsignedByteType > createPyramid( AtomicInteger[] numLoadedCells, boolean volatileAccesses )
+	{
+		final long[][] dimensions = { { 64, 80, 8 }, { 32, 40, 8 } };
+		final RandomAccessibleInterval< UnsignedByteType >[] levels = new RandomAccessibleInterval[ dimensions.length ];
+		for ( int level = 0; level < levels.length; level++ )
+		{
+			final AtomicInteger numLoaded = numLoadedCells[ level ];
+			levels[ level ] = new ReadOnlyCachedCellImgFactory().create(
+					dimensions[ level ],
+					new UnsignedByteType(),
+					cell -> numLoaded.incrementAndGet(),
+					ReadOnlyCachedCellImgOptions.options()
+							.cellDimensions( 16, 16, 8 )
+							.volatileAccesses( volatileAccesses ) );
+		}
+		final double[][] mipmapScales = { { 1, 1, 1 }, { 2, 2, 1 } };
+
+		return new RandomAccessibleIntervalMipmapSource<>(
+				levels,
+				new UnsignedByteType(),
+				mipmapScales,
+				new FinalVoxelDimensions( "um", 1, 1, 1 ),
+				new AffineTransform3D(),
+				"pyramid" );
+	}
+}
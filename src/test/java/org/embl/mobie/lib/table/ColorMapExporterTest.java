@@ -0,0 +1,121 @@
+/*-
+ * #%L
+ * Fiji viewer for MoBIE projects
+ * %%
+ * Copyright (C) 2018 - 2024 EMBL
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.embl.mobie.lib.table;
+
+import net.imglib2.type.numeric.ARGBType;
+import net.imglib2.util.ValuePair;
+import org.embl.mobie.lib.color.ColoringModels;
+import org.embl.mobie.lib.color.MobieColoringModel;
+import org.embl.mobie.lib.color.lut.LUTs;
+import org.embl.mobie.lib.select.MoBIESelectionModel;
+import org.embl.mobie.lib.table.saw.TableSawAnnotatedSegment;
+import org.embl.mobie.lib.table.saw.TableSawAnnotatedSegmentCreator;
+import org.embl.mobie.lib.table.saw.TableSawAnnotationTableModel;
+import org.junit.jupiter.api.Test;
+import tech.tablesaw.api.DoubleColumn;
+import tech.tablesaw.api.IntColumn;
+import tech.tablesaw.api.Table;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ColorMapExporterTest
+{
+	static { net.imagej.patcher.LegacyInjector.preinit(); }
+
+	private static final int NUM_ROWS = 1_000_000;
+	private static final String CLASS = "class";
+	private static final String SCORE = "score";
+
+	@Test
+	void exportColorMap()
+	{
+		final Random random = new Random( 42 );
+		final int[] labelIds = new int[ NUM_ROWS ];
+		final int[] classes = new int[ NUM_ROWS ];
+		final double[] scores = new double[ NUM_ROWS ];
+		final double[] anchors = new double[ NUM_ROWS ];
+		for ( int rowIndex = 0; rowIndex < NUM_ROWS; rowIndex++ )
+		{
+			labelIds[ rowIndex ] = rowIndex + 1;
+			classes[ rowIndex ] = random.nextInt( 20 );
+			scores[ rowIndex ] = random.nextDouble();
+		}
+		final Table table = Table.create( "segments",
+				IntColumn.create( ColumnNames.LABEL_ID, labelIds ),
+				IntColumn.create( CLASS, classes ),
+				DoubleColumn.create( SCORE, scores ),
+				DoubleColumn.create( ColumnNames.ANCHOR_X, anchors ),
+				DoubleColumn.create( ColumnNames.ANCHOR_Y, anchors ) );
+		final TableSawAnnotationTableModel< TableSawAnnotatedSegment > tableModel = new TableSawAnnotationTableModel<>( "segments", new TableSawAnnotatedSegmentCreator( table ), null, null, table );
+		final ArrayList< TableSawAnnotatedSegment > annotations = tableModel.annotations();
+
+		final MoBIESelectionModel< TableSawAnnotatedSegment > selectionModel = new MoBIESelectionModel<>();
+		selectionModel.setSelected( annotations.get( 10 ), true );
+
+		// categorical
+		final MobieColoringModel< TableSawAnnotatedSegment > categoricalModel = new MobieColoringModel<>(
+				ColoringModels.createCategoricalModel( CLASS, LUTs.GLASBEY, LUTs.TRANSPARENT ),
+				selectionModel, new ARGBType( ARGBType.rgba( 255, 255, 0, 255 ) ), 0.15 );
+		assertColorsEqualPerRowPath( annotations, categoricalModel );
+
+		final Table categoricalColorMap = ColorMapExporter.createColorMapTable( tableModel, CLASS, categoricalModel );
+		final Set< String > distinct = new HashSet<>();
+		for ( int rowIndex = 0; rowIndex < categoricalColorMap.rowCount(); rowIndex++ )
+			assertTrue( distinct.add( categoricalColorMap.stringColumn( ColorMapExporter.VALUE ).get( rowIndex )
+					+ ";" + categoricalColorMap.intColumn( ColorMapExporter.R ).getInt( rowIndex )
+					+ ";" + categoricalColorMap.intColumn( ColorMapExporter.G ).getInt( rowIndex )
+					+ ";" + categoricalColorMap.intColumn( ColorMapExporter.B ).getInt( rowIndex ) ) );
+		// 20 classes, plus the selection color for the class of the selected annotation
+		assertEquals( 21, categoricalColorMap.rowCount() );
+		assertEquals( categoricalColorMap.rowCount(), ColorMapExporter.toResultsTable( categoricalColorMap ).size() );
+
+		// numeric
+		final MobieColoringModel< TableSawAnnotatedSegment > numericModel = new MobieColoringModel<>(
+				ColoringModels.createNumericModel( SCORE, LUTs.VIRIDIS, new ValuePair<>( 0.0, 1.0 ), false ),
+				selectionModel, null, 0.15 );
+		assertColorsEqualPerRowPath( annotations, numericModel );
+	}
+
+	private static void assertColorsEqualPerRowPath( ArrayList< TableSawAnnotatedSegment > annotations, MobieColoringModel< TableSawAnnotatedSegment > coloringModel )
+	{
+		final int[] colors = ColorMapExporter.computeColors( annotations, coloringModel );
+		assertEquals( annotations.size(), colors.length );
+		for ( int rowIndex = 0; rowIndex < NUM_ROWS; rowIndex++ )
+		{
+			final ARGBType argbType = new ARGBType();
+			coloringModel.convert( annotations.get( rowIndex ), argbType );
+			assertEquals( argbType.get(), colors[ rowIndex ] );
+		}
+	}
+}
@@ -0,0 +1,181 @@
+/*-
+ * #%L
+ * Fiji viewer for MoBIE projects
+ * %%
+ * Copyright (C) 2018 - 2024 EMBL
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.embl.mobie.lib.table;
+
+import net.imglib2.util.Pair;
+import org.embl.mobie.lib.io.StorageLocation;
+import org.embl.mobie.lib.table.saw.TableSawAnnotatedSegment;
+import org.embl.mobie.lib.table.saw.TableSawAnnotatedSegmentCreator;
+import org.embl.mobie.lib.table.saw.TableSawAnnotationTableModel;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcatenatedAnnotationTableModelTest
+{
+	static { net.imagej.patcher.LegacyInjector.preinit(); }
+
+	private static final int NUM_WELLS = 96;
+	private static final int NUM_ROWS = 200;
+	private static final String SIZE = "size";
+
+	@TempDir
+	Path tempDir;
+
+	@Test
+	void loadAllTables() throws IOException
+	{
+		final List< String > wells = writeWellTables();
+
+		// reference: load the tables one after the other
+		final List< TableSawAnnotationTableModel< TableSawAnnotatedSegment > > referenceModels = createTableModels( wells );
+		double min = Double.MAX_VALUE;
+		double max = -Double.MAX_VALUE;
+		int numAnnotations = 0;
+		for ( TableSawAnnotationTableModel< TableSawAnnotatedSegment > tableModel : referenceModels )
+		{
+			for ( TableSawAnnotatedSegment segment : tableModel.annotations() )
+			{
+				min = Math.min( min, segment.getNumber( SIZE ) );
+				max = Math.max( max, segment.getNumber( SIZE ) );
+				numAnnotations++;
+			}
+		}
+
+		// concurrent loading
+		final Set< AnnotationTableModel< TableSawAnnotatedSegment > > tableModels = new HashSet<>( createTableModels( wells ) );
+		final ConcatenatedAnnotationTableModel< TableSawAnnotatedSegment > concatenatedModel = new ConcatenatedAnnotationTableModel<>( tableModels );
+		concatenatedModel.loadAllTables();
+
+		assertEquals( numAnnotations, concatenatedModel.numAnnotations() );
+
+		final Pair< Double, Double > minMax = concatenatedModel.getMinMax( SIZE );
+		assertEquals( min, minMax.getA() );
+		assertEquals( max, minMax.getB() );
+
+		// the statistics are cached, but must follow modifications
+		final TableSawAnnotatedSegment segment = concatenatedModel.annotation( 0 );
+		concatenatedModel.addNumericColumn( "score" );
+		segment.setNumber( "score", 42.0 );
+		assertEquals( 42.0, concatenatedModel.getMinMax( "score" ).getB() );
+		segment.setNumber( "score", 7.0 );
+		assertEquals( 7.0, concatenatedModel.getMinMax( "score" ).getB() );
+
+		for ( int rowIndex = 0; rowIndex < concatenatedModel.numAnnotations(); rowIndex += 997 )
+			assertEquals( rowIndex, concatenatedModel.rowIndexOf( concatenatedModel.annotation( rowIndex ) ) );
+	}
+
+	@Test
+	void readWhileTablesAreLoaded() throws Exception
+	{
+		final Set< AnnotationTableModel< TableSawAnnotatedSegment > > tableModels = new HashSet<>( createTableModels( writeWellTables() ) );
+		final ConcatenatedAnnotationTableModel< TableSawAnnotatedSegment > concatenatedModel = new ConcatenatedAnnotationTableModel<>( tableModels );
+
+		// like the table view, while the tables are loaded
+		final AtomicBoolean isLoading = new AtomicBoolean( true );
+		final AtomicReference< Throwable > error = new AtomicReference<>();
+		final Thread reader = new Thread( () ->
+		{
+			try
+			{
+				while ( isLoading.get() )
+				{
+					final int numAnnotations = concatenatedModel.numAnnotations();
+					if ( numAnnotations > 0 )
+						assertNotNull( concatenatedModel.annotation( numAnnotations - 1 ) );
+
+					int numIterated = 0;
+					for ( TableSawAnnotatedSegment segment : concatenatedModel.annotations() )
+						numIterated++;
+					assertTrue( numIterated >= numAnnotations );
+				}
+			}
+			catch ( Throwable throwable )
+			{
+				error.set( throwable );
+			}
+		} );
+		reader.start();
+
+		concatenatedModel.loadAllTables();
+		isLoading.set( false );
+		reader.join();
+
+		assertNull( error.get() );
+		assertEquals( NUM_WELLS * NUM_ROWS, concatenatedModel.numAnnotations() );
+	}
+
+	private List< String > writeWellTables() throws IOException
+	{
+		final Random random = new Random( 42 );
+		final List< String > wells = new ArrayList<>();
+		for ( int wellIndex = 0; wellIndex < NUM_WELLS; wellIndex++ )
+		{
+			final String well = "well" + wellIndex;
+			final Path wellDir = Files.createDirectories( tempDir.resolve( well ) );
+			final StringBuilder table = new StringBuilder();
+			table.append( String.join( "\t", ColumnNames.LABEL_ID, ColumnNames.ANCHOR_X, ColumnNames.ANCHOR_Y, SIZE ) ).append( "\n" );
+			for ( int rowIndex = 0; rowIndex < NUM_ROWS; rowIndex++ )
+			{
+				table.append( rowIndex + 1 ).append( "\t" )
+						.append( 100 * random.nextDouble() ).append( "\t" )
+						.append( 100 * random.nextDouble() ).append( "\t" )
+						.append( 1000 * random.nextGaussian() ).append( "\n" );
+			}
+			Files.write( wellDir.resolve( TableDataFormat.MOBIE_DEFAULT_CHUNK ), table.toString().getBytes() );
+			wells.add( well );
+		}
+		return wells;
+	}
+
+	private List< TableSawAnnotationTableModel< TableSawAnnotatedSegment > > createTableModels( List< String > wells )
+	{
+		final List< TableSawAnnotationTableModel< TableSawAnnotatedSegment > > tableModels = new ArrayList<>();
+		for ( String well : wells )
+		{
+			final StorageLocation storageLocation = new StorageLocation();
+			storageLocation.absolutePath = tempDir.resolve( well ).toString();
+			storageLocation.defaultChunk = TableDataFormat.MOBIE_DEFAULT_CHUNK;
+			tableModels.add( new TableSawAnnotationTableModel<>( well, new TableSawAnnotatedSegmentCreator( null ), storageLocation, TableDataFormat.TSV, null ) );
+		}
+		return tableModels;
+	}
+}
@@ -0,0 +1,90 @@
+/*-
+ * #%L
+ * Fiji viewer for MoBIE projects
+ * %%
+ * Copyright (C) 2018 - 2024 EMBL
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.embl.mobie.lib.table;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DistanceComputerTest
+{
+	@Test
+	void median()
+	{
+		final Random random = new Random( 42 );
+		for ( int size = 1; size < 50; size++ )
+		{
+			final double[] values = random.doubles( size ).map( v -> Math.floor( 10 * v ) ).toArray();
+			final double[] sorted = values.clone();
+			Arrays.sort( sorted );
+			final double expected = size % 2 == 0 ? ( sorted[ size / 2 - 1 ] + sorted[ size / 2 ] ) / 2.0 : sorted[ size / 2 ];
+			assertEquals( expected, DistanceComputer.median( values ) );
+		}
+	}
+
+	@Test
+	void distancesAndNearestRows()
+	{
+		final Random random = new Random( 42 );
+		final int numRows = 10_000;
+		final int numFeatures = 7;
+		final double[][] features = new double[ numFeatures ][ numRows ];
+		for ( double[] feature : features )
+			for ( int rowIndex = 0; rowIndex < numRows; rowIndex++ )
+				feature[ rowIndex ] = random.nextGaussian();
+		final double[] reference = { 0.1, -0.2, 0.3, 0.0, 1.0, 0.5, -1.0 };
+
+		final double[] euclidian = DistanceComputer.computeDistances( features, reference, DistanceComputer.DistanceMetric.Euclidian );
+		final double[] cosine = DistanceComputer.computeDistances( features, reference, DistanceComputer.DistanceMetric.Cosine );
+		for ( int rowIndex = 0; rowIndex < numRows; rowIndex++ )
+		{
+			double sumOfSquares = 0, dot = 0, normA = 0, normB = 0;
+			for ( int featureIndex = 0; featureIndex < numFeatures; featureIndex++ )
+			{
+				final double value = features[ featureIndex ][ rowIndex ];
+				sumOfSquares += Math.pow( value - reference[ featureIndex ], 2 );
+				dot += value * reference[ featureIndex ];
+				normA += value * value;
+				normB += reference[ featureIndex ] * reference[ featureIndex ];
+			}
+			assertEquals( Math.sqrt( sumOfSquares ), euclidian[ rowIndex ], 1e-12 );
+			assertEquals( 1 - dot / ( Math.sqrt( normA ) * Math.sqrt( normB ) ), cosine[ rowIndex ], 1e-12 );
+		}
+
+		final int[] expected = IntStream.range( 0, numRows ).boxed()
+				.sorted( Comparator.comparingDouble( rowIndex -> euclidian[ rowIndex ] ) )
+				.limit( 25 ).mapToInt( i -> i ).toArray();
+		assertArrayEquals( expected, DistanceComputer.nearestRows( euclidian, 25 ) );
+	}
+}
@@ -0,0 +1,198 @@
+/*-
+ * #%L
+ * Fiji viewer for MoBIE projects
+ * %%
+ * Copyright (C) 2018 - 2024 EMBL
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.embl.mobie.lib.transform;
+
+import net.imglib2.realtransform.AffineTransform3D;
+import net.imglib2.roi.RealMaskRealInterval;
+import net.imglib2.roi.geom.GeomMasks;
+import org.embl.mobie.DataStore;
+import org.embl.mobie.lib.image.Image;
+import org.embl.mobie.lib.image.SourcePair;
+import org.embl.mobie.lib.serialize.transformation.AffineTransformation;
+import org.embl.mobie.lib.serialize.transformation.GridTransformation;
+import org.embl.mobie.lib.serialize.transformation.Transformation;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImageTransformerTest
+{
+	private static final int NUM_IMAGES = 500;
+
+	@AfterEach
+	void clearImages()
+	{
+		DataStore.clearImages();
+	}
+
+	@Test
+	void concurrentEqualsSequential()
+	{
+		putImages();
+		for ( Transformation transformation : createTransformations() )
+			ImageTransformer.transform( transformation );
+		final Map< String, double[] > expected = getTransformsAndBounds();
+		DataStore.clearImages();
+
+		putImages();
+		ImageTransformer.transform( createTransformations() );
+		final Map< String, double[] > actual = getTransformsAndBounds();
+
+		assertEquals( expected.keySet(), actual.keySet() );
+		for ( String name : expected.keySet() )
+			assertArrayEquals( expected.get( name ), actual.get( name ), 1E-9, name );
+	}
+
+	@Test
+	void failuresArePropagated()
+	{
+		putImages();
+		final List< Transformation > transformations = new ArrayList<>();
+		transformations.add( new AffineTransformation( "missing", new AffineTransform3D().getRowPackedCopy(), singleton( "missing" ) ) );
+		assertThrows( RuntimeException.class, () -> ImageTransformer.transform( transformations ) );
+	}
+
+	private static void putImages()
+	{
+		for ( int i = 0; i < NUM_IMAGES; i++ )
+			DataStore.addImage( new MaskImage( "image" + i ) );
+	}
+
+	private static List< Transformation > createTransformations()
+	{
+		final List< String > first = new ArrayList<>();
+		final List< String > second = new ArrayList<>();
+		final List< String > all = new ArrayList<>();
+		for ( int i = 0; i < NUM_IMAGES; i++ )
+		{
+			( i < NUM_IMAGES / 2 ? first : second ).add( "image" + i );
+			all.add( "image" + i );
+		}
+
+		final List< Transformation > transformations = new ArrayList<>();
+
+		// independent of each other, thus may run concurrently
+		final AffineTransform3D scale = new AffineTransform3D();
+		scale.scale( 2.0, 0.5, 1.0 );
+		transformations.add( new AffineTransformation( "scale", scale.getRowPackedCopy(), first ) );
+		final AffineTransform3D rotation = new AffineTransform3D();
+		rotation.rotate( 2, 0.3 );
+		transformations.add( new AffineTransformation( "rotation", rotation.getRowPackedCopy(), second ) );
+
+		// depends on both of the above
+		final GridTransformation grid = new GridTransformation( all );
+		transformations.add( grid );
+
+		// depends on the grid
+		final AffineTransform3D translation = new AffineTransform3D();
+		translation.translate( 5, -3, 7 );
+		transformations.add( new AffineTransformation( "translation", translation.getRowPackedCopy(), first.subList( 0, 10 ) ) );
+
+		return transformations;
+	}
+
+	// the transform and the bounds of the mask of each image
+	private static Map< String, double[] > getTransformsAndBounds()
+	{
+		final Map< String, double[] > transformsAndBounds = new HashMap<>();
+		for ( int i = 0; i < NUM_IMAGES; i++ )
+		{
+			final MaskImage image = ( MaskImage ) DataStore.getImage( "image" + i );
+			final double[] values = new double[ 12 + 6 ];
+			System.arraycopy( image.transform.getRowPackedCopy(), 0, values, 0, 12 );
+			for ( int d = 0; d < 3; d++ )
+			{
+				values[ 12 + d ] = image.getMask().realMin( d );
+				values[ 15 + d ] = image.getMask().realMax( d );
+			}
+			transformsAndBounds.put( image.getName(), values );
+		}
+		return transformsAndBounds;
+	}
+
+	private static List< String > singleton( String name )
+	{
+		final List< String > names = new ArrayList<>();
+		names.add( name );
+		return names;
+	}
+
+	/**
+	 * A minimal image that only consists of a mask,
+	 * which is sufficient for computing the transformations.
+	 */
+	private static class MaskImage implements Image< Object >
+	{
+		private final String name;
+		private final AffineTransform3D transform = new AffineTransform3D();
+		private RealMaskRealInterval mask = GeomMasks.closedBox( new double[]{ 0, 0, 0 }, new double[]{ 10, 20, 1 } );
+
+		MaskImage( String name )
+		{
+			this.name = name;
+		}
+
+		@Override
+		public SourcePair< Object > getSourcePair()
+		{
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public String getName()
+		{
+			return name;
+		}
+
+		@Override
+		public synchronized void transform( AffineTransform3D affineTransform3D )
+		{
+			mask = mask.transform( affineTransform3D.inverse() );
+			transform.preConcatenate( affineTransform3D );
+		}
+
+		@Override
+		public RealMaskRealInterval getMask()
+		{
+			return mask;
+		}
+
+		@Override
+		public void setMask( RealMaskRealInterval mask )
+		{
+			this.mask = mask;
+		}
+	}
+}
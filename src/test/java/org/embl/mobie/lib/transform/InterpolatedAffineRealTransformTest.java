@@ -0,0 +1,113 @@
+/*-
+ * #%L
+ * Fiji viewer for MoBIE projects
+ * %%
+ * Copyright (C) 2018 - 2024 EMBL
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.embl.mobie.lib.transform;
+
+import net.imglib2.RealPoint;
+import net.imglib2.realtransform.AffineTransform3D;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InterpolatedAffineRealTransformTest
+{
+	@Test
+	void continuityInZ()
+	{
+		final InterpolatedAffineRealTransform transform = createTransform();
+
+		// the translation in x changes by 10 per key section,
+		// thus the slope in z is at most 10 / 2 = 5
+		final double step = 0.01;
+		final double[] previous = new double[ 3 ];
+		final double[] current = new double[ 3 ];
+		transform.apply( new double[]{ 10, 20, -5 }, previous );
+		for ( double z = -5 + step; z < 15; z += step )
+		{
+			transform.apply( new double[]{ 10, 20, z }, current );
+			for ( int d = 0; d < 3; d++ )
+				assertEquals( previous[ d ], current[ d ], 5 * step + 1E-9 + ( d == 2 ? step : 0 ), "z = " + z );
+			System.arraycopy( current, 0, previous, 0, 3 );
+		}
+	}
+
+	@Test
+	void exactInterpolationBetweenSections()
+	{
+		final InterpolatedAffineRealTransform transform = createTransform();
+
+		final double[] target = new double[ 3 ];
+
+		// at the key sections
+		transform.apply( new double[]{ 1, 2, 0 }, target );
+		assertArrayEquals( new double[]{ 1, 2, 0 }, target, 1E-12 );
+		transform.apply( new double[]{ 1, 2, 2 }, target );
+		assertArrayEquals( new double[]{ 11, 2, 2 }, target, 1E-12 );
+
+		// within a slice, previously all positions used the transform of the truncated z
+		transform.apply( new double[]{ 1, 2, 0.25 }, target );
+		assertArrayEquals( new double[]{ 2.25, 2, 0.25 }, target, 1E-12 );
+		transform.apply( new double[]{ 1, 2, 0.75 }, target );
+		assertArrayEquals( new double[]{ 4.75, 2, 0.75 }, target, 1E-12 );
+
+		// outside of the key sections the closest transform is used
+		transform.apply( new double[]{ 1, 2, -3 }, target );
+		assertArrayEquals( new double[]{ 1, 2, -3 }, target, 1E-12 );
+		transform.apply( new double[]{ 1, 2, 12.5 }, target );
+		assertArrayEquals( new double[]{ 21, 2, 12.5 }, target, 1E-12 );
+
+		// both apply methods and copies agree
+		final RealPoint point = new RealPoint( 3 );
+		final double[] position = { 3.3, -1.7, 5.9 };
+		transform.apply( position, target );
+		transform.copy().apply( new RealPoint( position ), point );
+		assertArrayEquals( target, point.positionAsDoubleArray(), 1E-12 );
+
+		// adding a section invalidates the precomputed sections
+		final double[] translateY = new AffineTransform3D().getRowPackedCopy();
+		translateY[ 7 ] = 100;
+		transform.addTransform( 20, translateY );
+		transform.apply( new double[]{ 1, 2, 16 }, target );
+		assertArrayEquals( new double[]{ 9, 62, 16 }, target, 1E-12 );
+	}
+
+	// key sections at z = 0, 2 and 10, translating along x by 0, 10 and 20
+	private static InterpolatedAffineRealTransform createTransform()
+	{
+		final InterpolatedAffineRealTransform transform = new InterpolatedAffineRealTransform( "test", new AffineTransform3D() );
+		final double[] keys = { 0, 2, 10 };
+		final double[] translations = { 0, 10, 20 };
+		for ( int i = 0; i < keys.length; i++ )
+		{
+			final AffineTransform3D affine = new AffineTransform3D();
+			affine.translate( translations[ i ], 0, 0 );
+			transform.addTransform( keys[ i ], affine.getRowPackedCopy() );
+		}
+		return transform;
+	}
+}